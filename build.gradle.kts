@@ -11,6 +11,7 @@ plugins {
     id("io.franzbecker.gradle-lombok") version "3.2.0"
     id("com.github.gradle-git-version-calculator") version "1.1.0"
     id("com.github.ben-manes.versions") version "0.25.0"
+    id("me.champeau.gradle.jmh") version "0.5.0"
 }
 
 repositories {
@@ -79,7 +80,7 @@ tasks.withType<JavaCompile> {
     options.compilerArgs.add("-Xlint:deprecation")
 }
 
-tasks.withType<Jar> {
+tasks.jar {
     manifest {
         attributes["Main-Class"] = "com.github._1c_syntax.bsl.languageserver.BSLLSPLauncher"
         attributes["Implementation-Version"] = archiveVersion.get()
@@ -117,7 +118,53 @@ tasks.jacocoTestReport {
     }
 }
 
+val diagnosticIndexDir = File(buildDir, "generated-resources/diagnostic-index")
+
+// Индекс классов диагностик, читаемый DiagnosticProvider вместо сканирования classpath при запуске.
+// Строится по скомпилированным классам: в индекс попадают реализации BSLDiagnostic с @DiagnosticMetadata
+val generateDiagnosticIndex by tasks.registering {
+    val classesDirs = sourceSets.main.get().output.classesDirs
+    val runtimeClasspath = configurations.runtimeClasspath.get()
+    val indexFile = File(diagnosticIndexDir, "com/github/_1c_syntax/bsl/languageserver/diagnostics/diagnostics.index")
+
+    dependsOn(tasks.compileJava)
+    inputs.files(classesDirs)
+    outputs.dir(diagnosticIndexDir)
+
+    doLast {
+        val packagePath = "com/github/_1c_syntax/bsl/languageserver/diagnostics"
+        val packageName = packagePath.replace('/', '.')
+        val urls = (classesDirs + runtimeClasspath).map { it.toURI().toURL() }.toTypedArray()
+
+        val classNames = java.net.URLClassLoader(urls, null).use { classLoader ->
+            val diagnosticInterface = classLoader.loadClass("$packageName.BSLDiagnostic")
+            @Suppress("UNCHECKED_CAST")
+            val metadataAnnotation =
+                classLoader.loadClass("$packageName.metadata.DiagnosticMetadata") as Class<out Annotation>
+
+            classesDirs.map { File(it, packagePath) }
+                .filter { it.isDirectory }
+                .flatMap { it.listFiles { file -> file.isFile && file.name.endsWith(".class") }!!.toList() }
+                .filter { !it.name.contains('$') }
+                .map { "$packageName." + it.nameWithoutExtension }
+                .filter {
+                    val aClass = Class.forName(it, false, classLoader)
+                    diagnosticInterface.isAssignableFrom(aClass) && aClass.isAnnotationPresent(metadataAnnotation)
+                }
+                .sorted()
+        }
+
+        indexFile.parentFile.mkdirs()
+        indexFile.writeText(classNames.joinToString("\n", postfix = "\n"), Charsets.UTF_8)
+    }
+}
+
+sourceSets.main {
+    resources.srcDir(diagnosticIndexDir)
+}
+
 tasks.processResources {
+    dependsOn(generateDiagnosticIndex)
     filteringCharset = "UTF-8"
     from("docs/diagnostics") {
         into("com/github/_1c_syntax/bsl/languageserver/diagnostics/ru")
@@ -136,6 +183,18 @@ tasks.withType<ProcessResources>().forEach { task ->
     }
 }
 
+jmh {
+    jmhVersion = "1.22"
+    duplicateClassesStrategy = DuplicatesStrategy.EXCLUDE
+    // allocation rate per operation
+    profilers = listOf("gc")
+    resultFormat = "JSON"
+    // ./gradlew jmh -PjmhInclude=DiagnosticBenchmark
+    if (project.hasProperty("jmhInclude")) {
+        include = listOf(project.property("jmhInclude").toString())
+    }
+}
+
 license {
     header = rootProject.file("license/HEADER.txt")
     ext["year"] = "2018-" + Calendar.getInstance().get(Calendar.YEAR)
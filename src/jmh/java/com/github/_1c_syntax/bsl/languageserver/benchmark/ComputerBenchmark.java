@@ -0,0 +1,74 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.benchmark;
+
+import com.github._1c_syntax.bsl.languageserver.context.computer.CognitiveComplexityComputer;
+import com.github._1c_syntax.bsl.languageserver.context.computer.DiagnosticIgnoranceComputer;
+import com.github._1c_syntax.bsl.languageserver.context.computer.MethodSymbolComputer;
+import com.github._1c_syntax.bsl.languageserver.context.computer.RegionSymbolComputer;
+import com.github._1c_syntax.bsl.languageserver.context.symbol.MethodSymbol;
+import com.github._1c_syntax.bsl.languageserver.context.symbol.RegionSymbol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Вычислители данных документа на заранее разобранном модуле.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ComputerBenchmark {
+
+  @Benchmark
+  public List<MethodSymbol> methodSymbolComputer(ModuleState module, LineCounter counter) {
+    counter.add(module);
+    return new MethodSymbolComputer(module.getDocumentContext()).compute();
+  }
+
+  @Benchmark
+  public List<RegionSymbol> regionSymbolComputer(ModuleState module, LineCounter counter) {
+    counter.add(module);
+    return new RegionSymbolComputer(module.getDocumentContext()).compute();
+  }
+
+  @Benchmark
+  public CognitiveComplexityComputer.Data cognitiveComplexityComputer(ModuleState module, LineCounter counter) {
+    counter.add(module);
+    return new CognitiveComplexityComputer(module.getDocumentContext()).compute();
+  }
+
+  @Benchmark
+  public DiagnosticIgnoranceComputer.Data diagnosticIgnoranceComputer(ModuleState module, LineCounter counter) {
+    counter.add(module);
+    return new DiagnosticIgnoranceComputer(module.getDocumentContext()).compute();
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.benchmark;
+
+import com.github._1c_syntax.bsl.languageserver.diagnostics.BSLDiagnostic;
+import com.github._1c_syntax.bsl.languageserver.providers.DiagnosticProvider;
+import org.eclipse.lsp4j.Diagnostic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отдельная диагностика на заранее разобранном модуле, с настройками по умолчанию.
+ * <p>
+ * Список диагностик по умолчанию - все диагностики сервера; новую диагностику нужно добавить в список.
+ * Для замера части диагностик используется параметр запуска {@code -p diagnosticCode=LineLength,MagicNumber}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DiagnosticBenchmark {
+
+  @Param({
+    "BeginTransactionBeforeTryCatch",
+    "CanonicalSpellingKeywords",
+    "CognitiveComplexity",
+    "CommentedCode",
+    "CommitTransactionOutsideTryCatch",
+    "DeletingCollectionItem",
+    "DeprecatedMessage",
+    "DuplicatedCode",
+    "EmptyCodeBlock",
+    "EmptyStatement",
+    "ExtraCommas",
+    "FunctionShouldHaveReturn",
+    "IdenticalExpressions",
+    "IfConditionComplexity",
+    "IfElseDuplicatedCodeBlock",
+    "IfElseDuplicatedCondition",
+    "IfElseIfEndsWithElse",
+    "LineLength",
+    "MagicNumber",
+    "MethodSize",
+    "MissingCodeTryCatchEx",
+    "MissingSpace",
+    "MissingTemporaryFileDeletion",
+    "NestedConstructorsInStructureDeclaration",
+    "NestedStatements",
+    "NestedTernaryOperator",
+    "NonExportMethodsInApiRegion",
+    "NumberOfOptionalParams",
+    "NumberOfParams",
+    "NumberOfValuesInStructureConstructor",
+    "OneStatementPerLine",
+    "OrderOfParams",
+    "PairingBrokenTransaction",
+    "ParseError",
+    "ProcedureReturnsValue",
+    "SelfAssign",
+    "SelfInsertion",
+    "SemicolonPresence",
+    "SeveralCompilerDirectives",
+    "SpaceAtStartComment",
+    "TernaryOperatorUsage",
+    "TryNumber",
+    "UnaryPlusInConcatenation",
+    "UnknownPreprocessorSymbol",
+    "UnreachableCode",
+    "UnusedLocalMethod",
+    "UseLessForEach",
+    "UsingCancelParameter",
+    "UsingFindElementByString",
+    "UsingGoto",
+    "UsingHardcodePath",
+    "UsingHardcodeSecretInformation",
+    "UsingModalWindows",
+    "UsingObjectNotAvailableUnix",
+    "UsingServiceTag",
+    "UsingSynchronousCalls",
+    "UsingThisForm",
+    "WorkingTimeoutWithExternalResources",
+    "YoLetterUsage"
+  })
+  public String diagnosticCode;
+
+  private BSLDiagnostic diagnostic;
+
+  @Setup
+  public void setUp() throws ReflectiveOperationException {
+    Class<? extends BSLDiagnostic> diagnosticClass = DiagnosticProvider.getDiagnosticClass(diagnosticCode)
+      .orElseThrow(() -> new IllegalArgumentException("Unknown diagnostic code: " + diagnosticCode));
+    diagnostic = diagnosticClass.getDeclaredConstructor().newInstance();
+  }
+
+  @Benchmark
+  public List<Diagnostic> getDiagnostics(ModuleState module, LineCounter counter) {
+    counter.add(module);
+    return diagnostic.getDiagnostics(module.getDocumentContext());
+  }
+}
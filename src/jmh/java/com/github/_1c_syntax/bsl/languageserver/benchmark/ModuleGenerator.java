@@ -0,0 +1,132 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.benchmark;
+
+/**
+ * Генератор синтетических модулей для бенчмарков.
+ * <p>
+ * Модуль собирается из одинаковых блоков с пронумерованными именами методов. Блок содержит
+ * области, комментарии, директивы компиляции, условия, циклы, транзакции, текст запроса,
+ * конструкторы и вызовы методов, чтобы каждой диагностике было что проверить.
+ */
+public final class ModuleGenerator {
+
+  private static final String BLOCK = String.join("\n",
+    "#Область ПрограммныйИнтерфейс",
+    "",
+    "// Обрабатывает данные набора %1$d.",
+    "//",
+    "// Параметры:",
+    "//  Параметр - Структура - входные данные",
+    "//  Флаг     - Булево    - признак обработки",
+    "//",
+    "// Возвращаемое значение:",
+    "//  Число - количество обработанных элементов",
+    "//",
+    "&НаСервере",
+    "Функция ОбработатьДанные%1$d(Параметр, Знач Флаг = Ложь) Экспорт",
+    "",
+    "\tРезультат = 0;",
+    "\tМассив = Новый Массив;",
+    "\tСтруктура = Новый Структура(\"Ключ, Значение\", %1$d, \"Значение %1$d\");",
+    "",
+    "\tДля Каждого Элемент Из Параметр Цикл",
+    "\t\tЕсли Элемент.Значение > 10 И Флаг Тогда",
+    "\t\t\tРезультат = Результат + Элемент.Значение;",
+    "\t\tИначеЕсли Элемент.Значение = 0 Тогда",
+    "\t\t\tПродолжить;",
+    "\t\tИначе",
+    "\t\t\tМассив.Добавить(?(Флаг, Элемент.Ключ, Неопределено));",
+    "\t\tКонецЕсли;",
+    "\tКонецЦикла;",
+    "",
+    "\tНачатьТранзакцию();",
+    "\tПопытка",
+    "\t\tЗапрос = Новый Запрос;",
+    "\t\tЗапрос.Текст = \"ВЫБРАТЬ",
+    "\t\t|\tТаблица.Ссылка КАК Ссылка",
+    "\t\t|ИЗ",
+    "\t\t|\tСправочник.Номенклатура КАК Таблица\";",
+    "\t\tВыборка = Запрос.Выполнить().Выбрать();",
+    "\t\tПока Выборка.Следующий() Цикл",
+    "\t\t\tРезультат = Результат + 1;",
+    "\t\tКонецЦикла;",
+    "\t\tЗафиксироватьТранзакцию();",
+    "\tИсключение",
+    "\t\tОтменитьТранзакцию();",
+    "\t\tЗаписьЖурналаРегистрации(\"Ошибка\", УровеньЖурналаРегистрации.Ошибка, , , ОписаниеОшибки());",
+    "\tКонецПопытки;",
+    "",
+    "\tВспомогательнаяПроцедура%1$d(Массив, Структура);",
+    "\tВозврат Результат;",
+    "",
+    "КонецФункции",
+    "",
+    "#КонецОбласти",
+    "",
+    "#Область СлужебныеПроцедурыИФункции",
+    "",
+    "Процедура ВспомогательнаяПроцедура%1$d(Массив, Структура)",
+    "",
+    "\t// Результат = Структура.Значение;",
+    "\tДля Индекс = 0 По Массив.ВГраница() Цикл",
+    "\t\tСообщить(\"Элемент \" + Массив[Индекс] + \" из \" + Структура.Ключ);",
+    "\tКонецЦикла;",
+    "",
+    "КонецПроцедуры",
+    "",
+    "#КонецОбласти",
+    "",
+    ""
+  );
+
+  private static final int BLOCK_LINE_COUNT = BLOCK.split("\n", -1).length - 1;
+
+  private ModuleGenerator() {
+    // only statics
+  }
+
+  /**
+   * Текст модуля, содержащего не меньше заданного количества строк.
+   *
+   * @param lineCount Желаемое количество строк.
+   * @return Текст модуля.
+   */
+  public static String generate(int lineCount) {
+    int blockCount = Math.max(1, (lineCount + BLOCK_LINE_COUNT - 1) / BLOCK_LINE_COUNT);
+    StringBuilder builder = new StringBuilder(blockCount * BLOCK.length());
+    for (int i = 0; i < blockCount; i++) {
+      builder.append(String.format(BLOCK, i));
+    }
+    return builder.toString();
+  }
+
+  public static int getLineCount(String content) {
+    int lineCount = 1;
+    for (int i = 0; i < content.length(); i++) {
+      if (content.charAt(i) == '\n') {
+        lineCount++;
+      }
+    }
+    return lineCount;
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.benchmark;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Синтетический модуль заданного размера.
+ * <p>
+ * Размер задается параметром {@code lines}, его можно переопределить при запуске: {@code -p lines=50000}.
+ * Документ модуля разбирается один раз при подготовке, бенчмарки анализаторов получают готовое дерево.
+ */
+@State(Scope.Benchmark)
+public class ModuleState {
+
+  public static final String URI = "file:///benchmark.bsl";
+
+  @Param({"1000", "10000"})
+  public int lines;
+
+  private String content;
+  private int lineCount;
+  private ServerContext serverContext;
+  private DocumentContext documentContext;
+
+  @Setup
+  public void setUp() {
+    content = ModuleGenerator.generate(lines);
+    lineCount = ModuleGenerator.getLineCount(content);
+    serverContext = new ServerContext();
+    documentContext = new DocumentContext(URI, content, serverContext);
+    documentContext.getAst();
+  }
+
+  public String getContent() {
+    return content;
+  }
+
+  public int getLineCount() {
+    return lineCount;
+  }
+
+  public ServerContext getServerContext() {
+    return serverContext;
+  }
+
+  public DocumentContext getDocumentContext() {
+    return documentContext;
+  }
+}
@@ -125,6 +125,30 @@ public class BSLLSPLauncher {
       "Output report directory"
     );
 
+    Option cacheDir = new Option(
+      "d",
+      "cacheDir",
+      true,
+      "Analysis cache directory"
+    );
+
+    Option profile = new Option(
+      "p",
+      "profile",
+      true,
+      "Collect per-diagnostic timings and show top N slowest diagnostics and files (default 20)"
+    );
+    profile.setOptionalArg(true);
+    profile.setArgName("N");
+
+    Option threads = new Option(
+      "t",
+      "threads",
+      true,
+      "Number of analysis threads (default is number of processors)"
+    );
+    threads.setArgName("N");
+
     Option version = new Option(
       "v",
       "version",
@@ -137,6 +161,9 @@ public class BSLLSPLauncher {
     createdOptions.addOption(srcDir);
     createdOptions.addOption(outputDir);
     createdOptions.addOption(reporter);
+    createdOptions.addOption(cacheDir);
+    createdOptions.addOption(profile);
+    createdOptions.addOption(threads);
 
     createdOptions.addOption(configurationOption);
     createdOptions.addOption(help);
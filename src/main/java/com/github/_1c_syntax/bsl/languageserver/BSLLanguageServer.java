@@ -23,11 +23,15 @@ package com.github._1c_syntax.bsl.languageserver;
 
 import com.github._1c_syntax.bsl.languageserver.configuration.LanguageServerConfiguration;
 import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
+import com.github._1c_syntax.bsl.languageserver.profiling.ProfileParams;
+import com.github._1c_syntax.bsl.languageserver.profiling.ProfileReport;
+import com.github._1c_syntax.bsl.languageserver.profiling.Profiler;
 import org.eclipse.lsp4j.CodeLensOptions;
 import org.eclipse.lsp4j.InitializeParams;
 import org.eclipse.lsp4j.InitializeResult;
 import org.eclipse.lsp4j.ServerCapabilities;
 import org.eclipse.lsp4j.TextDocumentSyncKind;
+import org.eclipse.lsp4j.jsonrpc.services.JsonRequest;
 import org.eclipse.lsp4j.services.LanguageClient;
 import org.eclipse.lsp4j.services.LanguageClientAware;
 import org.eclipse.lsp4j.services.LanguageServer;
@@ -36,6 +40,7 @@ import org.eclipse.lsp4j.services.WorkspaceService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
@@ -47,6 +52,10 @@ import java.util.concurrent.CompletableFuture;
 public class BSLLanguageServer implements LanguageServer, LanguageClientAware {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(BSLLanguageServer.class.getSimpleName());
+  /**
+   * Количество недавно использованных документов, деревья разбора которых хранятся в памяти.
+   */
+  private static final int PARSED_DOCUMENTS_LIMIT = 64;
 
   private final LanguageServerConfiguration configuration;
   private BSLTextDocumentService textDocumentService;
@@ -61,7 +70,8 @@ public class BSLLanguageServer implements LanguageServer, LanguageClientAware {
     Locale.setDefault(currentLocale);
 
     context = new ServerContext();
-    workspaceService = new BSLWorkspaceService(configuration);
+    context.setParsedDocumentsLimit(PARSED_DOCUMENTS_LIMIT);
+    workspaceService = new BSLWorkspaceService(configuration, context);
     textDocumentService = new BSLTextDocumentService(configuration, context);
   }
 
@@ -75,11 +85,14 @@ public class BSLLanguageServer implements LanguageServer, LanguageClientAware {
     setConfigurationRoot(params);
 
     ServerCapabilities capabilities = new ServerCapabilities();
-    capabilities.setTextDocumentSync(TextDocumentSyncKind.Full);
+    capabilities.setTextDocumentSync(TextDocumentSyncKind.Incremental);
     capabilities.setDocumentRangeFormattingProvider(Boolean.TRUE);
     capabilities.setDocumentFormattingProvider(Boolean.TRUE);
     capabilities.setFoldingRangeProvider(Boolean.TRUE);
     capabilities.setDocumentSymbolProvider(Boolean.TRUE);
+    capabilities.setWorkspaceSymbolProvider(Boolean.TRUE);
+    capabilities.setDefinitionProvider(Boolean.TRUE);
+    capabilities.setReferencesProvider(Boolean.TRUE);
     capabilities.setCodeActionProvider(Boolean.TRUE);
     capabilities.setCodeLensProvider(new CodeLensOptions());
 
@@ -105,16 +118,49 @@ public class BSLLanguageServer implements LanguageServer, LanguageClientAware {
       configuration,
       rootPath);
     context.setConfigurationRoot(configurationRoot);
+
+    // модули ищутся по всей рабочей области: в формате EDT они лежат рядом с каталогом конфигурации
+    workspaceService.indexWorkspace(rootPath);
   }
 
   @Override
   public CompletableFuture<Object> shutdown() {
     shutdownWasCalled = true;
     textDocumentService.reset();
+    workspaceService.reset();
     context.clear();
     return CompletableFuture.completedFuture(Boolean.TRUE);
   }
 
+  /**
+   * Отчет профилировщика диагностик.
+   * <p>
+   * Запрос позволяет также включить или выключить профилирование и очистить накопленные замеры.
+   *
+   * @param params Параметры запроса, могут отсутствовать.
+   * @return Отчет по замерам, накопленным к моменту запроса.
+   */
+  @JsonRequest(value = "bsl/profile", useSegment = false)
+  public CompletableFuture<ProfileReport> profile(@Nullable ProfileParams params) {
+    ProfileParams profileParams = params == null ? new ProfileParams() : params;
+    Profiler profiler = getProfiler();
+
+    if (profileParams.getEnabled() != null) {
+      profiler.setEnabled(profileParams.getEnabled());
+    }
+
+    ProfileReport report = profiler.getReport(profileParams.getLimit());
+    if (profileParams.isReset()) {
+      profiler.clear();
+    }
+
+    return CompletableFuture.completedFuture(report);
+  }
+
+  public Profiler getProfiler() {
+    return context.getProfiler();
+  }
+
   @Override
   public void exit() {
     int status = shutdownWasCalled ? 0 : 1;
@@ -27,11 +27,14 @@ import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
 import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
 import com.github._1c_syntax.bsl.languageserver.providers.CodeActionProvider;
 import com.github._1c_syntax.bsl.languageserver.providers.CodeLensProvider;
+import com.github._1c_syntax.bsl.languageserver.providers.DefinitionProvider;
 import com.github._1c_syntax.bsl.languageserver.providers.DiagnosticProvider;
+import com.github._1c_syntax.bsl.languageserver.providers.DiagnosticScheduler;
 import com.github._1c_syntax.bsl.languageserver.providers.DocumentSymbolProvider;
 import com.github._1c_syntax.bsl.languageserver.providers.FoldingRangeProvider;
 import com.github._1c_syntax.bsl.languageserver.providers.FormatProvider;
 import com.github._1c_syntax.bsl.languageserver.providers.HoverProvider;
+import com.github._1c_syntax.bsl.languageserver.providers.ReferenceProvider;
 import org.eclipse.lsp4j.CodeAction;
 import org.eclipse.lsp4j.CodeActionParams;
 import org.eclipse.lsp4j.CodeLens;
@@ -78,6 +81,7 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
   private final ServerContext context;
   private final LanguageServerConfiguration configuration;
   private final DiagnosticProvider diagnosticProvider;
+  private final DiagnosticScheduler diagnosticScheduler;
   private final CodeActionProvider codeActionProvider;
   private final CodeLensProvider codeLensProvider;
 
@@ -88,6 +92,7 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
     this.configuration = configuration;
     this.context = context;
     diagnosticProvider = new DiagnosticProvider(this.configuration);
+    diagnosticScheduler = new DiagnosticScheduler(diagnosticProvider);
     codeActionProvider = new CodeActionProvider(diagnosticProvider);
     codeLensProvider = new CodeLensProvider(this.configuration);
   }
@@ -110,7 +115,7 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
     if (documentContext == null) {
       return CompletableFuture.completedFuture(null);
     }
-    Optional<Hover> hover = HoverProvider.getHover(position, documentContext);
+    Optional<Hover> hover = documentContext.computeWithPinnedAST(() -> HoverProvider.getHover(position, documentContext));
     return CompletableFuture.completedFuture(hover.orElse(null));
   }
 
@@ -123,12 +128,28 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
   public CompletableFuture<Either<List<? extends Location>, List<? extends LocationLink>>> definition(
     TextDocumentPositionParams position
   ) {
-    throw new UnsupportedOperationException();
+    DocumentContext documentContext = context.getDocument(position.getTextDocument().getUri());
+    if (documentContext == null) {
+      return CompletableFuture.completedFuture(Either.forLeft(new ArrayList<>()));
+    }
+
+    List<Location> definition = documentContext.computeWithPinnedAST(
+      () -> DefinitionProvider.getDefinition(position, documentContext, context)
+    );
+    return CompletableFuture.completedFuture(Either.forLeft(definition));
   }
 
   @Override
   public CompletableFuture<List<? extends Location>> references(ReferenceParams params) {
-    throw new UnsupportedOperationException();
+    DocumentContext documentContext = context.getDocument(params.getTextDocument().getUri());
+    if (documentContext == null) {
+      return CompletableFuture.completedFuture(new ArrayList<>());
+    }
+
+    List<Location> references = documentContext.computeWithPinnedAST(
+      () -> ReferenceProvider.getReferences(params, documentContext, context)
+    );
+    return CompletableFuture.completedFuture(references);
   }
 
   @Override
@@ -145,7 +166,9 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
       return CompletableFuture.completedFuture(null);
     }
 
-    return CompletableFuture.supplyAsync(() -> DocumentSymbolProvider.getDocumentSymbol(documentContext));
+    return CompletableFuture.supplyAsync(
+      () -> documentContext.computeWithPinnedAST(() -> DocumentSymbolProvider.getDocumentSymbol(documentContext))
+    );
   }
 
   @Override
@@ -155,7 +178,9 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
       return CompletableFuture.completedFuture(null);
     }
 
-    return CompletableFuture.supplyAsync(() -> codeActionProvider.getCodeActions(params, documentContext));
+    return CompletableFuture.supplyAsync(
+      () -> documentContext.computeWithPinnedAST(() -> codeActionProvider.getCodeActions(params, documentContext))
+    );
   }
 
   @Override
@@ -165,7 +190,9 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
       return CompletableFuture.completedFuture(null);
     }
 
-    return CompletableFuture.supplyAsync(() -> codeLensProvider.getCodeLens(documentContext));
+    return CompletableFuture.supplyAsync(
+      () -> documentContext.computeWithPinnedAST(() -> codeLensProvider.getCodeLens(documentContext))
+    );
   }
 
   @Override
@@ -180,7 +207,9 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
       return CompletableFuture.completedFuture(null);
     }
 
-    List<TextEdit> edits = FormatProvider.getFormatting(params, documentContext);
+    List<TextEdit> edits = documentContext.computeWithPinnedAST(
+      () -> FormatProvider.getFormatting(params, documentContext)
+    );
     return CompletableFuture.completedFuture(edits);
   }
 
@@ -191,7 +220,9 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
       return CompletableFuture.completedFuture(null);
     }
 
-    List<TextEdit> edits = FormatProvider.getRangeFormatting(params, documentContext);
+    List<TextEdit> edits = documentContext.computeWithPinnedAST(
+      () -> FormatProvider.getRangeFormatting(params, documentContext)
+    );
     return CompletableFuture.completedFuture(edits);
   }
 
@@ -207,7 +238,9 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
       return CompletableFuture.completedFuture(null);
     }
 
-    return CompletableFuture.supplyAsync(() -> FoldingRangeProvider.getFoldingRange(documentContext));
+    return CompletableFuture.supplyAsync(
+      () -> documentContext.computeWithPinnedAST(() -> FoldingRangeProvider.getFoldingRange(documentContext))
+    );
   }
 
   @Override
@@ -226,17 +259,20 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
   @Override
   public void didChange(DidChangeTextDocumentParams params) {
 
-    // TODO: Place to optimize -> migrate to #TextDocumentSyncKind.INCREMENTAL and build changed parse tree
     DocumentContext documentContext = context.getDocument(params.getTextDocument().getUri());
     if (documentContext == null) {
       return;
     }
 
+    diagnosticScheduler.cancel(documentContext.getUri());
+    documentContext = context.changeDocument(documentContext.getUri(), params.getContentChanges());
+    if (documentContext == null) {
+      return;
+    }
     diagnosticProvider.clearComputedDiagnostics(documentContext);
-    documentContext.rebuild(params.getContentChanges().get(0).getText());
 
     if (configuration.getComputeDiagnostics() == ComputeDiagnosticsTrigger.ONTYPE) {
-      validate(documentContext);
+      validate(documentContext, configuration.getComputeDiagnosticsDelay());
     }
   }
 
@@ -251,7 +287,8 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
       return;
     }
 
-    documentContext.clearASTData();
+    diagnosticScheduler.cancel(documentContext.getUri());
+    context.closeDocument(documentContext);
     diagnosticProvider.publishEmptyDiagnosticList(client, documentContext);
   }
 
@@ -273,14 +310,19 @@ public class BSLTextDocumentService implements TextDocumentService, LanguageClie
   }
 
   public void reset() {
+    diagnosticScheduler.cancelAll();
     context.clear();
   }
 
   private void validate(DocumentContext documentContext) {
+    validate(documentContext, 0);
+  }
+
+  private void validate(DocumentContext documentContext, long delay) {
     if (client == null) {
       return;
     }
-    diagnosticProvider.computeAndPublishDiagnostics(client, documentContext);
+    diagnosticScheduler.schedule(client, documentContext, delay);
   }
 
 }
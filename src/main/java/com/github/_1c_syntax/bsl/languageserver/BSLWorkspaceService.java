@@ -22,28 +22,38 @@
 package com.github._1c_syntax.bsl.languageserver;
 
 import com.github._1c_syntax.bsl.languageserver.configuration.LanguageServerConfiguration;
+import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
+import com.github._1c_syntax.bsl.languageserver.context.index.WorkspaceIndexer;
+import com.github._1c_syntax.bsl.languageserver.providers.WorkspaceSymbolProvider;
 import org.apache.commons.beanutils.PropertyUtils;
 import org.eclipse.lsp4j.DidChangeConfigurationParams;
 import org.eclipse.lsp4j.DidChangeWatchedFilesParams;
+import org.eclipse.lsp4j.FileChangeType;
+import org.eclipse.lsp4j.FileEvent;
 import org.eclipse.lsp4j.SymbolInformation;
 import org.eclipse.lsp4j.WorkspaceSymbolParams;
 import org.eclipse.lsp4j.services.WorkspaceService;
 
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 public class BSLWorkspaceService implements WorkspaceService {
 
-  private LanguageServerConfiguration configuration;
+  private final LanguageServerConfiguration configuration;
+  private final ServerContext context;
+  private final WorkspaceIndexer workspaceIndexer;
 
-  public BSLWorkspaceService(LanguageServerConfiguration configuration) {
+  public BSLWorkspaceService(LanguageServerConfiguration configuration, ServerContext context) {
     this.configuration = configuration;
+    this.context = context;
+    workspaceIndexer = new WorkspaceIndexer(context, configuration);
   }
 
   @Override
   public CompletableFuture<List<? extends SymbolInformation>> symbol(WorkspaceSymbolParams params) {
-    return null;
+    return CompletableFuture.completedFuture(WorkspaceSymbolProvider.getSymbols(params, context));
   }
 
   @Override
@@ -53,10 +63,30 @@ public class BSLWorkspaceService implements WorkspaceService {
     } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
       throw new RuntimeException(e);
     }
+    workspaceIndexer.updateConfiguration();
   }
 
   @Override
   public void didChangeWatchedFiles(DidChangeWatchedFilesParams params) {
-    // no-op
+    for (FileEvent fileEvent : params.getChanges()) {
+      String uri = fileEvent.getUri();
+      if (!WorkspaceIndexer.isIndexedFile(uri)) {
+        continue;
+      }
+
+      if (fileEvent.getType() == FileChangeType.Deleted) {
+        workspaceIndexer.removeFile(uri);
+      } else {
+        workspaceIndexer.indexFile(uri);
+      }
+    }
+  }
+
+  public CompletableFuture<Void> indexWorkspace(Path root) {
+    return workspaceIndexer.indexWorkspace(root);
+  }
+
+  public void reset() {
+    workspaceIndexer.shutdown();
   }
 }
@@ -0,0 +1,200 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github._1c_syntax.bsl.languageserver.configuration.LanguageServerConfiguration;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.FileInfo;
+import com.github._1c_syntax.bsl.languageserver.providers.DiagnosticProvider;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Дисковый кэш результатов анализа файлов.
+ * <p>
+ * Результат анализа файла ({@link FileInfo}) хранится в отдельном файле каталога кэша.
+ * Имя файла - хэш от пути и содержимого анализируемого файла и от "отпечатка" настроек анализа:
+ * версии сервера, набора диагностик, конфигурации сервера и файла описания конфигурации 1С.
+ * Изменение любой из этих составляющих делает запись неактуальной.
+ * <p>
+ * Записи каждого каталога исходников хранятся в своем подкаталоге кэша, поэтому один каталог кэша
+ * можно использовать для анализа нескольких каталогов исходников: очистка неиспользованных записей
+ * затрагивает только записи анализируемого каталога.
+ */
+public class AnalysisCache {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AnalysisCache.class.getSimpleName());
+  private static final String ENTRY_EXTENSION = "json";
+  private static final String[] CONFIGURATION_FILE_NAMES = {"Configuration.xml", "Configuration.mdo"};
+
+  private final Path entriesDir;
+  private final String fingerprint;
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final Set<String> usedEntries = ConcurrentHashMap.newKeySet();
+
+  public AnalysisCache(Path cacheDir, Path sourceDir, String fingerprint) {
+    this.entriesDir = cacheDir.resolve(sha256(sourceDir.toAbsolutePath().normalize().toString()));
+    this.fingerprint = fingerprint;
+  }
+
+  /**
+   * Получение сохраненного результата анализа файла.
+   *
+   * @param file    анализируемый файл
+   * @param content содержимое файла
+   * @return результат анализа, если файл и настройки анализа не изменились
+   */
+  public Optional<FileInfo> get(File file, String content) {
+    String entryName = getEntryName(file, content);
+    usedEntries.add(entryName);
+
+    File entryFile = getEntryFile(entryName);
+    if (!entryFile.exists()) {
+      return Optional.empty();
+    }
+
+    try {
+      return Optional.of(mapper.readValue(entryFile, FileInfo.class));
+    } catch (IOException e) {
+      LOGGER.warn("Can't read analysis cache entry {}", entryFile, e);
+      return Optional.empty();
+    }
+  }
+
+  public void put(File file, String content, FileInfo fileInfo) {
+    String entryName = getEntryName(file, content);
+    usedEntries.add(entryName);
+
+    File entryFile = getEntryFile(entryName);
+    File tempFile = new File(entryFile.getPath() + ".tmp");
+    try {
+      Files.createDirectories(entriesDir);
+      mapper.writeValue(tempFile, fileInfo);
+      Files.move(tempFile.toPath(), entryFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      LOGGER.warn("Can't write analysis cache entry {}", entryFile, e);
+      FileUtils.deleteQuietly(tempFile);
+    }
+  }
+
+  /**
+   * Удаление записей анализируемого каталога исходников, не использованных в текущем запуске анализа.
+   */
+  public void removeUnusedEntries() {
+    if (!entriesDir.toFile().isDirectory()) {
+      return;
+    }
+
+    Collection<File> entryFiles = FileUtils.listFiles(entriesDir.toFile(), new String[]{ENTRY_EXTENSION}, false);
+    entryFiles.stream()
+      .filter(entryFile -> !usedEntries.contains(FilenameUtils.getBaseName(entryFile.getName())))
+      .forEach(FileUtils::deleteQuietly);
+  }
+
+  /**
+   * Расчет "отпечатка" настроек анализа.
+   *
+   * @param configuration     конфигурация сервера
+   * @param configurationRoot корневой каталог конфигурации 1С
+   * @return строка, меняющаяся при изменении любой настройки, влияющей на результат анализа
+   */
+  public static String computeFingerprint(
+    LanguageServerConfiguration configuration,
+    @Nullable Path configurationRoot
+  ) {
+    StringBuilder sb = new StringBuilder();
+
+    sb.append(AnalysisCache.class.getPackage().getImplementationVersion()).append('\n');
+    sb.append(configuration.getDiagnosticLanguage()).append('\n');
+
+    ObjectMapper sortedMapper = new ObjectMapper().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+    try {
+      sb.append(sortedMapper.writeValueAsString(new TreeMap<>(configuration.getDiagnostics()))).append('\n');
+    } catch (IOException e) {
+      throw new IllegalStateException("Can't serialize diagnostics configuration", e);
+    }
+
+    sb.append(DiagnosticProvider.getDiagnosticClasses().stream()
+      .map(Class::getName)
+      .sorted()
+      .collect(Collectors.joining(","))
+    ).append('\n');
+
+    if (configurationRoot != null) {
+      for (String configurationFileName : CONFIGURATION_FILE_NAMES) {
+        File configurationFile = configurationRoot.resolve(configurationFileName).toFile();
+        if (configurationFile.isFile()) {
+          try {
+            sb.append(sha256(FileUtils.readFileToString(configurationFile, StandardCharsets.UTF_8)));
+          } catch (IOException e) {
+            LOGGER.warn("Can't read configuration file {}", configurationFile, e);
+          }
+        }
+      }
+    }
+
+    return sha256(sb.toString());
+  }
+
+  private String getEntryName(File file, String content) {
+    return sha256(fingerprint + '\n' + file.getAbsolutePath() + '\n' + content);
+  }
+
+  private File getEntryFile(String entryName) {
+    return entriesDir.resolve(entryName + "." + ENTRY_EXTENSION).toFile();
+  }
+
+  static String sha256(String value) {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    byte[] hash = digest.digest(value.getBytes(StandardCharsets.UTF_8));
+    StringBuilder sb = new StringBuilder(hash.length * 2);
+    for (byte b : hash) {
+      sb.append(String.format("%02x", b));
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,210 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.cli;
+
+import com.github._1c_syntax.bsl.languageserver.diagnostics.FileInfo;
+import lombok.Value;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Конвейер анализа файлов.
+ * <p>
+ * Файлы читаются небольшим пулом потоков ввода-вывода и передаются на анализ в {@link ForkJoinPool}
+ * заданного размера. Число прочитанных, но еще не обработанных файлов ограничено, поэтому чтение
+ * не обгоняет анализ и содержимое файлов не копится в памяти. Результаты анализа передаются
+ * в приемник по мере готовности.
+ */
+final class AnalysisPipeline {
+
+  private static final int READER_THREADS_LIMIT = 4;
+  private static final int FILES_IN_FLIGHT_PER_THREAD = 2;
+
+  private final int threads;
+  private final BiFunction<File, String, FileInfo> analyzer;
+  private final Consumer<FileInfo> sink;
+
+  private final Semaphore filesInFlight;
+  private final int filesInFlightLimit;
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+  private ExecutorService readers;
+  private ForkJoinPool analyzers;
+
+  /**
+   * @param threads  Число потоков анализа.
+   * @param analyzer Анализ файла по его содержимому.
+   * @param sink     Приемник результатов анализа, вызывается из потоков анализа.
+   */
+  AnalysisPipeline(int threads, BiFunction<File, String, FileInfo> analyzer, Consumer<FileInfo> sink) {
+    this.threads = Math.max(1, threads);
+    this.analyzer = analyzer;
+    this.sink = sink;
+    filesInFlightLimit = this.threads * FILES_IN_FLIGHT_PER_THREAD;
+    filesInFlight = new Semaphore(filesInFlightLimit);
+  }
+
+  /**
+   * Поиск файлов в каталоге.
+   * <p>
+   * Каталог обходится потоково, в памяти остаются только пути и размеры файлов.
+   * Файлы упорядочиваются по убыванию размера: самые долгие в анализе модули начинают
+   * обрабатываться первыми и не задерживают завершение анализа.
+   *
+   * @param dir        Корневой каталог.
+   * @param extensions Расширения файлов в нижнем регистре.
+   * @return Список файлов по убыванию размера.
+   */
+  static List<File> findFiles(Path dir, String... extensions) {
+    try (Stream<Path> paths = Files.walk(dir)) {
+      return paths
+        .filter(path -> hasExtension(path, extensions))
+        .map(Path::toFile)
+        .filter(File::isFile)
+        .map(file -> new SizedFile(file, file.length()))
+        .sorted(Comparator.comparingLong(SizedFile::getSize).reversed())
+        .map(SizedFile::getFile)
+        .collect(Collectors.toList());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Анализ файлов в порядке их следования. Возврат управления - после обработки всех файлов.
+   *
+   * @param files Анализируемые файлы.
+   * @throws RuntimeException первая ошибка чтения или анализа файла.
+   * @throws Error              первая ошибка виртуальной машины при чтении или анализе файла,
+   *                            например, переполнение стека на глубоко вложенном модуле.
+   */
+  void process(List<File> files) {
+    AtomicInteger readerNumber = new AtomicInteger();
+    readers = Executors.newFixedThreadPool(
+      Math.min(threads, READER_THREADS_LIMIT),
+      (Runnable runnable) -> {
+        Thread thread = new Thread(runnable, "bsl-analysis-reader-" + readerNumber.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    );
+    analyzers = new ForkJoinPool(threads);
+
+    try {
+      for (File file : files) {
+        filesInFlight.acquireUninterruptibly();
+        if (failure.get() != null) {
+          filesInFlight.release();
+          break;
+        }
+        readers.execute(() -> read(file));
+      }
+      // ожидание обработки всех отправленных файлов
+      filesInFlight.acquireUninterruptibly(filesInFlightLimit);
+      filesInFlight.release(filesInFlightLimit);
+    } finally {
+      readers.shutdownNow();
+      analyzers.shutdownNow();
+    }
+
+    Throwable exception = failure.get();
+    if (exception instanceof RuntimeException) {
+      throw (RuntimeException) exception;
+    }
+    if (exception instanceof Error) {
+      throw (Error) exception;
+    }
+    if (exception != null) {
+      throw new IllegalStateException(exception);
+    }
+  }
+
+  private void read(File file) {
+    // разрешение освобождает задача анализа, если она поставлена в очередь, иначе - чтение
+    boolean submitted = false;
+    try {
+      String content = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+      analyzers.execute(() -> analyze(file, content));
+      submitted = true;
+    } catch (IOException e) {
+      fail(new UncheckedIOException(e));
+    } catch (Throwable e) {
+      fail(e);
+    } finally {
+      if (!submitted) {
+        filesInFlight.release();
+      }
+    }
+  }
+
+  private void analyze(File file, String content) {
+    try {
+      if (failure.get() == null) {
+        sink.accept(analyzer.apply(file, content));
+      }
+    } catch (Throwable e) {
+      fail(e);
+    } finally {
+      filesInFlight.release();
+    }
+  }
+
+  private void fail(Throwable e) {
+    failure.compareAndSet(null, e);
+  }
+
+  private static boolean hasExtension(Path path, String... extensions) {
+    String extension = FilenameUtils.getExtension(path.toString()).toLowerCase(Locale.ENGLISH);
+    for (String fileExtension : extensions) {
+      if (fileExtension.equals(extension)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Value
+  private static class SizedFile {
+    File file;
+    long size;
+  }
+}
@@ -24,31 +24,66 @@ package com.github._1c_syntax.bsl.languageserver.cli;
 import com.github._1c_syntax.bsl.languageserver.configuration.LanguageServerConfiguration;
 import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
 import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
+import com.github._1c_syntax.bsl.languageserver.context.computer.CloneFingerprintComputer;
+import com.github._1c_syntax.bsl.languageserver.context.index.WorkspaceIndexer;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.DuplicatedCodeDiagnostic;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.FileInfo;
-import com.github._1c_syntax.bsl.languageserver.diagnostics.reporter.AnalysisInfo;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.reporter.ReportersAggregator;
+import com.github._1c_syntax.bsl.languageserver.profiling.ProfileReport;
+import com.github._1c_syntax.bsl.languageserver.profiling.Profiler;
 import com.github._1c_syntax.bsl.languageserver.providers.DiagnosticProvider;
+import lombok.Value;
 import me.tongfei.progressbar.ProgressBar;
 import me.tongfei.progressbar.ProgressBarStyle;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.io.FileUtils;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticRelatedInformation;
+import org.eclipse.lsp4j.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class AnalyzeCommand implements Command {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(AnalyzeCommand.class.getSimpleName());
+
   private CommandLine cmd;
   private DiagnosticProvider diagnosticProvider;
   private ServerContext context;
+  @Nullable
+  private AnalysisCache analysisCache;
+  /**
+   * Число еще не обработанных файлов для размеров, встречающихся больше одного раза:
+   * только такие файлы могут совпадать по содержимому.
+   */
+  private Map<Long, AtomicInteger> remainingFilesBySize = Collections.emptyMap();
+  /**
+   * Результаты анализа файлов с повторяющимся размером по ключу содержимого, сгруппированные по размеру.
+   * Файлы анализируются по убыванию размера, поэтому группа живет недолго: она удаляется
+   * после обработки последнего файла этого размера.
+   */
+  private final Map<Long, Map<String, AnalyzedContent>> analyzedContentsBySize = new ConcurrentHashMap<>();
 
   public AnalyzeCommand(CommandLine cmd) {
     this.cmd = cmd;
@@ -60,6 +95,13 @@ public class AnalyzeCommand implements Command {
     String outputDirOption = cmd.getOptionValue("outputDir", "");
     String[] reporters = Optional.ofNullable(cmd.getOptionValues("reporter")).orElse(new String[0]);
     String configurationOption = cmd.getOptionValue("configuration", "");
+    String cacheDirOption = cmd.getOptionValue("cacheDir", "");
+    int profileLimit = Integer.parseInt(
+      cmd.getOptionValue("profile", String.valueOf(Profiler.DEFAULT_REPORT_LIMIT))
+    );
+    int threads = Integer.parseInt(
+      cmd.getOptionValue("threads", String.valueOf(Runtime.getRuntime().availableProcessors()))
+    );
 
     Path srcDir = Paths.get(srcDirOption).toAbsolutePath();
     Path outputDir = Paths.get(outputDirOption).toAbsolutePath();
@@ -70,38 +112,226 @@ public class AnalyzeCommand implements Command {
     Path configurationPath = LanguageServerConfiguration.getCustomConfigurationRoot(configuration, srcDir);
     context = new ServerContext(configurationPath);
     diagnosticProvider = new DiagnosticProvider(configuration);
+    context.getProfiler().setEnabled(cmd.hasOption("profile"));
 
-    Collection<File> files = FileUtils.listFiles(srcDir.toFile(), new String[]{"bsl", "os"}, true);
+    List<File> files = AnalysisPipeline.findFiles(srcDir, "bsl", "os");
+    remainingFilesBySize = countDuplicateSizes(files);
 
-    List<FileInfo> diagnostics;
-    try (ProgressBar pb = new ProgressBar("Analyzing files...", files.size(), ProgressBarStyle.ASCII)) {
-      diagnostics = files.parallelStream()
-        .peek(file -> pb.step())
-        .map(this::getFileContextFromFile)
-        .collect(Collectors.toList());
+    String cacheFingerprint = AnalysisCache.computeFingerprint(configuration, configurationPath);
+
+    // поиск повторяющегося кода сравнивает модуль со всеми остальными, поэтому отпечатки
+    // всех модулей собираются до анализа, а результаты анализа зависят от всей рабочей области
+    if (diagnosticProvider.isEnabled(DuplicatedCodeDiagnostic.class)) {
+      String workspaceDigest = indexClones(files, threads);
+      cacheFingerprint = AnalysisCache.sha256(cacheFingerprint + "\n" + workspaceDigest);
+    }
+
+    if (!cacheDirOption.isEmpty()) {
+      Path cacheDir = Paths.get(cacheDirOption).toAbsolutePath();
+      analysisCache = new AnalysisCache(cacheDir, srcDir, cacheFingerprint);
     }
 
-    AnalysisInfo analysisInfo = new AnalysisInfo(LocalDateTime.now(), diagnostics, srcDirOption);
     ReportersAggregator aggregator = new ReportersAggregator(outputDir, reporters);
-    aggregator.report(analysisInfo);
+    aggregator.beginReport(LocalDateTime.now(), srcDirOption);
+
+    // информация о файлах передается в отчеты по мере готовности и не копится в памяти,
+    // файлы отчетов закрываются и при ошибке анализа
+    try (ProgressBar pb = new ProgressBar("Analyzing files...", files.size(), ProgressBarStyle.ASCII)) {
+      AnalysisPipeline pipeline = new AnalysisPipeline(
+        threads,
+        this::getFileContextFromFile,
+        (FileInfo fileInfo) -> {
+          aggregator.report(fileInfo);
+          pb.step();
+        }
+      );
+      pipeline.process(files);
+    } finally {
+      aggregator.endReport();
+    }
+
+    if (analysisCache != null) {
+      analysisCache.removeUnusedEntries();
+    }
+
+    if (context.getProfiler().isEnabled()) {
+      ProfileReport profileReport = context.getProfiler().getReport(profileLimit);
+      LOGGER.info("Profile report:{}", profileReport.format());
+    }
+
     return 0;
   }
 
-  private FileInfo getFileContextFromFile(File file) {
-    String textDocumentContent;
+  private FileInfo getFileContextFromFile(File file, String textDocumentContent) {
+    long size = file.length();
+    AtomicInteger remainingFiles = remainingFilesBySize.get(size);
     try {
-      textDocumentContent = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+      return analyzeFile(file, textDocumentContent, remainingFiles == null ? null : size);
+    } finally {
+      if (remainingFiles != null && remainingFiles.decrementAndGet() == 0) {
+        analyzedContentsBySize.remove(size);
+      }
+    }
+  }
+
+  private FileInfo analyzeFile(File file, String textDocumentContent, @Nullable Long duplicateSize) {
+    // при профилировании файлы анализируются заново, иначе замеры не полны
+    if (analysisCache != null && !context.getProfiler().isEnabled()) {
+      Optional<FileInfo> cachedFileInfo = analysisCache.get(file, textDocumentContent);
+      if (cachedFileInfo.isPresent()) {
+        return cachedFileInfo.get();
+      }
     }
 
     DocumentContext documentContext = context.addDocument(file.toURI().toString(), textDocumentContent);
-    FileInfo fileInfo = new FileInfo(documentContext, diagnosticProvider.computeDiagnostics(documentContext));
+    FileInfo fileInfo;
+
+    // одинаковые модули (типовые формы, копии расширений) анализируются один раз
+    if (duplicateSize == null) {
+      fileInfo = new FileInfo(documentContext, diagnosticProvider.computeDiagnostics(documentContext));
+    } else {
+      Map<String, AnalyzedContent> analyzedContents =
+        analyzedContentsBySize.computeIfAbsent(duplicateSize, key -> new ConcurrentHashMap<>());
+      String contentKey = getContentKey(documentContext, textDocumentContent);
+      AnalyzedContent analyzedContent = analyzedContents.get(contentKey);
+      if (analyzedContent == null) {
+        fileInfo = new FileInfo(documentContext, diagnosticProvider.computeDiagnostics(documentContext));
+        analyzedContents.putIfAbsent(contentKey, new AnalyzedContent(documentContext.getUri(), fileInfo));
+      } else {
+        fileInfo = analyzedContent.copyFor(documentContext);
+      }
+    }
 
     // clean up AST after diagnostic computing to free up RAM.
     documentContext.clearASTData();
 
+    if (analysisCache != null) {
+      analysisCache.put(file, textDocumentContent, fileInfo);
+    }
+
     return fileInfo;
   }
 
+  /**
+   * Параллельный расчет отпечатков всех модулей для индекса повторяющегося кода.
+   *
+   * @return Хэш содержимого всех модулей.
+   */
+  private String indexClones(List<File> files, int threads) {
+    Map<String, String> contentHashes = new ConcurrentHashMap<>();
+    ForkJoinPool indexers = new ForkJoinPool(Math.max(1, threads));
+
+    try (ProgressBar pb = new ProgressBar("Indexing files...", files.size(), ProgressBarStyle.ASCII)) {
+      indexers.submit(() -> files.parallelStream().forEach((File file) -> {
+        String content;
+        try {
+          content = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+
+        DocumentContext documentContext = new DocumentContext(file.toURI().toString(), content, context);
+        context.getWorkspaceCloneIndex().update(new CloneFingerprintComputer(documentContext).compute());
+        contentHashes.put(file.getAbsolutePath(), AnalysisCache.sha256(content));
+        pb.step();
+      })).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Can't index files", e.getCause());
+    } finally {
+      indexers.shutdownNow();
+    }
+
+    return AnalysisCache.sha256(new TreeMap<>(contentHashes).toString());
+  }
+
+  /**
+   * Ключ содержимого - хэш текста, типа файла и типа модуля: от них зависят результаты анализа.
+   * Вычисляется по уже созданному для анализа документу.
+   */
+  private static String getContentKey(DocumentContext documentContext, String content) {
+    return AnalysisCache.sha256(
+      documentContext.getFileType() + "\n" + documentContext.getModuleType() + "\n" + content
+    );
+  }
+
+  /**
+   * Число файлов каждого размера, встречающегося больше одного раза. Файлы не читаются.
+   */
+  private static Map<Long, AtomicInteger> countDuplicateSizes(List<File> files) {
+    Map<Long, Integer> counts = new HashMap<>();
+    files.forEach(file -> counts.merge(file.length(), 1, Integer::sum));
+
+    Map<Long, AtomicInteger> duplicates = new HashMap<>();
+    counts.forEach((Long size, Integer count) -> {
+      if (count > 1) {
+        duplicates.put(size, new AtomicInteger(count));
+      }
+    });
+    return duplicates;
+  }
+
+  /**
+   * Результат анализа модуля, который переиспользуется для модулей с тем же содержимым.
+   */
+  @Value
+  private static class AnalyzedContent {
+    private final String uri;
+    private final FileInfo fileInfo;
+
+    /**
+     * Результат анализа для другого документа с тем же содержимым.
+     * Ссылки на исходный документ в связанной информации диагностик заменяются ссылками на документ,
+     * а ссылки на документ - ссылками на исходный: документы с одинаковым содержимым взаимозаменяемы.
+     * Метрики не пересчитываются.
+     */
+    FileInfo copyFor(DocumentContext documentContext) {
+      List<Diagnostic> diagnostics = fileInfo.getDiagnostics().stream()
+        .map(diagnostic -> remapDiagnostic(diagnostic, documentContext.getUri()))
+        .collect(Collectors.toList());
+
+      return new FileInfo(Paths.get(URI.create(documentContext.getUri())), diagnostics, fileInfo.getMetrics());
+    }
+
+    private Diagnostic remapDiagnostic(Diagnostic diagnostic, String targetUri) {
+      List<DiagnosticRelatedInformation> relatedInformation = diagnostic.getRelatedInformation();
+      if (relatedInformation == null || relatedInformation.isEmpty()) {
+        return diagnostic;
+      }
+
+      Diagnostic remappedDiagnostic = new Diagnostic(
+        diagnostic.getRange(),
+        diagnostic.getMessage(),
+        diagnostic.getSeverity(),
+        diagnostic.getSource(),
+        diagnostic.getCode()
+      );
+      String normalizedUri = WorkspaceIndexer.normalizeUri(uri);
+      String normalizedTargetUri = WorkspaceIndexer.normalizeUri(targetUri);
+      remappedDiagnostic.setRelatedInformation(relatedInformation.stream()
+        .map((DiagnosticRelatedInformation information) -> {
+          Location location = information.getLocation();
+          String locationUri = WorkspaceIndexer.normalizeUri(location.getUri());
+          String remappedUri;
+          if (locationUri.equals(normalizedUri)) {
+            remappedUri = targetUri;
+          } else if (locationUri.equals(normalizedTargetUri)) {
+            remappedUri = uri;
+          } else {
+            return information;
+          }
+          return new DiagnosticRelatedInformation(
+            new Location(remappedUri, location.getRange()),
+            information.getMessage()
+          );
+        })
+        .collect(Collectors.toList())
+      );
+
+      return remappedDiagnostic;
+    }
+  }
+
 }
@@ -57,7 +57,10 @@ public class LanguageServerStartCommand implements Command {
     File configurationFile = new File(configurationOption);
 
     LanguageServerConfiguration configuration = LanguageServerConfiguration.create(configurationFile);
-    LanguageServer server = new BSLLanguageServer(configuration);
+    BSLLanguageServer server = new BSLLanguageServer(configuration);
+    if (cmd.hasOption("profile")) {
+      server.getProfiler().setEnabled(true);
+    }
 
     Launcher<LanguageClient> launcher = getLanguageClientLauncher(server, configuration);
 
@@ -31,10 +31,10 @@ import org.eclipse.lsp4j.CodeActionKind;
 import org.eclipse.lsp4j.CodeActionParams;
 import org.eclipse.lsp4j.Diagnostic;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class FixAllCodeActionSupplier extends AbstractQuickFixSupplier {
@@ -75,9 +75,9 @@ public class FixAllCodeActionSupplier extends AbstractQuickFixSupplier {
       return Collections.emptyList();
     }
 
-    List<Diagnostic> suitableDiagnostics = diagnosticProvider.getComputedDiagnostics(documentContext).stream()
-      .filter(diagnostic -> diagnosticCode.equals(diagnostic.getCode()))
-      .collect(Collectors.toList());
+    List<Diagnostic> suitableDiagnostics = new ArrayList<>(
+      diagnosticProvider.getComputedDiagnostics(documentContext).getDiagnostics(diagnosticCode)
+    );
 
     // if incomingDiagnostics list is empty - nothing to fix
     // if incomingDiagnostics list has size = 1 - it will be displayed as regular quick fix
@@ -61,12 +61,14 @@ public final class LanguageServerConfiguration {
   private static final DiagnosticLanguage DEFAULT_DIAGNOSTIC_LANGUAGE = DiagnosticLanguage.RU;
   private static final boolean DEFAULT_SHOW_COGNITIVE_COMPLEXITY_CODE_LENS = Boolean.TRUE;
   private static final ComputeDiagnosticsTrigger DEFAULT_COMPUTE_DIAGNOSTICS = ComputeDiagnosticsTrigger.ONSAVE;
+  private static final int DEFAULT_COMPUTE_DIAGNOSTICS_DELAY = 300;
 
   private static final Pattern searchConfiguration = Pattern.compile("Configuration.(xml|mdo)$");
 
   private DiagnosticLanguage diagnosticLanguage;
   private boolean showCognitiveComplexityCodeLens;
   private ComputeDiagnosticsTrigger computeDiagnostics;
+  private int computeDiagnosticsDelay;
   @Nullable
   private File traceLog;
   private Map<String, Either<Boolean, Map<String, Object>>> diagnostics;
@@ -78,6 +80,7 @@ public final class LanguageServerConfiguration {
       DEFAULT_DIAGNOSTIC_LANGUAGE,
       DEFAULT_SHOW_COGNITIVE_COMPLEXITY_CODE_LENS,
       DEFAULT_COMPUTE_DIAGNOSTICS,
+      DEFAULT_COMPUTE_DIAGNOSTICS_DELAY,
       null,
       new HashMap<>(),
       null
@@ -114,6 +117,7 @@ public final class LanguageServerConfiguration {
       DiagnosticLanguage diagnosticLanguage = getDiagnosticLanguage(node);
       boolean showCognitiveComplexityCodeLens = getShowCognitiveComplexityCodeLens(node);
       ComputeDiagnosticsTrigger computeDiagnostics = getComputeDiagnostics(node);
+      int computeDiagnosticsDelay = getComputeDiagnosticsDelay(node);
       File traceLog = getTraceLog(node);
       Map<String, Either<Boolean, Map<String, Object>>> diagnosticsMap = getDiagnostics(node);
       Path configurationRoot = getConfigurationRoot(node);
@@ -122,6 +126,7 @@ public final class LanguageServerConfiguration {
         diagnosticLanguage,
         showCognitiveComplexityCodeLens,
         computeDiagnostics,
+        computeDiagnosticsDelay,
         traceLog,
         diagnosticsMap,
         configurationRoot
@@ -197,6 +202,14 @@ public final class LanguageServerConfiguration {
       return computeDiagnostics;
     }
 
+    private static int getComputeDiagnosticsDelay(JsonNode node) {
+      int computeDiagnosticsDelay = DEFAULT_COMPUTE_DIAGNOSTICS_DELAY;
+      if (node.get("computeDiagnosticsDelay") != null) {
+        computeDiagnosticsDelay = node.get("computeDiagnosticsDelay").asInt();
+      }
+      return computeDiagnosticsDelay;
+    }
+
     private static File getTraceLog(JsonNode node) {
       File traceLog = null;
       if (node.get("traceLog") != null) {
@@ -0,0 +1,90 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context;
+
+import com.github._1c_syntax.bsl.languageserver.context.symbol.SymbolTable;
+import com.github._1c_syntax.bsl.parser.Tokenizer;
+
+import javax.annotation.CheckForNull;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Общие результаты разбора документов с одинаковым текстом.
+ * <p>
+ * В конфигурациях много побайтно совпадающих модулей (типовые модули форм и объектов, копии расширений).
+ * Документы с одинаковым текстом получают один и тот же {@link Tokenizer} (токены и дерево разбора)
+ * и одну {@link SymbolTable}, поэтому каждый уникальный текст разбирается один раз.
+ * <p>
+ * Ключ - сам текст документа: запись живет, пока на этот экземпляр строки ссылается документ.
+ * Токенайзер хранится по слабой ссылке и освобождается, когда его вытеснили из всех документов.
+ */
+final class ContentCache {
+
+  private final Map<String, SharedContent> contents = Collections.synchronizedMap(new WeakHashMap<>());
+
+  /**
+   * Токенайзер для текста документа: общий, если такой текст уже разбирается, иначе новый.
+   */
+  Tokenizer getTokenizer(String content) {
+    synchronized (contents) {
+      SharedContent sharedContent = contents.computeIfAbsent(content, key -> new SharedContent());
+      Tokenizer tokenizer = sharedContent.tokenizer.get();
+      if (tokenizer == null) {
+        tokenizer = new Tokenizer(content);
+        sharedContent.tokenizer = new WeakReference<>(tokenizer);
+      }
+      return tokenizer;
+    }
+  }
+
+  @CheckForNull
+  SymbolTable getSymbolTable(String content) {
+    SharedContent sharedContent = contents.get(content);
+    if (sharedContent == null) {
+      return null;
+    }
+    return sharedContent.symbolTable;
+  }
+
+  void putSymbolTable(String content, SymbolTable symbolTable) {
+    synchronized (contents) {
+      contents.computeIfAbsent(content, key -> new SharedContent()).symbolTable = symbolTable;
+    }
+  }
+
+  void clear() {
+    contents.clear();
+  }
+
+  /**
+   * Значение не должно ссылаться на текст документа, иначе запись никогда не удалится.
+   */
+  private static class SharedContent {
+    private WeakReference<Tokenizer> tokenizer = new WeakReference<>(null);
+    @CheckForNull
+    private volatile SymbolTable symbolTable;
+  }
+
+}
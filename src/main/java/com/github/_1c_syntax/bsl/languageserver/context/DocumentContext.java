@@ -26,10 +26,13 @@ import com.github._1c_syntax.bsl.languageserver.context.computer.Computer;
 import com.github._1c_syntax.bsl.languageserver.context.computer.DiagnosticIgnoranceComputer;
 import com.github._1c_syntax.bsl.languageserver.context.computer.MethodSymbolComputer;
 import com.github._1c_syntax.bsl.languageserver.context.computer.RegionSymbolComputer;
+import com.github._1c_syntax.bsl.languageserver.context.computer.SymbolTableComputer;
 import com.github._1c_syntax.bsl.languageserver.context.symbol.MethodSymbol;
 import com.github._1c_syntax.bsl.languageserver.context.symbol.RegionSymbol;
 import com.github._1c_syntax.bsl.languageserver.context.symbol.Symbol;
+import com.github._1c_syntax.bsl.languageserver.context.symbol.SymbolTable;
 import com.github._1c_syntax.bsl.languageserver.utils.Lazy;
+import com.github._1c_syntax.bsl.languageserver.utils.NodeIndex;
 import com.github._1c_syntax.bsl.languageserver.utils.Trees;
 import com.github._1c_syntax.bsl.parser.BSLLexer;
 import com.github._1c_syntax.bsl.parser.BSLParser;
@@ -37,40 +40,46 @@ import com.github._1c_syntax.bsl.parser.BSLParserRuleContext;
 import com.github._1c_syntax.bsl.parser.Tokenizer;
 import com.github._1c_syntax.mdclasses.metadata.additional.ModuleType;
 import org.antlr.v4.runtime.Token;
-import org.antlr.v4.runtime.tree.TerminalNodeImpl;
-import org.antlr.v4.runtime.tree.Tree;
 import org.apache.commons.io.FilenameUtils;
 import org.eclipse.lsp4j.Position;
 import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
 
+import javax.annotation.CheckForNull;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static java.util.Objects.requireNonNull;
 import static org.antlr.v4.runtime.Token.DEFAULT_CHANNEL;
 
 public class DocumentContext {
 
-  private String content;
+  private static final AtomicLong VERSION_COUNTER = new AtomicLong();
+
+  private volatile String content;
+  private volatile long version = VERSION_COUNTER.incrementAndGet();
   private ServerContext context;
-  private Lazy<String[]> contentList = new Lazy<>(this::computeContentList);
-  private Tokenizer tokenizer;
+  @CheckForNull
+  private ParseData parseData;
+  private final AtomicInteger pins = new AtomicInteger();
   private Lazy<MetricStorage> metrics = new Lazy<>(this::computeMetrics);
-  private Lazy<CognitiveComplexityComputer.Data> cognitiveComplexityData = new Lazy<>(this::computeCognitiveComplexity);
-  private Lazy<List<MethodSymbol>> methods = new Lazy<>(this::computeMethods);
-  private Lazy<Map<BSLParserRuleContext, MethodSymbol>> nodeToMethodsMap = new Lazy<>(this::computeNodeToMethodsMap);
-  private Lazy<List<RegionSymbol>> regions = new Lazy<>(this::computeRegions);
-  private Lazy<List<RegionSymbol>> regionsFlat = new Lazy<>(this::computeRegionsFlat);
+  private Lazy<SymbolTable> symbolTable = new Lazy<>(this::computeSymbolTable);
   private Lazy<DiagnosticIgnoranceComputer.Data> diagnosticIgnoranceData = new Lazy<>(this::computeDiagnosticIgnorance);
   private Lazy<ModuleType> moduleType = new Lazy<>(this::computeModuleType);
-  private boolean callAdjustRegionsAfterCalculation;
+  private volatile boolean evicting;
   private final String uri;
   private final FileType fileType;
 
@@ -80,10 +89,21 @@ public class DocumentContext {
   }
 
   public DocumentContext(String uri, String content, ServerContext context) {
+    this(uri, content, context, null);
+  }
+
+  /**
+   * Контекст новой версии документа.
+   * <p>
+   * Если токены предыдущей версии уже вычислены, повторно разбирается на токены только измененная часть текста.
+   *
+   * @param previousVersion предыдущая версия документа
+   */
+  DocumentContext(String uri, String content, ServerContext context, @CheckForNull DocumentContext previousVersion) {
     this.uri = uri;
     this.content = content;
     this.context = context;
-    this.tokenizer = new Tokenizer(content);
+    this.parseData = createParseData(content, previousVersion == null ? null : previousVersion.getCurrentParseData());
 
     FileType fileTypeFromUri;
     try {
@@ -100,19 +120,23 @@ public class DocumentContext {
   }
 
   public BSLParser.FileContext getAst() {
-    requireNonNull(content);
-    return tokenizer.getAst();
+    return getParseData().ast.getOrCompute();
   }
 
   public List<MethodSymbol> getMethods() {
-    final List<MethodSymbol> methodsUnboxed = methods.getOrCompute();
-    if (callAdjustRegionsAfterCalculation) {
-      callAdjustRegionsAfterCalculation = false;
-      adjustRegions();
-    }
+    final List<MethodSymbol> methodsUnboxed = computeWithPinnedAST(() -> getParseData().methods.getOrCompute());
     return new ArrayList<>(methodsUnboxed);
   }
 
+  /**
+   * Компактная таблица символов документа.
+   * <p>
+   * Сохраняется при вытеснении дерева разбора, см. {@link #evictASTData()}.
+   */
+  public SymbolTable getSymbolTable() {
+    return symbolTable.getOrCompute();
+  }
+
   public Optional<MethodSymbol> getMethodSymbol(BSLParserRuleContext ctx) {
     BSLParserRuleContext methodNode;
     if (ctx instanceof BSLParser.SubContext) {
@@ -124,32 +148,74 @@ public class DocumentContext {
       methodNode = ctx;
     }
 
-    return Optional.ofNullable(getNodeToMethodsMap().get(methodNode));
+    Map<BSLParserRuleContext, MethodSymbol> nodeToMethodsMap =
+      computeWithPinnedAST(() -> getParseData().nodeToMethodsMap.getOrCompute());
+    return Optional.ofNullable(nodeToMethodsMap.get(methodNode));
   }
 
   public List<RegionSymbol> getRegions() {
-    final List<RegionSymbol> regionsUnboxed = regions.getOrCompute();
+    final List<RegionSymbol> regionsUnboxed = computeWithPinnedAST(() -> {
+      ParseData currentParseData = getParseData();
+      // методы заполняются в областях при вычислении методов
+      currentParseData.methods.getOrCompute();
+      return currentParseData.regions.getOrCompute();
+    });
     return new ArrayList<>(regionsUnboxed);
   }
 
   public List<RegionSymbol> getRegionsFlat() {
-    final List<RegionSymbol> regionsFlatUnboxed = regionsFlat.getOrCompute();
+    final List<RegionSymbol> regionsFlatUnboxed = computeWithPinnedAST(() -> getParseData().regionsFlat.getOrCompute());
     return new ArrayList<>(regionsFlatUnboxed);
   }
 
   public List<Token> getTokens() {
-    requireNonNull(content);
-    return tokenizer.getTokens();
+    return getParseData().tokens.getOrCompute();
   }
 
+  /**
+   * Индекс узлов дерева разбора и токенов по типам. Вычисляется одним обходом дерева для версии документа,
+   * для поиска используйте {@link Trees#findAllRuleNodes(DocumentContext, int)}.
+   */
+  public NodeIndex getNodeIndex() {
+    return getParseData().nodeIndex.getOrCompute();
+  }
+
+  /**
+   * @return Неизменяемый список токенов из канала по умолчанию. Вычисляется один раз для версии документа.
+   */
   public List<Token> getTokensFromDefaultChannel() {
-    return getTokens().stream().filter(token -> token.getChannel() == DEFAULT_CHANNEL).collect(Collectors.toList());
+    return getParseData().tokensFromDefaultChannel.getOrCompute();
   }
 
+  /**
+   * @return Неизменяемый список токенов комментариев. Вычисляется один раз для версии документа.
+   */
   public List<Token> getComments() {
-    return getTokens().stream()
-      .filter(token -> token.getType() == BSLLexer.LINE_COMMENT)
-      .collect(Collectors.toList());
+    return getParseData().comments.getOrCompute();
+  }
+
+  /**
+   * Получение токенов, начинающихся на строках из указанного диапазона.
+   *
+   * @param startLine Номер первой строки (начиная с 1).
+   * @param endLine   Номер последней строки (включительно).
+   * @return Неизменяемый список токенов всех каналов.
+   */
+  public List<Token> getTokensOnLines(int startLine, int endLine) {
+    ParseData currentParseData = getParseData();
+    List<Token> tokens = currentParseData.tokens.getOrCompute();
+    int[] lineTokenIndexesUnboxed = currentParseData.lineTokenIndexes.getOrCompute();
+    int lastLine = lineTokenIndexesUnboxed.length - 2;
+
+    int fromLine = Math.max(startLine, 1);
+    int toLine = Math.min(endLine, lastLine);
+    if (fromLine > toLine) {
+      return Collections.emptyList();
+    }
+
+    return Collections.unmodifiableList(
+      tokens.subList(lineTokenIndexesUnboxed[fromLine], lineTokenIndexesUnboxed[toLine + 1])
+    );
   }
 
   public String getText(Range range) {
@@ -158,7 +224,7 @@ public class DocumentContext {
 
     StringBuilder sb = new StringBuilder();
 
-    String[] contentListUnboxed = getContentList();
+    String[] contentListUnboxed = getParseData().contentList.getOrCompute();
     String startString = contentListUnboxed[start.getLine()];
     if (start.getLine() == end.getLine()) {
       sb.append(startString, start.getCharacter(), end.getCharacter());
@@ -185,12 +251,19 @@ public class DocumentContext {
     return uri;
   }
 
+  /**
+   * @return Версия текста документа, уникальная в пределах процесса и возрастающая с каждой новой версией.
+   */
+  public long getVersion() {
+    return version;
+  }
+
   public FileType getFileType() {
     return fileType;
   }
 
   public CognitiveComplexityComputer.Data getCognitiveComplexityData() {
-    return cognitiveComplexityData.getOrCompute();
+    return computeWithPinnedAST(() -> getParseData().cognitiveComplexityData.getOrCompute());
   }
 
   public DiagnosticIgnoranceComputer.Data getDiagnosticIgnorance() {
@@ -201,82 +274,265 @@ public class DocumentContext {
     return moduleType.getOrCompute();
   }
 
+  /**
+   * Замена текста документа с повторным разбором.
+   * <p>
+   * Изменяет контекст на месте, поэтому небезопасна при параллельных обращениях к документу.
+   * Для документов сервера используйте {@link ServerContext#addDocument(String, String)}.
+   *
+   * @param content новый текст документа
+   * @deprecated для документов сервера каждая версия текста - отдельный неизменяемый контекст.
+   */
+  @Deprecated
   public void rebuild(String content) {
     clear();
-    this.content = content;
-    tokenizer = new Tokenizer(content);
+    synchronized (this) {
+      this.content = content;
+      version = VERSION_COUNTER.incrementAndGet();
+      parseData = new ParseData(content, context.getContentCache().getTokenizer(content));
+    }
+  }
+
+  /**
+   * Применение изменений текста, пришедших от клиента.
+   * <p>
+   * Изменения с диапазоном применяются к текущему тексту документа последовательно,
+   * изменение без диапазона заменяет текст целиком. Если текст в итоге не изменился,
+   * дерево разбора не перестраивается. Если токены текущего текста уже вычислены,
+   * повторно разбирается на токены только измененная часть текста.
+   *
+   * @param changes изменения текста в порядке их применения
+   * @deprecated для документов сервера используйте {@link ServerContext#changeDocument(String, List)}.
+   */
+  @Deprecated
+  public void rebuild(List<TextDocumentContentChangeEvent> changes) {
+    String currentContent = requireNonNull(content);
+    String newContent = applyChanges(currentContent, changes);
+    if (newContent.equals(currentContent)) {
+      return;
+    }
+
+    ParseData previousParseData = getCurrentParseData();
+    clear();
+    synchronized (this) {
+      content = newContent;
+      version = VERSION_COUNTER.incrementAndGet();
+      parseData = createParseData(newContent, previousParseData);
+    }
+  }
+
+  /**
+   * Применение изменений текста, пришедших от клиента.
+   *
+   * @param content исходный текст
+   * @param changes изменения текста в порядке их применения
+   * @return текст после применения изменений
+   */
+  static String applyChanges(String content, List<TextDocumentContentChangeEvent> changes) {
+    StringBuilder newContent = new StringBuilder(content);
+    for (TextDocumentContentChangeEvent change : changes) {
+      Range range = change.getRange();
+      if (range == null) {
+        newContent.setLength(0);
+        newContent.append(change.getText());
+      } else {
+        int startOffset = getOffset(newContent, range.getStart());
+        int endOffset = Math.max(startOffset, getOffset(newContent, range.getEnd()));
+        newContent.replace(startOffset, endOffset, change.getText());
+      }
+    }
+    return newContent.toString();
   }
 
   public void clearASTData() {
-    content = null;
-    contentList.clear();
-    tokenizer = null;
+    ParseData clearedParseData;
+    synchronized (this) {
+      content = null;
+      clearedParseData = parseData;
+      parseData = null;
+    }
 
-    nodeToMethodsMap.clear();
+    if (clearedParseData == null) {
+      return;
+    }
+    if (clearedParseData.regions.isPresent()) {
+      clearedParseData.regions.getOrCompute().forEach(Symbol::clearASTData);
+    }
+    if (clearedParseData.methods.isPresent()) {
+      clearedParseData.methods.getOrCompute().forEach(Symbol::clearASTData);
+    }
+  }
+
+  /**
+   * Освобождение дерева разбора, токенов и связанных с деревом данных с сохранением текста документа.
+   * <p>
+   * Метрики и данные о подавлении диагностик сохраняются. Символы и когнитивная сложность
+   * ссылаются на узлы дерева, поэтому сбрасываются. Если символы уже были вычислены, перед сбросом
+   * они сворачиваются в {@link SymbolTable}, которая сохраняется. При следующем обращении к дереву,
+   * токенам или символам текст разбирается заново.
+   * <p>
+   * Данные разбора не изменяются, а заменяются целиком, поэтому уже полученные дерево и символы
+   * остаются согласованными между собой. Дерево документа, закрепленного
+   * {@link #computeWithPinnedAST(Supplier)}, не вытесняется.
+   *
+   * @return Признак того, что дерево было вытеснено.
+   */
+  public boolean evictASTData() {
+    ParseData evictedParseData;
+    synchronized (this) {
+      evictedParseData = parseData;
+    }
+    if (evictedParseData == null || pins.get() > 0) {
+      return false;
+    }
 
-    if (regions.isPresent()) {
-      getRegions().forEach(Symbol::clearASTData);
+    if (evictedParseData.methods.isPresent() && evictedParseData.regions.isPresent() && !symbolTable.isPresent()) {
+      // дерево еще не сброшено, обращение к нему не должно влиять на порядок вытеснения
+      evicting = true;
+      try {
+        computeWithPinnedAST(this::getSymbolTable);
+      } finally {
+        evicting = false;
+      }
     }
-    if (methods.isPresent()) {
-      getMethods().forEach(Symbol::clearASTData);
+
+    synchronized (this) {
+      // закрепление документа и замена данных разбора проверяются под одной блокировкой с getParseData
+      if (pins.get() > 0 || parseData != evictedParseData) {
+        return false;
+      }
+      parseData = null;
     }
+    return true;
   }
 
-  private void clear() {
-    clearASTData();
+  public boolean isASTDataPresent() {
+    synchronized (this) {
+      return parseData != null;
+    }
+  }
 
-    metrics.clear();
-    cognitiveComplexityData.clear();
-    methods.clear();
-    regions.clear();
-    regionsFlat.clear();
+  /**
+   * Выполнение расчета, во время которого дерево разбора документа не вытесняется.
+   * <p>
+   * Расчеты, несколько раз обращающиеся к дереву, токенам, индексу узлов или символам документа
+   * (диагностики, запросы клиента), должны выполняться внутри этого метода. Иначе при вытеснении
+   * дерева между обращениями часть данных будет получена по новому разбору текста
+   * и не совпадет с узлами, полученными ранее.
+   * <p>
+   * Начало внешнего расчета по документу отмечается как обращение к его дереву для порядка вытеснения
+   * (см. {@link ServerContext#setParsedDocumentsLimit(int)}). Отдельные обращения к дереву и токенам
+   * порядок вытеснения не меняют и общих блокировок не берут.
+   *
+   * @param computation Расчет.
+   * @param <T>         Тип результата.
+   * @return Результат расчета.
+   */
+  public <T> T computeWithPinnedAST(Supplier<T> computation) {
+    if (pins.incrementAndGet() == 1 && !evicting) {
+      context.onDocumentAccess(this);
+    }
+    try {
+      return computation.get();
+    } finally {
+      pins.decrementAndGet();
+    }
   }
 
-  private String[] getContentList() {
-    return contentList.getOrCompute();
+  boolean isPinned() {
+    return pins.get() > 0;
   }
 
-  private Map<BSLParserRuleContext, MethodSymbol> getNodeToMethodsMap() {
-    return nodeToMethodsMap.getOrCompute();
+  @CheckForNull
+  private synchronized ParseData getCurrentParseData() {
+    return parseData;
   }
 
-  private String[] computeContentList() {
-    return content.split("\n");
+  private ParseData createParseData(String text, @CheckForNull ParseData previousParseData) {
+    if (previousParseData != null && previousParseData.tokens.isPresent()) {
+      return new ParseData(text, previousParseData.text, previousParseData.tokens.getOrCompute());
+    }
+    return new ParseData(text, context.getContentCache().getTokenizer(text));
   }
 
-  private List<RegionSymbol> computeRegions() {
-    Computer<List<RegionSymbol>> regionSymbolComputer = new RegionSymbolComputer(this);
-    final List<RegionSymbol> regionSymbols = regionSymbolComputer.compute();
-    if (!callAdjustRegionsAfterCalculation) {
-      adjustRegions();
+  private ParseData getParseData() {
+    ParseData currentParseData;
+    synchronized (this) {
+      String currentContent = requireNonNull(content);
+      if (parseData == null) {
+        parseData = new ParseData(currentContent, context.getContentCache().getTokenizer(currentContent));
+      }
+      currentParseData = parseData;
     }
-    return regionSymbols;
+
+    // в порядок вытеснения документ попадает при первом обращении к данным разбора,
+    // вне блокировки документа: при вытеснении блокируются другие документы
+    if (!currentParseData.accessed.get() && currentParseData.accessed.compareAndSet(false, true) && !evicting) {
+      context.onDocumentAccess(this);
+    }
+
+    return currentParseData;
   }
 
-  private List<RegionSymbol> computeRegionsFlat() {
-    return getRegions().stream()
-      .map((RegionSymbol regionSymbol) -> {
-        List<RegionSymbol> list = new ArrayList<>();
-        list.add(regionSymbol);
-        list.addAll(regionSymbol.getChildren());
+  private void clear() {
+    clearASTData();
 
-        return list;
-      })
-      .flatMap(Collection::stream)
-      .collect(Collectors.toList());
+    metrics.clear();
+    diagnosticIgnoranceData.clear();
+    symbolTable.clear();
+  }
+
+  /**
+   * Смещение позиции в тексте.
+   * <p>
+   * Позиция за концом строки, как требует протокол, указывает на конец строки (перед ее переводом строки),
+   * позиция за последней строкой - на конец текста.
+   */
+  private static int getOffset(CharSequence text, Position position) {
+    int length = text.length();
+    int offset = 0;
+    int line = 0;
+    while (line < position.getLine() && offset < length) {
+      char currentChar = text.charAt(offset);
+      offset++;
+      boolean crlf = currentChar == '\r' && offset < length && text.charAt(offset) == '\n';
+      if (currentChar == '\n' || (currentChar == '\r' && !crlf)) {
+        line++;
+      }
+    }
+
+    int limit = (int) Math.min((long) offset + position.getCharacter(), length);
+    while (offset < limit) {
+      char currentChar = text.charAt(offset);
+      if (currentChar == '\n' || currentChar == '\r') {
+        break;
+      }
+      offset++;
+    }
+    return offset;
   }
 
-  private List<MethodSymbol> computeMethods() {
-    callAdjustRegionsAfterCalculation = true;
-    Computer<List<MethodSymbol>> methodSymbolComputer = new MethodSymbolComputer(this);
-    return methodSymbolComputer.compute();
+  @CheckForNull
+  String getContent() {
+    return content;
   }
 
-  private Map<BSLParserRuleContext, MethodSymbol> computeNodeToMethodsMap() {
-    final Map<BSLParserRuleContext, MethodSymbol> nodeToMethodsMapTemp = new HashMap<>();
-    getMethods().forEach(methodSymbol -> nodeToMethodsMapTemp.put(methodSymbol.getNode(), methodSymbol));
+  private SymbolTable computeSymbolTable() {
+    return computeWithPinnedAST(() -> {
+      String currentContent = requireNonNull(content);
+      SymbolTable sharedSymbolTable = context.getContentCache().getSymbolTable(currentContent);
+      if (sharedSymbolTable != null) {
+        return sharedSymbolTable;
+      }
 
-    return nodeToMethodsMapTemp;
+      Computer<SymbolTable> symbolTableComputer = new SymbolTableComputer(this);
+      SymbolTable computedSymbolTable = context.getProfiler().measureComputer(
+        "getSymbolTable",
+        symbolTableComputer::compute
+      );
+      context.getContentCache().putSymbolTable(currentContent, computedSymbolTable);
+      return computedSymbolTable;
+    });
   }
 
   private ModuleType computeModuleType() {
@@ -287,13 +543,8 @@ public class DocumentContext {
     return type;
   }
 
-  private CognitiveComplexityComputer.Data computeCognitiveComplexity() {
-    Computer<CognitiveComplexityComputer.Data> cognitiveComplexityComputer = new CognitiveComplexityComputer(this);
-    return cognitiveComplexityComputer.compute();
-  }
-
-  private void adjustRegions() {
-    getMethods().forEach((MethodSymbol methodSymbol) -> {
+  private static void adjustRegions(List<MethodSymbol> methodSymbols) {
+    methodSymbols.forEach((MethodSymbol methodSymbol) -> {
       RegionSymbol region = methodSymbol.getRegion();
       if (region != null) {
         region.getMethods().add(methodSymbol);
@@ -302,63 +553,222 @@ public class DocumentContext {
   }
 
   private MetricStorage computeMetrics() {
-    MetricStorage metricsTemp = new MetricStorage();
-    final List<MethodSymbol> methodsUnboxed = getMethods();
+    return computeWithPinnedAST(() -> {
+      MetricStorage metricsTemp = new MetricStorage();
+      final List<MethodSymbol> methodsUnboxed = getMethods();
+
+      metricsTemp.setFunctions(Math.toIntExact(methodsUnboxed.stream().filter(MethodSymbol::isFunction).count()));
+      metricsTemp.setProcedures(methodsUnboxed.size() - metricsTemp.getFunctions());
+
+      int[] nclocData = getTokensFromDefaultChannel().stream()
+        .mapToInt(Token::getLine)
+        .distinct().toArray();
+      metricsTemp.setNcloc(nclocData.length);
+      metricsTemp.setNclocData(nclocData);
+
+      metricsTemp.setCovlocData(computeCovlocData());
+
+      int lines;
+      final List<Token> tokensUnboxed = getTokens();
+      if (tokensUnboxed.isEmpty()) {
+        lines = 0;
+      } else {
+        lines = tokensUnboxed.get(tokensUnboxed.size() - 1).getLine();
+      }
+      metricsTemp.setLines(lines);
 
-    metricsTemp.setFunctions(Math.toIntExact(methodsUnboxed.stream().filter(MethodSymbol::isFunction).count()));
-    metricsTemp.setProcedures(methodsUnboxed.size() - metricsTemp.getFunctions());
+      int statements = Trees.findAllRuleNodes(this, BSLParser.RULE_statement).size();
+      metricsTemp.setStatements(statements);
 
-    int ncloc = (int) getTokensFromDefaultChannel().stream()
-      .map(Token::getLine)
-      .distinct()
-      .count();
+      metricsTemp.setCognitiveComplexity(getCognitiveComplexityData().getFileComplexity());
 
-    metricsTemp.setNcloc(ncloc);
+      return metricsTemp;
+    });
+  }
 
-    int[] nclocData = getTokensFromDefaultChannel().stream()
-      .mapToInt(Token::getLine)
+  private int[] computeCovlocData(){
+
+    return IntStream.of(BSLParser.RULE_statement, BSLParser.RULE_globalMethodCall, BSLParser.RULE_var_name)
+      .mapToObj(ruleIndex -> Trees.findAllRuleNodes(this, ruleIndex))
+      .flatMap(Collection::stream)
+      .mapToInt(node -> ((BSLParserRuleContext) node).getStart().getLine())
+      .sorted()
       .distinct().toArray();
-    metricsTemp.setNclocData(nclocData);
 
-    metricsTemp.setCovlocData(computeCovlocData());
+  }
 
-    int lines;
-    final List<Token> tokensUnboxed = getTokens();
-    if (tokensUnboxed.isEmpty()) {
-      lines = 0;
-    } else {
-      lines = tokensUnboxed.get(tokensUnboxed.size() - 1).getLine();
+  private DiagnosticIgnoranceComputer.Data computeDiagnosticIgnorance() {
+    Computer<DiagnosticIgnoranceComputer.Data> diagnosticIgnoranceComputer = new DiagnosticIgnoranceComputer(this);
+    return computeWithPinnedAST(
+      () -> context.getProfiler().measureComputer("getDiagnosticIgnorance", diagnosticIgnoranceComputer::compute)
+    );
+  }
+
+  /**
+   * Данные одного разбора текста: дерево, токены и вычисленные по ним данные.
+   * <p>
+   * При вытеснении объект заменяется целиком и никогда не изменяется, поэтому все полученные
+   * из него данные относятся к одному дереву разбора. Символы и когнитивная сложность вычисляются
+   * компьютерами через методы документа, поэтому методы документа, запускающие их вычисление,
+   * сначала закрепляют дерево и только затем получают данные разбора: пока документ закреплен,
+   * текущими данными разбора остается один и тот же объект.
+   * <p>
+   * Данные новой версии документа могут строиться по токенам предыдущей версии, см. {@link IncrementalLexer}.
+   * Токены предыдущей версии удерживаются только до вычисления токенов новой.
+   */
+  private final class ParseData {
+    private final String text;
+    @CheckForNull
+    private volatile Tokenizer tokenizer;
+    @CheckForNull
+    private String previousText;
+    @CheckForNull
+    private List<Token> previousTokens;
+    private final AtomicBoolean accessed = new AtomicBoolean();
+    private final Lazy<List<Token>> tokens = new Lazy<>(this::computeTokens);
+    private final Lazy<BSLParser.FileContext> ast = new Lazy<>(this::computeAst);
+    private final Lazy<String[]> contentList = new Lazy<>(this::computeContentList);
+    private final Lazy<List<Token>> tokensFromDefaultChannel = new Lazy<>(this::computeTokensFromDefaultChannel);
+    private final Lazy<List<Token>> comments = new Lazy<>(this::computeComments);
+    private final Lazy<int[]> lineTokenIndexes = new Lazy<>(this::computeLineTokenIndexes);
+    private final Lazy<NodeIndex> nodeIndex = new Lazy<>(this::computeNodeIndex);
+    private final Lazy<CognitiveComplexityComputer.Data> cognitiveComplexityData =
+      new Lazy<>(this::computeCognitiveComplexity);
+    private final Lazy<List<MethodSymbol>> methods = new Lazy<>(this::computeMethods);
+    private final Lazy<Map<BSLParserRuleContext, MethodSymbol>> nodeToMethodsMap =
+      new Lazy<>(this::computeNodeToMethodsMap);
+    private final Lazy<List<RegionSymbol>> regions = new Lazy<>(this::computeRegions);
+    private final Lazy<List<RegionSymbol>> regionsFlat = new Lazy<>(this::computeRegionsFlat);
+
+    private ParseData(String text, Tokenizer tokenizer) {
+      this.text = text;
+      this.tokenizer = tokenizer;
     }
-    metricsTemp.setLines(lines);
 
-    int statements = Trees.findAllRuleNodes(getAst(), BSLParser.RULE_statement).size();
-    metricsTemp.setStatements(statements);
+    private ParseData(String text, String previousText, List<Token> previousTokens) {
+      this.text = text;
+      this.previousText = previousText;
+      this.previousTokens = previousTokens;
+    }
 
-    metricsTemp.setCognitiveComplexity(getCognitiveComplexityData().getFileComplexity());
+    private List<Token> computeTokens() {
+      Tokenizer currentTokenizer = tokenizer;
+      if (currentTokenizer != null) {
+        return currentTokenizer.getTokens();
+      }
 
-    return metricsTemp;
-  }
+      List<Token> relexedTokens = context.getProfiler().measureComputer(
+        "relex",
+        () -> IncrementalLexer.relex(requireNonNull(previousText), requireNonNull(previousTokens), text)
+      );
+      previousText = null;
+      previousTokens = null;
+      if (relexedTokens != null) {
+        return Collections.unmodifiableList(relexedTokens);
+      }
 
-  private int[] computeCovlocData(){
+      currentTokenizer = context.getContentCache().getTokenizer(text);
+      tokenizer = currentTokenizer;
+      return currentTokenizer.getTokens();
+    }
 
-    return Trees.getDescendants(getAst()).stream()
-      .filter(node -> !(node instanceof TerminalNodeImpl))
-      .filter(this::mustCovered)
-      .mapToInt(node -> ((BSLParserRuleContext) node).getStart().getLine())
-      .distinct().toArray();
+    private BSLParser.FileContext computeAst() {
+      List<Token> tokenList = tokens.getOrCompute();
+      Tokenizer currentTokenizer = tokenizer;
+      if (currentTokenizer != null) {
+        return currentTokenizer.getAst();
+      }
+      return IncrementalLexer.parse(tokenList);
+    }
 
-  }
+    private String[] computeContentList() {
+      return text.split("\n");
+    }
+
+    private List<Token> computeTokensFromDefaultChannel() {
+      return Collections.unmodifiableList(
+        tokens.getOrCompute().stream()
+          .filter(token -> token.getChannel() == DEFAULT_CHANNEL)
+          .collect(Collectors.toList())
+      );
+    }
 
-  private boolean mustCovered(Tree node) {
+    private List<Token> computeComments() {
+      return Collections.unmodifiableList(
+        tokens.getOrCompute().stream()
+          .filter(token -> token.getType() == BSLLexer.LINE_COMMENT)
+          .collect(Collectors.toList())
+      );
+    }
 
-    return node instanceof BSLParser.StatementContext
-            || node instanceof BSLParser.GlobalMethodCallContext
-            || node instanceof BSLParser.Var_nameContext;
-  }
+    /**
+     * Индекс строк: для строки N (начиная с 1) элемент N содержит индекс первого токена,
+     * начинающегося на строке N или позже. Последний элемент равен количеству токенов.
+     */
+    private int[] computeLineTokenIndexes() {
+      List<Token> tokenList = tokens.getOrCompute();
+      int lastLine = tokenList.isEmpty() ? 0 : tokenList.get(tokenList.size() - 1).getLine();
+
+      int[] indexes = new int[lastLine + 2];
+      int line = 0;
+      for (int tokenIndex = 0; tokenIndex < tokenList.size(); tokenIndex++) {
+        int tokenLine = tokenList.get(tokenIndex).getLine();
+        while (line < tokenLine) {
+          line++;
+          indexes[line] = tokenIndex;
+        }
+      }
+      indexes[lastLine + 1] = tokenList.size();
 
-  private DiagnosticIgnoranceComputer.Data computeDiagnosticIgnorance() {
-    Computer<DiagnosticIgnoranceComputer.Data> diagnosticIgnoranceComputer = new DiagnosticIgnoranceComputer(this);
-    return diagnosticIgnoranceComputer.compute();
+      return indexes;
+    }
+
+    private NodeIndex computeNodeIndex() {
+      return context.getProfiler().measureComputer(
+        "getNodeIndex",
+        () -> NodeIndex.create(ast.getOrCompute(), tokens.getOrCompute())
+      );
+    }
+
+    private CognitiveComplexityComputer.Data computeCognitiveComplexity() {
+      Computer<CognitiveComplexityComputer.Data> cognitiveComplexityComputer =
+        new CognitiveComplexityComputer(DocumentContext.this);
+      return context.getProfiler().measureComputer("getCognitiveComplexityData", cognitiveComplexityComputer::compute);
+    }
+
+    private List<MethodSymbol> computeMethods() {
+      Computer<List<MethodSymbol>> methodSymbolComputer = new MethodSymbolComputer(DocumentContext.this);
+      List<MethodSymbol> methodSymbols =
+        context.getProfiler().measureComputer("getMethods", methodSymbolComputer::compute);
+      adjustRegions(methodSymbols);
+      return methodSymbols;
+    }
+
+    private Map<BSLParserRuleContext, MethodSymbol> computeNodeToMethodsMap() {
+      final Map<BSLParserRuleContext, MethodSymbol> nodeToMethodsMapTemp = new HashMap<>();
+      methods.getOrCompute().forEach(methodSymbol -> nodeToMethodsMapTemp.put(methodSymbol.getNode(), methodSymbol));
+
+      return nodeToMethodsMapTemp;
+    }
+
+    private List<RegionSymbol> computeRegions() {
+      Computer<List<RegionSymbol>> regionSymbolComputer = new RegionSymbolComputer(DocumentContext.this);
+      return regionSymbolComputer.compute();
+    }
+
+    private List<RegionSymbol> computeRegionsFlat() {
+      // без заполнения методов областей: плоский список нужен для вычисления самих методов
+      return regions.getOrCompute().stream()
+        .map((RegionSymbol regionSymbol) -> {
+          List<RegionSymbol> list = new ArrayList<>();
+          list.add(regionSymbol);
+          list.addAll(regionSymbol.getChildren());
+
+          return list;
+        })
+        .flatMap(Collection::stream)
+        .collect(Collectors.toList());
+    }
   }
 
 }
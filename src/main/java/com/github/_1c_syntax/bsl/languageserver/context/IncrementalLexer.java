@@ -0,0 +1,380 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context;
+
+import com.github._1c_syntax.bsl.parser.BSLLexer;
+import com.github._1c_syntax.bsl.parser.BSLParser;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.Pair;
+
+import javax.annotation.CheckForNull;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Повторный разбор на токены только измененной части текста документа.
+ * <p>
+ * Токены до изменения переиспользуются как есть, без копирования. Лексер запускается с начала строки,
+ * предшествующей изменению, и работает до точки синхронизации: начала строки после изменения,
+ * на которой старый и новый разбор дают токен с одной и той же позиции. Токены после точки синхронизации
+ * переиспользуются как есть, если изменение не сдвинуло их позиции, иначе копируются со сдвигом.
+ * <p>
+ * В начале строки лексер BSL находится в режиме по умолчанию: режимы препроцессора и аннотаций
+ * заканчиваются переводом строки, а строки многострочного литерала ({@code |...}) разбираются
+ * в режиме по умолчанию. Строки-продолжения литерала тем не менее не используются ни как точка запуска,
+ * ни как точка синхронизации: разбор начинается со строки, открывающей литерал.
+ * <p>
+ * Новые токены хранят свой текст и не ссылаются на текст документа, поэтому токены,
+ * переходящие из версии в версию, не удерживают тексты предыдущих версий.
+ * <p>
+ * Если синхронизация невозможна, возвращается null и документ разбирается целиком.
+ */
+final class IncrementalLexer {
+
+  private static final Pair<TokenSource, CharStream> DETACHED_SOURCE = new Pair<>(new DetachedTokenSource(), null);
+
+  private IncrementalLexer() {
+    // utility class
+  }
+
+  /**
+   * Токены нового текста, полученные из токенов предыдущей версии.
+   *
+   * @param previousText   текст предыдущей версии документа
+   * @param previousTokens токены предыдущей версии документа
+   * @param text           новый текст документа
+   * @return токены нового текста или null, если текст нужно разобрать целиком
+   */
+  @CheckForNull
+  static List<Token> relex(String previousText, List<Token> previousTokens, String text) {
+    if (previousTokens.isEmpty() || !isPlainText(previousText) || !isPlainText(text)) {
+      return null;
+    }
+
+    boolean withEof = previousTokens.get(previousTokens.size() - 1).getType() == Token.EOF;
+    int previousCount = withEof ? (previousTokens.size() - 1) : previousTokens.size();
+
+    // измененный участок: [changeStart, previousChangeEnd) старого текста заменен на [changeStart, changeEnd)
+    int maxCommonLength = Math.min(previousText.length(), text.length());
+    int changeStart = 0;
+    while (changeStart < maxCommonLength && previousText.charAt(changeStart) == text.charAt(changeStart)) {
+      changeStart++;
+    }
+    int commonSuffixLength = 0;
+    while (commonSuffixLength < maxCommonLength - changeStart
+      && previousText.charAt(previousText.length() - 1 - commonSuffixLength)
+      == text.charAt(text.length() - 1 - commonSuffixLength)) {
+      commonSuffixLength++;
+    }
+    int changeEnd = text.length() - commonSuffixLength;
+    int shift = text.length() - previousText.length();
+
+    // последний токен, начинающий строку и заканчивающийся до изменения:
+    // токен, вплотную примыкающий к изменению, может с ним слиться
+    int damagedIndex = firstTokenEndingAfter(previousTokens, previousCount, changeStart - 2);
+    int restartIndex = damagedIndex - 1;
+    while (restartIndex >= 0 && !isLineStartToken(previousTokens.get(restartIndex))) {
+      restartIndex--;
+    }
+
+    int restartOffset = 0;
+    int restartLine = 1;
+    if (restartIndex >= 0) {
+      restartOffset = previousTokens.get(restartIndex).getStartIndex();
+      restartLine = previousTokens.get(restartIndex).getLine();
+    } else {
+      restartIndex = 0;
+    }
+
+    StringCharStream input = new StringCharStream(text);
+    BSLLexer lexer = new BSLLexer(input);
+    lexer.removeErrorListeners();
+    input.seek(restartOffset);
+    lexer.setLine(restartLine);
+    lexer.setCharPositionInLine(0);
+
+    List<Token> tokens = new ArrayList<>(previousTokens.size() + Math.max(shift, 0));
+    tokens.addAll(previousTokens.subList(0, restartIndex));
+
+    int previousIndex = restartIndex;
+    while (true) {
+      int offset = input.index();
+      if (offset >= changeEnd && isAtLineStart(lexer)) {
+        previousIndex = firstTokenStartingFrom(previousTokens, previousIndex, previousCount, offset - shift);
+        if (previousIndex < previousCount && isSynchronized(previousTokens.get(previousIndex), offset - shift)) {
+          int lineShift = lexer.getLine() - previousTokens.get(previousIndex).getLine();
+          addSuffix(tokens, previousTokens.subList(previousIndex, previousTokens.size()), shift, lineShift);
+          return tokens;
+        }
+      }
+
+      Token token = lexer.nextToken();
+      if (token.getType() != Token.EOF || withEof) {
+        tokens.add(detachedCopy(token, tokens.size(), 0, 0));
+      }
+      if (token.getType() == Token.EOF) {
+        return tokens;
+      }
+    }
+  }
+
+  /**
+   * Дерево разбора по готовому списку токенов.
+   */
+  static BSLParser.FileContext parse(List<Token> tokens) {
+    CommonTokenStream tokenStream = new CommonTokenStream(new ListTokenSource(tokens));
+    BSLParser parser = new BSLParser(tokenStream);
+    parser.removeErrorListener(ConsoleErrorListener.INSTANCE);
+    return parser.file();
+  }
+
+  /**
+   * Токены после точки синхронизации: без сдвига позиций и номеров переиспользуются как есть.
+   */
+  private static void addSuffix(List<Token> tokens, List<Token> suffix, int shift, int lineShift) {
+    if (suffix.isEmpty()) {
+      return;
+    }
+
+    int indexShift = tokens.size() - suffix.get(0).getTokenIndex();
+    if (shift == 0 && lineShift == 0 && indexShift == 0) {
+      tokens.addAll(suffix);
+      return;
+    }
+
+    for (Token token : suffix) {
+      tokens.add(detachedCopy(token, tokens.size(), shift, lineShift));
+    }
+  }
+
+  /**
+   * Позиции токенов считаются в кодовых точках, а изменения - в символах строки.
+   * Для текста с суррогатными парами или BOM они расходятся, такой текст разбирается целиком.
+   */
+  private static boolean isPlainText(String text) {
+    if (!text.isEmpty() && text.charAt(0) == '\uFEFF') {
+      return false;
+    }
+    for (int index = 0; index < text.length(); index++) {
+      if (Character.isSurrogate(text.charAt(index))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isLineStartToken(Token token) {
+    int type = token.getType();
+    return token.getCharPositionInLine() == 0 && type != BSLLexer.STRINGPART && type != BSLLexer.STRINGTAIL;
+  }
+
+  private static boolean isAtLineStart(Lexer lexer) {
+    return lexer.getCharPositionInLine() == 0
+      && lexer._mode == Lexer.DEFAULT_MODE
+      && lexer._modeStack.isEmpty();
+  }
+
+  private static boolean isSynchronized(Token previousToken, int previousOffset) {
+    return previousToken.getStartIndex() == previousOffset && isLineStartToken(previousToken);
+  }
+
+  /**
+   * Индекс первого токена, последний символ которого находится после указанной позиции.
+   */
+  private static int firstTokenEndingAfter(List<Token> tokens, int count, int offset) {
+    int low = 0;
+    int high = count;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (tokens.get(middle).getStopIndex() > offset) {
+        high = middle;
+      } else {
+        low = middle + 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Индекс первого токена не раньше from, начинающегося с указанной позиции или позже.
+   */
+  private static int firstTokenStartingFrom(List<Token> tokens, int from, int count, int offset) {
+    int low = from;
+    int high = count;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (tokens.get(middle).getStartIndex() >= offset) {
+        high = middle;
+      } else {
+        low = middle + 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Копия токена, хранящая собственный текст и не ссылающаяся на текст документа.
+   */
+  private static Token detachedCopy(Token token, int tokenIndex, int shift, int lineShift) {
+    CommonToken copy = new CommonToken(
+      DETACHED_SOURCE,
+      token.getType(),
+      token.getChannel(),
+      token.getStartIndex() + shift,
+      token.getStopIndex() + shift
+    );
+    copy.setText(token.getText());
+    copy.setLine(token.getLine() + lineShift);
+    copy.setCharPositionInLine(token.getCharPositionInLine());
+    copy.setTokenIndex(tokenIndex);
+    return copy;
+  }
+
+  /**
+   * Поток символов над строкой без копирования текста. Используется только для текста без суррогатных пар,
+   * поэтому символ строки совпадает с кодовой точкой.
+   */
+  private static final class StringCharStream implements CharStream {
+
+    private final String text;
+    private int position;
+
+    private StringCharStream(String text) {
+      this.text = text;
+    }
+
+    @Override
+    public String getText(Interval interval) {
+      int start = interval.a;
+      int stop = Math.min(interval.b, text.length() - 1);
+      if (start >= text.length() || stop < start) {
+        return "";
+      }
+      return text.substring(start, stop + 1);
+    }
+
+    @Override
+    public void consume() {
+      if (position >= text.length()) {
+        throw new IllegalStateException("cannot consume EOF");
+      }
+      position++;
+    }
+
+    @Override
+    public int LA(int i) {
+      if (i == 0) {
+        return 0;
+      }
+      int offset = i > 0 ? (position + i - 1) : (position + i);
+      if (offset < 0 || offset >= text.length()) {
+        return IntStream.EOF;
+      }
+      return text.charAt(offset);
+    }
+
+    @Override
+    public int mark() {
+      return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+      // весь текст доступен, отметки не нужны
+    }
+
+    @Override
+    public int index() {
+      return position;
+    }
+
+    @Override
+    public void seek(int index) {
+      position = Math.min(index, text.length());
+    }
+
+    @Override
+    public int size() {
+      return text.length();
+    }
+
+    @Override
+    public String getSourceName() {
+      return IntStream.UNKNOWN_SOURCE_NAME;
+    }
+  }
+
+  /**
+   * Источник токенов, не связанных с текстом документа. Нужен стратегии восстановления после ошибок
+   * разбора, которая создает недостающие токены через источник текущего токена.
+   */
+  private static final class DetachedTokenSource implements TokenSource {
+
+    @Override
+    public Token nextToken() {
+      throw new UnsupportedOperationException("Detached token source has no tokens");
+    }
+
+    @Override
+    public int getLine() {
+      return 0;
+    }
+
+    @Override
+    public int getCharPositionInLine() {
+      return 0;
+    }
+
+    @Override
+    @CheckForNull
+    public CharStream getInputStream() {
+      return null;
+    }
+
+    @Override
+    public String getSourceName() {
+      return IntStream.UNKNOWN_SOURCE_NAME;
+    }
+
+    @Override
+    public void setTokenFactory(TokenFactory<?> factory) {
+      // токены не создаются
+    }
+
+    @Override
+    public TokenFactory<?> getTokenFactory() {
+      return CommonTokenFactory.DEFAULT;
+    }
+  }
+
+}
@@ -21,21 +21,42 @@
  */
 package com.github._1c_syntax.bsl.languageserver.context;
 
+import com.github._1c_syntax.bsl.languageserver.context.index.WorkspaceCloneIndex;
+import com.github._1c_syntax.bsl.languageserver.context.index.WorkspaceReferenceIndex;
+import com.github._1c_syntax.bsl.languageserver.context.index.WorkspaceSymbolIndex;
+import com.github._1c_syntax.bsl.languageserver.profiling.Profiler;
 import com.github._1c_syntax.bsl.languageserver.utils.Lazy;
 import com.github._1c_syntax.mdclasses.metadata.ConfigurationBuilder;
 import com.github._1c_syntax.mdclasses.metadata.configurations.AbstractConfiguration;
 import com.github._1c_syntax.mdclasses.metadata.configurations.EmptyConfiguration;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
 import org.eclipse.lsp4j.TextDocumentItem;
 
 import javax.annotation.CheckForNull;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Objects.requireNonNull;
 
 public class ServerContext {
-  private final Map<String, DocumentContext> documents = Collections.synchronizedMap(new HashMap<>());
+  private final Map<String, DocumentContext> documents = new ConcurrentHashMap<>();
   private final Lazy<AbstractConfiguration> configurationMetadata = new Lazy<>(this::computeConfigurationMetadata);
+  private final WorkspaceSymbolIndex workspaceSymbolIndex = new WorkspaceSymbolIndex();
+  private final WorkspaceReferenceIndex workspaceReferenceIndex = new WorkspaceReferenceIndex();
+  private final WorkspaceCloneIndex workspaceCloneIndex = new WorkspaceCloneIndex();
+  private final Profiler profiler = new Profiler();
+  private final ContentCache contentCache = new ContentCache();
+  /**
+   * Документы, к дереву разбора которых обращались, в порядке от давно использованных к недавним.
+   */
+  private final Map<String, DocumentContext> parsedDocuments = new LinkedHashMap<>(16, 0.75F, true);
+  private volatile int parsedDocumentsLimit;
   @CheckForNull
   private Path configurationRoot;
 
@@ -56,26 +77,122 @@ public class ServerContext {
     return documents.get(uri);
   }
 
+  /**
+   * Добавление документа или замена его текста.
+   * <p>
+   * Каждой версии текста соответствует свой {@link DocumentContext}. Ранее полученные контексты
+   * продолжают описывать свою версию, поэтому расчеты по старой версии (например, диагностики)
+   * не смешиваются с обращениями к новой и не требуют блокировок на чтение.
+   *
+   * @param uri     URI документа
+   * @param content текст документа
+   * @return контекст новой версии документа
+   */
   public DocumentContext addDocument(String uri, String content) {
+    DocumentContext documentContext = new DocumentContext(uri, content, this);
+    documents.put(uri, documentContext);
+    forgetPreviousVersion(documentContext);
+
+    return documentContext;
+  }
+
+  /**
+   * Применение изменений текста открытого документа.
+   * <p>
+   * Изменения применяются атомарно к текущей версии документа. Если текст не изменился,
+   * возвращается текущая версия.
+   *
+   * @param uri     URI документа
+   * @param changes изменения текста в порядке их применения
+   * @return контекст новой версии документа или null, если документ не добавлен
+   */
+  @CheckForNull
+  public DocumentContext changeDocument(String uri, List<TextDocumentContentChangeEvent> changes) {
+    DocumentContext changedDocument = documents.computeIfPresent(uri, (String key, DocumentContext documentContext) -> {
+      String content = requireNonNull(documentContext.getContent());
+      String newContent = DocumentContext.applyChanges(content, changes);
+      if (newContent.equals(content)) {
+        return documentContext;
+      }
+      return new DocumentContext(key, newContent, this, documentContext);
+    });
 
-    DocumentContext documentContext = documents.get(uri);
-    if (documentContext == null) {
-      documentContext = new DocumentContext(uri, content, this);
-      documents.put(uri, documentContext);
-    } else {
-      documentContext.rebuild(content);
+    if (changedDocument != null) {
+      forgetPreviousVersion(changedDocument);
     }
 
-    return documentContext;
+    return changedDocument;
   }
 
   public DocumentContext addDocument(TextDocumentItem textDocumentItem) {
     return addDocument(textDocumentItem.getUri(), textDocumentItem.getText());
   }
 
+  /**
+   * Закрытие документа клиентом.
+   * <p>
+   * Документ остается в контексте сервера, освобождается только его дерево разбора. Версия документа
+   * не изменяется: расчеты, которые еще выполняются по ней, разберут текст заново при обращении к дереву.
+   *
+   * @param documentContext закрываемая версия документа
+   */
+  public void closeDocument(DocumentContext documentContext) {
+    synchronized (parsedDocuments) {
+      parsedDocuments.remove(documentContext.getUri(), documentContext);
+    }
+    documentContext.evictASTData();
+  }
+
+  public WorkspaceSymbolIndex getWorkspaceSymbolIndex() {
+    return workspaceSymbolIndex;
+  }
+
+  public WorkspaceReferenceIndex getWorkspaceReferenceIndex() {
+    return workspaceReferenceIndex;
+  }
+
+  public WorkspaceCloneIndex getWorkspaceCloneIndex() {
+    return workspaceCloneIndex;
+  }
+
+  public int getParsedDocumentsLimit() {
+    return parsedDocumentsLimit;
+  }
+
+  /**
+   * Ограничение количества документов, для которых в памяти хранятся деревья разбора и токены.
+   * <p>
+   * При превышении у давно не использовавшихся документов дерево вытесняется,
+   * см. {@link DocumentContext#evictASTData()}.
+   *
+   * @param parsedDocumentsLimit Количество документов, 0 - без ограничения.
+   */
+  public void setParsedDocumentsLimit(int parsedDocumentsLimit) {
+    this.parsedDocumentsLimit = parsedDocumentsLimit;
+    evictParsedDocuments(null);
+  }
+
+  public Profiler getProfiler() {
+    return profiler;
+  }
+
+  /**
+   * Общие результаты разбора документов с одинаковым текстом.
+   */
+  ContentCache getContentCache() {
+    return contentCache;
+  }
+
   public void clear() {
     documents.clear();
+    synchronized (parsedDocuments) {
+      parsedDocuments.clear();
+    }
+    contentCache.clear();
     configurationMetadata.clear();
+    workspaceSymbolIndex.clear();
+    workspaceReferenceIndex.clear();
+    workspaceCloneIndex.clear();
   }
 
   public void setConfigurationRoot(@CheckForNull Path configurationRoot) {
@@ -86,6 +203,79 @@ public class ServerContext {
     return configurationMetadata.getOrCompute();
   }
 
+  /**
+   * Отметка обращения к дереву разбора документа: первое обращение к данным разбора
+   * или начало расчета с закрепленным деревом (см. {@link DocumentContext#computeWithPinnedAST}).
+   * Порядок вытеснения приблизительный: отдельные обращения к дереву и токенам его не меняют.
+   */
+  void onDocumentAccess(DocumentContext documentContext) {
+    if (parsedDocumentsLimit <= 0 || documents.get(documentContext.getUri()) != documentContext) {
+      return;
+    }
+    evictParsedDocuments(documentContext);
+  }
+
+  /**
+   * Предыдущая версия документа больше не вытесняется: ее дерево освобождается
+   * вместе с самой версией, когда расчеты по ней завершатся.
+   */
+  private void forgetPreviousVersion(DocumentContext documentContext) {
+    synchronized (parsedDocuments) {
+      DocumentContext parsedDocument = parsedDocuments.get(documentContext.getUri());
+      if (parsedDocument != null && parsedDocument != documentContext) {
+        parsedDocuments.remove(documentContext.getUri());
+      }
+    }
+  }
+
+  /**
+   * Вытеснение деревьев давно использованных документов сверх ограничения.
+   * <p>
+   * Документы, по которым выполняются расчеты (см. {@link DocumentContext#computeWithPinnedAST}),
+   * пропускаются и остаются в списке: их дерево будет вытеснено при одном из следующих обращений
+   * к другим документам.
+   */
+  private void evictParsedDocuments(@CheckForNull DocumentContext accessedDocument) {
+    int limit = parsedDocumentsLimit;
+    List<DocumentContext> evictedDocuments = new ArrayList<>();
+
+    synchronized (parsedDocuments) {
+      if (accessedDocument != null) {
+        parsedDocuments.put(accessedDocument.getUri(), accessedDocument);
+      }
+      int excess = parsedDocuments.size() - limit;
+      Iterator<DocumentContext> iterator = parsedDocuments.values().iterator();
+      while (limit > 0 && excess > 0 && iterator.hasNext()) {
+        DocumentContext documentContext = iterator.next();
+        if (documentContext == accessedDocument || documentContext.isPinned()) {
+          continue;
+        }
+        evictedDocuments.add(documentContext);
+        iterator.remove();
+        excess--;
+      }
+    }
+
+    // вытеснение - вне блокировки списка, т.к. документ блокирует себя при обращении к нему
+    List<DocumentContext> pinnedDocuments = new ArrayList<>();
+    evictedDocuments.forEach((DocumentContext documentContext) -> {
+      if (!documentContext.evictASTData() && documentContext.isPinned()) {
+        pinnedDocuments.add(documentContext);
+      }
+    });
+
+    if (pinnedDocuments.isEmpty()) {
+      return;
+    }
+
+    // документ закрепили после выбора для вытеснения: возвращаем его в список, если версия актуальна
+    synchronized (parsedDocuments) {
+      pinnedDocuments.stream()
+        .filter(documentContext -> documents.get(documentContext.getUri()) == documentContext)
+        .forEach(documentContext -> parsedDocuments.putIfAbsent(documentContext.getUri(), documentContext));
+    }
+  }
+
   private AbstractConfiguration computeConfigurationMetadata() {
     if (configurationRoot == null) {
       return new EmptyConfiguration();
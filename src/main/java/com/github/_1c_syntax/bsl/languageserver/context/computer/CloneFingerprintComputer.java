@@ -0,0 +1,200 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.computer;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.context.index.ModuleFingerprints;
+import com.github._1c_syntax.bsl.parser.BSLLexer;
+import org.antlr.v4.runtime.Token;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Расчет отпечатков модуля для поиска повторяющегося кода.
+ * <p>
+ * Лексемы модуля приводятся к виду, не зависящему от имен и значений: все идентификаторы
+ * заменяются одной лексемой, все литералы - другой. По каждой последовательности
+ * из {@link #KGRAM_LENGTH} лексем скользящим хэшем считается хэш, из хэшей методом
+ * просеивания (winnowing) отбираются отпечатки: в каждом окне из {@link #WINDOW_SIZE}
+ * подряд идущих хэшей - минимальный.
+ * <p>
+ * Отбор зависит только от самих лексем, поэтому совпадающие фрагменты кода
+ * длиной не менее {@link #GUARANTEED_CLONE_LENGTH} лексем дают одинаковые отпечатки в любых модулях.
+ */
+public final class CloneFingerprintComputer implements Computer<ModuleFingerprints> {
+
+  /**
+   * Длина последовательности лексем, по которой считается хэш.
+   */
+  public static final int KGRAM_LENGTH = 20;
+  /**
+   * Количество подряд идущих хэшей, из которых отбирается отпечаток.
+   */
+  public static final int WINDOW_SIZE = 31;
+  /**
+   * Длина повторяющегося фрагмента в лексемах, начиная с которой фрагмент гарантированно находится.
+   */
+  public static final int GUARANTEED_CLONE_LENGTH = KGRAM_LENGTH + WINDOW_SIZE - 1;
+
+  private static final long HASH_BASE = 1_000_003L;
+  private static final int IDENTIFIER = BSLLexer.IDENTIFIER;
+  private static final int LITERAL = BSLLexer.STRING;
+
+  private final DocumentContext documentContext;
+  private final String uri;
+
+  public CloneFingerprintComputer(DocumentContext documentContext) {
+    this(documentContext, documentContext.getUri());
+  }
+
+  public CloneFingerprintComputer(DocumentContext documentContext, String uri) {
+    this.documentContext = documentContext;
+    this.uri = uri;
+  }
+
+  @Override
+  public ModuleFingerprints compute() {
+    List<Token> tokens = new ArrayList<>(documentContext.getTokensFromDefaultChannel());
+    if (!tokens.isEmpty() && tokens.get(tokens.size() - 1).getType() == Token.EOF) {
+      tokens.remove(tokens.size() - 1);
+    }
+
+    int[] kgramHashes = computeKgramHashes(tokens);
+    int[] selected = winnow(kgramHashes);
+
+    int[] hashes = new int[selected.length];
+    long[] starts = new long[selected.length];
+    long[] ends = new long[selected.length];
+    for (int i = 0; i < selected.length; i++) {
+      int position = selected[i];
+      Token startToken = tokens.get(position);
+      Token endToken = tokens.get(position + KGRAM_LENGTH - 1);
+
+      hashes[i] = kgramHashes[position];
+      starts[i] = ModuleFingerprints.packPosition(startToken.getLine() - 1, startToken.getCharPositionInLine());
+      ends[i] = ModuleFingerprints.packPosition(
+        endToken.getLine() - 1,
+        endToken.getCharPositionInLine() + endToken.getText().length()
+      );
+    }
+
+    return new ModuleFingerprints(uri, hashes, selected, starts, ends);
+  }
+
+  private static int[] computeKgramHashes(List<Token> tokens) {
+    int count = tokens.size() - KGRAM_LENGTH + 1;
+    if (count <= 0) {
+      return new int[0];
+    }
+
+    long highestPower = 1;
+    for (int i = 1; i < KGRAM_LENGTH; i++) {
+      highestPower *= HASH_BASE;
+    }
+
+    int[] kgramHashes = new int[count];
+    long hash = 0;
+    for (int i = 0; i < tokens.size(); i++) {
+      if (i >= KGRAM_LENGTH) {
+        hash -= normalize(tokens.get(i - KGRAM_LENGTH)) * highestPower;
+      }
+      hash = hash * HASH_BASE + normalize(tokens.get(i));
+      if (i >= KGRAM_LENGTH - 1) {
+        kgramHashes[i - KGRAM_LENGTH + 1] = mix(hash);
+      }
+    }
+    return kgramHashes;
+  }
+
+  /**
+   * Отбор отпечатков: минимальный хэш каждого окна, при равенстве - самый правый.
+   * Подряд идущие окна с одним минимумом дают один отпечаток.
+   *
+   * @return Номера отобранных последовательностей по возрастанию.
+   */
+  private static int[] winnow(int[] kgramHashes) {
+    if (kgramHashes.length < WINDOW_SIZE) {
+      return new int[0];
+    }
+
+    // номера хэшей окна с возрастающими значениями, минимум - первый
+    int[] window = new int[kgramHashes.length];
+    int head = 0;
+    int tail = 0;
+
+    int[] selected = new int[kgramHashes.length - WINDOW_SIZE + 1];
+    int selectedCount = 0;
+
+    for (int i = 0; i < kgramHashes.length; i++) {
+      while (tail > head && kgramHashes[window[tail - 1]] >= kgramHashes[i]) {
+        tail--;
+      }
+      window[tail++] = i;
+      if (window[head] <= i - WINDOW_SIZE) {
+        head++;
+      }
+
+      if (i >= WINDOW_SIZE - 1 && (selectedCount == 0 || selected[selectedCount - 1] != window[head])) {
+        selected[selectedCount++] = window[head];
+      }
+    }
+
+    int[] result = new int[selectedCount];
+    System.arraycopy(selected, 0, result, 0, selectedCount);
+    return result;
+  }
+
+  private static int normalize(Token token) {
+    switch (token.getType()) {
+      case BSLLexer.IDENTIFIER:
+        return IDENTIFIER;
+      case BSLLexer.STRING:
+      case BSLLexer.STRINGSTART:
+      case BSLLexer.STRINGPART:
+      case BSLLexer.STRINGTAIL:
+      case BSLLexer.DECIMAL:
+      case BSLLexer.FLOAT:
+      case BSLLexer.DATETIME:
+      case BSLLexer.TRUE:
+      case BSLLexer.FALSE:
+      case BSLLexer.UNDEFINED:
+      case BSLLexer.NULL:
+        return LITERAL;
+      default:
+        return token.getType();
+    }
+  }
+
+  /**
+   * Перемешивание битов хэша, чтобы минимумы окон не зависели от порядка типов лексем.
+   */
+  private static int mix(long hash) {
+    long value = hash;
+    value ^= value >>> 33;
+    value *= 0xff51afd7ed558ccdL;
+    value ^= value >>> 33;
+    value *= 0xc4ceb9fe1a85ec53L;
+    value ^= value >>> 33;
+    return (int) (value >>> Integer.SIZE);
+  }
+}
@@ -22,7 +22,6 @@
 package com.github._1c_syntax.bsl.languageserver.context.computer;
 
 import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
-import lombok.AllArgsConstructor;
 import org.antlr.v4.runtime.Token;
 import org.apache.commons.lang3.Range;
 import org.eclipse.lsp4j.Diagnostic;
@@ -30,36 +29,34 @@ import org.eclipse.lsp4j.Diagnostic;
 import javax.annotation.CheckForNull;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 public class DiagnosticIgnoranceComputer implements Computer<DiagnosticIgnoranceComputer.Data> {
 
   private static final String ALL_DIAGNOSTICS_KEY = "all";
 
-  private static final Pattern IGNORE_ALL_ON = Pattern.compile(
-    "(?:BSLLS-вкл)|(?:BSLLS-on)"
+  /**
+   * Общий шаблон для всех видов комментариев-переключателей:
+   * BSLLS-вкл, BSLLS-выкл, BSLLS:Ключ-вкл, BSLLS:Ключ-выкл и их английские варианты.
+   */
+  private static final Pattern IGNORANCE_MARKER = Pattern.compile(
+    "BSLLS(?::(\\w+))?-(вкл|выкл|on|off)"
   );
 
-  private static final Pattern IGNORE_ALL_OFF = Pattern.compile(
-    "(?:BSLLS-выкл)|(?:BSLLS-off)"
-  );
-
-  private static final Pattern IGNORE_DIAGNOSTIC_ON = Pattern.compile(
-    "(?:BSLLS:(\\w+)-вкл)|(?:BSLLS:(\\w+)-on)"
-  );
-
-  private static final Pattern IGNORE_DIAGNOSTIC_OFF = Pattern.compile(
-    "(?:BSLLS:(\\w+)-выкл)|(?:BSLLS:(\\w+)-off)"
-  );
+  // Виды переключателей в порядке приоритета при разборе комментария.
+  private static final int IGNORE_ALL_OFF = 0;
+  private static final int IGNORE_ALL_ON = 1;
+  private static final int IGNORE_DIAGNOSTIC_OFF = 2;
+  private static final int IGNORE_DIAGNOSTIC_ON = 3;
+  private static final int MARKER_KINDS_COUNT = 4;
 
   private final DocumentContext documentContext;
 
@@ -80,19 +77,25 @@ public class DiagnosticIgnoranceComputer implements Computer<DiagnosticIgnorance
     if (codeTokens.isEmpty()) {
       return new Data(diagnosticIgnorance);
     }
-    Set<Integer> codeLines = codeTokens.stream().map(Token::getLine).collect(Collectors.toSet());
+    BitSet codeLines = new BitSet();
+    codeTokens.forEach(token -> codeLines.set(token.getLine()));
 
     List<Token> comments = documentContext.getComments();
 
     for (Token comment : comments) {
 
+      String[] markerKeys = findMarkerKeys(comment.getText());
+      if (markerKeys == null) {
+        continue;
+      }
+
       // Variable is used for short circuit evaluation.
       //noinspection unused
-      boolean ignored = checkTrailingComment(codeLines, comment)
-        || checkIgnoreOff(IGNORE_ALL_OFF, comment) != null
-        || checkIgnoreOn(IGNORE_ALL_ON, comment)
-        || checkIgnoreOff(IGNORE_DIAGNOSTIC_OFF, comment) != null
-        || checkIgnoreOn(IGNORE_DIAGNOSTIC_ON, comment)
+      boolean ignored = checkTrailingComment(codeLines, comment, markerKeys)
+        || checkIgnoreOff(markerKeys[IGNORE_ALL_OFF], comment)
+        || checkIgnoreOn(markerKeys[IGNORE_ALL_ON], comment)
+        || checkIgnoreOff(markerKeys[IGNORE_DIAGNOSTIC_OFF], comment)
+        || checkIgnoreOn(markerKeys[IGNORE_DIAGNOSTIC_ON], comment)
         ;
 
     }
@@ -105,59 +108,87 @@ public class DiagnosticIgnoranceComputer implements Computer<DiagnosticIgnorance
     return new Data(diagnosticIgnorance);
   }
 
-  private boolean checkTrailingComment(Set<Integer> codeLines, Token comment) {
+  /**
+   * Находит в тексте комментария переключатели всех видов за один проход.
+   *
+   * @param commentText Текст комментария.
+   * @return Массив ключей диагностик, индексированный видом переключателя (первое вхождение каждого вида),
+   * или null, если переключателей в комментарии нет.
+   */
+  @CheckForNull
+  private static String[] findMarkerKeys(String commentText) {
+    if (!commentText.contains("BSLLS")) {
+      return null;
+    }
+
+    String[] markerKeys = null;
+    Matcher matcher = IGNORANCE_MARKER.matcher(commentText);
+    while (matcher.find()) {
+      String diagnosticKey = matcher.group(1);
+      String state = matcher.group(2);
+      boolean isOff = "выкл".equals(state) || "off".equals(state);
+
+      int kind;
+      if (diagnosticKey == null) {
+        diagnosticKey = ALL_DIAGNOSTICS_KEY;
+        kind = isOff ? IGNORE_ALL_OFF : IGNORE_ALL_ON;
+      } else {
+        kind = isOff ? IGNORE_DIAGNOSTIC_OFF : IGNORE_DIAGNOSTIC_ON;
+      }
+
+      if (markerKeys == null) {
+        markerKeys = new String[MARKER_KINDS_COUNT];
+      }
+      if (markerKeys[kind] == null) {
+        markerKeys[kind] = diagnosticKey;
+      }
+    }
+    return markerKeys;
+  }
+
+  private boolean checkTrailingComment(BitSet codeLines, Token comment, String[] markerKeys) {
     int commentLine = comment.getLine();
-    if (!codeLines.contains(commentLine)) {
+    if (!codeLines.get(commentLine)) {
       return false;
     }
 
-    String key = checkIgnoreOff(IGNORE_ALL_OFF, comment);
+    String key = markerKeys[IGNORE_ALL_OFF];
     if (key == null) {
-      key = checkIgnoreOff(IGNORE_DIAGNOSTIC_OFF, comment);
+      key = markerKeys[IGNORE_DIAGNOSTIC_OFF];
     }
     if (key == null) {
       return false;
     }
 
-    Deque<Integer> stack = ignoranceStack.get(key);
-    stack.pop();
-
     addIgnoredRange(key, commentLine, commentLine);
 
     return true;
   }
 
-  @CheckForNull
-  private String checkIgnoreOff(
-    Pattern ignoreOff,
+  private boolean checkIgnoreOff(
+    @CheckForNull String key,
     Token comment
   ) {
 
-    Matcher matcher = ignoreOff.matcher(comment.getText());
-    if (!matcher.find()) {
-      return null;
+    if (key == null) {
+      return false;
     }
 
-    String key = getKey(matcher);
-
     Deque<Integer> stack = ignoranceStack.computeIfAbsent(key, s -> new ArrayDeque<>());
     stack.push(comment.getLine());
 
-    return key;
+    return true;
   }
 
   private boolean checkIgnoreOn(
-    Pattern ignoreOn,
+    @CheckForNull String key,
     Token comment
   ) {
 
-    Matcher matcher = ignoreOn.matcher(comment.getText());
-    if (!matcher.find()) {
+    if (key == null) {
       return false;
     }
 
-    String key = getKey(matcher);
-
     Deque<Integer> stack = ignoranceStack.computeIfAbsent(key, s -> new ArrayDeque<>());
     if (stack.isEmpty()) {
       return false;
@@ -177,19 +208,15 @@ public class DiagnosticIgnoranceComputer implements Computer<DiagnosticIgnorance
     ranges.add(ignoreRange);
   }
 
-  private static String getKey(Matcher matcher) {
-    String key;
-    if (matcher.groupCount() != 0) {
-      key = matcher.group(1);
-    } else {
-      key = ALL_DIAGNOSTICS_KEY;
-    }
-    return key;
-  }
-
-  @AllArgsConstructor
   public static class Data {
-    private final Map<String, List<Range<Integer>>> diagnosticIgnorance;
+    private final Map<String, IgnoredLines> diagnosticIgnorance;
+
+    public Data(Map<String, List<Range<Integer>>> diagnosticIgnorance) {
+      this.diagnosticIgnorance = new HashMap<>();
+      diagnosticIgnorance.forEach((String diagnosticKey, List<Range<Integer>> ranges) ->
+        this.diagnosticIgnorance.put(diagnosticKey, new IgnoredLines(ranges))
+      );
+    }
 
     public boolean diagnosticShouldBeIgnored(Diagnostic diagnostic) {
       if (diagnosticIgnorance.isEmpty()) {
@@ -198,16 +225,56 @@ public class DiagnosticIgnoranceComputer implements Computer<DiagnosticIgnorance
 
       int line = diagnostic.getRange().getStart().getLine();
 
-      Predicate<Map.Entry<String, List<Range<Integer>>>> ignoreAll =
-        entry -> entry.getKey().equals(ALL_DIAGNOSTICS_KEY);
-      Predicate<Map.Entry<String, List<Range<Integer>>>> ignoreConcreteDiagnostic =
-        entry -> entry.getKey().equals(diagnostic.getCode());
+      return isLineIgnored(ALL_DIAGNOSTICS_KEY, line)
+        || isLineIgnored(diagnostic.getCode(), line);
+    }
+
+    private boolean isLineIgnored(String diagnosticKey, int line) {
+      IgnoredLines ignoredLines = diagnosticIgnorance.get(diagnosticKey);
+      return ignoredLines != null && ignoredLines.contains(line);
+    }
+  }
+
+  /**
+   * Индекс игнорируемых строк одной диагностики.
+   * <p>
+   * Пересекающиеся диапазоны при построении объединяются, поэтому проверка строки
+   * выполняется двоичным поиском по отсортированным началам диапазонов.
+   */
+  private static final class IgnoredLines {
+    private final int[] starts;
+    private final int[] ends;
+
+    IgnoredLines(List<Range<Integer>> ranges) {
+      List<Range<Integer>> sortedRanges = new ArrayList<>(ranges);
+      sortedRanges.sort(Comparator.comparingInt(Range::getMinimum));
+
+      int[] mergedStarts = new int[sortedRanges.size()];
+      int[] mergedEnds = new int[sortedRanges.size()];
+      int size = 0;
+      for (Range<Integer> range : sortedRanges) {
+        int start = range.getMinimum();
+        int end = range.getMaximum();
+        if (size > 0 && start <= mergedEnds[size - 1] + 1) {
+          mergedEnds[size - 1] = Math.max(mergedEnds[size - 1], end);
+        } else {
+          mergedStarts[size] = start;
+          mergedEnds[size] = end;
+          size++;
+        }
+      }
 
-      return diagnosticIgnorance.entrySet().stream()
-        .filter(ignoreAll.or(ignoreConcreteDiagnostic))
-        .map(Map.Entry::getValue)
-        .flatMap(Collection::stream)
-        .anyMatch(range -> range.contains(line));
+      starts = Arrays.copyOf(mergedStarts, size);
+      ends = Arrays.copyOf(mergedEnds, size);
+    }
+
+    boolean contains(int line) {
+      int index = Arrays.binarySearch(starts, line);
+      if (index < 0) {
+        // индекс последнего диапазона, начинающегося до строки
+        index = -index - 2;
+      }
+      return index >= 0 && ends[index] >= line;
     }
   }
 
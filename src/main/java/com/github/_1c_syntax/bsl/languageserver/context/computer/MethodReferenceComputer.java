@@ -0,0 +1,119 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.computer;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.context.index.MethodReference;
+import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
+import com.github._1c_syntax.bsl.parser.BSLParser;
+import com.github._1c_syntax.bsl.parser.BSLParserBaseVisitor;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import javax.annotation.CheckForNull;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Поиск мест вызова методов в модуле.
+ * <p>
+ * Учитываются вызовы без квалификатора ({@code Метод()}) и вызовы через идентификатор
+ * ({@code ОбщийМодуль.Метод()}). Вызовы через цепочки обращений
+ * ({@code Объект.Реквизит.Метод()}) не учитываются.
+ */
+public final class MethodReferenceComputer
+  extends BSLParserBaseVisitor<ParseTree>
+  implements Computer<List<MethodReference>> {
+
+  private final DocumentContext documentContext;
+  private final String uri;
+  private List<MethodReference> references = new ArrayList<>();
+
+  public MethodReferenceComputer(DocumentContext documentContext) {
+    this(documentContext, documentContext.getUri());
+  }
+
+  public MethodReferenceComputer(DocumentContext documentContext, String uri) {
+    this.documentContext = documentContext;
+    this.uri = uri;
+  }
+
+  @Override
+  public List<MethodReference> compute() {
+    references.clear();
+    visitFile(documentContext.getAst());
+    return new ArrayList<>(references);
+  }
+
+  @Override
+  public ParseTree visitGlobalMethodCall(BSLParser.GlobalMethodCallContext ctx) {
+    addReference(null, ctx.methodName());
+    return super.visitGlobalMethodCall(ctx);
+  }
+
+  @Override
+  public ParseTree visitMethodCall(BSLParser.MethodCallContext ctx) {
+    String qualifier = findQualifier(ctx);
+    if (qualifier != null) {
+      addReference(qualifier, ctx.methodName());
+    }
+    return super.visitMethodCall(ctx);
+  }
+
+  private void addReference(@CheckForNull String qualifier, @CheckForNull BSLParser.MethodNameContext methodName) {
+    if (methodName == null || methodName.getStart() == null) {
+      return;
+    }
+    references.add(new MethodReference(qualifier, methodName.getText(), uri, Ranges.create(methodName)));
+  }
+
+  /**
+   * Идентификатор, стоящий непосредственно перед вызовом: первый элемент цепочки
+   * {@code Идентификатор.Метод()} как в операторе вызова, так и в выражении.
+   */
+  @CheckForNull
+  private static String findQualifier(BSLParser.MethodCallContext ctx) {
+    ParseTree accessCall = ctx.getParent();
+    if (!(accessCall instanceof BSLParser.AccessCallContext)) {
+      return null;
+    }
+
+    ParseTree chainElement = accessCall;
+    if (accessCall.getParent() instanceof BSLParser.ModifierContext) {
+      chainElement = accessCall.getParent();
+    }
+
+    ParseTree chain = chainElement.getParent();
+    if (chain == null || chain.getChildCount() < 2 || chain.getChild(1) != chainElement) {
+      return null;
+    }
+
+    ParseTree firstElement = chain.getChild(0);
+    if (firstElement instanceof TerminalNode
+      && ((TerminalNode) firstElement).getSymbol().getType() == BSLParser.IDENTIFIER) {
+      return firstElement.getText();
+    }
+
+    return null;
+  }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.computer;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.context.symbol.MethodSymbol;
+import com.github._1c_syntax.bsl.languageserver.context.symbol.RegionSymbol;
+import com.github._1c_syntax.bsl.languageserver.context.symbol.SymbolTable;
+import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
+import com.github._1c_syntax.bsl.parser.BSLParser;
+import org.eclipse.lsp4j.SymbolKind;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+
+public final class SymbolTableComputer implements Computer<SymbolTable> {
+
+  private final DocumentContext documentContext;
+
+  public SymbolTableComputer(DocumentContext documentContext) {
+    this.documentContext = documentContext;
+  }
+
+  @Override
+  public SymbolTable compute() {
+    SymbolTable.Builder builder = SymbolTable.builder();
+
+    Map<MethodSymbol, Integer> methodsComplexity = documentContext.getCognitiveComplexityData().getMethodsComplexity();
+
+    addGlobalVariables(builder);
+
+    documentContext.getRegions().forEach(
+      regionSymbol -> addRegion(builder, SymbolTable.NO_PARENT, regionSymbol, methodsComplexity)
+    );
+
+    documentContext.getMethods().stream()
+      .filter(methodSymbol -> methodSymbol.getRegion() == null)
+      .forEach(methodSymbol -> addMethod(builder, SymbolTable.NO_PARENT, methodSymbol, methodsComplexity));
+
+    return builder.build();
+  }
+
+  private void addRegion(
+    SymbolTable.Builder builder,
+    int parent,
+    RegionSymbol regionSymbol,
+    Map<MethodSymbol, Integer> methodsComplexity
+  ) {
+    int index = builder.add(
+      parent,
+      regionSymbol.getName(),
+      SymbolKind.Namespace,
+      Ranges.create(regionSymbol.getStartNode().getStart(), regionSymbol.getEndNode().getStop()),
+      Ranges.create(regionSymbol.getNameNode())
+    );
+
+    regionSymbol.getChildren().forEach(
+      childRegionSymbol -> addRegion(builder, index, childRegionSymbol, methodsComplexity)
+    );
+
+    documentContext.getMethods().stream()
+      .filter(methodSymbol -> regionSymbol.equals(methodSymbol.getRegion()))
+      .forEach(methodSymbol -> addMethod(builder, index, methodSymbol, methodsComplexity));
+  }
+
+  private static void addMethod(
+    SymbolTable.Builder builder,
+    int parent,
+    MethodSymbol methodSymbol,
+    Map<MethodSymbol, Integer> methodsComplexity
+  ) {
+    int index = builder.add(
+      parent,
+      methodSymbol.getName(),
+      SymbolKind.Method,
+      methodSymbol.getRange(),
+      methodSymbol.getSubNameRange(),
+      methodsComplexity.getOrDefault(methodSymbol, SymbolTable.NO_COMPLEXITY)
+    );
+
+    addSubVariables(builder, index, getSubVarsContext(methodSymbol));
+  }
+
+  private static BSLParser.SubVarsContext getSubVarsContext(MethodSymbol methodSymbol) {
+    BSLParser.SubVarsContext subVariablesContext;
+    if (methodSymbol.isFunction()) {
+      subVariablesContext = ((BSLParser.FunctionContext) methodSymbol.getNode()).subCodeBlock().subVars();
+    } else {
+      subVariablesContext = ((BSLParser.ProcedureContext) methodSymbol.getNode()).subCodeBlock().subVars();
+    }
+    return subVariablesContext;
+  }
+
+  private static void addSubVariables(
+    SymbolTable.Builder builder,
+    int parent,
+    @Nullable BSLParser.SubVarsContext subVariablesContext
+  ) {
+
+    if (subVariablesContext == null) {
+      return;
+    }
+
+    subVariablesContext.subVar().stream()
+      .filter(subVarContext -> subVarContext.subVarsList() != null)
+      .flatMap(subVarContext -> subVarContext.subVarsList().subVarDeclaration().stream())
+      .forEach(subVarDeclarationContext -> builder.add(
+        parent,
+        subVarDeclarationContext.var_name().getText(),
+        SymbolKind.Variable,
+        Ranges.create(subVarDeclarationContext),
+        Ranges.create(subVarDeclarationContext.var_name())
+      ));
+  }
+
+  private void addGlobalVariables(SymbolTable.Builder builder) {
+    BSLParser.ModuleVarsContext moduleVarsContext = documentContext.getAst().moduleVars();
+
+    if (moduleVarsContext == null) {
+      return;
+    }
+
+    moduleVarsContext.moduleVar().stream()
+      .flatMap(moduleVarContext -> moduleVarContext.moduleVarsList().moduleVarDeclaration().stream())
+      .forEach(moduleVarDeclarationContext -> builder.add(
+        SymbolTable.NO_PARENT,
+        moduleVarDeclarationContext.var_name().getText(),
+        SymbolKind.Variable,
+        Ranges.create(moduleVarDeclarationContext),
+        Ranges.create(moduleVarDeclarationContext.var_name())
+      ));
+  }
+}
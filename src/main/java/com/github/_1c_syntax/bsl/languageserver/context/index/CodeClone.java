@@ -0,0 +1,50 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.index;
+
+import lombok.Value;
+import org.eclipse.lsp4j.Location;
+import org.eclipse.lsp4j.Range;
+
+/**
+ * Фрагмент модуля, повторяющийся в другом месте рабочей области.
+ */
+@Value
+public class CodeClone {
+  /**
+   * Номер первой лексемы фрагмента.
+   */
+  private final int start;
+  /**
+   * Номер лексемы, следующей за фрагментом.
+   */
+  private final int end;
+  private final Range range;
+  /**
+   * Расположение копии фрагмента.
+   */
+  private final Location copy;
+
+  public int getLength() {
+    return end - start;
+  }
+}
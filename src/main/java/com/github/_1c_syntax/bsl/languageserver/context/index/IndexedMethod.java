@@ -0,0 +1,52 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.index;
+
+import com.github._1c_syntax.bsl.languageserver.context.symbol.MethodSymbol;
+import lombok.Value;
+import org.eclipse.lsp4j.Range;
+
+/**
+ * Сведения о методе модуля, хранимые в индексе рабочей области.
+ * <p>
+ * В отличие от {@link MethodSymbol} не содержит ссылок на дерево разбора.
+ */
+@Value
+public class IndexedMethod {
+  private final String name;
+  private final boolean export;
+  private final boolean function;
+  private final String uri;
+  private final Range range;
+  private final Range subNameRange;
+
+  public static IndexedMethod create(String uri, MethodSymbol methodSymbol) {
+    return new IndexedMethod(
+      methodSymbol.getName(),
+      methodSymbol.isExport(),
+      methodSymbol.isFunction(),
+      uri,
+      methodSymbol.getRange(),
+      methodSymbol.getSubNameRange()
+    );
+  }
+}
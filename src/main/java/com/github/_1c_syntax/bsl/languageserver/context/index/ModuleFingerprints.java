@@ -0,0 +1,100 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.index;
+
+import com.github._1c_syntax.bsl.languageserver.context.computer.CloneFingerprintComputer;
+import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
+import org.eclipse.lsp4j.Range;
+
+/**
+ * Отпечатки модуля для поиска повторяющегося кода, см. {@link CloneFingerprintComputer}.
+ * <p>
+ * Отпечаток - хэш последовательности из {@link CloneFingerprintComputer#KGRAM_LENGTH} лексем.
+ * Для каждого отпечатка хранятся номер первой лексемы последовательности и ее границы в тексте,
+ * сами лексемы не хранятся. Отпечатки упорядочены по номеру лексемы.
+ */
+public final class ModuleFingerprints {
+
+  private final String uri;
+  private final int[] hashes;
+  private final int[] positions;
+  private final long[] starts;
+  private final long[] ends;
+
+  /**
+   * @param uri       URI модуля.
+   * @param hashes    Хэши последовательностей лексем.
+   * @param positions Номера первых лексем последовательностей.
+   * @param starts    Начала последовательностей в тексте, см. {@link #packPosition(int, int)}.
+   * @param ends      Концы последовательностей в тексте, см. {@link #packPosition(int, int)}.
+   */
+  public ModuleFingerprints(String uri, int[] hashes, int[] positions, long[] starts, long[] ends) {
+    this.uri = uri;
+    this.hashes = hashes;
+    this.positions = positions;
+    this.starts = starts;
+    this.ends = ends;
+  }
+
+  public String getUri() {
+    return uri;
+  }
+
+  public int size() {
+    return hashes.length;
+  }
+
+  public int getHash(int fingerprint) {
+    return hashes[fingerprint];
+  }
+
+  public int getPosition(int fingerprint) {
+    return positions[fingerprint];
+  }
+
+  /**
+   * Диапазон текста от начала первого до конца последнего отпечатка.
+   */
+  public Range getRange(int firstFingerprint, int lastFingerprint) {
+    long start = starts[firstFingerprint];
+    long end = ends[lastFingerprint];
+    return Ranges.create(getLine(start), getCharacter(start), getLine(end), getCharacter(end));
+  }
+
+  /**
+   * Упаковка позиции в тексте в одно число.
+   *
+   * @param line      Номер строки, начиная с 0.
+   * @param character Номер символа в строке, начиная с 0.
+   */
+  public static long packPosition(int line, int character) {
+    return ((long) line << Integer.SIZE) | (character & 0xFFFFFFFFL);
+  }
+
+  private static int getLine(long position) {
+    return (int) (position >>> Integer.SIZE);
+  }
+
+  private static int getCharacter(long position) {
+    return (int) position;
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.index;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
+import com.github._1c_syntax.bsl.languageserver.context.computer.MethodReferenceComputer;
+import com.github._1c_syntax.bsl.languageserver.context.symbol.MethodSymbol;
+import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
+import org.eclipse.lsp4j.Position;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Сопоставление мест вызова и объявлений методов.
+ * <p>
+ * Открытый документ анализируется по его актуальному дереву разбора, остальные модули -
+ * только по индексам рабочей области, без повторного разбора файлов.
+ */
+public final class ReferenceResolver {
+
+  private final ServerContext context;
+
+  public ReferenceResolver(ServerContext context) {
+    this.context = context;
+  }
+
+  /**
+   * Поиск объявлений метода, на имени которого находится позиция: в месте вызова или в самом объявлении.
+   *
+   * @param documentContext Документ.
+   * @param position        Позиция в документе.
+   * @return Объявления метода.
+   */
+  public List<IndexedMethod> findDeclarations(DocumentContext documentContext, Position position) {
+    Optional<MethodSymbol> declaration = documentContext.getMethods().stream()
+      .filter(methodSymbol -> Ranges.containsPosition(methodSymbol.getSubNameRange(), position))
+      .findFirst();
+    if (declaration.isPresent()) {
+      return Collections.singletonList(IndexedMethod.create(documentContext.getUri(), declaration.get()));
+    }
+
+    return new MethodReferenceComputer(documentContext).compute().stream()
+      .filter(reference -> Ranges.containsPosition(reference.getRange(), position))
+      .findFirst()
+      .map(reference -> resolve(documentContext, reference))
+      .orElse(Collections.emptyList());
+  }
+
+  /**
+   * Поиск мест вызова метода.
+   *
+   * @param documentContext Открытый документ, его вызовы берутся из актуального дерева разбора.
+   * @param declaration     Объявление метода.
+   * @return Места вызова метода во всех модулях рабочей области.
+   */
+  public List<MethodReference> findReferences(DocumentContext documentContext, IndexedMethod declaration) {
+    WorkspaceReferenceIndex referenceIndex = context.getWorkspaceReferenceIndex();
+    String documentUri = WorkspaceIndexer.normalizeUri(documentContext.getUri());
+    String declarationUri = WorkspaceIndexer.normalizeUri(declaration.getUri());
+    String methodName = declaration.getName();
+
+    List<MethodReference> documentReferences = new MethodReferenceComputer(documentContext).compute();
+    List<MethodReference> references = new ArrayList<>();
+
+    // вызовы без квалификатора возможны только внутри модуля метода
+    List<MethodReference> moduleReferences = declarationUri.equals(documentUri)
+      ? documentReferences
+      : referenceIndex.getReferences(declarationUri);
+    moduleReferences.stream()
+      .filter(reference -> !reference.isQualified())
+      .filter(reference -> reference.getMethodName().equalsIgnoreCase(methodName))
+      .forEach(references::add);
+
+    Optional<String> commonModuleName = referenceIndex.getCommonModuleName(declarationUri);
+    if (declaration.isExport() && commonModuleName.isPresent()) {
+      String qualifier = commonModuleName.get();
+
+      referenceIndex.getQualifiedReferences(qualifier, methodName).stream()
+        .filter(reference -> !reference.getUri().equals(documentUri))
+        .forEach(references::add);
+
+      documentReferences.stream()
+        .filter(MethodReference::isQualified)
+        .filter(reference -> qualifier.equalsIgnoreCase(reference.getQualifier()))
+        .filter(reference -> reference.getMethodName().equalsIgnoreCase(methodName))
+        .forEach(references::add);
+    }
+
+    return references;
+  }
+
+  private List<IndexedMethod> resolve(DocumentContext documentContext, MethodReference reference) {
+    String methodName = reference.getMethodName();
+
+    if (!reference.isQualified()) {
+      return findLocalMethods(documentContext, methodName);
+    }
+
+    String documentUri = WorkspaceIndexer.normalizeUri(documentContext.getUri());
+    Optional<String> commonModuleUri = context.getWorkspaceReferenceIndex()
+      .getCommonModuleUri(reference.getQualifier());
+    if (!commonModuleUri.isPresent()) {
+      return Collections.emptyList();
+    }
+
+    if (commonModuleUri.get().equals(documentUri)) {
+      return findLocalMethods(documentContext, methodName);
+    }
+
+    return context.getWorkspaceSymbolIndex().getMethods(commonModuleUri.get()).stream()
+      .filter(IndexedMethod::isExport)
+      .filter(indexedMethod -> indexedMethod.getName().equalsIgnoreCase(methodName))
+      .collect(Collectors.toList());
+  }
+
+  private static List<IndexedMethod> findLocalMethods(DocumentContext documentContext, String methodName) {
+    return documentContext.getMethods().stream()
+      .filter(methodSymbol -> methodSymbol.getName().equalsIgnoreCase(methodName))
+      .map(methodSymbol -> IndexedMethod.create(documentContext.getUri(), methodSymbol))
+      .collect(Collectors.toList());
+  }
+}
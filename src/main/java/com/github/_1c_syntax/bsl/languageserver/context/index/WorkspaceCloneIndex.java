@@ -0,0 +1,632 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.index;
+
+import com.github._1c_syntax.bsl.languageserver.context.computer.CloneFingerprintComputer;
+import org.eclipse.lsp4j.Location;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс отпечатков модулей рабочей области для поиска повторяющегося кода.
+ * <p>
+ * Отпечатки модулей заменяются целиком при изменении модуля. Для поиска по ним строится таблица:
+ * хэши всех отпечатков упорядочены в одном массиве, рядом - номера отпечатков, без объектов на каждую запись.
+ * <p>
+ * Основная таблица при изменении модуля не перестраивается: измененные модули собираются в небольшую
+ * дополнительную таблицу, а их прежние отпечатки в основной таблице пропускаются при поиске.
+ * Когда измененных отпечатков становится больше восьмой части основной таблицы,
+ * таблицы сливаются за линейное время, без повторной сортировки основной таблицы.
+ */
+public class WorkspaceCloneIndex {
+
+  /**
+   * Максимальное количество мест, в которых ищется совпадение одного отпечатка.
+   * Копии кода, повторяющегося чаще, находятся не все.
+   */
+  public static final int MAX_OCCURRENCES = 100;
+
+  private static final int SAME_MODULE = -1;
+  private static final int MERGE_RATIO = 8;
+
+  private final Map<String, ModuleFingerprints> modules = new ConcurrentHashMap<>();
+
+  // изменения после построения основной таблицы, доступ под блокировкой индекса
+  private Table baseTable = Table.EMPTY;
+  private final Set<String> obsoleteUris = new HashSet<>();
+  private final Map<String, ModuleFingerprints> changedModules = new HashMap<>();
+  private long obsoleteFingerprintCount;
+  private long changedFingerprintCount;
+
+  private volatile Snapshot snapshot;
+
+  /**
+   * Замена отпечатков модуля.
+   */
+  public synchronized void update(ModuleFingerprints fingerprints) {
+    String uri = WorkspaceIndexer.normalizeUri(fingerprints.getUri());
+    ModuleFingerprints previous = modules.put(uri, fingerprints);
+    markObsolete(uri, previous);
+
+    ModuleFingerprints previousChange = changedModules.put(uri, fingerprints);
+    changedFingerprintCount += fingerprints.size() - (previousChange == null ? 0 : previousChange.size());
+    snapshot = null;
+  }
+
+  public synchronized void remove(String uri) {
+    String normalizedUri = WorkspaceIndexer.normalizeUri(uri);
+    ModuleFingerprints previous = modules.remove(normalizedUri);
+    if (previous == null) {
+      return;
+    }
+    markObsolete(normalizedUri, previous);
+
+    ModuleFingerprints previousChange = changedModules.remove(normalizedUri);
+    if (previousChange != null) {
+      changedFingerprintCount -= previousChange.size();
+    }
+    snapshot = null;
+  }
+
+  public synchronized void clear() {
+    modules.clear();
+    baseTable = Table.EMPTY;
+    obsoleteUris.clear();
+    changedModules.clear();
+    obsoleteFingerprintCount = 0;
+    changedFingerprintCount = 0;
+    snapshot = null;
+  }
+
+  public int size() {
+    return modules.size();
+  }
+
+  /**
+   * Поиск фрагментов модуля, повторяющихся в этом же модуле или в других модулях индекса.
+   * <p>
+   * Сведения о самом модуле в индексе не используются, фрагменты внутри модуля ищутся
+   * по переданным отпечаткам. Пересекающиеся копии фрагмента внутри модуля не учитываются.
+   *
+   * @param fingerprints Отпечатки актуальной версии модуля.
+   * @param minLength    Минимальная длина фрагмента в лексемах.
+   * @return Найденные фрагменты, для каждой копии - отдельный элемент.
+   */
+  public List<CodeClone> findClones(ModuleFingerprints fingerprints, int minLength) {
+    Snapshot currentSnapshot = getSnapshot();
+    String uri = WorkspaceIndexer.normalizeUri(fingerprints.getUri());
+
+    List<Match> matches = new ArrayList<>();
+    addModuleMatches(fingerprints, matches);
+    for (int i = 0; i < fingerprints.size(); i++) {
+      currentSnapshot.addMatches(uri, fingerprints, i, matches);
+    }
+    matches.sort(Comparator
+      .comparingInt(Match::getModule)
+      .thenComparingInt(Match::getDelta)
+      .thenComparingInt(Match::getFingerprint));
+
+    List<CodeClone> clones = new ArrayList<>();
+    int first = 0;
+    for (int i = 1; i <= matches.size(); i++) {
+      if (i == matches.size() || !continuesChain(fingerprints, matches.get(i - 1), matches.get(i))) {
+        addClone(currentSnapshot, fingerprints, matches.get(first), matches.get(i - 1), minLength, clones);
+        first = i;
+      }
+    }
+    return clones;
+  }
+
+  private Snapshot getSnapshot() {
+    Snapshot currentSnapshot = snapshot;
+    if (currentSnapshot == null) {
+      synchronized (this) {
+        currentSnapshot = snapshot;
+        if (currentSnapshot == null) {
+          currentSnapshot = createSnapshot();
+          snapshot = currentSnapshot;
+        }
+      }
+    }
+    return currentSnapshot;
+  }
+
+  /**
+   * Таблицы для поиска по текущему состоянию индекса. Вызывается под блокировкой индекса.
+   */
+  private Snapshot createSnapshot() {
+    if ((obsoleteFingerprintCount + changedFingerprintCount) * MERGE_RATIO > baseTable.size()) {
+      baseTable = Table.merge(baseTable, obsoleteUris, changedModules);
+      obsoleteUris.clear();
+      changedModules.clear();
+      obsoleteFingerprintCount = 0;
+      changedFingerprintCount = 0;
+      return new Snapshot(baseTable, Table.EMPTY, Collections.emptySet());
+    }
+
+    Table changedTable = Table.merge(Table.EMPTY, Collections.emptySet(), changedModules);
+    return new Snapshot(baseTable, changedTable, new HashSet<>(obsoleteUris));
+  }
+
+  /**
+   * Отпечатки модуля в основной таблице больше не актуальны. Вызывается под блокировкой индекса.
+   */
+  private void markObsolete(String uri, @Nullable ModuleFingerprints previous) {
+    // до первого изменения после слияния таблиц прежняя версия модуля - версия из основной таблицы
+    if (obsoleteUris.add(uri) && previous != null) {
+      obsoleteFingerprintCount += previous.size();
+    }
+  }
+
+  /**
+   * Совпадения отпечатков модуля между собой.
+   */
+  private static void addModuleMatches(ModuleFingerprints fingerprints, List<Match> matches) {
+    long[] sortedHashes = new long[fingerprints.size()];
+    for (int i = 0; i < sortedHashes.length; i++) {
+      sortedHashes[i] = pack(fingerprints.getHash(i), i);
+    }
+    Arrays.sort(sortedHashes);
+
+    int first = 0;
+    for (int i = 1; i <= sortedHashes.length; i++) {
+      if (i < sortedHashes.length && unpackHash(sortedHashes[i]) == unpackHash(sortedHashes[first])) {
+        continue;
+      }
+      int last = Math.min(i, first + MAX_OCCURRENCES);
+      for (int left = first; left < last; left++) {
+        for (int right = first; right < last; right++) {
+          if (left != right) {
+            int fingerprint = unpackIndex(sortedHashes[left]);
+            int copyFingerprint = unpackIndex(sortedHashes[right]);
+            matches.add(new Match(SAME_MODULE, fingerprints, fingerprint, fingerprints, copyFingerprint));
+          }
+        }
+      }
+      first = i;
+    }
+  }
+
+  /**
+   * Следующее совпадение продолжает фрагмент, если оно с той же копией, с тем же сдвигом,
+   * и между отпечатками не больше окна отбора: в общем фрагменте отпечаток есть в каждом окне.
+   */
+  private static boolean continuesChain(ModuleFingerprints fingerprints, Match previous, Match next) {
+    return previous.getModule() == next.getModule()
+      && previous.getDelta() == next.getDelta()
+      && fingerprints.getPosition(next.getFingerprint()) - fingerprints.getPosition(previous.getFingerprint())
+      <= CloneFingerprintComputer.WINDOW_SIZE;
+  }
+
+  private static void addClone(
+    Snapshot currentSnapshot,
+    ModuleFingerprints fingerprints,
+    Match first,
+    Match last,
+    int minLength,
+    List<CodeClone> clones
+  ) {
+    int start = fingerprints.getPosition(first.getFingerprint());
+    int end = fingerprints.getPosition(last.getFingerprint()) + CloneFingerprintComputer.KGRAM_LENGTH;
+    if (end - start < minLength) {
+      return;
+    }
+
+    // копия внутри модуля не должна пересекаться с самим фрагментом
+    if (first.getModule() == SAME_MODULE && Math.abs(first.getDelta()) < end - start) {
+      return;
+    }
+
+    ModuleFingerprints copyFingerprints = first.getModule() == SAME_MODULE
+      ? fingerprints
+      : currentSnapshot.getModule(first.getModule());
+
+    clones.add(new CodeClone(
+      start,
+      end,
+      fingerprints.getRange(first.getFingerprint(), last.getFingerprint()),
+      new Location(
+        copyFingerprints.getUri(),
+        copyFingerprints.getRange(first.getCopyFingerprint(), last.getCopyFingerprint())
+      )
+    ));
+  }
+
+  private static long pack(int hash, int index) {
+    return ((long) hash << Integer.SIZE) | (index & 0xFFFFFFFFL);
+  }
+
+  private static int unpackHash(long value) {
+    return (int) (value >> Integer.SIZE);
+  }
+
+  private static int unpackIndex(long value) {
+    return (int) value;
+  }
+
+  /**
+   * Совпадение отпечатка модуля с отпечатком копии.
+   */
+  private static final class Match {
+    private final int module;
+    private final int delta;
+    private final int fingerprint;
+    private final int copyFingerprint;
+
+    Match(
+      int module,
+      ModuleFingerprints fingerprints,
+      int fingerprint,
+      ModuleFingerprints copyFingerprints,
+      int copyFingerprint
+    ) {
+      this.module = module;
+      this.delta = copyFingerprints.getPosition(copyFingerprint) - fingerprints.getPosition(fingerprint);
+      this.fingerprint = fingerprint;
+      this.copyFingerprint = copyFingerprint;
+    }
+
+    int getModule() {
+      return module;
+    }
+
+    /**
+     * Сдвиг копии относительно фрагмента в лексемах, одинаковый для всех отпечатков одной копии.
+     */
+    int getDelta() {
+      return delta;
+    }
+
+    int getFingerprint() {
+      return fingerprint;
+    }
+
+    int getCopyFingerprint() {
+      return copyFingerprint;
+    }
+  }
+
+  /**
+   * Состояние индекса для поиска: основная таблица без устаревших модулей и таблица измененных модулей.
+   * <p>
+   * Номера модулей таблицы измененных модулей следуют за номерами модулей основной таблицы.
+   */
+  private static final class Snapshot {
+    private final Table baseTable;
+    private final Table changedTable;
+    private final Set<String> obsoleteUris;
+
+    Snapshot(Table baseTable, Table changedTable, Set<String> obsoleteUris) {
+      this.baseTable = baseTable;
+      this.changedTable = changedTable;
+      this.obsoleteUris = obsoleteUris;
+    }
+
+    ModuleFingerprints getModule(int module) {
+      int baseModuleCount = baseTable.getModuleCount();
+      return module < baseModuleCount
+        ? baseTable.getModule(module)
+        : changedTable.getModule(module - baseModuleCount);
+    }
+
+    /**
+     * Совпадения отпечатка модуля с отпечатками других модулей, не больше {@link WorkspaceCloneIndex#MAX_OCCURRENCES}.
+     */
+    void addMatches(String uri, ModuleFingerprints fingerprints, int fingerprint, List<Match> matches) {
+      int occurrences = baseTable.addMatches(uri, fingerprints, fingerprint, obsoleteUris, 0, MAX_OCCURRENCES, matches);
+      changedTable.addMatches(
+        uri,
+        fingerprints,
+        fingerprint,
+        Collections.emptySet(),
+        baseTable.getModuleCount(),
+        MAX_OCCURRENCES - occurrences,
+        matches
+      );
+    }
+  }
+
+  /**
+   * Неизменяемая таблица отпечатков модулей индекса.
+   * <p>
+   * Отпечатки модулей пронумерованы подряд: номера отпечатков модуля начинаются со смещения модуля.
+   * Хэши упорядочены по возрастанию, номер отпечатка с хэшем - в том же элементе соседнего массива.
+   */
+  private static final class Table {
+    private final ModuleFingerprints[] modules;
+    private final String[] uris;
+    private final int[] offsets;
+    private final int[] hashes;
+    private final int[] entries;
+
+    static final Table EMPTY = new Table(new ModuleFingerprints[0], new String[0], new int[0], new int[0], new int[0]);
+
+    private Table(ModuleFingerprints[] modules, String[] uris, int[] offsets, int[] hashes, int[] entries) {
+      this.modules = modules;
+      this.uris = uris;
+      this.offsets = offsets;
+      this.hashes = hashes;
+      this.entries = entries;
+    }
+
+    /**
+     * Слияние таблицы с отпечатками измененных модулей.
+     * <p>
+     * Порядок оставшихся записей исходной таблицы сохраняется, поэтому сортируются только записи
+     * измененных модулей, а слияние с исходной таблицей выполняется за один проход.
+     *
+     * @param table           исходная таблица
+     * @param obsoleteUris    модули, записи которых исключаются из исходной таблицы
+     * @param changedModules  отпечатки добавляемых модулей
+     * @return новая таблица
+     */
+    static Table merge(Table table, Set<String> obsoleteUris, Map<String, ModuleFingerprints> changedModules) {
+      int moduleCount = table.modules.length + changedModules.size();
+      ModuleFingerprints[] modules = new ModuleFingerprints[moduleCount];
+      String[] uris = new String[moduleCount];
+      int[] offsets = new int[moduleCount];
+      int[] newOffsets = new int[table.modules.length];
+
+      int module = 0;
+      int size = 0;
+      for (int i = 0; i < table.modules.length; i++) {
+        if (obsoleteUris.contains(table.uris[i])) {
+          newOffsets[i] = -1;
+          continue;
+        }
+        uris[module] = table.uris[i];
+        modules[module] = table.modules[i];
+        offsets[module] = size;
+        newOffsets[i] = size;
+        size += table.modules[i].size();
+        module++;
+      }
+
+      int changedModulesStart = module;
+      int changedEntriesStart = size;
+      for (Map.Entry<String, ModuleFingerprints> entry : changedModules.entrySet()) {
+        uris[module] = entry.getKey();
+        modules[module] = entry.getValue();
+        offsets[module] = size;
+        size += entry.getValue().size();
+        module++;
+      }
+
+      long[] changedHashes = new long[size - changedEntriesStart];
+      for (int i = changedModulesStart; i < module; i++) {
+        ModuleFingerprints fingerprints = modules[i];
+        for (int j = 0; j < fingerprints.size(); j++) {
+          changedHashes[offsets[i] + j - changedEntriesStart] = pack(fingerprints.getHash(j), offsets[i] + j);
+        }
+      }
+      Arrays.parallelSort(changedHashes);
+
+      // записи измененных модулей идут после записей исходной таблицы, при равных хэшах - после них
+      int[] hashes = new int[size];
+      int[] entries = new int[size];
+      int next = 0;
+      int changed = 0;
+      for (int i = 0; i < table.hashes.length; i++) {
+        int tableModule = table.getModuleIndex(table.entries[i]);
+        if (newOffsets[tableModule] < 0) {
+          continue;
+        }
+        int hash = table.hashes[i];
+        while (changed < changedHashes.length && unpackHash(changedHashes[changed]) < hash) {
+          hashes[next] = unpackHash(changedHashes[changed]);
+          entries[next] = unpackIndex(changedHashes[changed]);
+          next++;
+          changed++;
+        }
+        hashes[next] = hash;
+        entries[next] = newOffsets[tableModule] + table.entries[i] - table.offsets[tableModule];
+        next++;
+      }
+      for (; changed < changedHashes.length; changed++) {
+        hashes[next] = unpackHash(changedHashes[changed]);
+        entries[next] = unpackIndex(changedHashes[changed]);
+        next++;
+      }
+
+      return new Table(
+        Arrays.copyOf(modules, module),
+        Arrays.copyOf(uris, module),
+        Arrays.copyOf(offsets, module),
+        hashes,
+        entries
+      );
+    }
+
+    int size() {
+      return hashes.length;
+    }
+
+    int getModuleCount() {
+      return modules.length;
+    }
+
+    ModuleFingerprints getModule(int module) {
+      int baseModuleCount = baseTable.getModuleCount();
+      return module < baseModuleCount
+        ? baseTable.getModule(module)
+        : changedTable.getModule(module - baseModuleCount);
+    }
+
+    /**
+     * Совпадения отпечатка модуля с отпечатками других модулей, не больше {@link WorkspaceCloneIndex#MAX_OCCURRENCES}.
+     */
+    void addMatches(String uri, ModuleFingerprints fingerprints, int fingerprint, List<Match> matches) {
+      int occurrences = baseTable.addMatches(uri, fingerprints, fingerprint, obsoleteUris, 0, MAX_OCCURRENCES, matches);
+      changedTable.addMatches(
+        uri,
+        fingerprints,
+        fingerprint,
+        Collections.emptySet(),
+        baseTable.getModuleCount(),
+        MAX_OCCURRENCES - occurrences,
+        matches
+      );
+    }
+  }
+
+  /**
+   * Неизменяемая таблица отпечатков модулей индекса.
+   * <p>
+   * Отпечатки модулей пронумерованы подряд: номера отпечатков модуля начинаются со смещения модуля.
+   * Хэши упорядочены по возрастанию, номер отпечатка с хэшем - в том же элементе соседнего массива.
+   */
+  private static final class Table {
+    private final ModuleFingerprints[] modules;
+    private final String[] uris;
+    private final int[] offsets;
+    private final int[] hashes;
+    private final int[] entries;
+
+    static final Table EMPTY = new Table(new ModuleFingerprints[0], new String[0], new int[0], new int[0], new int[0]);
+
+    private Table(ModuleFingerprints[] modules, String[] uris, int[] offsets, int[] hashes, int[] entries) {
+      this.modules = modules;
+      this.uris = uris;
+      this.offsets = offsets;
+      this.hashes = hashes;
+      this.entries = entries;
+    }
+
+    static Table create(Map<String, ModuleFingerprints> fingerprintsByUri) {
+      int moduleCount = fingerprintsByUri.size();
+      ModuleFingerprints[] modules = new ModuleFingerprints[moduleCount];
+      String[] uris = new String[moduleCount];
+      int[] offsets = new int[moduleCount];
+
+      int module = 0;
+      int size = 0;
+      for (Map.Entry<String, ModuleFingerprints> entry : fingerprintsByUri.entrySet()) {
+        if (module == moduleCount) {
+          break;
+        }
+        uris[module] = entry.getKey();
+        modules[module] = entry.getValue();
+        offsets[module] = size;
+        size += entry.getValue().size();
+        module++;
+      }
+
+      long[] sortedHashes = new long[size];
+      for (int i = 0; i < module; i++) {
+        ModuleFingerprints fingerprints = modules[i];
+        for (int j = 0; j < fingerprints.size(); j++) {
+          sortedHashes[offsets[i] + j] = pack(fingerprints.getHash(j), offsets[i] + j);
+        }
+      }
+      Arrays.parallelSort(sortedHashes);
+
+      int[] hashes = new int[size];
+      int[] entries = new int[size];
+      for (int i = 0; i < size; i++) {
+        hashes[i] = unpackHash(sortedHashes[i]);
+        entries[i] = unpackIndex(sortedHashes[i]);
+      }
+
+      return new Table(
+        Arrays.copyOf(modules, module),
+        Arrays.copyOf(uris, module),
+        Arrays.copyOf(offsets, module),
+        hashes,
+        entries
+      );
+    }
+
+    ModuleFingerprints getModule(int module) {
+      return modules[module];
+    }
+
+    /**
+     * Совпадения отпечатка модуля с отпечатками других модулей.
+     *
+     * @param skippedUris  модули, записи которых не учитываются
+     * @param moduleShift  сдвиг номеров модулей в совпадениях
+     * @param limit        максимальное количество просматриваемых записей с хэшем отпечатка
+     * @return количество просмотренных записей
+     */
+    int addMatches(
+      String uri,
+      ModuleFingerprints fingerprints,
+      int fingerprint,
+      Set<String> skippedUris,
+      int moduleShift,
+      int limit,
+      List<Match> matches
+    ) {
+      int hash = fingerprints.getHash(fingerprint);
+      int occurrences = 0;
+      for (int i = lowerBound(hash); i < hashes.length && hashes[i] == hash && occurrences < limit; i++) {
+        int module = getModuleIndex(entries[i]);
+        if (skippedUris.contains(uris[module])) {
+          continue;
+        }
+        occurrences++;
+        if (uris[module].equals(uri)) {
+          continue;
+        }
+        int copyFingerprint = entries[i] - offsets[module];
+        matches.add(new Match(module + moduleShift, fingerprints, fingerprint, modules[module], copyFingerprint));
+      }
+      return occurrences;
+    }
+
+    private int getModuleIndex(int entry) {
+      int index = Arrays.binarySearch(offsets, entry);
+      if (index < 0) {
+        return -index - 2;
+      }
+      // у модулей без отпечатков смещения совпадают со смещением следующего модуля
+      while (index + 1 < offsets.length && offsets[index + 1] == entry) {
+        index++;
+      }
+      return index;
+    }
+
+    private int lowerBound(int hash) {
+      int low = 0;
+      int high = hashes.length;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (hashes[middle] < hash) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+  }
+}
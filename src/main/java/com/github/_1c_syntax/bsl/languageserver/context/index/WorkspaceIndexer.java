@@ -0,0 +1,292 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.index;
+
+import com.github._1c_syntax.bsl.languageserver.configuration.LanguageServerConfiguration;
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
+import com.github._1c_syntax.bsl.languageserver.context.computer.CloneFingerprintComputer;
+import com.github._1c_syntax.bsl.languageserver.context.computer.Computer;
+import com.github._1c_syntax.bsl.languageserver.context.computer.MethodReferenceComputer;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.DuplicatedCodeDiagnostic;
+import com.github._1c_syntax.bsl.languageserver.providers.DiagnosticProvider;
+import com.github._1c_syntax.mdclasses.metadata.additional.ModuleType;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.CheckForNull;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Фоновое заполнение индексов рабочей области ({@link WorkspaceSymbolIndex}, {@link WorkspaceReferenceIndex}
+ * и {@link WorkspaceCloneIndex}) по файлам модулей.
+ * <p>
+ * Задачи выполняются последовательно в одном фоновом потоке, поэтому изменения отдельных файлов
+ * применяются к индексам в порядке поступления. Первичная индексация каталога разбирает файлы параллельно.
+ * <p>
+ * Индекс повторяющегося кода нужен только диагностике {@link DuplicatedCodeDiagnostic}, поэтому заполняется,
+ * только если она включена в конфигурации, и перестраивается при ее включении, см. {@link #updateConfiguration()}.
+ */
+public class WorkspaceIndexer {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(WorkspaceIndexer.class.getSimpleName());
+  private static final String[] EXTENSIONS = new String[]{"bsl", "os"};
+  private static final String COMMON_MODULES_DIRECTORY = "CommonModules";
+
+  private final ServerContext context;
+  private final LanguageServerConfiguration configuration;
+  private final ExecutorService executorService;
+  private volatile boolean cloneIndexEnabled;
+  @CheckForNull
+  private volatile Path workspaceRoot;
+  private volatile boolean shutdown;
+
+  public WorkspaceIndexer(ServerContext context) {
+    this(context, LanguageServerConfiguration.create());
+  }
+
+  public WorkspaceIndexer(ServerContext context, LanguageServerConfiguration configuration) {
+    this.context = context;
+    this.configuration = configuration;
+    cloneIndexEnabled = isCloneIndexEnabled(configuration);
+    executorService = Executors.newSingleThreadExecutor((Runnable runnable) -> {
+      Thread thread = new Thread(runnable, "bsl-workspace-indexer");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Индексация всех модулей каталога.
+   *
+   * @param root Корневой каталог.
+   * @return Признак завершения индексации.
+   */
+  public CompletableFuture<Void> indexWorkspace(Path root) {
+    workspaceRoot = root;
+    return CompletableFuture.runAsync(() -> {
+      File rootDir = root.toFile();
+      if (!rootDir.isDirectory()) {
+        return;
+      }
+
+      Collection<File> files = FileUtils.listFiles(rootDir, EXTENSIONS, true);
+      files.parallelStream()
+        .filter(file -> !shutdown)
+        .forEach(this::indexFileNow);
+      LOGGER.debug("Workspace index built for {} files", files.size());
+    }, executorService);
+  }
+
+  /**
+   * Применение изменившейся конфигурации сервера.
+   * <p>
+   * При включении диагностики {@link DuplicatedCodeDiagnostic} индекс повторяющегося кода строится
+   * по всем модулям рабочей области, при выключении - очищается.
+   *
+   * @return Признак завершения перестроения индекса.
+   */
+  public CompletableFuture<Void> updateConfiguration() {
+    boolean enabled = isCloneIndexEnabled(configuration);
+    if (enabled == cloneIndexEnabled) {
+      return CompletableFuture.completedFuture(null);
+    }
+    cloneIndexEnabled = enabled;
+
+    return CompletableFuture.runAsync(() -> {
+      context.getWorkspaceCloneIndex().clear();
+
+      Path root = workspaceRoot;
+      if (!enabled || root == null || !root.toFile().isDirectory()) {
+        return;
+      }
+
+      Collection<File> files = FileUtils.listFiles(root.toFile(), EXTENSIONS, true);
+      files.parallelStream()
+        .filter(file -> !shutdown)
+        .forEach(this::indexClonesNow);
+      LOGGER.debug("Workspace clone index built for {} files", files.size());
+    }, executorService);
+  }
+
+  /**
+   * Переиндексация модуля после его создания или изменения.
+   *
+   * @param uri URI модуля.
+   * @return Признак завершения индексации.
+   */
+  public CompletableFuture<Void> indexFile(String uri) {
+    return CompletableFuture.runAsync(() -> {
+      File file = toFile(uri);
+      if (file.isFile()) {
+        indexFileNow(file);
+      } else {
+        removeFileNow(file);
+      }
+    }, executorService);
+  }
+
+  /**
+   * Удаление модуля из индексов.
+   *
+   * @param uri URI модуля.
+   * @return Признак завершения удаления.
+   */
+  public CompletableFuture<Void> removeFile(String uri) {
+    return CompletableFuture.runAsync(() -> removeFileNow(toFile(uri)), executorService);
+  }
+
+  public static boolean isIndexedFile(String uri) {
+    String extension = FilenameUtils.getExtension(uri).toLowerCase(Locale.ENGLISH);
+    for (String indexedExtension : EXTENSIONS) {
+      if (indexedExtension.equals(extension)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Приведение URI файла к виду, в котором он хранится в индексах.
+   *
+   * @param uri URI, полученный от клиента.
+   * @return Нормализованный URI или исходная строка, если она не является URI файла.
+   */
+  public static String normalizeUri(String uri) {
+    try {
+      return normalizeUri(toFile(uri));
+    } catch (IllegalArgumentException | FileSystemNotFoundException e) {
+      return uri;
+    }
+  }
+
+  public void shutdown() {
+    shutdown = true;
+    executorService.shutdownNow();
+  }
+
+  private void indexFileNow(File file) {
+    String content = readFile(file);
+    if (content == null) {
+      return;
+    }
+
+    String uri = normalizeUri(file);
+    try {
+      DocumentContext documentContext = new DocumentContext(uri, content, context);
+      Computer<List<MethodReference>> methodReferenceComputer = new MethodReferenceComputer(documentContext);
+
+      context.getWorkspaceSymbolIndex().update(uri, documentContext.getMethods());
+      context.getWorkspaceReferenceIndex().update(
+        uri,
+        getCommonModuleName(file),
+        methodReferenceComputer.compute()
+      );
+      if (cloneIndexEnabled) {
+        context.getWorkspaceCloneIndex().update(new CloneFingerprintComputer(documentContext).compute());
+      }
+    } catch (RuntimeException e) {
+      LOGGER.error("Can't index file {}", file, e);
+    }
+  }
+
+  private void indexClonesNow(File file) {
+    String content = readFile(file);
+    if (content == null) {
+      return;
+    }
+
+    try {
+      DocumentContext documentContext = new DocumentContext(normalizeUri(file), content, context);
+      context.getWorkspaceCloneIndex().update(new CloneFingerprintComputer(documentContext).compute());
+    } catch (RuntimeException e) {
+      LOGGER.error("Can't index file {}", file, e);
+    }
+  }
+
+  @CheckForNull
+  private static String readFile(File file) {
+    try {
+      return FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      LOGGER.error("Can't read file {}", file, e);
+      return null;
+    }
+  }
+
+  private static boolean isCloneIndexEnabled(LanguageServerConfiguration configuration) {
+    return DiagnosticProvider.isEnabled(configuration, DuplicatedCodeDiagnostic.class);
+  }
+
+  private void removeFileNow(File file) {
+    String uri = normalizeUri(file);
+    context.getWorkspaceSymbolIndex().remove(uri);
+    context.getWorkspaceReferenceIndex().remove(uri);
+    context.getWorkspaceCloneIndex().remove(uri);
+  }
+
+  /**
+   * Имя общего модуля по данным описания конфигурации.
+   * <p>
+   * Тип модуля определяется по списку модулей конфигурации, а имя - по каталогу объекта:
+   * {@code CommonModules/<Имя>/Ext/Module.bsl} в формате конфигуратора
+   * и {@code CommonModules/<Имя>/Module.bsl} в формате EDT.
+   */
+  @CheckForNull
+  private String getCommonModuleName(File file) {
+    ModuleType moduleType = context.getConfiguration().getModuleType(file.getAbsoluteFile().toURI());
+    if (moduleType != ModuleType.CommonModule) {
+      return null;
+    }
+
+    Path path = file.toPath().toAbsolutePath();
+    for (int i = path.getNameCount() - 2; i > 0; i--) {
+      if (COMMON_MODULES_DIRECTORY.equals(path.getName(i - 1).toString())) {
+        return path.getName(i).toString();
+      }
+    }
+    return null;
+  }
+
+  private static File toFile(String uri) {
+    return Paths.get(URI.create(uri)).toFile();
+  }
+
+  private static String normalizeUri(File file) {
+    return file.toPath().toAbsolutePath().normalize().toUri().toString();
+  }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.index;
+
+import javax.annotation.CheckForNull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс мест вызова методов во всех модулях рабочей области.
+ * <p>
+ * Вызовы с квалификатором дополнительно индексируются по ключу "квалификатор.метод"
+ * в нижнем регистре, что позволяет найти все вызовы метода общего модуля без перебора модулей.
+ * Вызовы по ключу хранятся отдельно для каждого модуля: обновление модуля заменяет только его вызовы,
+ * поэтому стоимость обновления не зависит от числа вызовов того же метода в других модулях.
+ * Как и в {@link WorkspaceSymbolIndex}, значения - неизменяемые массивы, заменяемые целиком.
+ */
+public class WorkspaceReferenceIndex {
+
+  private static final MethodReference[] EMPTY = new MethodReference[0];
+
+  private final Map<String, MethodReference[]> referencesByUri = new ConcurrentHashMap<>();
+  private final Map<String, Map<String, MethodReference[]>> qualifiedReferences = new ConcurrentHashMap<>();
+  private final Map<String, String> commonModuleUris = new ConcurrentHashMap<>();
+  private final Map<String, String> commonModuleNames = new ConcurrentHashMap<>();
+
+  /**
+   * Замена сведений о модуле.
+   *
+   * @param uri              URI модуля.
+   * @param commonModuleName Имя общего модуля или null, если модуль не является общим.
+   * @param references       Места вызова методов в модуле.
+   */
+  public synchronized void update(String uri, @CheckForNull String commonModuleName, List<MethodReference> references) {
+    removeModule(uri);
+
+    if (commonModuleName != null) {
+      commonModuleNames.put(uri, commonModuleName);
+      commonModuleUris.put(normalize(commonModuleName), uri);
+    }
+
+    if (references.isEmpty()) {
+      return;
+    }
+
+    MethodReference[] moduleReferences = references.toArray(EMPTY);
+    referencesByUri.put(uri, moduleReferences);
+
+    Map<String, List<MethodReference>> referencesByKey = new HashMap<>();
+    for (MethodReference reference : moduleReferences) {
+      if (reference.isQualified()) {
+        referencesByKey
+          .computeIfAbsent(getKey(reference.getQualifier(), reference.getMethodName()), key -> new ArrayList<>())
+          .add(reference);
+      }
+    }
+
+    referencesByKey.forEach((String key, List<MethodReference> keyReferences) ->
+      qualifiedReferences
+        .computeIfAbsent(key, k -> new ConcurrentHashMap<>())
+        .put(uri, keyReferences.toArray(EMPTY))
+    );
+  }
+
+  public synchronized void remove(String uri) {
+    removeModule(uri);
+  }
+
+  public synchronized void clear() {
+    referencesByUri.clear();
+    qualifiedReferences.clear();
+    commonModuleUris.clear();
+    commonModuleNames.clear();
+  }
+
+  public List<MethodReference> getReferences(String uri) {
+    return Collections.unmodifiableList(Arrays.asList(referencesByUri.getOrDefault(uri, EMPTY)));
+  }
+
+  /**
+   * Вызовы вида {@code Квалификатор.Метод()} во всех модулях, без учета регистра.
+   */
+  public List<MethodReference> getQualifiedReferences(String qualifier, String methodName) {
+    Map<String, MethodReference[]> referencesByModule = qualifiedReferences.get(getKey(qualifier, methodName));
+    if (referencesByModule == null) {
+      return Collections.emptyList();
+    }
+
+    List<MethodReference> references = new ArrayList<>();
+    referencesByModule.values().forEach(moduleReferences -> Collections.addAll(references, moduleReferences));
+    return Collections.unmodifiableList(references);
+  }
+
+  public Optional<String> getCommonModuleUri(String commonModuleName) {
+    return Optional.ofNullable(commonModuleUris.get(normalize(commonModuleName)));
+  }
+
+  public Optional<String> getCommonModuleName(String uri) {
+    return Optional.ofNullable(commonModuleNames.get(uri));
+  }
+
+  private void removeModule(String uri) {
+    String commonModuleName = commonModuleNames.remove(uri);
+    if (commonModuleName != null) {
+      commonModuleUris.remove(normalize(commonModuleName), uri);
+    }
+
+    MethodReference[] oldReferences = referencesByUri.remove(uri);
+    if (oldReferences == null) {
+      return;
+    }
+
+    Set<String> keys = new HashSet<>();
+    for (MethodReference reference : oldReferences) {
+      if (reference.isQualified()) {
+        keys.add(getKey(reference.getQualifier(), reference.getMethodName()));
+      }
+    }
+
+    // изменения индекса выполняются под блокировкой индекса, поэтому пустой набор удаляется без гонок
+    keys.forEach((String key) -> {
+      Map<String, MethodReference[]> referencesByModule = qualifiedReferences.get(key);
+      if (referencesByModule != null) {
+        referencesByModule.remove(uri);
+        if (referencesByModule.isEmpty()) {
+          qualifiedReferences.remove(key);
+        }
+      }
+    });
+  }
+
+  private static String getKey(@CheckForNull String qualifier, String methodName) {
+    return normalize(String.valueOf(qualifier)) + "." + normalize(methodName);
+  }
+
+  private static String normalize(String name) {
+    return name.toLowerCase(Locale.ENGLISH);
+  }
+}
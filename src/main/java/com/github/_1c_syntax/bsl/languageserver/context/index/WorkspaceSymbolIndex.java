@@ -0,0 +1,204 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.index;
+
+import com.github._1c_syntax.bsl.languageserver.context.symbol.MethodSymbol;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Индекс методов всех модулей рабочей области.
+ * <p>
+ * Методы хранятся в упорядоченном словаре по имени в нижнем регистре, что позволяет
+ * искать по префиксу без перебора всех имен. Методы одного имени хранятся отдельно для каждого модуля
+ * в неизменяемых массивах, которые заменяются целиком при изменении модуля, поэтому чтение
+ * не требует блокировок, а обновление модуля не зависит от числа одноименных методов других модулей.
+ */
+public class WorkspaceSymbolIndex {
+
+  /**
+   * Максимальное количество методов в результате поиска.
+   */
+  public static final int MAX_RESULTS = 1000;
+
+  private static final IndexedMethod[] EMPTY = new IndexedMethod[0];
+
+  private final Map<String, IndexedMethod[]> methodsByUri = new ConcurrentHashMap<>();
+  private final ConcurrentNavigableMap<String, Map<String, IndexedMethod[]>> methodsByName =
+    new ConcurrentSkipListMap<>();
+
+  /**
+   * Замена сведений о методах модуля.
+   *
+   * @param uri     URI модуля.
+   * @param methods Методы модуля.
+   */
+  public synchronized void update(String uri, List<MethodSymbol> methods) {
+    removeFromNameIndex(uri);
+
+    IndexedMethod[] indexedMethods = methods.stream()
+      .map(methodSymbol -> IndexedMethod.create(uri, methodSymbol))
+      .toArray(IndexedMethod[]::new);
+
+    if (indexedMethods.length == 0) {
+      return;
+    }
+
+    methodsByUri.put(uri, indexedMethods);
+
+    Map<String, List<IndexedMethod>> methodsByModuleName = new HashMap<>();
+    for (IndexedMethod indexedMethod : indexedMethods) {
+      methodsByModuleName
+        .computeIfAbsent(normalize(indexedMethod.getName()), name -> new ArrayList<>())
+        .add(indexedMethod);
+    }
+
+    methodsByModuleName.forEach((String name, List<IndexedMethod> nameMethods) ->
+      methodsByName
+        .computeIfAbsent(name, key -> new ConcurrentHashMap<>())
+        .put(uri, nameMethods.toArray(EMPTY))
+    );
+  }
+
+  public synchronized void remove(String uri) {
+    removeFromNameIndex(uri);
+  }
+
+  public synchronized void clear() {
+    methodsByUri.clear();
+    methodsByName.clear();
+  }
+
+  public List<IndexedMethod> getMethods(String uri) {
+    return Collections.unmodifiableList(Arrays.asList(methodsByUri.getOrDefault(uri, EMPTY)));
+  }
+
+  /**
+   * Поиск методов по строке запроса без учета регистра.
+   * <p>
+   * Сначала возвращаются методы, имя которых начинается с запроса, затем методы,
+   * в имени которых символы запроса встречаются в том же порядке (например,
+   * "ПолДан" для "ПолучитьДанные").
+   *
+   * @param query Строка запроса. Пустая строка соответствует всем методам.
+   * @return Найденные методы, не более {@link #MAX_RESULTS}.
+   */
+  public List<IndexedMethod> find(String query) {
+    String normalizedQuery = normalize(query);
+    List<IndexedMethod> result = new ArrayList<>();
+
+    NavigableMap<String, Map<String, IndexedMethod[]>> prefixMatches = normalizedQuery.isEmpty()
+      ? methodsByName
+      : methodsByName.subMap(normalizedQuery, true, normalizedQuery + Character.MAX_VALUE, true);
+
+    for (Map<String, IndexedMethod[]> methodsByModule : prefixMatches.values()) {
+      if (addAll(result, methodsByModule.values())) {
+        return result;
+      }
+    }
+    if (normalizedQuery.isEmpty()) {
+      return result;
+    }
+
+    // перебор имен прекращается, как только набрано максимальное количество результатов
+    for (Map.Entry<String, Map<String, IndexedMethod[]>> entry : methodsByName.entrySet()) {
+      String name = entry.getKey();
+      if (!name.startsWith(normalizedQuery)
+        && isSubsequence(normalizedQuery, name)
+        && addAll(result, entry.getValue().values())) {
+        break;
+      }
+    }
+
+    return result;
+  }
+
+  public int size() {
+    return methodsByUri.values().stream().mapToInt(methods -> methods.length).sum();
+  }
+
+  private void removeFromNameIndex(String uri) {
+    IndexedMethod[] oldMethods = methodsByUri.remove(uri);
+    if (oldMethods == null) {
+      return;
+    }
+
+    Set<String> names = new HashSet<>();
+    for (IndexedMethod oldMethod : oldMethods) {
+      names.add(normalize(oldMethod.getName()));
+    }
+
+    // изменения индекса выполняются под блокировкой индекса, поэтому пустой набор удаляется без гонок
+    for (String name : names) {
+      Map<String, IndexedMethod[]> methodsByModule = methodsByName.get(name);
+      if (methodsByModule != null) {
+        methodsByModule.remove(uri);
+        if (methodsByModule.isEmpty()) {
+          methodsByName.remove(name);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return Признак того, что достигнут лимит результатов.
+   */
+  private static boolean addAll(List<IndexedMethod> result, Iterable<IndexedMethod[]> values) {
+    for (IndexedMethod[] indexedMethods : values) {
+      for (IndexedMethod indexedMethod : indexedMethods) {
+        if (result.size() >= MAX_RESULTS) {
+          return true;
+        }
+        result.add(indexedMethod);
+      }
+    }
+    return false;
+  }
+
+  private static boolean isSubsequence(String query, String name) {
+    int position = 0;
+    for (int i = 0; i < query.length(); i++) {
+      position = name.indexOf(query.charAt(i), position);
+      if (position < 0) {
+        return false;
+      }
+      position++;
+    }
+    return true;
+  }
+
+  private static String normalize(String name) {
+    return name.toLowerCase(Locale.ENGLISH);
+  }
+}
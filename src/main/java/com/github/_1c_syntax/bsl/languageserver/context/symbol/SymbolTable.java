@@ -0,0 +1,217 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.symbol;
+
+import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
+import org.eclipse.lsp4j.DocumentSymbol;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.SymbolKind;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Компактная таблица символов документа, не ссылающаяся на дерево разбора.
+ * <p>
+ * Символы (переменные модуля, области, методы и их переменные) хранятся в порядке обхода дерева
+ * в параллельных массивах примитивов: диапазоны упакованы по восемь чисел на символ,
+ * имена интернированы, вложенность задается индексом родителя. Таблица переживает вытеснение
+ * дерева разбора и позволяет строить символы документа и линзы кода без повторного разбора.
+ */
+public final class SymbolTable {
+
+  public static final int NO_PARENT = -1;
+  public static final int NO_COMPLEXITY = -1;
+
+  private static final int RANGE_SIZE = 8;
+
+  private final String[] names;
+  private final byte[] kinds;
+  private final int[] parents;
+  private final int[] ranges;
+  private final int[] cognitiveComplexity;
+
+  private SymbolTable(Builder builder) {
+    int size = builder.size;
+    names = Arrays.copyOf(builder.names, size);
+    kinds = Arrays.copyOf(builder.kinds, size);
+    parents = Arrays.copyOf(builder.parents, size);
+    ranges = Arrays.copyOf(builder.ranges, size * RANGE_SIZE);
+    cognitiveComplexity = Arrays.copyOf(builder.cognitiveComplexity, size);
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public int size() {
+    return names.length;
+  }
+
+  public String getName(int index) {
+    return names[index];
+  }
+
+  public SymbolKind getKind(int index) {
+    return SymbolKind.forValue(kinds[index]);
+  }
+
+  public int getParent(int index) {
+    return parents[index];
+  }
+
+  public Range getRange(int index) {
+    return getRange(index, 0);
+  }
+
+  public Range getSelectionRange(int index) {
+    return getRange(index, RANGE_SIZE / 2);
+  }
+
+  /**
+   * @param index индекс символа
+   * @return когнитивная сложность метода или {@link #NO_COMPLEXITY}, если символ не является методом
+   */
+  public int getCognitiveComplexity(int index) {
+    return cognitiveComplexity[index];
+  }
+
+  /**
+   * Построение иерархии символов документа в формате LSP.
+   * <p>
+   * У областей и методов список дочерних символов заполняется всегда, у переменных - отсутствует.
+   *
+   * @return символы верхнего уровня документа
+   */
+  public List<DocumentSymbol> getDocumentSymbols() {
+    int size = size();
+    DocumentSymbol[] documentSymbols = new DocumentSymbol[size];
+    List<DocumentSymbol> roots = new ArrayList<>();
+
+    for (int index = 0; index < size; index++) {
+      SymbolKind kind = getKind(index);
+      DocumentSymbol documentSymbol = new DocumentSymbol(
+        names[index],
+        kind,
+        getRange(index),
+        getSelectionRange(index)
+      );
+      if (kind != SymbolKind.Variable) {
+        documentSymbol.setChildren(new ArrayList<>());
+      }
+      documentSymbols[index] = documentSymbol;
+
+      int parent = parents[index];
+      if (parent == NO_PARENT) {
+        roots.add(documentSymbol);
+      } else {
+        documentSymbols[parent].getChildren().add(documentSymbol);
+      }
+    }
+
+    return roots;
+  }
+
+  private Range getRange(int index, int shift) {
+    int offset = index * RANGE_SIZE + shift;
+    return Ranges.create(ranges[offset], ranges[offset + 1], ranges[offset + 2], ranges[offset + 3]);
+  }
+
+  /**
+   * Построитель таблицы. Родитель символа должен быть добавлен раньше самого символа.
+   */
+  public static final class Builder {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private String[] names = new String[INITIAL_CAPACITY];
+    private byte[] kinds = new byte[INITIAL_CAPACITY];
+    private int[] parents = new int[INITIAL_CAPACITY];
+    private int[] ranges = new int[INITIAL_CAPACITY * RANGE_SIZE];
+    private int[] cognitiveComplexity = new int[INITIAL_CAPACITY];
+    private int size;
+
+    private Builder() {
+    }
+
+    /**
+     * @return индекс добавленного символа
+     */
+    public int add(int parent, String name, SymbolKind kind, Range range, Range selectionRange) {
+      return add(parent, name, kind, range, selectionRange, NO_COMPLEXITY);
+    }
+
+    /**
+     * @return индекс добавленного символа
+     */
+    public int add(
+      int parent,
+      String name,
+      SymbolKind kind,
+      Range range,
+      Range selectionRange,
+      int complexity
+    ) {
+      if (parent >= size) {
+        throw new IllegalArgumentException("Parent symbol must be added before its children");
+      }
+      ensureCapacity(size + 1);
+
+      int index = size;
+      names[index] = name.intern();
+      kinds[index] = (byte) kind.getValue();
+      parents[index] = parent;
+      cognitiveComplexity[index] = complexity;
+
+      int offset = index * RANGE_SIZE;
+      putRange(offset, range);
+      putRange(offset + RANGE_SIZE / 2, selectionRange);
+
+      size++;
+      return index;
+    }
+
+    public SymbolTable build() {
+      return new SymbolTable(this);
+    }
+
+    private void putRange(int offset, Range range) {
+      ranges[offset] = range.getStart().getLine();
+      ranges[offset + 1] = range.getStart().getCharacter();
+      ranges[offset + 2] = range.getEnd().getLine();
+      ranges[offset + 3] = range.getEnd().getCharacter();
+    }
+
+    private void ensureCapacity(int capacity) {
+      if (capacity <= names.length) {
+        return;
+      }
+      int newCapacity = Math.max(capacity, names.length * 2);
+      names = Arrays.copyOf(names, newCapacity);
+      kinds = Arrays.copyOf(kinds, newCapacity);
+      parents = Arrays.copyOf(parents, newCapacity);
+      ranges = Arrays.copyOf(ranges, newCapacity * RANGE_SIZE);
+      cognitiveComplexity = Arrays.copyOf(cognitiveComplexity, newCapacity);
+    }
+  }
+}
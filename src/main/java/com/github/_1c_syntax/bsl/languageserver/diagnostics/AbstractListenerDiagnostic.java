@@ -35,11 +35,29 @@ public abstract class AbstractListenerDiagnostic extends BSLParserBaseListener i
 
   @Override
   public List<Diagnostic> getDiagnostics(DocumentContext documentContext) {
+    beginWalk(documentContext);
+    try {
+      ParseTreeWalker walker = new ParseTreeWalker();
+      walker.walk(this, documentContext.getAst());
+      return diagnosticStorage.getDiagnostics();
+    } finally {
+      endWalk();
+    }
+  }
+
+  void beginWalk(DocumentContext documentContext) {
     this.documentContext = documentContext;
     diagnosticStorage.clearDiagnostics();
-    ParseTreeWalker walker = new ParseTreeWalker();
-    walker.walk(this, documentContext.getAst());
-    return diagnosticStorage.getDiagnostics();
+  }
+
+  /**
+   * Освобождение данных документа после расчета.
+   *
+   * @see AbstractVisitorDiagnostic#endWalk()
+   */
+  protected void endWalk() {
+    documentContext = null;
+    diagnosticStorage.clearDiagnostics();
   }
 
 }
@@ -24,6 +24,7 @@ package com.github._1c_syntax.bsl.languageserver.diagnostics;
 import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
 import com.github._1c_syntax.bsl.parser.BSLParserBaseVisitor;
 import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.RuleNode;
 import org.eclipse.lsp4j.Diagnostic;
 
 import java.util.List;
@@ -33,12 +34,60 @@ public abstract class AbstractVisitorDiagnostic extends BSLParserBaseVisitor<Par
   protected DiagnosticStorage diagnosticStorage = new DiagnosticStorage(this);
   protected DocumentContext documentContext;
 
+  private RuleNode dispatchedNode;
+  private boolean dispatchedNodeChildrenRequested;
+
   @Override
   public List<Diagnostic> getDiagnostics(DocumentContext documentContext) {
+    beginWalk(documentContext);
+    try {
+      this.visitFile(documentContext.getAst());
+      return diagnosticStorage.getDiagnostics();
+    } finally {
+      endWalk();
+    }
+  }
+
+  @Override
+  public ParseTree visitChildren(RuleNode node) {
+    if (node == dispatchedNode) {
+      // при совместном обходе дочерние узлы обходит DiagnosticDispatcher
+      dispatchedNodeChildrenRequested = true;
+      return defaultResult();
+    }
+    return super.visitChildren(node);
+  }
+
+  void beginWalk(DocumentContext documentContext) {
     this.documentContext = documentContext;
     diagnosticStorage.clearDiagnostics();
-    this.visitFile(documentContext.getAst());
-    return diagnosticStorage.getDiagnostics();
+  }
+
+  /**
+   * Освобождение данных документа после расчета: экземпляры диагностик переиспользуются
+   * и не должны удерживать документ и его дерево разбора.
+   * Наследники, сохраняющие в полях данные документа, дополняют очистку.
+   */
+  protected void endWalk() {
+    documentContext = null;
+    diagnosticStorage.clearDiagnostics();
+  }
+
+  /**
+   * Посещение одного узла в рамках совместного обхода дерева.
+   *
+   * @param node узел дерева разбора
+   * @return true, если диагностика запросила обход дочерних узлов
+   */
+  boolean visitDispatched(RuleNode node) {
+    dispatchedNode = node;
+    dispatchedNodeChildrenRequested = false;
+    try {
+      node.accept(this);
+    } finally {
+      dispatchedNode = null;
+    }
+    return dispatchedNodeChildrenRequested;
   }
 
 }
@@ -24,7 +24,6 @@ package com.github._1c_syntax.bsl.languageserver.diagnostics;
 import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
 import com.github._1c_syntax.bsl.languageserver.providers.DiagnosticProvider;
 import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
-import com.github._1c_syntax.bsl.languageserver.utils.UTF8Control;
 import com.github._1c_syntax.bsl.parser.BSLParserRuleContext;
 import org.antlr.v4.runtime.Token;
 import org.eclipse.lsp4j.Diagnostic;
@@ -34,22 +33,21 @@ import org.eclipse.lsp4j.Range;
 import javax.annotation.Nullable;
 import java.util.List;
 import java.util.Map;
-import java.util.ResourceBundle;
 
 public interface BSLDiagnostic {
 
   List<Diagnostic> getDiagnostics(DocumentContext documentContext);
 
   default String getDiagnosticMessage() {
-    return getResourceString("diagnosticMessage");
+    return DiagnosticResources.get(getClass()).getMessage(DiagnosticResources.getCurrentLanguage());
   }
 
   default String getResourceString(String key) {
-    return ResourceBundle.getBundle(getClass().getName(), new UTF8Control()).getString(key);
+    return DiagnosticResources.get(getClass()).getString(DiagnosticResources.getCurrentLanguage(), key);
   }
 
   default String getDiagnosticMessage(Object... args) {
-    return String.format(getDiagnosticMessage(), args);
+    return DiagnosticResources.get(getClass()).getMessage(DiagnosticResources.getCurrentLanguage(), args);
   }
 
   default void configure(Map<String, Object> configuration) {}
@@ -119,6 +119,12 @@ public class CognitiveComplexityDiagnostic extends AbstractVisitorDiagnostic {
     return ctx;
   }
 
+  @Override
+  public ParseTree visitFile(BSLParser.FileContext ctx) {
+    fileCodeBlockChecked = false;
+    return super.visitFile(ctx);
+  }
+
   @Override
   public ParseTree visitFileCodeBlockBeforeSub(BSLParser.FileCodeBlockBeforeSubContext ctx) {
     checkFileCodeBlock(ctx);
@@ -83,18 +83,28 @@ public class CommentedCodeDiagnostic extends AbstractVisitorDiagnostic {
     this.documentContext = documentContext;
     diagnosticStorage.clearDiagnostics();
 
-    methodDescriptions = documentContext.getMethods()
-      .stream()
-      .map(MethodSymbol::getDescription)
-      .filter(Objects::nonNull)
-      .collect(Collectors.toList());
-
-    groupComments(documentContext.getComments())
-      .stream()
-      .filter(this::isCommentGroupNotMethodDescription)
-      .forEach(this::checkCommentGroup);
-
-    return diagnosticStorage.getDiagnostics();
+    try {
+      methodDescriptions = documentContext.getMethods()
+        .stream()
+        .map(MethodSymbol::getDescription)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+
+      groupComments(documentContext.getComments())
+        .stream()
+        .filter(this::isCommentGroupNotMethodDescription)
+        .forEach(this::checkCommentGroup);
+
+      return diagnosticStorage.getDiagnostics();
+    } finally {
+      endWalk();
+    }
+  }
+
+  @Override
+  protected void endWalk() {
+    super.endWalk();
+    methodDescriptions = null;
   }
 
   private List<List<Token>> groupComments(List<Token> comments) {
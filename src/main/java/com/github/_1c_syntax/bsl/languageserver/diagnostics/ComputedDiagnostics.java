@@ -0,0 +1,164 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.diagnostics;
+
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Неизменяемый снимок рассчитанных диагностик версии документа.
+ * <p>
+ * Диагностики упорядочены по началу диапазона, для каждого элемента хранится наибольший конец
+ * диапазона среди предшествующих, поэтому поиск по диапазону и проверка наличия диагностики
+ * не перебирают все замечания файла. Дополнительно диагностики сгруппированы по коду.
+ */
+public final class ComputedDiagnostics {
+
+  private static final ComputedDiagnostics EMPTY = new ComputedDiagnostics(0, Collections.emptyList());
+
+  private final long version;
+  private final Diagnostic[] diagnostics;
+  private final long[] starts;
+  private final long[] maxEnds;
+  private final Map<String, List<Diagnostic>> diagnosticsByCode;
+
+  /**
+   * @param version     Версия документа, см. {@link com.github._1c_syntax.bsl.languageserver.context.DocumentContext#getVersion()}.
+   * @param diagnostics Рассчитанные диагностики.
+   */
+  public ComputedDiagnostics(long version, List<Diagnostic> diagnostics) {
+    this.version = version;
+    this.diagnostics = diagnostics.toArray(new Diagnostic[0]);
+    Arrays.sort(this.diagnostics, Comparator.comparingLong((Diagnostic diagnostic) -> toLong(diagnostic.getRange().getStart())));
+
+    int size = this.diagnostics.length;
+    starts = new long[size];
+    maxEnds = new long[size];
+    Map<String, List<Diagnostic>> byCode = new HashMap<>();
+
+    long maxEnd = Long.MIN_VALUE;
+    for (int i = 0; i < size; i++) {
+      Diagnostic diagnostic = this.diagnostics[i];
+      starts[i] = toLong(diagnostic.getRange().getStart());
+      maxEnd = Math.max(maxEnd, toLong(diagnostic.getRange().getEnd()));
+      maxEnds[i] = maxEnd;
+      byCode.computeIfAbsent(diagnostic.getCode(), code -> new ArrayList<>()).add(diagnostic);
+    }
+
+    byCode.replaceAll((String code, List<Diagnostic> codeDiagnostics) -> Collections.unmodifiableList(codeDiagnostics));
+    diagnosticsByCode = byCode;
+  }
+
+  public static ComputedDiagnostics empty() {
+    return EMPTY;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public int size() {
+    return diagnostics.length;
+  }
+
+  public boolean isEmpty() {
+    return diagnostics.length == 0;
+  }
+
+  /**
+   * @return Все диагностики в порядке начала их диапазонов.
+   */
+  public List<Diagnostic> getDiagnostics() {
+    return Collections.unmodifiableList(Arrays.asList(diagnostics));
+  }
+
+  /**
+   * @param code Код диагностики.
+   * @return Диагностики с указанным кодом.
+   */
+  public List<Diagnostic> getDiagnostics(String code) {
+    return diagnosticsByCode.getOrDefault(code, Collections.emptyList());
+  }
+
+  /**
+   * @param range Диапазон.
+   * @return Диагностики, диапазон которых пересекается с указанным, включая касание границ.
+   */
+  public List<Diagnostic> getDiagnostics(Range range) {
+    long rangeStart = toLong(range.getStart());
+    long rangeEnd = toLong(range.getEnd());
+
+    List<Diagnostic> result = new ArrayList<>();
+    for (int i = lastStartingAtOrBefore(rangeEnd); i >= 0 && maxEnds[i] >= rangeStart; i--) {
+      if (toLong(diagnostics[i].getRange().getEnd()) >= rangeStart) {
+        result.add(diagnostics[i]);
+      }
+    }
+    Collections.reverse(result);
+
+    return result;
+  }
+
+  public boolean contains(Diagnostic diagnostic) {
+    Range range = diagnostic.getRange();
+    if (range == null || range.getStart() == null) {
+      return false;
+    }
+
+    long start = toLong(range.getStart());
+    for (int i = lastStartingAtOrBefore(start); i >= 0 && starts[i] == start; i--) {
+      if (diagnostics[i].equals(diagnostic)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int lastStartingAtOrBefore(long position) {
+    int low = 0;
+    int high = starts.length - 1;
+    int result = -1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (starts[middle] <= position) {
+        result = middle;
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return result;
+  }
+
+  private static long toLong(Position position) {
+    return ((long) position.getLine() << Integer.SIZE) | (position.getCharacter() & 0xFFFFFFFFL);
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.diagnostics;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.parser.BSLParser;
+import lombok.Value;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.RuleNode;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.lsp4j.Diagnostic;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Расчет диагностик с совместным обходом дерева разбора.
+ * <p>
+ * Диагностики-визиторы и диагностики-листенеры не обходят дерево самостоятельно:
+ * дерево обходится один раз, и каждое событие входа/выхода/посещения узла передается
+ * только тем диагностикам, которые на него подписаны. Подписка определяется по переопределенным
+ * методам visitXxx/enterXxx/exitXxx. Если визитор не вызвал обход дочерних узлов
+ * (вернул ctx вместо super.visitXxx), поддерево для него пропускается.
+ * <p>
+ * Диагностики, переопределяющие getDiagnostics, рассчитываются отдельно, как и раньше.
+ */
+public final class DiagnosticDispatcher {
+
+  private static final Map<String, Integer> RULE_INDICES = createRuleIndices();
+  private static final Map<Class<? extends BSLDiagnostic>, Subscription> SUBSCRIPTIONS = new ConcurrentHashMap<>();
+
+  private final List<BSLDiagnostic> diagnostics;
+  private final List<AbstractVisitorDiagnostic> visitors = new ArrayList<>();
+  private final List<AbstractListenerDiagnostic> listeners = new ArrayList<>();
+  private final Map<BSLDiagnostic, BitSet> subscribedRules = new IdentityHashMap<>();
+
+  public DiagnosticDispatcher(List<BSLDiagnostic> diagnostics) {
+    this.diagnostics = new ArrayList<>(diagnostics);
+
+    for (BSLDiagnostic diagnostic : this.diagnostics) {
+      Subscription subscription = getSubscription(diagnostic.getClass());
+      if (!subscription.isDispatched()) {
+        continue;
+      }
+      subscribedRules.put(diagnostic, subscription.getRules());
+      if (diagnostic instanceof AbstractVisitorDiagnostic) {
+        visitors.add((AbstractVisitorDiagnostic) diagnostic);
+      } else {
+        listeners.add((AbstractListenerDiagnostic) diagnostic);
+      }
+    }
+  }
+
+  /**
+   * Рассчитывает диагностики документа.
+   *
+   * @param documentContext контекст документа
+   * @return список замечаний в порядке следования диагностик
+   */
+  public List<Diagnostic> getDiagnostics(DocumentContext documentContext) {
+    try {
+      if (!subscribedRules.isEmpty()) {
+        visitors.forEach(visitor -> visitor.beginWalk(documentContext));
+        listeners.forEach(listener -> listener.beginWalk(documentContext));
+        walk(documentContext.getAst(), visitors);
+      }
+
+      return diagnostics.parallelStream()
+        .flatMap(diagnostic -> getDiagnostics(diagnostic, documentContext).stream())
+        .collect(Collectors.toList());
+    } finally {
+      visitors.forEach(AbstractVisitorDiagnostic::endWalk);
+      listeners.forEach(AbstractListenerDiagnostic::endWalk);
+    }
+  }
+
+  public static boolean isDispatched(Class<? extends BSLDiagnostic> diagnosticClass) {
+    return getSubscription(diagnosticClass).isDispatched();
+  }
+
+  private List<Diagnostic> getDiagnostics(BSLDiagnostic diagnostic, DocumentContext documentContext) {
+    if (diagnostic instanceof AbstractVisitorDiagnostic && subscribedRules.containsKey(diagnostic)) {
+      return ((AbstractVisitorDiagnostic) diagnostic).diagnosticStorage.getDiagnostics();
+    }
+    if (diagnostic instanceof AbstractListenerDiagnostic && subscribedRules.containsKey(diagnostic)) {
+      return ((AbstractListenerDiagnostic) diagnostic).diagnosticStorage.getDiagnostics();
+    }
+    return diagnostic.getDiagnostics(documentContext);
+  }
+
+  private void walk(ParseTree tree, List<AbstractVisitorDiagnostic> activeVisitors) {
+    if (tree instanceof ErrorNode) {
+      listeners.forEach(listener -> listener.visitErrorNode((ErrorNode) tree));
+      return;
+    }
+    if (tree instanceof TerminalNode) {
+      listeners.forEach(listener -> listener.visitTerminal((TerminalNode) tree));
+      return;
+    }
+
+    RuleNode ruleNode = (RuleNode) tree;
+    ParserRuleContext ctx = (ParserRuleContext) ruleNode.getRuleContext();
+    int ruleIndex = ctx.getRuleIndex();
+
+    for (AbstractListenerDiagnostic listener : listeners) {
+      listener.enterEveryRule(ctx);
+      if (subscribedRules.get(listener).get(ruleIndex)) {
+        ctx.enterRule(listener);
+      }
+    }
+
+    List<AbstractVisitorDiagnostic> descendingVisitors = activeVisitors;
+    for (int i = 0; i < activeVisitors.size(); i++) {
+      AbstractVisitorDiagnostic visitor = activeVisitors.get(i);
+      boolean descend = !subscribedRules.get(visitor).get(ruleIndex) || visitor.visitDispatched(ruleNode);
+      if (!descend && descendingVisitors == activeVisitors) {
+        descendingVisitors = new ArrayList<>(activeVisitors.subList(0, i));
+      } else if (descend && descendingVisitors != activeVisitors) {
+        descendingVisitors.add(visitor);
+      }
+    }
+
+    if (!listeners.isEmpty() || !descendingVisitors.isEmpty()) {
+      int childCount = ruleNode.getChildCount();
+      for (int i = 0; i < childCount; i++) {
+        walk(ruleNode.getChild(i), descendingVisitors);
+      }
+    }
+
+    for (AbstractListenerDiagnostic listener : listeners) {
+      if (subscribedRules.get(listener).get(ruleIndex)) {
+        ctx.exitRule(listener);
+      }
+      listener.exitEveryRule(ctx);
+    }
+  }
+
+  private static Subscription getSubscription(Class<? extends BSLDiagnostic> diagnosticClass) {
+    return SUBSCRIPTIONS.computeIfAbsent(diagnosticClass, DiagnosticDispatcher::createSubscription);
+  }
+
+  private static Subscription createSubscription(Class<? extends BSLDiagnostic> diagnosticClass) {
+    Class<?> baseClass;
+    if (AbstractVisitorDiagnostic.class.isAssignableFrom(diagnosticClass)) {
+      baseClass = AbstractVisitorDiagnostic.class;
+    } else if (AbstractListenerDiagnostic.class.isAssignableFrom(diagnosticClass)) {
+      baseClass = AbstractListenerDiagnostic.class;
+    } else {
+      return Subscription.NOT_DISPATCHED;
+    }
+
+    if (overridesGetDiagnostics(diagnosticClass, baseClass)) {
+      return Subscription.NOT_DISPATCHED;
+    }
+
+    BitSet rules = new BitSet(BSLParser.ruleNames.length);
+    for (Class<?> aClass = diagnosticClass; aClass != baseClass; aClass = aClass.getSuperclass()) {
+      for (Method method : aClass.getDeclaredMethods()) {
+        if (method.isBridge() || method.getParameterCount() != 1) {
+          continue;
+        }
+        String methodName = method.getName();
+        if ("enterEveryRule".equals(methodName) || "exitEveryRule".equals(methodName)) {
+          rules.set(0, BSLParser.ruleNames.length);
+        }
+        subscribeRule(rules, methodName, "visit");
+        subscribeRule(rules, methodName, "enter");
+        subscribeRule(rules, methodName, "exit");
+      }
+    }
+
+    return new Subscription(true, rules);
+  }
+
+  private static boolean overridesGetDiagnostics(Class<?> diagnosticClass, Class<?> baseClass) {
+    try {
+      return diagnosticClass.getMethod("getDiagnostics", DocumentContext.class).getDeclaringClass() != baseClass;
+    } catch (NoSuchMethodException e) {
+      return true;
+    }
+  }
+
+  private static void subscribeRule(BitSet rules, String methodName, String prefix) {
+    if (methodName.startsWith(prefix)) {
+      Integer ruleIndex = RULE_INDICES.get(methodName.substring(prefix.length()));
+      if (ruleIndex != null) {
+        rules.set(ruleIndex);
+      }
+    }
+  }
+
+  private static Map<String, Integer> createRuleIndices() {
+    Map<String, Integer> ruleIndices = new HashMap<>();
+    for (int i = 0; i < BSLParser.ruleNames.length; i++) {
+      ruleIndices.put(StringUtils.capitalize(BSLParser.ruleNames[i]), i);
+    }
+    return Collections.unmodifiableMap(ruleIndices);
+  }
+
+  @Value
+  private static class Subscription {
+
+    private static final Subscription NOT_DISPATCHED = new Subscription(false, new BitSet());
+
+    boolean dispatched;
+    BitSet rules;
+  }
+}
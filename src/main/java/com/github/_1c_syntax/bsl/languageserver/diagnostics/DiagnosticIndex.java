@@ -0,0 +1,177 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.diagnostics;
+
+import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticMetadata;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Индекс классов диагностик, формируемый при сборке.
+ * <p>
+ * Задача сборки {@code generateDiagnosticIndex} по скомпилированным классам записывает в ресурс
+ * {@link #INDEX_RESOURCE} полные имена всех классов пакета диагностик, помеченных {@link DiagnosticMetadata},
+ * по одному на строку. Чтение индекса заменяет сканирование classpath при запуске. Если ресурса нет
+ * (например, запуск из IDE без сборки) или индекс не соответствует загруженным классам или ресурсам
+ * диагностик, возвращается пустой результат и вызывающая сторона должна выполнить сканирование самостоятельно.
+ */
+public final class DiagnosticIndex {
+
+  public static final String INDEX_RESOURCE = "diagnostics.index";
+
+  private static final String PACKAGE_PATH = BSLDiagnostic.class.getPackage().getName().replace('.', '/');
+  private static final String RESOURCES_SUFFIX = "_ru.properties";
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DiagnosticIndex.class.getSimpleName());
+
+  private DiagnosticIndex() {
+    // only statics
+  }
+
+  public static Optional<List<Class<? extends BSLDiagnostic>>> read() {
+    try (InputStream inputStream = BSLDiagnostic.class.getResourceAsStream(INDEX_RESOURCE)) {
+      if (inputStream == null) {
+        return Optional.empty();
+      }
+
+      ClassLoader classLoader = BSLDiagnostic.class.getClassLoader();
+      Optional<List<Class<? extends BSLDiagnostic>>> diagnosticClasses = read(inputStream, classLoader);
+      if (diagnosticClasses.isPresent()
+        && !matchesResources(diagnosticClasses.get(), Collections.list(classLoader.getResources(PACKAGE_PATH)))) {
+        return Optional.empty();
+      }
+      return diagnosticClasses;
+    } catch (IOException e) {
+      LOGGER.warn("Can't read diagnostic index", e);
+      return Optional.empty();
+    }
+  }
+
+  static Optional<List<Class<? extends BSLDiagnostic>>> read(
+    InputStream inputStream,
+    ClassLoader classLoader
+  ) throws IOException {
+
+    List<Class<? extends BSLDiagnostic>> diagnosticClasses = new ArrayList<>();
+
+    for (String line : IOUtils.readLines(inputStream, StandardCharsets.UTF_8)) {
+      String className = line.trim();
+      if (className.isEmpty() || className.startsWith("#")) {
+        continue;
+      }
+
+      Optional<Class<? extends BSLDiagnostic>> diagnosticClass = loadClass(className, classLoader);
+      if (!diagnosticClass.isPresent()) {
+        return Optional.empty();
+      }
+      diagnosticClasses.add(diagnosticClass.get());
+    }
+
+    if (diagnosticClasses.isEmpty()) {
+      return Optional.empty();
+    }
+
+    return Optional.of(diagnosticClasses);
+  }
+
+  /**
+   * Проверка индекса по ресурсам диагностик: у каждой диагностики есть файл {@code <Имя класса>_ru.properties}.
+   * <p>
+   * Устаревший индекс не содержит новых диагностик, поэтому их нельзя обнаружить по самому индексу.
+   * Ресурсы проверяются только в каталогах пакета диагностик (запуск из IDE или тестов), где классы
+   * и ресурсы могли быть пересобраны без индекса. В архиве индекс собран вместе с классами.
+   *
+   * @param diagnosticClasses классы диагностик из индекса
+   * @param packageUrls       адреса пакета диагностик в classpath
+   * @return Признак того, что набор диагностик индекса совпадает с набором ресурсов диагностик.
+   */
+  static boolean matchesResources(
+    Collection<Class<? extends BSLDiagnostic>> diagnosticClasses,
+    Collection<URL> packageUrls
+  ) {
+    Set<String> resourceNames = new HashSet<>();
+    for (URL packageUrl : packageUrls) {
+      if (!"file".equals(packageUrl.getProtocol())) {
+        continue;
+      }
+
+      File[] resourceFiles = FileUtils.toFile(packageUrl).listFiles((dir, name) -> name.endsWith(RESOURCES_SUFFIX));
+      if (resourceFiles == null) {
+        continue;
+      }
+      for (File resourceFile : resourceFiles) {
+        resourceNames.add(StringUtils.removeEnd(resourceFile.getName(), RESOURCES_SUFFIX));
+      }
+    }
+
+    if (resourceNames.isEmpty()) {
+      return true;
+    }
+
+    Set<String> indexedNames = diagnosticClasses.stream()
+      .map(Class::getSimpleName)
+      .collect(Collectors.toSet());
+
+    if (!indexedNames.equals(resourceNames)) {
+      LOGGER.warn("Diagnostic index is out of date: it doesn't match diagnostic resources");
+      return false;
+    }
+
+    return true;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Optional<Class<? extends BSLDiagnostic>> loadClass(String className, ClassLoader classLoader) {
+    Class<?> aClass;
+    try {
+      aClass = Class.forName(className, false, classLoader);
+    } catch (ClassNotFoundException | LinkageError e) {
+      LOGGER.warn("Diagnostic index is out of date: can't load class {}", className);
+      return Optional.empty();
+    }
+
+    if (!BSLDiagnostic.class.isAssignableFrom(aClass) || !aClass.isAnnotationPresent(DiagnosticMetadata.class)) {
+      LOGGER.warn("Diagnostic index is out of date: {} is not a diagnostic", className);
+      return Optional.empty();
+    }
+
+    return Optional.of((Class<? extends BSLDiagnostic>) aClass);
+  }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.diagnostics;
+
+import com.github._1c_syntax.bsl.languageserver.configuration.DiagnosticLanguage;
+import com.github._1c_syntax.bsl.languageserver.providers.DiagnosticProvider;
+import com.github._1c_syntax.bsl.languageserver.utils.MessageTemplate;
+import com.github._1c_syntax.bsl.languageserver.utils.UTF8Control;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Локализованные строки диагностики: сообщения, имя, описание.
+ * <p>
+ * Ресурсы всех языков читаются один раз при первом обращении к классу диагностики (для известных
+ * диагностик - при запуске, см. {@link #preload(Collection)}) и далее не меняются. Шаблон сообщения
+ * разбирается заранее, поэтому создание замечания не обращается к {@link ResourceBundle}.
+ */
+public final class DiagnosticResources {
+
+  private static final String DIAGNOSTIC_MESSAGE_KEY = "diagnosticMessage";
+  private static final String DIAGNOSTIC_NAME_KEY = "diagnosticName";
+  private static final DiagnosticLanguage DEFAULT_LANGUAGE = DiagnosticLanguage.RU;
+
+  private static final Map<Class<? extends BSLDiagnostic>, DiagnosticResources> RESOURCES = new ConcurrentHashMap<>();
+
+  private final String bundleName;
+  private final Map<DiagnosticLanguage, LanguageResources> languages;
+
+  private DiagnosticResources(Class<? extends BSLDiagnostic> diagnosticClass) {
+    bundleName = diagnosticClass.getName();
+
+    Map<DiagnosticLanguage, LanguageResources> languagesTemp = new EnumMap<>(DiagnosticLanguage.class);
+    for (DiagnosticLanguage language : DiagnosticLanguage.values()) {
+      languagesTemp.put(language, new LanguageResources(diagnosticClass, language));
+    }
+    languages = Collections.unmodifiableMap(languagesTemp);
+  }
+
+  public static DiagnosticResources get(Class<? extends BSLDiagnostic> diagnosticClass) {
+    return RESOURCES.computeIfAbsent(diagnosticClass, DiagnosticResources::new);
+  }
+
+  public static void preload(Collection<Class<? extends BSLDiagnostic>> diagnosticClasses) {
+    diagnosticClasses.forEach(DiagnosticResources::get);
+  }
+
+  /**
+   * Язык сообщений диагностик по локали по умолчанию.
+   * Локаль устанавливается по настройке {@code diagnosticLanguage} при запуске сервера.
+   */
+  public static DiagnosticLanguage getCurrentLanguage() {
+    String languageCode = Locale.getDefault().getLanguage();
+    for (DiagnosticLanguage language : DiagnosticLanguage.values()) {
+      if (language.getLanguageCode().equals(languageCode)) {
+        return language;
+      }
+    }
+    return DEFAULT_LANGUAGE;
+  }
+
+  /**
+   * @throws MissingResourceException если строки с таким ключом нет.
+   */
+  public String getString(DiagnosticLanguage language, String key) {
+    String value = languages.get(language).strings.get(key);
+    if (value == null) {
+      throw new MissingResourceException(
+        "Can't find resource for bundle " + bundleName + ", key " + key,
+        bundleName,
+        key
+      );
+    }
+    return value;
+  }
+
+  public String getMessage(DiagnosticLanguage language) {
+    return getString(language, DIAGNOSTIC_MESSAGE_KEY);
+  }
+
+  public String getMessage(DiagnosticLanguage language, Object... args) {
+    MessageTemplate messageTemplate = languages.get(language).messageTemplate;
+    if (messageTemplate == null) {
+      return String.format(getMessage(language), args);
+    }
+    return messageTemplate.format(args);
+  }
+
+  public String getName(DiagnosticLanguage language) {
+    return getString(language, DIAGNOSTIC_NAME_KEY);
+  }
+
+  /**
+   * @return Описание диагностики в формате markdown или пустая строка, если описания нет.
+   */
+  public String getDescription(DiagnosticLanguage language) {
+    return languages.get(language).description;
+  }
+
+  private static final class LanguageResources {
+    private final Map<String, String> strings;
+    private final MessageTemplate messageTemplate;
+    private final String description;
+
+    private LanguageResources(Class<? extends BSLDiagnostic> diagnosticClass, DiagnosticLanguage language) {
+      strings = readStrings(diagnosticClass, language);
+
+      String message = strings.get(DIAGNOSTIC_MESSAGE_KEY);
+      messageTemplate = message == null ? null : MessageTemplate.compile(message);
+
+      description = readDescription(diagnosticClass, language);
+    }
+
+    private static Map<String, String> readStrings(
+      Class<? extends BSLDiagnostic> diagnosticClass,
+      DiagnosticLanguage language
+    ) {
+      ResourceBundle bundle;
+      try {
+        bundle = ResourceBundle.getBundle(
+          diagnosticClass.getName(),
+          Locale.forLanguageTag(language.getLanguageCode()),
+          new UTF8Control()
+        );
+      } catch (MissingResourceException e) {
+        return Collections.emptyMap();
+      }
+
+      Map<String, String> stringsTemp = new HashMap<>();
+      bundle.keySet().forEach(key -> stringsTemp.put(key, bundle.getString(key)));
+      return Collections.unmodifiableMap(stringsTemp);
+    }
+
+    private static String readDescription(Class<? extends BSLDiagnostic> diagnosticClass, DiagnosticLanguage language) {
+      String diagnosticCode = DiagnosticProvider.getDiagnosticCode(diagnosticClass);
+      try (InputStream descriptionStream = diagnosticClass.getResourceAsStream(
+        language.getLanguageCode() + "/" + diagnosticCode + ".md"
+      )) {
+        if (descriptionStream == null) {
+          return "";
+        }
+        return IOUtils.toString(descriptionStream, StandardCharsets.UTF_8);
+      } catch (IOException e) {
+        return "";
+      }
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.diagnostics;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.context.computer.CloneFingerprintComputer;
+import com.github._1c_syntax.bsl.languageserver.context.index.CodeClone;
+import com.github._1c_syntax.bsl.languageserver.context.index.ModuleFingerprints;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticMetadata;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticParameter;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticSeverity;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticTag;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticType;
+import com.github._1c_syntax.bsl.languageserver.utils.RelatedInformation;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticRelatedInformation;
+import org.eclipse.lsp4j.Location;
+import org.eclipse.lsp4j.Range;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Поиск фрагментов кода, повторяющихся в модуле или в других модулях рабочей области.
+ * <p>
+ * Фрагменты сравниваются с точностью до имен и значений литералов по отпечаткам
+ * из {@link com.github._1c_syntax.bsl.languageserver.context.index.WorkspaceCloneIndex}.
+ */
+@DiagnosticMetadata(
+  type = DiagnosticType.CODE_SMELL,
+  severity = DiagnosticSeverity.MINOR,
+  minutesToFix = 10,
+  activatedByDefault = false,
+  tags = {
+    DiagnosticTag.BADPRACTICE
+  }
+)
+public class DuplicatedCodeDiagnostic implements BSLDiagnostic {
+
+  private static final int MIN_TOKENS = 100;
+
+  @DiagnosticParameter(
+    type = Integer.class,
+    defaultValue = "" + MIN_TOKENS,
+    description = "Минимальное количество лексем в повторяющемся фрагменте (не менее 50)"
+  )
+  private int minTokens = MIN_TOKENS;
+
+  @Override
+  public void configure(Map<String, Object> configuration) {
+    if (configuration == null) {
+      return;
+    }
+    // более короткие фрагменты находятся не всегда: отпечатки отбираются выборочно
+    minTokens = Math.max(
+      CloneFingerprintComputer.GUARANTEED_CLONE_LENGTH,
+      (int) configuration.getOrDefault("minTokens", minTokens)
+    );
+  }
+
+  @Override
+  public List<Diagnostic> getDiagnostics(DocumentContext documentContext) {
+    ModuleFingerprints fingerprints = new CloneFingerprintComputer(documentContext).compute();
+    List<CodeClone> clones = documentContext.getServerContext()
+      .getWorkspaceCloneIndex()
+      .findClones(fingerprints, minTokens)
+      .stream()
+      .sorted(Comparator.comparingInt(CodeClone::getStart))
+      .collect(Collectors.toList());
+
+    List<Diagnostic> diagnostics = new ArrayList<>();
+
+    // пересекающиеся фрагменты объединяются в одно замечание со всеми копиями
+    List<CodeClone> group = new ArrayList<>();
+    int groupEnd = 0;
+    for (CodeClone clone : clones) {
+      if (!group.isEmpty() && clone.getStart() >= groupEnd) {
+        diagnostics.add(createDiagnostic(documentContext, group));
+        group = new ArrayList<>();
+      }
+      groupEnd = group.isEmpty() ? clone.getEnd() : Math.max(groupEnd, clone.getEnd());
+      group.add(clone);
+    }
+    if (!group.isEmpty()) {
+      diagnostics.add(createDiagnostic(documentContext, group));
+    }
+
+    return diagnostics;
+  }
+
+  private Diagnostic createDiagnostic(DocumentContext documentContext, List<CodeClone> clones) {
+    CodeClone first = clones.get(0);
+    CodeClone last = clones.stream()
+      .max(Comparator.comparingInt(CodeClone::getEnd))
+      .orElse(first);
+
+    Set<Location> copies = new LinkedHashSet<>();
+    clones.forEach(clone -> copies.add(clone.getCopy()));
+
+    Range range = new Range(first.getRange().getStart(), last.getRange().getEnd());
+    String relatedMessage = getResourceString("duplicatedCodeRelatedMessage");
+
+    List<DiagnosticRelatedInformation> relatedInformation = new ArrayList<>();
+    relatedInformation.add(RelatedInformation.create(documentContext.getUri(), range, relatedMessage));
+    copies.stream()
+      .map(copy -> new DiagnosticRelatedInformation(copy, relatedMessage))
+      .collect(Collectors.toCollection(() -> relatedInformation));
+
+    return BSLDiagnostic.createDiagnostic(
+      this,
+      range,
+      getDiagnosticMessage(last.getEnd() - first.getStart(), copies.size()),
+      relatedInformation
+    );
+  }
+}
@@ -57,6 +57,7 @@ public class EmptyStatementDiagnostic extends AbstractVisitorDiagnostic implemen
       && ctx.SEMICOLON() != null
       && !Trees.findErrorNode(
       Trees.getPreviousNode(
+        documentContext,
         Trees.getRootParent(ctx),
         ctx,
         BSLParser.RULE_statement))) {
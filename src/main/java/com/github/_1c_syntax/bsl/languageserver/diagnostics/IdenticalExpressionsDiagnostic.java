@@ -26,10 +26,12 @@ import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticS
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticTag;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticType;
 import com.github._1c_syntax.bsl.languageserver.utils.DiagnosticHelper;
+import com.github._1c_syntax.bsl.languageserver.utils.NodeIndex;
 import com.github._1c_syntax.bsl.parser.BSLParser;
 import org.antlr.v4.runtime.tree.ParseTree;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @DiagnosticMetadata(
@@ -55,9 +57,16 @@ public class IdenticalExpressionsDiagnostic extends AbstractVisitorDiagnostic {
 
     List<BSLParser.MemberContext> onlyMembers = ctx.member();
 
+    // сравниваются только члены выражения с одинаковым структурным хэшем
+    NodeIndex nodeIndex = documentContext.getNodeIndex();
+    Map<Integer, List<BSLParser.MemberContext>> membersByHash = onlyMembers
+      .stream()
+      .collect(Collectors.groupingBy(nodeIndex::getHash));
+
     List<ParseTree> identicalExpressions = onlyMembers
       .stream()
-      .filter((ParseTree t) -> onlyMembers
+      .filter((ParseTree t) -> membersByHash.get(nodeIndex.getHash(t)).size() > 1)
+      .filter((ParseTree t) -> membersByHash.get(nodeIndex.getHash(t))
         .stream()
         .filter((ParseTree p) -> DiagnosticHelper.equalNodes(t, p)).count() > 1)
       .collect((Collectors.toList()));
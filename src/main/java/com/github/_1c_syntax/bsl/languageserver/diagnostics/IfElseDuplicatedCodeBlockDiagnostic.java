@@ -26,6 +26,7 @@ import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticS
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticTag;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticType;
 import com.github._1c_syntax.bsl.languageserver.utils.DiagnosticHelper;
+import com.github._1c_syntax.bsl.languageserver.utils.NodeIndex;
 import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
 import com.github._1c_syntax.bsl.languageserver.utils.RelatedInformation;
 import com.github._1c_syntax.bsl.parser.BSLParser;
@@ -33,8 +34,10 @@ import org.antlr.v4.runtime.tree.ParseTree;
 import org.eclipse.lsp4j.DiagnosticRelatedInformation;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -53,6 +56,10 @@ public class IfElseDuplicatedCodeBlockDiagnostic extends AbstractVisitorDiagnost
 
   private final String relatedMessage = getResourceString("identicalCodeBlockRelatedMessage");
   private Set<BSLParser.CodeBlockContext> checkedBlocks = new HashSet<>();
+  /**
+   * Блоки кода текущего условного оператора, сгруппированные по структурному хэшу.
+   */
+  private Map<Integer, List<BSLParser.CodeBlockContext>> codeBlocksByHash = new HashMap<>();
 
   @Override
   public ParseTree visitIfStatement(BSLParser.IfStatementContext ctx) {
@@ -75,19 +82,31 @@ public class IfElseDuplicatedCodeBlockDiagnostic extends AbstractVisitorDiagnost
     return super.visitIfStatement(ctx);
   }
 
+  @Override
+  protected void endWalk() {
+    super.endWalk();
+    checkedBlocks.clear();
+    codeBlocksByHash = new HashMap<>();
+  }
+
   private void findDuplicatedCodeBlock(List<BSLParser.CodeBlockContext> codeBlockContexts) {
+    NodeIndex nodeIndex = documentContext.getNodeIndex();
+    codeBlocksByHash = codeBlockContexts.stream()
+      .collect(Collectors.groupingBy(nodeIndex::getHash));
+
     for (int i = 0; i < codeBlockContexts.size() - 1; i++) {
       if (!checkedBlocks.contains(codeBlockContexts.get(i))) {
-        checkCodeBlock(codeBlockContexts, i);
+        checkCodeBlock(codeBlockContexts.get(i), nodeIndex.getHash(codeBlockContexts.get(i)));
       }
     }
   }
 
-  private void checkCodeBlock(List<BSLParser.CodeBlockContext> codeBlockContexts, int i) {
-    BSLParser.CodeBlockContext currentCodeBlock = codeBlockContexts.get(i);
+  private void checkCodeBlock(BSLParser.CodeBlockContext currentCodeBlock, int hash) {
 
-    List<BSLParser.CodeBlockContext> identicalCodeBlocks = codeBlockContexts.stream()
-      .skip((long) i)
+    // кандидаты - блоки с тем же хэшем после текущего, совпадение подтверждается сравнением деревьев
+    List<BSLParser.CodeBlockContext> sameHashCodeBlocks = codeBlocksByHash.get(hash);
+    List<BSLParser.CodeBlockContext> identicalCodeBlocks = sameHashCodeBlocks.stream()
+      .skip((long) sameHashCodeBlocks.indexOf(currentCodeBlock))
       .filter(codeBlockContext ->
         !codeBlockContext.equals(currentCodeBlock)
           && !(currentCodeBlock.children == null && codeBlockContext.children == null)
@@ -26,6 +26,7 @@ import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticS
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticTag;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticType;
 import com.github._1c_syntax.bsl.languageserver.utils.DiagnosticHelper;
+import com.github._1c_syntax.bsl.languageserver.utils.NodeIndex;
 import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
 import com.github._1c_syntax.bsl.languageserver.utils.RelatedInformation;
 import com.github._1c_syntax.bsl.parser.BSLParser;
@@ -33,8 +34,10 @@ import org.antlr.v4.runtime.tree.ParseTree;
 import org.eclipse.lsp4j.DiagnosticRelatedInformation;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -53,6 +56,10 @@ public class IfElseDuplicatedConditionDiagnostic extends AbstractVisitorDiagnost
 
   private final String relatedMessage = getResourceString("identicalConditionRelatedMessage");
   private Set<BSLParser.ExpressionContext> checkedConditions = new HashSet<>();
+  /**
+   * Условия текущего условного оператора, сгруппированные по структурному хэшу.
+   */
+  private Map<Integer, List<BSLParser.ExpressionContext>> expressionsByHash = new HashMap<>();
 
   @Override
   public ParseTree visitIfStatement(BSLParser.IfStatementContext ctx) {
@@ -70,19 +77,31 @@ public class IfElseDuplicatedConditionDiagnostic extends AbstractVisitorDiagnost
     return super.visitIfStatement(ctx);
   }
 
+  @Override
+  protected void endWalk() {
+    super.endWalk();
+    checkedConditions.clear();
+    expressionsByHash = new HashMap<>();
+  }
+
   private void findDuplicatedExpression(List<BSLParser.ExpressionContext> expressionContexts) {
+    NodeIndex nodeIndex = documentContext.getNodeIndex();
+    expressionsByHash = expressionContexts.stream()
+      .collect(Collectors.groupingBy(nodeIndex::getHash));
+
     for (int i = 0; i < expressionContexts.size() - 1; i++) {
       if (!checkedConditions.contains(expressionContexts.get(i))) {
-        checkExpression(expressionContexts, i);
+        checkExpression(expressionContexts.get(i), nodeIndex.getHash(expressionContexts.get(i)));
       }
     }
   }
 
-  private void checkExpression(List<BSLParser.ExpressionContext> expressionContexts, int i) {
-    BSLParser.ExpressionContext currentExpression = expressionContexts.get(i);
+  private void checkExpression(BSLParser.ExpressionContext currentExpression, int hash) {
 
-    List<BSLParser.ExpressionContext> identicalExpressions = expressionContexts.stream()
-      .skip((long) i)
+    // кандидаты - условия с тем же хэшем после текущего, совпадение подтверждается сравнением деревьев
+    List<BSLParser.ExpressionContext> sameHashExpressions = expressionsByHash.get(hash);
+    List<BSLParser.ExpressionContext> identicalExpressions = sameHashExpressions.stream()
+      .skip((long) sameHashExpressions.indexOf(currentExpression))
       .filter(expressionContext ->
         !expressionContext.equals(currentExpression)
           && DiagnosticHelper.equalNodes(currentExpression, expressionContext))
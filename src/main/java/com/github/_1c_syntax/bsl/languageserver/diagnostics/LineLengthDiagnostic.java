@@ -51,7 +51,6 @@ import java.util.Optional;
 public class LineLengthDiagnostic implements BSLDiagnostic {
 
   private static final int MAX_LINE_LENGTH = 120;
-  private int prevTokenType;
 
   @DiagnosticParameter(
     type = Integer.class,
@@ -75,6 +74,7 @@ public class LineLengthDiagnostic implements BSLDiagnostic {
     List<Diagnostic> diagnostics = new ArrayList<>();
     Map<Integer, List<Integer>> tokensInOneLine = new HashMap<>();
 
+    int prevTokenType = 0;
     for (Token token : tokens) {
       if (token.getType() != BSLLexer.STRINGPART
         && token.getType() != BSLLexer.STRINGTAIL
@@ -30,6 +30,7 @@ import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticT
 import com.github._1c_syntax.bsl.languageserver.providers.CodeActionProvider;
 import com.github._1c_syntax.bsl.parser.BSLLexer;
 import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.Vocabulary;
 import org.eclipse.lsp4j.CodeAction;
 import org.eclipse.lsp4j.CodeActionParams;
 import org.eclipse.lsp4j.Diagnostic;
@@ -37,11 +38,13 @@ import org.eclipse.lsp4j.Range;
 import org.eclipse.lsp4j.TextEdit;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @DiagnosticMetadata(
   type = DiagnosticType.CODE_SMELL,
@@ -64,28 +67,38 @@ public class MissingSpaceDiagnostic extends AbstractVisitorDiagnostic implements
   // Разрешить несколько запятых подряд
   private static final boolean DEFAULT_ALLOW_MULTIPLE_COMMAS = false;
 
-  private final String[] sampleMessage = new String[3];
+  // Унарным считаем знак, если перед ним (пропуская пробельные символы) находится один из этих символов
+  private static final String LIST_BEFORE_UNARY_CHAR = "+ - * / = % < > ( [ , Возврат <> <= >=";
+  // Пробельные символы, соответствующие классу \s регулярных выражений
+  private static final String SPACE_CHARS = " \t\n\u000B\f\r";
+
+  private static final Map<String, BitSet> LITERAL_TOKEN_TYPES = createLiteralTokenTypes();
+  private static final TokenMatcher UNARY_CHAR_PREDECESSORS = TokenMatcher.compile(LIST_BEFORE_UNARY_CHAR);
+
+  private final String wordLeft = getResourceString("wordLeft");                 // "Слева"
+  private final String wordRight = getResourceString("wordRight");               // "Справа"
+  private final String wordLeftAndRight = getResourceString("wordLeftAndRight"); // "Слева и справа"
 
   @DiagnosticParameter(
     type = String.class,
     defaultValue = "" + DEFAULT_LIST_FOR_CHECK_LEFT,
     description = "Список символов для проверки слева (разделенные пробелом). Например: ) ="
   )
-  private String listForCheckLeft = getRegularString(DEFAULT_LIST_FOR_CHECK_LEFT);
+  private String listForCheckLeft = DEFAULT_LIST_FOR_CHECK_LEFT;
 
   @DiagnosticParameter(
     type = String.class,
     defaultValue = "" + DEFAULT_LIST_FOR_CHECK_RIGHT,
     description = "Список символов для проверки справа (разделенные пробелом). Например: ( ="
   )
-  private String listForCheckRight = getRegularString(DEFAULT_LIST_FOR_CHECK_RIGHT);
+  private String listForCheckRight = DEFAULT_LIST_FOR_CHECK_RIGHT;
 
   @DiagnosticParameter(
     type = String.class,
     defaultValue = "" + DEFAULT_LIST_FOR_CHECK_LEFT_AND_RIGHT,
     description = "Список символов для проверки с обоих сторон (разделенные пробелом). Например: + - * / = % < >"
   )
-  private String listForCheckLeftAndRight = getRegularString(DEFAULT_LIST_FOR_CHECK_LEFT_AND_RIGHT);
+  private String listForCheckLeftAndRight = DEFAULT_LIST_FOR_CHECK_LEFT_AND_RIGHT;
 
   @DiagnosticParameter(
     type = Boolean.class,
@@ -101,68 +114,59 @@ public class MissingSpaceDiagnostic extends AbstractVisitorDiagnostic implements
   )
   private Boolean allowMultipleCommas = DEFAULT_ALLOW_MULTIPLE_COMMAS;
 
-  private Pattern patternL = compilePattern(listForCheckLeft);
-  private Pattern patternR = compilePattern(listForCheckRight);
-  private Pattern patternLr = compilePattern(listForCheckLeftAndRight);
-  private Pattern patternNotSpace = compilePattern("\\S+");
+  private TokenMatcher matcherL = TokenMatcher.compile(listForCheckLeft);
+  private TokenMatcher matcherR = TokenMatcher.compile(listForCheckRight);
+  private TokenMatcher matcherLr = TokenMatcher.compile(listForCheckLeftAndRight);
 
   @Override
   public List<Diagnostic> getDiagnostics(DocumentContext documentContext) {
 
-    sampleMessage[0] = getResourceString("wordLeft");         // "Слева"
-    sampleMessage[1] = getResourceString("wordRight");        // "Справа"
-    sampleMessage[2] = getResourceString("wordLeftAndRight"); // "Слева и справа"
-
     diagnosticStorage.clearDiagnostics();
 
     List<Token> tokens = documentContext.getTokens();
-    List<Token> foundTokens;
 
-    // проверяем слева
-    if (patternL != null) {
-      foundTokens = findTokensByPattern(tokens, patternL);
-
-      foundTokens.stream()
-        .filter((Token t) -> noSpaceLeft(tokens, t))
-        .forEach((Token t) ->
-          diagnosticStorage.addDiagnostic(t, getErrorMessage(0, t.getText()))
-        );
-    }
+    // Токены собираются за один проход, но замечания выдаются в прежнем порядке:
+    // сначала слева, затем справа, затем по символам, проверяемым с обеих сторон
+    List<Token> missedLeft = new ArrayList<>();
+    List<Token> missedRight = new ArrayList<>();
+    List<Token> missedLrLeft = new ArrayList<>();
+    List<Token> missedLrRight = new ArrayList<>();
+    List<Token> missedLrBoth = new ArrayList<>();
+
+    for (Token token : tokens) {
+      boolean checkLeft = matcherL.matches(token);
+      boolean checkRight = matcherR.matches(token);
+      boolean checkLr = matcherLr.matches(token);
+
+      if (!checkLeft && !checkRight && !checkLr) {
+        continue;
+      }
 
-    // проверяем справа
-    if (patternR != null) {
-      foundTokens = findTokensByPattern(tokens, patternR);
+      boolean noSpaceLeft = (checkLeft || checkLr) && noSpaceLeft(tokens, token);
+      boolean noSpaceRight = (checkRight || checkLr) && noSpaceRight(tokens, token);
 
-      foundTokens.stream()
-        .filter((Token t) -> noSpaceRight(tokens, t))
-        .forEach((Token t) ->
-          diagnosticStorage.addDiagnostic(t, getErrorMessage(1, t.getText()))
-        );
+      if (checkLeft && noSpaceLeft) {
+        missedLeft.add(token);
+      }
+      if (checkRight && noSpaceRight) {
+        missedRight.add(token);
+      }
+      if (checkLr) {
+        if (noSpaceLeft && noSpaceRight) {
+          missedLrBoth.add(token);
+        } else if (noSpaceLeft) {
+          missedLrLeft.add(token);
+        } else if (noSpaceRight) {
+          missedLrRight.add(token);
+        }
+      }
     }
 
-    // проверяем слева и справа
-    if (patternLr != null) {
-      foundTokens = findTokensByPattern(tokens, patternLr);
-
-      foundTokens.stream()
-        .filter((Token t) -> noSpaceLeft(tokens, t) && !noSpaceRight(tokens, t))
-        .forEach((Token t) ->
-          diagnosticStorage.addDiagnostic(t, getErrorMessage(0, t.getText()))
-        );
-
-      foundTokens.stream()
-        .filter((Token t) -> !noSpaceLeft(tokens, t) && noSpaceRight(tokens, t))
-        .forEach((Token t) ->
-          diagnosticStorage.addDiagnostic(t, getErrorMessage(1, t.getText()))
-        );
-
-      foundTokens.stream()
-        .filter((Token t) -> noSpaceLeft(tokens, t) && noSpaceRight(tokens, t))
-        .forEach((Token t) ->
-          diagnosticStorage.addDiagnostic(t, getErrorMessage(2, t.getText()))
-        );
-
-    }
+    missedLeft.forEach((Token t) -> diagnosticStorage.addDiagnostic(t, getErrorMessage(wordLeft, t)));
+    missedRight.forEach((Token t) -> diagnosticStorage.addDiagnostic(t, getErrorMessage(wordRight, t)));
+    missedLrLeft.forEach((Token t) -> diagnosticStorage.addDiagnostic(t, getErrorMessage(wordLeft, t)));
+    missedLrRight.forEach((Token t) -> diagnosticStorage.addDiagnostic(t, getErrorMessage(wordRight, t)));
+    missedLrBoth.forEach((Token t) -> diagnosticStorage.addDiagnostic(t, getErrorMessage(wordLeftAndRight, t)));
 
     return diagnosticStorage.getDiagnostics();
   }
@@ -173,20 +177,17 @@ public class MissingSpaceDiagnostic extends AbstractVisitorDiagnostic implements
       return;
     }
 
-    String listLParam =
+    listForCheckLeft =
       (String) configuration.getOrDefault("listForCheckLeft", DEFAULT_LIST_FOR_CHECK_LEFT);
-    listForCheckLeft = getRegularString(listLParam);
-    patternL = compilePattern(listForCheckLeft);
+    matcherL = TokenMatcher.compile(listForCheckLeft);
 
-    String listRParam =
+    listForCheckRight =
       (String) configuration.getOrDefault("listForCheckRight", DEFAULT_LIST_FOR_CHECK_RIGHT);
-    listForCheckRight = getRegularString(listRParam);
-    patternR = compilePattern(listForCheckRight);
+    matcherR = TokenMatcher.compile(listForCheckRight);
 
-    String listLRParam =
+    listForCheckLeftAndRight =
       (String) configuration.getOrDefault("listForCheckLeftAndRight", DEFAULT_LIST_FOR_CHECK_LEFT_AND_RIGHT);
-    listForCheckLeftAndRight = getRegularString(listLRParam);
-    patternLr = compilePattern(listForCheckLeftAndRight);
+    matcherLr = TokenMatcher.compile(listForCheckLeftAndRight);
 
     checkSpaceToRightOfUnary =
       (boolean) configuration.getOrDefault("checkSpaceToRightOfUnary", checkSpaceToRightOfUnary);
@@ -195,48 +196,44 @@ public class MissingSpaceDiagnostic extends AbstractVisitorDiagnostic implements
       (boolean) configuration.getOrDefault("allowMultipleCommas", allowMultipleCommas);
   }
 
-  private static List<Token> findTokensByPattern(List<Token> tokens, Pattern pattern) {
-    return tokens
-      .parallelStream()
-      .filter((Token t) -> pattern.matcher(t.getText()).matches())
-      .collect(Collectors.toList());
-  }
-
-  private static String getRegularString(String string) {
-
-    if (string.isEmpty()) {
-      return "";
-    }
-
-    StringBuilder singleChar = new StringBuilder();
-    StringBuilder doubleChar = new StringBuilder();
-
-    String[] listOfString = string.trim().split(" ");
+  private static Map<String, BitSet> createLiteralTokenTypes() {
+    Map<String, BitSet> literalTokenTypes = new HashMap<>();
+    Vocabulary vocabulary = BSLLexer.VOCABULARY;
 
-    for (String s : listOfString) {
-      if (s.length() == 1) {
-        singleChar.append(s);
-      } else {
-        doubleChar.append("|(").append(s).append(")");
+    for (int tokenType = 0; tokenType <= vocabulary.getMaxTokenType(); tokenType++) {
+      String literalName = vocabulary.getLiteralName(tokenType);
+      if (literalName == null || literalName.length() < 3) {
+        continue;
       }
+      // литерал хранится в кавычках: '+'
+      String text = literalName.substring(1, literalName.length() - 1).toLowerCase(Locale.ENGLISH);
+      literalTokenTypes.computeIfAbsent(text, key -> new BitSet()).set(tokenType);
     }
 
-    return "[\\Q" + singleChar + "\\E]" + doubleChar;
+    return literalTokenTypes;
   }
 
-  private static Pattern compilePattern(String string) {
-
-    if (string.isEmpty()) {
-      return null;
+  private static boolean isSpace(Token token) {
+    String text = token.getText();
+    if (text.isEmpty()) {
+      return true;
     }
 
-    return Pattern.compile(string, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    for (int i = 0; i < text.length(); i++) {
+      if (SPACE_CHARS.indexOf(text.charAt(i)) >= 0) {
+        return true;
+      }
+    }
+    return false;
   }
 
-  private boolean noSpaceLeft(List<Token> tokens, Token t) {
+  private static boolean noSpaceLeft(List<Token> tokens, Token t) {
 
-    Token previousToken = tokens.get(t.getTokenIndex() - 1);
-    return patternNotSpace.matcher(previousToken.getText()).matches();
+    int previousIndex = t.getTokenIndex() - 1;
+    if (previousIndex < 0) {
+      return false;
+    }
+    return !isSpace(tokens.get(previousIndex));
   }
 
   private boolean noSpaceRight(List<Token> tokens, Token t) {
@@ -244,7 +241,7 @@ public class MissingSpaceDiagnostic extends AbstractVisitorDiagnostic implements
     // Если это унарный + или -, то пробел справа проверяем в соответствии с параметром checkSpaceToRightOfUnary
     // Надо понять, что они унарные
     if ((t.getType() == BSLLexer.PLUS || t.getType() == BSLLexer.MINUS)
-      && isUnaryChar(tokens, t) && !Boolean.TRUE.equals(checkSpaceToRightOfUnary)) {
+      && !Boolean.TRUE.equals(checkSpaceToRightOfUnary) && isUnaryChar(tokens, t)) {
       return false;
     }
 
@@ -260,24 +257,20 @@ public class MissingSpaceDiagnostic extends AbstractVisitorDiagnostic implements
       && (t.getType() == BSLLexer.COMMA && nextToken.getType() == BSLLexer.COMMA)) {
       return false;
     }
-    return patternNotSpace.matcher(nextToken.getText()).matches();
+    return !isSpace(nextToken);
   }
 
-  private boolean isUnaryChar(List<Token> tokens, Token t) {
+  private static boolean isUnaryChar(List<Token> tokens, Token t) {
 
     // Унарные + и -
     // Унарным считаем, если перед ним (пропуская пробельные символы) находим + - * / = % < > ( [ , Возврат <> <= >=
 
-    Pattern checkChar = compilePattern(getRegularString("+ - * / = % < > ( [ , Возврат <> <= >="));
-    if (checkChar == null) {
-      return false;
-    }
-
     int currentIndex = t.getTokenIndex() - 1;
     while (currentIndex > 0) {
 
-      if (patternNotSpace.matcher(tokens.get(currentIndex).getText()).matches()) {
-        return checkChar.matcher(tokens.get(currentIndex).getText()).matches();
+      Token previousToken = tokens.get(currentIndex);
+      if (!isSpace(previousToken)) {
+        return UNARY_CHAR_PREDECESSORS.matches(previousToken);
       }
 
       currentIndex--;
@@ -285,8 +278,8 @@ public class MissingSpaceDiagnostic extends AbstractVisitorDiagnostic implements
     return true;
   }
 
-  private String getErrorMessage(int errCode, String tokenText) {
-    return getDiagnosticMessage(sampleMessage[errCode], tokenText);
+  private String getErrorMessage(String sampleMessage, Token token) {
+    return getDiagnosticMessage(sampleMessage, token.getText());
   }
 
   @Override
@@ -328,4 +321,49 @@ public class MissingSpaceDiagnostic extends AbstractVisitorDiagnostic implements
       diagnostics
     );
   }
+
+  /**
+   * Проверка принадлежности токена списку символов из параметров диагностики.
+   * <p>
+   * Символы, являющиеся литералами лексера (операторы и разделители), сопоставляются по типу токена,
+   * остальные (например, ключевые слова) - по тексту токена без учета регистра.
+   */
+  private static final class TokenMatcher {
+
+    private final BitSet tokenTypes;
+    private final Set<String> texts;
+
+    private TokenMatcher(BitSet tokenTypes, Set<String> texts) {
+      this.tokenTypes = tokenTypes;
+      this.texts = texts;
+    }
+
+    static TokenMatcher compile(String list) {
+      BitSet tokenTypes = new BitSet();
+      Set<String> texts = new HashSet<>();
+
+      for (String symbol : list.trim().split(" ")) {
+        if (symbol.isEmpty()) {
+          continue;
+        }
+        String text = symbol.toLowerCase(Locale.ENGLISH);
+        BitSet literalTokenTypes = LITERAL_TOKEN_TYPES.get(text);
+        if (literalTokenTypes == null) {
+          texts.add(text);
+        } else {
+          tokenTypes.or(literalTokenTypes);
+        }
+      }
+
+      return new TokenMatcher(tokenTypes, texts);
+    }
+
+    boolean matches(Token token) {
+      int tokenType = token.getType();
+      if (tokenType >= 0 && tokenTypes.get(tokenType)) {
+        return true;
+      }
+      return !texts.isEmpty() && texts.contains(token.getText().toLowerCase(Locale.ENGLISH));
+    }
+  }
 }
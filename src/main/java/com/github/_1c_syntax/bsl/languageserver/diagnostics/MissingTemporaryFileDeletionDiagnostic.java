@@ -119,7 +119,7 @@ public class MissingTemporaryFileDeletionDiagnostic extends AbstractVisitorDiagn
     boolean result = false;
 
     Collection<ParseTree> listCallStatements = Trees
-      .findAllRuleNodes(codeBlockContext, BSLParser.RULE_callStatement)
+      .findAllRuleNodes(documentContext, codeBlockContext, BSLParser.RULE_callStatement)
       .stream()
       .filter(node -> ((BSLParser.CallStatementContext) node).getStart().getLine() > filterLine)
       .collect(Collectors.toList());
@@ -117,6 +117,13 @@ public class NestedStatementsDiagnostic extends AbstractListenerDiagnostic {
     exitNode(ctx);
   }
 
+  @Override
+  protected void endWalk() {
+    super.endWalk();
+    lastCtx = null;
+    nestedParents.clear();
+  }
+
   private void enterNode(BSLParserRuleContext ctx) {
     lastCtx = ctx;
     nestedParents.push(ctx);
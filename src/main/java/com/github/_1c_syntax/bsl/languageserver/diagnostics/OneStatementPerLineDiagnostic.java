@@ -57,6 +57,13 @@ public class OneStatementPerLineDiagnostic extends AbstractVisitorDiagnostic imp
   private int previousLineNumber;
   private int previousDiagnosticLineNumber;
 
+  @Override
+  public ParseTree visitFile(BSLParser.FileContext ctx) {
+    previousLineNumber = 0;
+    previousDiagnosticLineNumber = 0;
+    return super.visitFile(ctx);
+  }
+
   @Override
   public ParseTree visitStatement(BSLParser.StatementContext ctx) {
 
@@ -45,7 +45,12 @@ public class UnaryPlusInConcatenationDiagnostic extends AbstractVisitorDiagnosti
   @Override
   public ParseTree visitMember(BSLParser.MemberContext ctx) {
     ParseTree childZero = ctx.getChild(0);
-    ParseTree previousNode = Trees.getPreviousNode(ctx.parent, childZero, BSLParser.RULE_operation);
+    ParseTree previousNode = Trees.getPreviousNode(
+      documentContext,
+      ctx.parent,
+      childZero,
+      BSLParser.RULE_operation
+    );
     if (
       (childZero instanceof BSLParser.UnaryModifierContext)
         && !(ctx.getChild(1).getChild(0) instanceof BSLParser.NumericContext)
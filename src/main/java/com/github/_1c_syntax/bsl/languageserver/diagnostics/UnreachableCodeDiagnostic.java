@@ -63,7 +63,7 @@ public class UnreachableCodeDiagnostic extends AbstractVisitorDiagnostic {
     preprocessorRanges.clear();
 
     // получим все блоки препроцессора в файле
-    List<ParseTree> preprocessors = new ArrayList<>(Trees.findAllRuleNodes(ctx, BSLParser.RULE_preprocessor));
+    List<ParseTree> preprocessors = new ArrayList<>(Trees.findAllRuleNodes(documentContext, BSLParser.RULE_preprocessor));
 
     if (preprocessors.isEmpty()) {
       return super.visitFile(ctx);
@@ -164,7 +164,7 @@ public class UnreachableCodeDiagnostic extends AbstractVisitorDiagnostic {
       return;
     }
 
-    List<ParseTree> statements = Trees.findAllRuleNodes(ppNodeParent, BSLParser.RULE_statement)
+    List<ParseTree> statements = Trees.findAllRuleNodes(documentContext, ppNodeParent, BSLParser.RULE_statement)
       .stream()
       .filter(node -> node.getParent().equals(ppNodeParent))
       .collect(Collectors.toList());
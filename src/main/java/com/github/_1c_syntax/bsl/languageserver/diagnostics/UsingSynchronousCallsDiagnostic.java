@@ -28,11 +28,15 @@ import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticT
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticType;
 import com.github._1c_syntax.bsl.languageserver.utils.Trees;
 import com.github._1c_syntax.bsl.parser.BSLParser;
+import com.github._1c_syntax.bsl.parser.BSLParserRuleContext;
 import org.antlr.v4.runtime.tree.ParseTree;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Locale;
+import java.util.Set;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 @DiagnosticMetadata(
   type = DiagnosticType.CODE_SMELL,
@@ -64,6 +68,10 @@ public class UsingSynchronousCallsDiagnostic extends AbstractVisitorDiagnostic {
     Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
 
   private HashMap<String, String> pairMethods = new HashMap<>();
+  /**
+   * Методы документа с серверными директивами компиляции.
+   */
+  private Set<BSLParserRuleContext> serverSubs = Collections.emptySet();
 
   public UsingSynchronousCallsDiagnostic() {
     pairMethods.put("ВОПРОС", "ПоказатьВопрос");
@@ -120,16 +128,23 @@ public class UsingSynchronousCallsDiagnostic extends AbstractVisitorDiagnostic {
     pairMethods.put("RUNAPP", "BeginRunningApplication");
   }
 
+  @Override
+  public ParseTree visitFile(BSLParser.FileContext ctx) {
+    serverSubs = Trees.findAllRuleNodes(documentContext, BSLParser.RULE_compilerDirectiveSymbol)
+      .stream()
+      .filter(node -> SERVER_COMPILER_PATTERN.matcher(node.getText()).matches())
+      .map(node -> Trees.getRootParent((BSLParserRuleContext) node, BSLParser.RULE_sub))
+      .collect(Collectors.toSet());
+
+    return super.visitFile(ctx);
+  }
+
   @Override
   public ParseTree visitGlobalMethodCall(BSLParser.GlobalMethodCallContext ctx) {
     String methodName = ctx.methodName().getText();
     if (MODALITY_METHODS.matcher(methodName).matches()) {
-      BSLParser.SubContext rootParent = (BSLParser.SubContext) Trees.getRootParent(ctx, BSLParser.RULE_sub);
-      if (rootParent == null
-        || Trees.findAllRuleNodes(rootParent, BSLParser.RULE_compilerDirectiveSymbol)
-        .stream()
-        .filter(node ->
-          SERVER_COMPILER_PATTERN.matcher(node.getText()).matches()).count() <= 0) {
+      BSLParserRuleContext rootParent = Trees.getRootParent(ctx, BSLParser.RULE_sub);
+      if (rootParent == null || !serverSubs.contains(rootParent)) {
 
         diagnosticStorage.addDiagnostic(ctx,
           getDiagnosticMessage(methodName, pairMethods.get(methodName.toUpperCase(Locale.ENGLISH))));
@@ -110,7 +110,7 @@ public class WorkingTimeoutWithExternalResourcesDiagnostic extends AbstractVisit
               Trees.getAncestorByRuleIndex((ParserRuleContext) e, BSLParser.RULE_statement);
             String variableName = getVariableName(statementContext);
             int filterLine = newExpression.getStart().getLine();
-            Collection<ParseTree> listNextStatements = Trees.findAllRuleNodes(ctx, BSLParser.RULE_statement)
+            Collection<ParseTree> listNextStatements = Trees.findAllRuleNodes(documentContext, ctx, BSLParser.RULE_statement)
               .stream()
               .filter(node -> ((BSLParser.StatementContext) node).getStart().getLine() > filterLine)
               .collect(Collectors.toList());
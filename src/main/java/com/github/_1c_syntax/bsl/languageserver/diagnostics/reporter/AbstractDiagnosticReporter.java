@@ -21,8 +21,11 @@
  */
 package com.github._1c_syntax.bsl.languageserver.diagnostics.reporter;
 
+import com.github._1c_syntax.bsl.languageserver.diagnostics.FileInfo;
+
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.LocalDateTime;
 
 public abstract class AbstractDiagnosticReporter {
   protected final Path outputDir;
@@ -35,6 +38,31 @@ public abstract class AbstractDiagnosticReporter {
     this.outputDir = outputDir;
   }
 
-  public abstract void report(AnalysisInfo analysisInfo);
+  public void report(AnalysisInfo analysisInfo) {
+    beginReport(analysisInfo.getDate(), analysisInfo.getSourceDir());
+    analysisInfo.getFileinfos().forEach(this::report);
+    endReport();
+  }
+
+  /**
+   * Начинает потоковое формирование отчета.
+   *
+   * @param date      Дата анализа.
+   * @param sourceDir Каталог исходников.
+   */
+  public abstract void beginReport(LocalDateTime date, String sourceDir);
+
+  /**
+   * Добавляет в отчет информацию об очередном проанализированном файле.
+   * Вызывается между {@link #beginReport(LocalDateTime, String)} и {@link #endReport()}.
+   *
+   * @param fileInfo Информация о файле.
+   */
+  public abstract void report(FileInfo fileInfo);
+
+  /**
+   * Завершает формирование отчета.
+   */
+  public abstract void endReport();
 
 }
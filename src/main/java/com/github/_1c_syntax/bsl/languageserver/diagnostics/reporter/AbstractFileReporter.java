@@ -0,0 +1,108 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.diagnostics.reporter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.FileInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.CheckForNull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+/**
+ * Базовый класс репортеров, записывающих отчет в файл потоковым генератором Jackson.
+ * <p>
+ * Информация о файлах пишется в отчет по мере поступления и не накапливается в памяти.
+ */
+public abstract class AbstractFileReporter extends AbstractDiagnosticReporter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AbstractFileReporter.class.getSimpleName());
+
+  @CheckForNull
+  private JsonGenerator generator;
+  @CheckForNull
+  private File reportFile;
+
+  protected AbstractFileReporter() {
+    super();
+  }
+
+  protected AbstractFileReporter(Path outputDir) {
+    super(outputDir);
+  }
+
+  @Override
+  public void beginReport(LocalDateTime date, String sourceDir) {
+    reportFile = new File(outputDir.toFile(), getReportFileName());
+    try {
+      generator = createGenerator(reportFile);
+      writeStart(generator, date, sourceDir);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public void report(FileInfo fileInfo) {
+    if (generator == null) {
+      throw new IllegalStateException("Report is not started");
+    }
+    try {
+      writeFileInfo(generator, fileInfo);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public void endReport() {
+    if (generator == null || reportFile == null) {
+      throw new IllegalStateException("Report is not started");
+    }
+    try {
+      writeEnd(generator);
+      generator.close();
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      generator = null;
+    }
+    LOGGER.info("{} report saved to {}", getReportName(), reportFile.getAbsolutePath());
+  }
+
+  protected abstract String getReportName();
+
+  protected abstract String getReportFileName();
+
+  protected abstract JsonGenerator createGenerator(File reportFile) throws IOException;
+
+  protected abstract void writeStart(JsonGenerator generator, LocalDateTime date, String sourceDir) throws IOException;
+
+  protected abstract void writeFileInfo(JsonGenerator generator, FileInfo fileInfo) throws IOException;
+
+  protected abstract void writeEnd(JsonGenerator generator) throws IOException;
+
+}
@@ -21,10 +21,12 @@
  */
 package com.github._1c_syntax.bsl.languageserver.diagnostics.reporter;
 
+import com.github._1c_syntax.bsl.languageserver.diagnostics.FileInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.file.Path;
+import java.time.LocalDateTime;
 
 public class ConsoleReporter extends AbstractDiagnosticReporter {
 
@@ -41,8 +43,17 @@ public class ConsoleReporter extends AbstractDiagnosticReporter {
   }
 
   @Override
-  public void report(AnalysisInfo analysisInfo) {
-    LOGGER.info("Analysis date: {}", analysisInfo.getDate());
-    LOGGER.info("File info:\n{}", analysisInfo.getFileinfos());
+  public void beginReport(LocalDateTime date, String sourceDir) {
+    LOGGER.info("Analysis date: {}", date);
+  }
+
+  @Override
+  public void report(FileInfo fileInfo) {
+    LOGGER.info("File info:\n{}", fileInfo);
+  }
+
+  @Override
+  public void endReport() {
+    // nothing to flush
   }
 }
@@ -21,20 +21,21 @@
  */
 package com.github._1c_syntax.bsl.languageserver.diagnostics.reporter;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.FileInfo;
+import org.eclipse.lsp4j.Diagnostic;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.time.LocalDateTime;
 
-public class GenericIssueReporter extends AbstractDiagnosticReporter {
+public class GenericIssueReporter extends AbstractFileReporter {
 
   public static final String KEY = "generic";
 
-  private static final Logger LOGGER = LoggerFactory.getLogger(GenericIssueReporter.class.getSimpleName());
-
   public GenericIssueReporter(){
     super();
   }
@@ -44,18 +45,38 @@ public class GenericIssueReporter extends AbstractDiagnosticReporter {
   }
 
   @Override
-  public void report(AnalysisInfo analysisInfo) {
-
-    GenericIssueReport report = new GenericIssueReport(analysisInfo);
-    ObjectMapper mapper = new ObjectMapper();
-    try {
-      File reportFile = new File(outputDir.toFile(), "bsl-generic-json.json");
-      mapper.writeValue(reportFile, report);
-      LOGGER.info("Generic issue report saved to {}", reportFile.getAbsolutePath());
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+  protected String getReportName() {
+    return "Generic issue";
+  }
+
+  @Override
+  protected String getReportFileName() {
+    return "bsl-generic-json.json";
+  }
+
+  @Override
+  protected JsonGenerator createGenerator(File reportFile) throws IOException {
+    return new ObjectMapper().getFactory().createGenerator(reportFile, JsonEncoding.UTF8);
+  }
+
+  @Override
+  protected void writeStart(JsonGenerator generator, LocalDateTime date, String sourceDir) throws IOException {
+    generator.writeStartObject();
+    generator.writeArrayFieldStart("issues");
+  }
+
+  @Override
+  protected void writeFileInfo(JsonGenerator generator, FileInfo fileInfo) throws IOException {
+    String fileName = fileInfo.getPath().toString();
+    for (Diagnostic diagnostic : fileInfo.getDiagnostics()) {
+      generator.writeObject(new GenericIssueReport.GenericIssueEntry(fileName, diagnostic));
     }
+  }
 
+  @Override
+  protected void writeEnd(JsonGenerator generator) throws IOException {
+    generator.writeEndArray();
+    generator.writeEndObject();
   }
 
 }
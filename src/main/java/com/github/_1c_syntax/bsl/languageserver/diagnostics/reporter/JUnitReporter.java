@@ -21,21 +21,24 @@
  */
 package com.github._1c_syntax.bsl.languageserver.diagnostics.reporter;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.dataformat.xml.XmlMapper;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.fasterxml.jackson.dataformat.xml.ser.ToXmlGenerator;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.FileInfo;
 
+import javax.xml.namespace.QName;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
 
-public class JUnitReporter extends AbstractDiagnosticReporter {
+public class JUnitReporter extends AbstractFileReporter {
 
   public static final String KEY = "junit";
 
-  private static final Logger LOGGER = LoggerFactory.getLogger(JUnitReporter.class.getSimpleName());
+  private Path sourceDir = Paths.get(".");
 
   public JUnitReporter() {
     super();
@@ -46,19 +49,48 @@ public class JUnitReporter extends AbstractDiagnosticReporter {
   }
 
   @Override
-  public void report(AnalysisInfo analysisInfo) {
+  protected String getReportName() {
+    return "JUnit";
+  }
 
-    JUnitTestSuites jUnitReport = new JUnitTestSuites(analysisInfo);
+  @Override
+  protected String getReportFileName() {
+    return "./bsl-junit.xml";
+  }
 
-    ObjectMapper mapper = new XmlMapper();
-    mapper.enable(SerializationFeature.INDENT_OUTPUT);
+  @Override
+  protected JsonGenerator createGenerator(File reportFile) throws IOException {
+    ToXmlGenerator generator = (ToXmlGenerator) new XmlMapper().getFactory()
+      .createGenerator(reportFile, JsonEncoding.UTF8);
+    generator.useDefaultPrettyPrinter();
+    return generator;
+  }
+
+  @Override
+  protected void writeStart(JsonGenerator generator, LocalDateTime date, String sourceDir) throws IOException {
+    this.sourceDir = Paths.get(sourceDir).toAbsolutePath();
 
-    try {
-      File reportFile = new File(outputDir.toFile(), "./bsl-junit.xml");
-      mapper.writeValue(reportFile, jUnitReport);
-      LOGGER.info("JUnit report saved to {}", reportFile.getCanonicalPath());
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+    ToXmlGenerator xmlGenerator = (ToXmlGenerator) generator;
+    xmlGenerator.initGenerator();
+    xmlGenerator.setNextName(new QName("testsuites"));
+    xmlGenerator.writeStartObject();
+    xmlGenerator.setNextIsAttribute(true);
+    xmlGenerator.writeStringField("package", JUnitTestSuites.PACKAGE_NAME);
+    xmlGenerator.setNextIsAttribute(false);
+  }
+
+  @Override
+  protected void writeFileInfo(JsonGenerator generator, FileInfo fileInfo) throws IOException {
+    if (fileInfo.getDiagnostics().isEmpty()) {
+      return;
     }
+    // элементы testsuite пишутся без обертки, как в JUnitTestSuites
+    generator.writeFieldName("testsuite");
+    generator.writeObject(new JUnitTestSuites.JUnitTestSuite(fileInfo, sourceDir));
+  }
+
+  @Override
+  protected void writeEnd(JsonGenerator generator) throws IOException {
+    generator.writeEndObject();
   }
 }
@@ -50,6 +50,8 @@ import java.util.stream.Collectors;
 @JacksonXmlRootElement(localName = "testsuites")
 class JUnitTestSuites {
 
+  static final String PACKAGE_NAME = "bsl-language-server";
+
   @Getter
   @JsonProperty("package")
   @JacksonXmlProperty(isAttribute = true)
@@ -59,15 +61,13 @@ class JUnitTestSuites {
   @JacksonXmlElementWrapper(useWrapping = false)
   private final List<JUnitTestSuite> testsuite;
 
-  private static Path sourceDir = Paths.get(".");
-
   public JUnitTestSuites(AnalysisInfo analysisInfo) {
-    name = "bsl-language-server";
-    setSourceDir(Paths.get(analysisInfo.getSourceDir()).toAbsolutePath());
+    name = PACKAGE_NAME;
+    Path sourceDir = Paths.get(analysisInfo.getSourceDir()).toAbsolutePath();
 
     testsuite = analysisInfo.getFileinfos().stream()
       .filter(fileInfo -> !fileInfo.getDiagnostics().isEmpty())
-      .map(JUnitTestSuite::new)
+      .map(fileInfo -> new JUnitTestSuite(fileInfo, sourceDir))
       .collect(Collectors.toList());
   }
 
@@ -79,10 +79,6 @@ class JUnitTestSuites {
     this.testsuite = new ArrayList<>(testsuite);
   }
 
-  private static void setSourceDir(Path path) {
-    sourceDir = path;
-  }
-
   @Value
   static class JUnitTestSuite {
 
@@ -92,7 +88,7 @@ class JUnitTestSuites {
     @JacksonXmlElementWrapper(useWrapping = false)
     private final List<JUnitTestCase> testcase;
 
-    public JUnitTestSuite(FileInfo fileInfo) {
+    public JUnitTestSuite(FileInfo fileInfo, Path sourceDir) {
       this.name = sourceDir.relativize(fileInfo.getPath().toAbsolutePath()).toString();
       this.testcase = new ArrayList<>();
 
@@ -21,19 +21,22 @@
  */
 package com.github._1c_syntax.bsl.languageserver.diagnostics.reporter;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.FileInfo;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 
-public class JsonReporter extends AbstractDiagnosticReporter {
+public class JsonReporter extends AbstractFileReporter {
 
   public static final String KEY = "json";
 
-  private static final Logger LOGGER = LoggerFactory.getLogger(JsonReporter.class.getSimpleName());
+  private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
   public JsonReporter(){
     super();
@@ -44,15 +47,36 @@ public class JsonReporter extends AbstractDiagnosticReporter {
   }
 
   @Override
-  public void report(AnalysisInfo analysisInfo) {
-    ObjectMapper mapper = new ObjectMapper();
-
-    try {
-      File reportFile = new File(outputDir.toFile(), "./bsl-json.json");
-      mapper.writeValue(reportFile, analysisInfo);
-      LOGGER.info("JSON report saved to {}", reportFile.getAbsolutePath());
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
+  protected String getReportName() {
+    return "JSON";
+  }
+
+  @Override
+  protected String getReportFileName() {
+    return "./bsl-json.json";
+  }
+
+  @Override
+  protected JsonGenerator createGenerator(File reportFile) throws IOException {
+    return new ObjectMapper().getFactory().createGenerator(reportFile, JsonEncoding.UTF8);
+  }
+
+  @Override
+  protected void writeStart(JsonGenerator generator, LocalDateTime date, String sourceDir) throws IOException {
+    generator.writeStartObject();
+    generator.writeStringField("date", date.format(DATE_FORMATTER));
+    generator.writeStringField("sourceDir", sourceDir);
+    generator.writeArrayFieldStart("fileinfos");
+  }
+
+  @Override
+  protected void writeFileInfo(JsonGenerator generator, FileInfo fileInfo) throws IOException {
+    generator.writeObject(fileInfo);
+  }
+
+  @Override
+  protected void writeEnd(JsonGenerator generator) throws IOException {
+    generator.writeEndArray();
+    generator.writeEndObject();
   }
 }
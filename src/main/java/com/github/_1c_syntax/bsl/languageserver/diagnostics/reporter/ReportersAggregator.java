@@ -21,8 +21,11 @@
  */
 package com.github._1c_syntax.bsl.languageserver.diagnostics.reporter;
 
+import com.github._1c_syntax.bsl.languageserver.diagnostics.FileInfo;
+
 import java.lang.reflect.InvocationTargetException;
 import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -41,6 +44,41 @@ public class ReportersAggregator {
     reporters.forEach(diagnosticReporter -> diagnosticReporter.report(analysisInfo));
   }
 
+  public synchronized void beginReport(LocalDateTime date, String sourceDir) {
+    reporters.forEach(diagnosticReporter -> diagnosticReporter.beginReport(date, sourceDir));
+  }
+
+  /**
+   * Передает информацию о файле всем репортерам.
+   * Может вызываться из нескольких потоков, запись в отчеты при этом последовательная.
+   *
+   * @param fileInfo Информация о проанализированном файле.
+   */
+  public synchronized void report(FileInfo fileInfo) {
+    reporters.forEach(diagnosticReporter -> diagnosticReporter.report(fileInfo));
+  }
+
+  /**
+   * Завершает отчеты всех репортеров, даже если завершение одного из них закончилось ошибкой.
+   */
+  public synchronized void endReport() {
+    RuntimeException failure = null;
+    for (AbstractDiagnosticReporter reporter : reporters) {
+      try {
+        reporter.endReport();
+      } catch (RuntimeException e) {
+        if (failure == null) {
+          failure = e;
+        } else {
+          failure.addSuppressed(e);
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
   @SuppressWarnings("unchecked")
   private void addReporterKeys(String[] reporterKeys) {
     Map<String, Class> reporterMap = reporterMap();
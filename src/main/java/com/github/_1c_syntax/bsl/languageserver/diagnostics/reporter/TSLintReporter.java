@@ -21,24 +21,21 @@
  */
 package com.github._1c_syntax.bsl.languageserver.diagnostics.reporter;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.FileInfo;
 import org.eclipse.lsp4j.Diagnostic;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.List;
+import java.time.LocalDateTime;
 
-public class TSLintReporter extends AbstractDiagnosticReporter {
+public class TSLintReporter extends AbstractFileReporter {
 
   public static final String KEY = "tslint";
 
-  private static final Logger LOGGER = LoggerFactory.getLogger(TSLintReporter.class.getSimpleName());
-
   public TSLintReporter(){
     super();
   }
@@ -48,22 +45,35 @@ public class TSLintReporter extends AbstractDiagnosticReporter {
   }
 
   @Override
-  public void report(AnalysisInfo analysisInfo) {
-    List<TSLintReportEntry> tsLintReport = new ArrayList<>();
-    for (FileInfo fileInfo : analysisInfo.getFileinfos()) {
-      for (Diagnostic diagnostic : fileInfo.getDiagnostics()) {
-        TSLintReportEntry entry = new TSLintReportEntry(fileInfo.getPath().toString(), diagnostic);
-        tsLintReport.add(entry);
-      }
-    }
-    ObjectMapper mapper = new ObjectMapper();
+  protected String getReportName() {
+    return "TSLint";
+  }
+
+  @Override
+  protected String getReportFileName() {
+    return "./bsl-tslint.json";
+  }
+
+  @Override
+  protected JsonGenerator createGenerator(File reportFile) throws IOException {
+    return new ObjectMapper().getFactory().createGenerator(reportFile, JsonEncoding.UTF8);
+  }
+
+  @Override
+  protected void writeStart(JsonGenerator generator, LocalDateTime date, String sourceDir) throws IOException {
+    generator.writeStartArray();
+  }
 
-    try {
-      File reportFile = new File(outputDir.toFile(), "./bsl-tslint.json");
-      mapper.writeValue(reportFile, tsLintReport);
-      LOGGER.info("TSLint report saved to {}", reportFile.getAbsolutePath());
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+  @Override
+  protected void writeFileInfo(JsonGenerator generator, FileInfo fileInfo) throws IOException {
+    String fileName = fileInfo.getPath().toString();
+    for (Diagnostic diagnostic : fileInfo.getDiagnostics()) {
+      generator.writeObject(new TSLintReportEntry(fileName, diagnostic));
     }
   }
+
+  @Override
+  protected void writeEnd(JsonGenerator generator) throws IOException {
+    generator.writeEndArray();
+  }
 }
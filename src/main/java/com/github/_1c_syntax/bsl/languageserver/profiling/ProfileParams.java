@@ -0,0 +1,50 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.profiling;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.annotation.Nullable;
+
+/**
+ * Параметры запроса {@code bsl/profile}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProfileParams {
+  /**
+   * Включение или выключение профилирования. Если не указано, состояние не меняется.
+   */
+  @Nullable
+  private Boolean enabled;
+  /**
+   * Очистка накопленных замеров после формирования отчета.
+   */
+  private boolean reset;
+  /**
+   * Количество самых медленных диагностик и файлов в отчете.
+   */
+  private int limit = Profiler.DEFAULT_REPORT_LIMIT;
+}
@@ -0,0 +1,70 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.profiling;
+
+import lombok.Value;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отчет профилировщика: самые медленные диагностики и файлы, все вычислители.
+ */
+@Value
+public class ProfileReport {
+
+  private static final String ROW_FORMAT = "%-60s %8s %12s %12s %14s%n";
+
+  private final List<ProfileEntry> diagnostics;
+  private final List<ProfileEntry> computers;
+  private final List<ProfileEntry> files;
+
+  /**
+   * Представление отчета в виде текстовых таблиц.
+   *
+   * @return Текст отчета.
+   */
+  public String format() {
+    StringBuilder builder = new StringBuilder();
+    appendTable(builder, "Diagnostics", diagnostics);
+    appendTable(builder, "Computers", computers);
+    appendTable(builder, "Files", files);
+    return builder.toString();
+  }
+
+  private static void appendTable(StringBuilder builder, String title, List<ProfileEntry> entries) {
+    builder.append(System.lineSeparator()).append(title).append(':').append(System.lineSeparator());
+    builder.append(String.format(Locale.ENGLISH, ROW_FORMAT, "name", "count", "wall, ms", "cpu, ms", "alloc, MB"));
+    for (ProfileEntry entry : entries) {
+      builder.append(String.format(
+        Locale.ENGLISH,
+        ROW_FORMAT,
+        entry.getName(),
+        entry.getCount(),
+        TimeUnit.NANOSECONDS.toMillis(entry.getWallTime()),
+        TimeUnit.NANOSECONDS.toMillis(entry.getCpuTime()),
+        String.format(Locale.ENGLISH, "%.1f", entry.getAllocatedBytes() / (1024.0 * 1024.0))
+      ));
+    }
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.profiling;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Сбор времени и объема выделенной памяти по диагностикам, вычислителям и файлам.
+ * <p>
+ * По умолчанию выключен, в выключенном состоянии замеряемый код вызывается напрямую.
+ * Процессорное время и выделенная память считаются по текущему потоку, поэтому замер
+ * корректен и при параллельной обработке файлов.
+ */
+public class Profiler {
+
+  public static final int DEFAULT_REPORT_LIMIT = 20;
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(Profiler.class.getSimpleName());
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+  private final Map<String, ProfileCounter> diagnostics = new ConcurrentHashMap<>();
+  private final Map<String, ProfileCounter> computers = new ConcurrentHashMap<>();
+  private final Map<String, ProfileCounter> files = new ConcurrentHashMap<>();
+  private volatile boolean enabled;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    if (enabled) {
+      enableThreadMeasurements();
+    }
+    this.enabled = enabled;
+  }
+
+  public <T> T measureDiagnostic(String diagnosticCode, Supplier<T> supplier) {
+    return measure(diagnostics, diagnosticCode, supplier);
+  }
+
+  public <T> T measureComputer(String computerName, Supplier<T> supplier) {
+    return measure(computers, computerName, supplier);
+  }
+
+  public <T> T measureFile(String uri, Supplier<T> supplier) {
+    return measure(files, uri, supplier);
+  }
+
+  /**
+   * Текущие результаты замеров.
+   *
+   * @param limit Количество самых медленных диагностик и файлов в отчете.
+   * @return Отчет, элементы отсортированы по убыванию общего времени.
+   */
+  public ProfileReport getReport(int limit) {
+    return new ProfileReport(
+      getEntries(diagnostics, limit),
+      getEntries(computers, Integer.MAX_VALUE),
+      getEntries(files, limit)
+    );
+  }
+
+  public void clear() {
+    diagnostics.clear();
+    computers.clear();
+    files.clear();
+  }
+
+  private <T> T measure(Map<String, ProfileCounter> counters, String name, Supplier<T> supplier) {
+    if (!enabled) {
+      return supplier.get();
+    }
+
+    long startWallTime = System.nanoTime();
+    long startCpuTime = getCurrentThreadCpuTime();
+    long startAllocatedBytes = getCurrentThreadAllocatedBytes();
+
+    T result = supplier.get();
+
+    counters.computeIfAbsent(name, ProfileCounter::new).add(
+      System.nanoTime() - startWallTime,
+      getCurrentThreadCpuTime() - startCpuTime,
+      getCurrentThreadAllocatedBytes() - startAllocatedBytes
+    );
+
+    return result;
+  }
+
+  private static List<ProfileEntry> getEntries(Map<String, ProfileCounter> counters, int limit) {
+    return counters.values().stream()
+      .map(ProfileCounter::toEntry)
+      .sorted(Comparator.comparingLong(ProfileEntry::getWallTime).reversed())
+      .limit(limit)
+      .collect(Collectors.toList());
+  }
+
+  private static void enableThreadMeasurements() {
+    try {
+      if (THREAD_MX_BEAN.isThreadCpuTimeSupported()) {
+        THREAD_MX_BEAN.setThreadCpuTimeEnabled(true);
+      }
+      if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+        if (threadMXBean.isThreadAllocatedMemorySupported()) {
+          threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        }
+      }
+    } catch (UnsupportedOperationException | SecurityException e) {
+      LOGGER.warn("Can't enable thread measurements, only wall time will be profiled", e);
+    }
+  }
+
+  private static long getCurrentThreadCpuTime() {
+    if (!THREAD_MX_BEAN.isThreadCpuTimeEnabled()) {
+      return 0;
+    }
+    return THREAD_MX_BEAN.getCurrentThreadCpuTime();
+  }
+
+  private static long getCurrentThreadAllocatedBytes() {
+    if (!(THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean)) {
+      return 0;
+    }
+    com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+    if (!threadMXBean.isThreadAllocatedMemoryEnabled()) {
+      return 0;
+    }
+    return Math.max(0, threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId()));
+  }
+}
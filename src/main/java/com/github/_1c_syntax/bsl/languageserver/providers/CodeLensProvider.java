@@ -23,14 +23,13 @@ package com.github._1c_syntax.bsl.languageserver.providers;
 
 import com.github._1c_syntax.bsl.languageserver.configuration.LanguageServerConfiguration;
 import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
-import com.github._1c_syntax.bsl.languageserver.context.symbol.MethodSymbol;
+import com.github._1c_syntax.bsl.languageserver.context.symbol.SymbolTable;
 import org.eclipse.lsp4j.CodeLens;
 import org.eclipse.lsp4j.Command;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 public final class CodeLensProvider {
 
@@ -51,19 +50,24 @@ public final class CodeLensProvider {
 
     List<CodeLens> codeLenses = new ArrayList<>();
 
-    Map<MethodSymbol, Integer> methodsComplexity = documentContext.getCognitiveComplexityData().getMethodsComplexity();
+    SymbolTable symbolTable = documentContext.getSymbolTable();
+
+    for (int index = 0; index < symbolTable.size(); index++) {
+      int complexity = symbolTable.getCognitiveComplexity(index);
+      if (complexity == SymbolTable.NO_COMPLEXITY) {
+        continue;
+      }
 
-    methodsComplexity.forEach((MethodSymbol methodSymbol, Integer complexity) -> {
       String title = String.format("Cognitive complexity is %d", complexity);
       Command command = new Command(title, "");
       CodeLens codeLens = new CodeLens(
-        methodSymbol.getSubNameRange(),
+        symbolTable.getSelectionRange(index),
         command,
         null
       );
 
       codeLenses.add(codeLens);
-    });
+    }
 
     return codeLenses;
   }
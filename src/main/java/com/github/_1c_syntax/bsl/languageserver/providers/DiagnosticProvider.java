@@ -21,11 +21,16 @@
  */
 package com.github._1c_syntax.bsl.languageserver.providers;
 
+import com.github._1c_syntax.bsl.languageserver.configuration.DiagnosticLanguage;
 import com.github._1c_syntax.bsl.languageserver.configuration.LanguageServerConfiguration;
 import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
 import com.github._1c_syntax.bsl.languageserver.context.FileType;
 import com.github._1c_syntax.bsl.languageserver.context.computer.DiagnosticIgnoranceComputer;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.BSLDiagnostic;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.ComputedDiagnostics;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.DiagnosticDispatcher;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.DiagnosticIndex;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.DiagnosticResources;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticCompatibilityMode;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticMetadata;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticParameter;
@@ -33,10 +38,10 @@ import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticS
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticSeverity;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticTag;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticType;
-import com.github._1c_syntax.bsl.languageserver.utils.UTF8Control;
+import com.github._1c_syntax.bsl.languageserver.profiling.Profiler;
 import com.github._1c_syntax.mdclasses.metadata.additional.CompatibilityMode;
 import com.google.common.annotations.VisibleForTesting;
-import org.apache.commons.io.IOUtils;
+import lombok.Value;
 import org.eclipse.lsp4j.Diagnostic;
 import org.eclipse.lsp4j.PublishDiagnosticsParams;
 import org.eclipse.lsp4j.jsonrpc.messages.Either;
@@ -47,22 +52,22 @@ import org.reflections.util.ConfigurationBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.ResourceBundle;
-import java.util.Set;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.reflections.ReflectionUtils.getAllFields;
 import static org.reflections.ReflectionUtils.withAnnotation;
@@ -82,9 +87,19 @@ public final class DiagnosticProvider {
     = createSeverityToLSPSeverityMap();
   private static Map<String, Class<? extends BSLDiagnostic>> diagnosticsCodes
     = createDiagnosticsCodes(diagnosticClasses);
+  private static Map<Class<? extends BSLDiagnostic>, Constructor<? extends BSLDiagnostic>> diagnosticConstructors
+    = createDiagnosticConstructors(diagnosticClasses);
+
+  static {
+    DiagnosticResources.preload(diagnosticClasses);
+  }
 
   private final LanguageServerConfiguration configuration;
-  private final Map<String, Set<Diagnostic>> computedDiagnostics;
+  private final Map<String, ComputedDiagnostics> computedDiagnostics;
+  private final Queue<DiagnosticInstances> diagnosticInstancesPool = new ConcurrentLinkedQueue<>();
+  private final Map<Class<? extends BSLDiagnostic>, BSLDiagnostic> sharedDiagnosticInstances
+    = new ConcurrentHashMap<>();
+  private volatile DiagnosticsConfigurationKey pooledConfigurationKey;
 
   public DiagnosticProvider() {
     this(LanguageServerConfiguration.create());
@@ -92,7 +107,7 @@ public final class DiagnosticProvider {
 
   public DiagnosticProvider(LanguageServerConfiguration configuration) {
     this.configuration = configuration;
-    computedDiagnostics = new HashMap<>();
+    computedDiagnostics = new ConcurrentHashMap<>();
   }
 
   public void computeAndPublishDiagnostics(LanguageClient client, DocumentContext documentContext) {
@@ -103,13 +118,25 @@ public final class DiagnosticProvider {
 
   public void publishEmptyDiagnosticList(LanguageClient client, DocumentContext documentContext) {
     List<Diagnostic> diagnostics = new ArrayList<>();
-    computedDiagnostics.put(documentContext.getUri(), new LinkedHashSet<>());
+    storeComputedDiagnostics(documentContext, diagnostics);
     client.publishDiagnostics(
       new PublishDiagnosticsParams(documentContext.getUri(), diagnostics)
     );
   }
 
   public List<Diagnostic> computeDiagnostics(DocumentContext documentContext) {
+    Profiler profiler = documentContext.getServerContext().getProfiler();
+    List<Diagnostic> diagnostics = profiler.measureFile(
+      documentContext.getUri(),
+      () -> documentContext.computeWithPinnedAST(() -> computeDiagnostics(documentContext, profiler))
+    );
+
+    storeComputedDiagnostics(documentContext, diagnostics);
+
+    return diagnostics;
+  }
+
+  private List<Diagnostic> computeDiagnostics(DocumentContext documentContext, Profiler profiler) {
 
     DiagnosticIgnoranceComputer.Data diagnosticIgnorance = documentContext.getDiagnosticIgnorance();
     CompatibilityMode contextCompatibilityMode = documentContext
@@ -117,24 +144,83 @@ public final class DiagnosticProvider {
       .getConfiguration()
       .getCompatibilityMode();
 
-    List<Diagnostic> diagnostics =
-      getDiagnosticInstances(documentContext.getFileType(), contextCompatibilityMode).parallelStream()
-      .flatMap(diagnostic -> diagnostic.getDiagnostics(documentContext).stream())
-      .filter((Diagnostic diagnostic) ->
-        !diagnosticIgnorance.diagnosticShouldBeIgnored(diagnostic))
-      .collect(Collectors.toList());
-
-    computedDiagnostics.put(documentContext.getUri(), new LinkedHashSet<>(diagnostics));
+    DiagnosticInstances diagnosticInstances = borrowDiagnosticInstances();
+    try {
+      List<BSLDiagnostic> diagnostics = diagnosticInstances.filter(
+        documentContext.getFileType(),
+        contextCompatibilityMode
+      );
 
-    return diagnostics;
+      Stream<Diagnostic> diagnosticStream;
+      if (profiler.isEnabled()) {
+        diagnosticStream = getProfiledDiagnostics(documentContext, diagnostics, profiler);
+      } else {
+        diagnosticStream = new DiagnosticDispatcher(diagnostics).getDiagnostics(documentContext).stream();
+      }
+
+      return diagnosticStream
+        .filter((Diagnostic diagnostic) ->
+          !diagnosticIgnorance.diagnosticShouldBeIgnored(diagnostic))
+        .collect(Collectors.toList());
+    } finally {
+      releaseDiagnosticInstances(diagnosticInstances);
+    }
   }
 
-  public Set<Diagnostic> getComputedDiagnostics(DocumentContext documentContext) {
-    return computedDiagnostics.getOrDefault(documentContext.getUri(), new LinkedHashSet<>());
+  /**
+   * Расчет диагностик по одной, с замером каждой.
+   * <p>
+   * При совместном обходе дерева время диагностик не разделить, поэтому при профилировании
+   * каждая диагностика обходит дерево сама. Данные документа вычисляются заранее,
+   * чтобы их расчет не попал в замер первой обратившейся к ним диагностики.
+   */
+  private static Stream<Diagnostic> getProfiledDiagnostics(
+    DocumentContext documentContext,
+    List<BSLDiagnostic> diagnostics,
+    Profiler profiler
+  ) {
+    documentContext.getMethods();
+    documentContext.getCognitiveComplexityData();
+
+    List<Diagnostic> result = new ArrayList<>();
+    for (BSLDiagnostic diagnostic : diagnostics) {
+      result.addAll(profiler.measureDiagnostic(
+        getDiagnosticCode(diagnostic),
+        () -> diagnostic.getDiagnostics(documentContext)
+      ));
+    }
+    return result.stream();
+  }
+
+  /**
+   * Рассчитанные диагностики версии документа.
+   *
+   * @param documentContext Версия документа.
+   * @return Диагностики, рассчитанные именно для этой версии, иначе - пустой снимок.
+   */
+  public ComputedDiagnostics getComputedDiagnostics(DocumentContext documentContext) {
+    ComputedDiagnostics documentDiagnostics = computedDiagnostics.get(documentContext.getUri());
+    if (documentDiagnostics == null || documentDiagnostics.getVersion() != documentContext.getVersion()) {
+      return ComputedDiagnostics.empty();
+    }
+    return documentDiagnostics;
   }
 
   public void clearComputedDiagnostics(DocumentContext documentContext) {
-    computedDiagnostics.put(documentContext.getUri(), new LinkedHashSet<>());
+    storeComputedDiagnostics(documentContext, Collections.emptyList());
+  }
+
+  /**
+   * Сохранение снимка диагностик. Снимок более старой версии документа не заменяет более новый:
+   * расчет по устаревшей версии может завершиться уже после изменения документа.
+   */
+  private void storeComputedDiagnostics(DocumentContext documentContext, List<Diagnostic> diagnostics) {
+    computedDiagnostics.merge(
+      documentContext.getUri(),
+      new ComputedDiagnostics(documentContext.getVersion(), diagnostics),
+      (ComputedDiagnostics stored, ComputedDiagnostics computed) ->
+        computed.getVersion() >= stored.getVersion() ? computed : stored
+    );
   }
 
   public static List<Class<? extends BSLDiagnostic>> getDiagnosticClasses() {
@@ -162,7 +248,7 @@ public final class DiagnosticProvider {
   }
 
   public static String getDiagnosticName(Class<? extends BSLDiagnostic> diagnosticClass) {
-    return ResourceBundle.getBundle(diagnosticClass.getName(), new UTF8Control()).getString("diagnosticName");
+    return DiagnosticResources.get(diagnosticClass).getName(DiagnosticResources.getCurrentLanguage());
   }
 
   public static String getDiagnosticName(BSLDiagnostic diagnostic) {
@@ -170,21 +256,7 @@ public final class DiagnosticProvider {
   }
 
   public String getDiagnosticDescription(Class<? extends BSLDiagnostic> diagnosticClass) {
-
-    String langCode = configuration.getDiagnosticLanguage().getLanguageCode();
-    
-    String diagnosticCode = getDiagnosticCode(diagnosticClass);
-    InputStream descriptionStream = diagnosticClass.getResourceAsStream(langCode + "/" + diagnosticCode + ".md");
-
-    if (descriptionStream == null) {
-      return "";
-    }
-
-    try {
-      return IOUtils.toString(descriptionStream, StandardCharsets.UTF_8);
-    } catch (IOException e) {
-      return "";
-    }
+    return DiagnosticResources.get(diagnosticClass).getDescription(configuration.getDiagnosticLanguage());
   }
 
   public String getDiagnosticDescription(BSLDiagnostic diagnostic) {
@@ -304,8 +376,14 @@ public final class DiagnosticProvider {
     }
   }
 
-  @SuppressWarnings("unchecked")
   private static List<Class<? extends BSLDiagnostic>> createDiagnosticClasses() {
+    return DiagnosticIndex.read().orElseGet(DiagnosticProvider::scanDiagnosticClasses);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static List<Class<? extends BSLDiagnostic>> scanDiagnosticClasses() {
+
+    LOGGER.debug("Diagnostic index not found, scanning classpath");
 
     Reflections diagnosticReflections = new Reflections(
       new ConfigurationBuilder()
@@ -375,11 +453,33 @@ public final class DiagnosticProvider {
     );
   }
 
-  public BSLDiagnostic getDiagnosticInstance(Class<? extends BSLDiagnostic> diagnosticClass) {
-    BSLDiagnostic diagnosticInstance = createDiagnosticInstance(diagnosticClass);
-    configureDiagnostic(diagnosticInstance);
+  private static Map<Class<? extends BSLDiagnostic>, Constructor<? extends BSLDiagnostic>> createDiagnosticConstructors(
+    List<Class<? extends BSLDiagnostic>> diagnosticClasses
+  ) {
+    Map<Class<? extends BSLDiagnostic>, Constructor<? extends BSLDiagnostic>> constructors = new HashMap<>();
+    for (Class<? extends BSLDiagnostic> diagnosticClass : diagnosticClasses) {
+      try {
+        constructors.put(diagnosticClass, diagnosticClass.getDeclaredConstructor());
+      } catch (NoSuchMethodException e) {
+        LOGGER.error("Can't find default constructor of diagnostic", e);
+      }
+    }
+    return constructors;
+  }
 
-    return diagnosticInstance;
+  /**
+   * Настроенный экземпляр диагностики для построения квикфиксов.
+   * <p>
+   * Экземпляр общий для всех вызовов при текущей конфигурации, поэтому использовать его
+   * для расчета диагностик нельзя - для этого экземпляры берутся из пула.
+   */
+  public BSLDiagnostic getDiagnosticInstance(Class<? extends BSLDiagnostic> diagnosticClass) {
+    actualizeDiagnosticInstancesPool();
+    return sharedDiagnosticInstances.computeIfAbsent(diagnosticClass, (Class<? extends BSLDiagnostic> aClass) -> {
+      BSLDiagnostic diagnosticInstance = createDiagnosticInstance(aClass);
+      configureDiagnostic(diagnosticInstance);
+      return diagnosticInstance;
+    });
   }
 
   @VisibleForTesting
@@ -391,20 +491,53 @@ public final class DiagnosticProvider {
       ).collect(Collectors.toList());
   }
 
-  private List<BSLDiagnostic> getDiagnosticInstances(FileType fileType, CompatibilityMode compatibilityMode) {
-    return diagnosticClasses.stream()
-      .filter(this::isEnabled)
-      .filter(element -> inScope(element, fileType))
-      .filter(element -> passedCompatibilityMode(element, compatibilityMode))
-      .map(DiagnosticProvider::createDiagnosticInstance)
-      .peek(this::configureDiagnostic
-      ).collect(Collectors.toList());
+  /**
+   * Получение набора настроенных экземпляров диагностик из пула.
+   * <p>
+   * Набор используется монопольно до возврата в пул через releaseDiagnosticInstances.
+   * Если конфигурация изменилась, пул сбрасывается, и экземпляры создаются заново.
+   */
+  private DiagnosticInstances borrowDiagnosticInstances() {
+    DiagnosticsConfigurationKey configurationKey = actualizeDiagnosticInstancesPool();
+    DiagnosticInstances diagnosticInstances = diagnosticInstancesPool.poll();
+    if (diagnosticInstances == null || diagnosticInstances.getConfigurationKey() != configurationKey) {
+      diagnosticInstances = new DiagnosticInstances(configurationKey, getDiagnosticInstances());
+    }
+    return diagnosticInstances;
+  }
+
+  private void releaseDiagnosticInstances(DiagnosticInstances diagnosticInstances) {
+    if (diagnosticInstances.getConfigurationKey() == pooledConfigurationKey) {
+      diagnosticInstancesPool.offer(diagnosticInstances);
+    }
+  }
+
+  private DiagnosticsConfigurationKey actualizeDiagnosticInstancesPool() {
+    DiagnosticsConfigurationKey configurationKey = pooledConfigurationKey;
+    if (configurationKey != null && configurationKey.isActualFor(configuration)) {
+      return configurationKey;
+    }
+
+    synchronized (diagnosticInstancesPool) {
+      configurationKey = pooledConfigurationKey;
+      if (configurationKey == null || !configurationKey.isActualFor(configuration)) {
+        configurationKey = DiagnosticsConfigurationKey.create(configuration);
+        diagnosticInstancesPool.clear();
+        sharedDiagnosticInstances.clear();
+        pooledConfigurationKey = configurationKey;
+      }
+    }
+    return configurationKey;
   }
 
   private static BSLDiagnostic createDiagnosticInstance(Class<? extends BSLDiagnostic> diagnosticClass) {
     BSLDiagnostic diagnostic = null;
     try {
-      diagnostic = diagnosticClass.getDeclaredConstructor().newInstance();
+      Constructor<? extends BSLDiagnostic> constructor = diagnosticConstructors.get(diagnosticClass);
+      if (constructor == null) {
+        constructor = diagnosticClass.getDeclaredConstructor();
+      }
+      diagnostic = constructor.newInstance();
     } catch (InstantiationException | IllegalAccessException | NoSuchMethodException | InvocationTargetException e) {
       LOGGER.error("Can't instantiate diagnostic", e);
     }
@@ -446,7 +579,20 @@ public final class DiagnosticProvider {
     }
   }
 
-  private boolean isEnabled(Class<? extends BSLDiagnostic> diagnosticClass) {
+  /**
+   * Признак включения диагностики в текущей конфигурации.
+   */
+  public boolean isEnabled(Class<? extends BSLDiagnostic> diagnosticClass) {
+    return isEnabled(configuration, diagnosticClass);
+  }
+
+  /**
+   * Признак включения диагностики в конфигурации.
+   */
+  public static boolean isEnabled(
+    LanguageServerConfiguration configuration,
+    Class<? extends BSLDiagnostic> diagnosticClass
+  ) {
     if (diagnosticClass == null) {
       return false;
     }
@@ -465,4 +611,41 @@ public final class DiagnosticProvider {
       || enabledDirectly;
   }
 
+  @Value
+  private static class DiagnosticInstances {
+    DiagnosticsConfigurationKey configurationKey;
+    List<BSLDiagnostic> instances;
+
+    List<BSLDiagnostic> filter(FileType fileType, CompatibilityMode compatibilityMode) {
+      return instances.stream()
+        .filter(diagnostic -> inScope(diagnostic.getClass(), fileType))
+        .filter(diagnostic -> passedCompatibilityMode(diagnostic.getClass(), compatibilityMode))
+        .collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * Настройки диагностик, для которых созданы экземпляры пула.
+   * <p>
+   * Настройки диагностик заменяются целиком (при изменении конфигурации копируются свойства новой
+   * конфигурации), поэтому актуальность проверяется по ссылке на набор настроек, без сравнения содержимого.
+   */
+  @Value
+  private static class DiagnosticsConfigurationKey {
+    DiagnosticLanguage diagnosticLanguage;
+    Map<String, Either<Boolean, Map<String, Object>>> diagnostics;
+
+    static DiagnosticsConfigurationKey create(LanguageServerConfiguration configuration) {
+      return new DiagnosticsConfigurationKey(
+        configuration.getDiagnosticLanguage(),
+        configuration.getDiagnostics()
+      );
+    }
+
+    boolean isActualFor(LanguageServerConfiguration configuration) {
+      return diagnosticLanguage == configuration.getDiagnosticLanguage()
+        && diagnostics == configuration.getDiagnostics();
+    }
+  }
+
 }
@@ -0,0 +1,186 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.providers;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.PublishDiagnosticsParams;
+import org.eclipse.lsp4j.services.LanguageClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Планировщик фонового расчета диагностик.
+ * <p>
+ * Запросы на расчет по одному документу объединяются: новый запрос отменяет ожидающий,
+ * а результат расчета, начатого до последнего изменения документа, не публикуется.
+ * Проверка актуальности и публикация выполняются под той же блокировкой, что и отмена,
+ * поэтому после возврата из {@link #cancel(String)} устаревший результат опубликован не будет.
+ * Расчет выполняется на ограниченном пуле потоков, не блокируя обработку сообщений LSP.
+ */
+public class DiagnosticScheduler {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DiagnosticScheduler.class.getSimpleName());
+
+  private final DiagnosticProvider diagnosticProvider;
+  private final ScheduledExecutorService executorService;
+  private final AtomicLong versionSequence = new AtomicLong();
+  private final Map<String, Long> versions = new ConcurrentHashMap<>();
+  private final Map<String, Future<?>> tasks = new ConcurrentHashMap<>();
+
+  public DiagnosticScheduler(DiagnosticProvider diagnosticProvider) {
+    this(diagnosticProvider, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+  }
+
+  public DiagnosticScheduler(DiagnosticProvider diagnosticProvider, int threadCount) {
+    this.diagnosticProvider = diagnosticProvider;
+
+    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(threadCount, new DaemonThreadFactory());
+    executor.setRemoveOnCancelPolicy(true);
+    executorService = executor;
+  }
+
+  /**
+   * Запланировать расчет и публикацию диагностик документа.
+   *
+   * @param client          клиент, которому публикуются диагностики
+   * @param documentContext документ
+   * @param delay           задержка перед расчетом в миллисекундах
+   */
+  public void schedule(LanguageClient client, DocumentContext documentContext, long delay) {
+    String uri = documentContext.getUri();
+    long version = nextVersion(uri);
+    AtomicReference<Future<?>> taskReference = new AtomicReference<>();
+
+    // задача удаляет себя по завершении под той же блокировкой, под которой добавляется
+    synchronized (tasks) {
+      Future<?> task = executorService.schedule(
+        () -> computeAndPublishDiagnostics(client, documentContext, version, taskReference),
+        Math.max(0, delay),
+        TimeUnit.MILLISECONDS
+      );
+      taskReference.set(task);
+
+      Future<?> previousTask = tasks.put(uri, task);
+      if (previousTask != null) {
+        previousTask.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * Отменить ожидающий расчет и сделать неактуальным уже выполняющийся.
+   * <p>
+   * Планировщик больше не хранит данных документа до следующего запроса на расчет,
+   * поэтому метод вызывается и при закрытии документа.
+   *
+   * @param uri URI документа
+   */
+  public void cancel(String uri) {
+    synchronized (versions) {
+      versions.remove(uri);
+    }
+    Future<?> task = tasks.remove(uri);
+    if (task != null) {
+      task.cancel(false);
+    }
+  }
+
+  public void cancelAll() {
+    tasks.keySet().forEach(this::cancel);
+  }
+
+  private long nextVersion(String uri) {
+    long version = versionSequence.incrementAndGet();
+    synchronized (versions) {
+      versions.put(uri, version);
+    }
+    return version;
+  }
+
+  private boolean isActual(String uri, long version) {
+    return versions.getOrDefault(uri, 0L) == version;
+  }
+
+  private void computeAndPublishDiagnostics(
+    LanguageClient client,
+    DocumentContext documentContext,
+    long version,
+    AtomicReference<Future<?>> taskReference
+  ) {
+    try {
+      computeAndPublishDiagnostics(client, documentContext, version);
+    } finally {
+      synchronized (tasks) {
+        tasks.remove(documentContext.getUri(), taskReference.get());
+      }
+    }
+  }
+
+  private void computeAndPublishDiagnostics(LanguageClient client, DocumentContext documentContext, long version) {
+    String uri = documentContext.getUri();
+    if (!isActual(uri, version)) {
+      return;
+    }
+
+    List<Diagnostic> diagnostics;
+    try {
+      diagnostics = diagnosticProvider.computeDiagnostics(documentContext);
+    } catch (RuntimeException e) {
+      // документ мог быть изменен во время расчета
+      if (isActual(uri, version)) {
+        LOGGER.error("Can't compute diagnostics", e);
+      }
+      return;
+    }
+
+    synchronized (versions) {
+      if (isActual(uri, version)) {
+        client.publishDiagnostics(new PublishDiagnosticsParams(uri, diagnostics));
+      }
+    }
+  }
+
+  private static class DaemonThreadFactory implements ThreadFactory {
+
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "bsl-diagnostics-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -108,7 +108,7 @@ public final class FormatProvider {
     int endLine = end.getLine() + 1;
     int endCharacter = end.getCharacter();
 
-    List<Token> tokens = documentContext.getTokens().stream()
+    List<Token> tokens = documentContext.getTokensOnLines(startLine, endLine).stream()
       .filter((Token token) -> {
         int tokenLine = token.getLine();
         int tokenCharacter = token.getCharPositionInLine();
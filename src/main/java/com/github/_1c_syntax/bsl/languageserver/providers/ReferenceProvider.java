@@ -0,0 +1,65 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.providers;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
+import com.github._1c_syntax.bsl.languageserver.context.index.IndexedMethod;
+import com.github._1c_syntax.bsl.languageserver.context.index.ReferenceResolver;
+import com.github._1c_syntax.bsl.languageserver.context.index.WorkspaceIndexer;
+import org.eclipse.lsp4j.Location;
+import org.eclipse.lsp4j.ReferenceParams;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class ReferenceProvider {
+
+  private ReferenceProvider() {
+    // only statics
+  }
+
+  public static List<Location> getReferences(
+    ReferenceParams params,
+    DocumentContext documentContext,
+    ServerContext context
+  ) {
+    ReferenceResolver referenceResolver = new ReferenceResolver(context);
+    String documentUri = WorkspaceIndexer.normalizeUri(documentContext.getUri());
+    boolean includeDeclaration = params.getContext() != null && params.getContext().isIncludeDeclaration();
+
+    List<Location> locations = new ArrayList<>();
+    for (IndexedMethod declaration : referenceResolver.findDeclarations(documentContext, params.getPosition())) {
+      if (includeDeclaration) {
+        locations.add(new Location(declaration.getUri(), declaration.getSubNameRange()));
+      }
+
+      referenceResolver.findReferences(documentContext, declaration).forEach((reference) -> {
+        // ссылки открытого документа возвращаются с URI, полученным от клиента
+        String uri = reference.getUri().equals(documentUri) ? documentContext.getUri() : reference.getUri();
+        locations.add(new Location(uri, reference.getRange()));
+      });
+    }
+
+    return locations;
+  }
+}
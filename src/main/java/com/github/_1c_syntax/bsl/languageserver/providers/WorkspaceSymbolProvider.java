@@ -0,0 +1,55 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.providers;
+
+import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
+import com.github._1c_syntax.bsl.languageserver.context.index.IndexedMethod;
+import org.eclipse.lsp4j.Location;
+import org.eclipse.lsp4j.SymbolInformation;
+import org.eclipse.lsp4j.SymbolKind;
+import org.eclipse.lsp4j.WorkspaceSymbolParams;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+public final class WorkspaceSymbolProvider {
+
+  private WorkspaceSymbolProvider() {
+    // only statics
+  }
+
+  public static List<SymbolInformation> getSymbols(WorkspaceSymbolParams params, ServerContext context) {
+    String query = params.getQuery() == null ? "" : params.getQuery();
+
+    return context.getWorkspaceSymbolIndex().find(query).stream()
+      .map(WorkspaceSymbolProvider::toSymbolInformation)
+      .collect(Collectors.toList());
+  }
+
+  private static SymbolInformation toSymbolInformation(IndexedMethod indexedMethod) {
+    return new SymbolInformation(
+      indexedMethod.getName(),
+      SymbolKind.Method,
+      new Location(indexedMethod.getUri(), indexedMethod.getRange())
+    );
+  }
+}
@@ -62,6 +62,46 @@ public final class DiagnosticHelper {
     return true;
   }
 
+  /**
+   * Структурный хэш узла, согласованный с {@link #equalNodes(Tree, Tree)}: равные узлы имеют равные хэши.
+   * <p>
+   * Вычисляется обходом всего поддерева. Для узлов документа используйте хэши, рассчитанные
+   * при построении индекса узлов, см. {@link NodeIndex#getHash(ParseTree)}.
+   */
+  public static int hashNode(Tree node) {
+    int hash = hashNodeStart(node);
+    for (int i = 0; i < node.getChildCount(); i++) {
+      hash = combineHash(hash, hashNode(node.getChild(i)));
+    }
+    return hash;
+  }
+
+  /**
+   * Начальное значение хэша узла: класс узла, количество дочерних узлов, для терминального узла - токен.
+   * Текст токена учитывается без учета регистра, кроме строковых литералов.
+   */
+  static int hashNodeStart(Tree node) {
+    int hash = 31 * node.getClass().hashCode() + node.getChildCount();
+    if (node instanceof TerminalNode) {
+      int type = ((TerminalNode) node).getSymbol().getType();
+      hash = 31 * hash + type;
+
+      String text = node.toString();
+      for (int i = 0; i < text.length(); i++) {
+        char c = text.charAt(i);
+        if (type != BSLParser.STRING) {
+          c = Character.toLowerCase(Character.toUpperCase(c));
+        }
+        hash = 31 * hash + c;
+      }
+    }
+    return hash;
+  }
+
+  static int combineHash(int hash, int childHash) {
+    return 31 * hash + childHash;
+  }
+
   public static boolean isStructureType(ParseTree tnc) {
     return "Структура".equalsIgnoreCase(tnc.getText()) || "Structure".equalsIgnoreCase(tnc.getText());
   }
@@ -0,0 +1,122 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.utils;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Formattable;
+import java.util.List;
+
+/**
+ * Разобранный заранее шаблон сообщения в формате {@link String#format(String, Object...)}.
+ * <p>
+ * Поддерживаются подстановки {@code %s} и {@code %d}, а также {@code %%} и {@code %n}. Шаблон разбирается
+ * один раз, подстановка аргументов - простая склейка строк. Шаблоны с другими спецификаторами и аргументы,
+ * которые склейкой не выразить, форматируются через {@link String#format(String, Object...)}.
+ */
+public final class MessageTemplate {
+
+  private final String pattern;
+  /**
+   * Текст между подстановками, на один элемент больше, чем подстановок. null - шаблон не разобран.
+   */
+  private final String[] literals;
+  private final char[] conversions;
+
+  private MessageTemplate(String pattern, String[] literals, char[] conversions) {
+    this.pattern = pattern;
+    this.literals = literals;
+    this.conversions = conversions;
+  }
+
+  public static MessageTemplate compile(String pattern) {
+    List<String> literals = new ArrayList<>();
+    StringBuilder conversions = new StringBuilder();
+    StringBuilder literal = new StringBuilder();
+
+    int length = pattern.length();
+    for (int i = 0; i < length; i++) {
+      char currentChar = pattern.charAt(i);
+      if (currentChar != '%') {
+        literal.append(currentChar);
+        continue;
+      }
+
+      char conversion = i + 1 < length ? pattern.charAt(i + 1) : 0;
+      i++;
+      if (conversion == '%') {
+        literal.append('%');
+      } else if (conversion == 'n') {
+        literal.append(System.lineSeparator());
+      } else if (conversion == 's' || conversion == 'd') {
+        literals.add(literal.toString());
+        literal.setLength(0);
+        conversions.append(conversion);
+      } else {
+        return new MessageTemplate(pattern, null, null);
+      }
+    }
+    literals.add(literal.toString());
+
+    return new MessageTemplate(pattern, literals.toArray(new String[0]), conversions.toString().toCharArray());
+  }
+
+  public String getPattern() {
+    return pattern;
+  }
+
+  public String format(Object... args) {
+    if (literals == null || args.length < conversions.length) {
+      return String.format(pattern, args);
+    }
+
+    StringBuilder sb = new StringBuilder(pattern.length() + 16 * conversions.length);
+    sb.append(literals[0]);
+    for (int i = 0; i < conversions.length; i++) {
+      if (!appendArgument(sb, conversions[i], args[i])) {
+        return String.format(pattern, args);
+      }
+      sb.append(literals[i + 1]);
+    }
+
+    return sb.toString();
+  }
+
+  private static boolean appendArgument(StringBuilder sb, char conversion, Object arg) {
+    if (arg instanceof Formattable) {
+      return false;
+    }
+
+    if (conversion == 's') {
+      sb.append(arg);
+      return true;
+    }
+
+    if (arg == null || arg instanceof Integer || arg instanceof Long || arg instanceof Short
+      || arg instanceof Byte || arg instanceof BigInteger) {
+      sb.append(arg);
+      return true;
+    }
+
+    return false;
+  }
+}
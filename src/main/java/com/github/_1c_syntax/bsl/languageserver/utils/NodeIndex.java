@@ -0,0 +1,391 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.utils;
+
+import com.github._1c_syntax.bsl.parser.BSLLexer;
+import com.github._1c_syntax.bsl.parser.BSLParser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.antlr.v4.runtime.tree.Tree;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Индекс узлов дерева разбора по типам.
+ * <p>
+ * Строится одним обходом дерева и хранит для каждого правила ({@code BSLParser.RULE_*}) узлы этого правила,
+ * для каждого типа токена ({@code BSLLexer.*}) - терминальные узлы дерева, в порядке следования в документе.
+ * Дополнительно хранит индексы токенов каждого типа в полном списке токенов документа (всех каналов).
+ * Поиск всех узлов типа по документу не обходит дерево и занимает время, пропорциональное количеству найденных.
+ * <p>
+ * Узлы пронумерованы в прямом порядке обхода, для каждого узла известен номер последнего узла его поддерева.
+ * Поддерево узла - непрерывный отрезок номеров, поэтому проверка вложенности узлов, поиск узлов правила
+ * внутри узла и поиск предыдущего/следующего узла правила выполняются двоичным поиском без обхода дерева.
+ * <p>
+ * Для каждого узла хранится структурный хэш поддерева (см. {@link DiagnosticHelper#hashNode(Tree)}),
+ * вычисленный снизу вверх за один проход: одинаковые поддеревья можно искать группировкой по хэшу,
+ * проверяя совпадение {@link DiagnosticHelper#equalNodes(Tree, Tree)} только внутри группы.
+ */
+public final class NodeIndex {
+
+  private static final ParseTree[] EMPTY_NODES = new ParseTree[0];
+  private static final int[] EMPTY_INDEXES = new int[0];
+
+  private final ParseTree[][] ruleNodes;
+  private final int[][] ruleNodeNumbers;
+  private final ParseTree[][] tokenNodes;
+  private final int[][] tokenIndexes;
+  private final Map<ParseTree, Integer> numbers;
+  private final int[] subtreeEnds;
+  private final int[] hashes;
+
+  private NodeIndex(
+    ParseTree[][] ruleNodes,
+    int[][] ruleNodeNumbers,
+    ParseTree[][] tokenNodes,
+    int[][] tokenIndexes,
+    Map<ParseTree, Integer> numbers,
+    int[] subtreeEnds,
+    int[] hashes
+  ) {
+    this.ruleNodes = ruleNodes;
+    this.ruleNodeNumbers = ruleNodeNumbers;
+    this.tokenNodes = tokenNodes;
+    this.tokenIndexes = tokenIndexes;
+    this.numbers = numbers;
+    this.subtreeEnds = subtreeEnds;
+    this.hashes = hashes;
+  }
+
+  /**
+   * Построение индекса.
+   *
+   * @param root   Корень дерева разбора.
+   * @param tokens Все токены документа.
+   * @return Индекс узлов дерева и токенов.
+   */
+  public static NodeIndex create(ParseTree root, List<Token> tokens) {
+    int tokenTypesCount = BSLLexer.VOCABULARY.getMaxTokenType() + 1;
+
+    List<ParseTree> nodes = collectNodes(root);
+
+    int[] ruleCounts = new int[BSLParser.ruleNames.length];
+    int[] tokenCounts = new int[tokenTypesCount];
+    for (ParseTree node : nodes) {
+      int index = getIndex(node);
+      if (node instanceof TerminalNode) {
+        countIndex(tokenCounts, index);
+      } else {
+        countIndex(ruleCounts, index);
+      }
+    }
+
+    ParseTree[][] ruleNodes = allocateNodes(ruleCounts);
+    int[][] ruleNodeNumbers = allocateNumbers(ruleCounts);
+    ParseTree[][] tokenNodes = allocateNodes(tokenCounts);
+    Map<ParseTree, Integer> numbers = new IdentityHashMap<>(nodes.size());
+    Arrays.fill(ruleCounts, 0);
+    Arrays.fill(tokenCounts, 0);
+    for (int number = 0; number < nodes.size(); number++) {
+      ParseTree node = nodes.get(number);
+      numbers.put(node, number);
+      int index = getIndex(node);
+      if (node instanceof TerminalNode) {
+        addNode(tokenNodes, null, tokenCounts, index, node, number);
+      } else {
+        addNode(ruleNodes, ruleNodeNumbers, ruleCounts, index, node, number);
+      }
+    }
+
+    // в обратном порядке потомки обрабатываются раньше предков:
+    // дочерние узлы идут подряд, каждый следующий - сразу за поддеревом предыдущего
+    int[] subtreeEnds = new int[nodes.size()];
+    int[] hashes = new int[nodes.size()];
+    for (int number = nodes.size() - 1; number >= 0; number--) {
+      ParseTree node = nodes.get(number);
+      int hash = DiagnosticHelper.hashNodeStart(node);
+      int end = number;
+      for (int i = 0; i < node.getChildCount(); i++) {
+        int childNumber = end + 1;
+        hash = DiagnosticHelper.combineHash(hash, hashes[childNumber]);
+        end = subtreeEnds[childNumber];
+      }
+      subtreeEnds[number] = end;
+      hashes[number] = hash;
+    }
+
+    return new NodeIndex(
+      ruleNodes,
+      ruleNodeNumbers,
+      tokenNodes,
+      indexTokens(tokens, tokenTypesCount),
+      numbers,
+      subtreeEnds,
+      hashes
+    );
+  }
+
+  /**
+   * @param ruleIndex {@code BSLParser.RULE_*}
+   * @return Неизменяемый список узлов правила в порядке следования в документе.
+   */
+  public List<ParseTree> getRuleNodes(int ruleIndex) {
+    return asList(ruleNodes, ruleIndex);
+  }
+
+  /**
+   * Поиск узлов правила внутри узла.
+   *
+   * @param ruleIndex {@code BSLParser.RULE_*}
+   * @param within    Узел, в поддереве которого (включая сам узел) выполняется поиск.
+   * @return Неизменяемый список узлов правила в порядке следования в документе
+   * или пустой, если узел не из этого дерева.
+   */
+  public List<ParseTree> getRuleNodes(int ruleIndex, ParseTree within) {
+    int number = getNumber(within);
+    if (number < 0 || ruleIndex < 0 || ruleIndex >= ruleNodes.length) {
+      return Collections.emptyList();
+    }
+
+    int[] nodeNumbers = ruleNodeNumbers[ruleIndex];
+    int from = lowerBound(nodeNumbers, number);
+    int to = lowerBound(nodeNumbers, subtreeEnds[number] + 1);
+
+    return Collections.unmodifiableList(Arrays.asList(ruleNodes[ruleIndex]).subList(from, to));
+  }
+
+  /**
+   * @param node Узел дерева.
+   * @return Номер узла в прямом порядке обхода дерева или -1, если узел не из этого дерева.
+   */
+  public int getNumber(ParseTree node) {
+    Integer number = numbers.get(node);
+    return number == null ? -1 : number;
+  }
+
+  /**
+   * @param node Узел дерева.
+   * @return Структурный хэш поддерева узла, см. {@link DiagnosticHelper#hashNode(Tree)}.
+   * Для узла не из этого дерева хэш вычисляется обходом поддерева.
+   */
+  public int getHash(ParseTree node) {
+    int number = getNumber(node);
+    return number < 0 ? DiagnosticHelper.hashNode(node) : hashes[number];
+  }
+
+  /**
+   * Проверка вложенности узлов.
+   *
+   * @param node     Проверяемый узел.
+   * @param ancestor Предполагаемый предок.
+   * @return true, если узел находится в поддереве предка или совпадает с ним.
+   */
+  public boolean isInside(ParseTree node, ParseTree ancestor) {
+    int number = getNumber(node);
+    int ancestorNumber = getNumber(ancestor);
+    return number >= 0 && ancestorNumber >= 0
+      && ancestorNumber <= number && number <= subtreeEnds[ancestorNumber];
+  }
+
+  /**
+   * Поиск ближайшего узла правила, предшествующего узлу в прямом порядке обхода (в том числе его предка).
+   *
+   * @param node      Узел, для которого выполняется поиск.
+   * @param ruleIndex {@code BSLParser.RULE_*}
+   * @param within    Узел, в поддереве которого выполняется поиск.
+   * @return Найденный узел или null, если такого узла нет или узлы не из этого дерева.
+   */
+  @CheckForNull
+  public ParseTree getPreviousRuleNode(ParseTree node, int ruleIndex, ParseTree within) {
+    int number = getNumber(node);
+    int withinNumber = getNumber(within);
+    if (number < 0 || withinNumber < 0 || ruleIndex < 0 || ruleIndex >= ruleNodes.length) {
+      return null;
+    }
+
+    int[] nodeNumbers = ruleNodeNumbers[ruleIndex];
+    int position = lowerBound(nodeNumbers, number) - 1;
+    if (position < 0 || nodeNumbers[position] < withinNumber) {
+      return null;
+    }
+    return ruleNodes[ruleIndex][position];
+  }
+
+  /**
+   * Поиск ближайшего узла правила, следующего за узлом в прямом порядке обхода (в том числе его потомка).
+   *
+   * @param node      Узел, для которого выполняется поиск.
+   * @param ruleIndex {@code BSLParser.RULE_*}
+   * @param within    Узел, в поддереве которого выполняется поиск.
+   * @return Найденный узел или null, если такого узла нет или узлы не из этого дерева.
+   */
+  @CheckForNull
+  public ParseTree getNextRuleNode(ParseTree node, int ruleIndex, ParseTree within) {
+    int number = getNumber(node);
+    int withinNumber = getNumber(within);
+    if (number < 0 || withinNumber < 0 || ruleIndex < 0 || ruleIndex >= ruleNodes.length) {
+      return null;
+    }
+
+    int[] nodeNumbers = ruleNodeNumbers[ruleIndex];
+    int position = lowerBound(nodeNumbers, number + 1);
+    if (position >= nodeNumbers.length || nodeNumbers[position] > subtreeEnds[withinNumber]) {
+      return null;
+    }
+    return ruleNodes[ruleIndex][position];
+  }
+
+  /**
+   * @param tokenType {@code BSLLexer.*}
+   * @return Неизменяемый список терминальных узлов дерева с токенами указанного типа в порядке следования.
+   */
+  public List<ParseTree> getTokenNodes(int tokenType) {
+    return asList(tokenNodes, tokenType);
+  }
+
+  /**
+   * @param tokenType {@code BSLLexer.*}
+   * @return Индексы токенов указанного типа в списке всех токенов документа, по возрастанию.
+   * Массив общий, изменять его нельзя.
+   */
+  public int[] getTokenIndexes(int tokenType) {
+    if (tokenType < 0 || tokenType >= tokenIndexes.length) {
+      return EMPTY_INDEXES;
+    }
+    return tokenIndexes[tokenType];
+  }
+
+  /**
+   * Узлы дерева в прямом порядке обхода. Обход без рекурсии: глубина дерева не ограничена стеком.
+   */
+  private static List<ParseTree> collectNodes(ParseTree root) {
+    List<ParseTree> nodes = new ArrayList<>();
+    Deque<ParseTree> stack = new ArrayDeque<>();
+    stack.push(root);
+    while (!stack.isEmpty()) {
+      ParseTree node = stack.pop();
+      nodes.add(node);
+      for (int i = node.getChildCount() - 1; i >= 0; i--) {
+        stack.push(node.getChild(i));
+      }
+    }
+    return nodes;
+  }
+
+  private static int getIndex(ParseTree node) {
+    if (node instanceof TerminalNode) {
+      return ((TerminalNode) node).getSymbol().getType();
+    }
+    return ((ParserRuleContext) node).getRuleIndex();
+  }
+
+  private static void countIndex(int[] counts, int index) {
+    if (index >= 0 && index < counts.length) {
+      counts[index]++;
+    }
+  }
+
+  private static void addNode(
+    ParseTree[][] nodes,
+    @Nullable int[][] nodeNumbers,
+    int[] counts,
+    int index,
+    ParseTree node,
+    int number
+  ) {
+    if (index < 0 || index >= nodes.length) {
+      return;
+    }
+    if (nodeNumbers != null) {
+      nodeNumbers[index][counts[index]] = number;
+    }
+    nodes[index][counts[index]++] = node;
+  }
+
+  private static int[][] allocateNumbers(int[] counts) {
+    int[][] numbers = new int[counts.length][];
+    for (int i = 0; i < counts.length; i++) {
+      numbers[i] = counts[i] == 0 ? EMPTY_INDEXES : new int[counts[i]];
+    }
+    return numbers;
+  }
+
+  /**
+   * @return Позиция первого элемента отсортированного массива, не меньшего ключа.
+   */
+  private static int lowerBound(int[] values, int key) {
+    int low = 0;
+    int high = values.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (values[middle] < key) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private static ParseTree[][] allocateNodes(int[] counts) {
+    ParseTree[][] nodes = new ParseTree[counts.length][];
+    for (int i = 0; i < counts.length; i++) {
+      nodes[i] = counts[i] == 0 ? EMPTY_NODES : new ParseTree[counts[i]];
+    }
+    return nodes;
+  }
+
+  private static int[][] indexTokens(List<Token> tokens, int tokenTypesCount) {
+    int[] counts = new int[tokenTypesCount];
+    tokens.forEach(token -> countIndex(counts, token.getType()));
+
+    int[][] indexes = allocateNumbers(counts);
+
+    Arrays.fill(counts, 0);
+    for (int tokenIndex = 0; tokenIndex < tokens.size(); tokenIndex++) {
+      int type = tokens.get(tokenIndex).getType();
+      if (type >= 0 && type < tokenTypesCount) {
+        indexes[type][counts[type]++] = tokenIndex;
+      }
+    }
+    return indexes;
+  }
+
+  private static List<ParseTree> asList(ParseTree[][] nodes, int index) {
+    if (index < 0 || index >= nodes.length) {
+      return Collections.emptyList();
+    }
+    return Collections.unmodifiableList(Arrays.asList(nodes[index]));
+  }
+
+}
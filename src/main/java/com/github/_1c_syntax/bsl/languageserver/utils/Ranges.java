@@ -33,6 +33,18 @@ public final class Ranges {
     // Utility class
   }
 
+  public static boolean containsPosition(Range range, Position position) {
+    Position start = range.getStart();
+    Position end = range.getEnd();
+
+    boolean afterStart = position.getLine() > start.getLine()
+      || (position.getLine() == start.getLine() && position.getCharacter() >= start.getCharacter());
+    boolean beforeEnd = position.getLine() < end.getLine()
+      || (position.getLine() == end.getLine() && position.getCharacter() <= end.getCharacter());
+
+    return afterStart && beforeEnd;
+  }
+
   public static Range create(int startLine, int startChar, int endLine, int endChar) {
     return new Range(new Position(startLine, startChar), new Position(endLine, endChar));
   }
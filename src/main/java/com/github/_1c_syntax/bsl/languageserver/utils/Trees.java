@@ -21,6 +21,7 @@
  */
 package com.github._1c_syntax.bsl.languageserver.utils;
 
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
 import com.github._1c_syntax.bsl.parser.BSLParserRuleContext;
 import org.antlr.v4.runtime.ParserRuleContext;
 import org.antlr.v4.runtime.tree.ParseTree;
@@ -63,6 +64,60 @@ public final class Trees {
    * Собственная реализация
    */
 
+  /**
+   * Поиск всех узлов правила в документе по индексу узлов, без обхода дерева.
+   *
+   * @param documentContext документ
+   * @param ruleIndex       BSLParser.RULE_*
+   * @return неизменяемый список узлов в порядке следования в документе
+   */
+  public static List<ParseTree> findAllRuleNodes(DocumentContext documentContext, int ruleIndex) {
+    return documentContext.getNodeIndex().getRuleNodes(ruleIndex);
+  }
+
+  /**
+   * Поиск всех терминальных узлов с токеном указанного типа в документе по индексу узлов, без обхода дерева.
+   *
+   * @param documentContext документ
+   * @param ttype           BSLLexer.*
+   * @return неизменяемый список узлов в порядке следования в документе
+   */
+  public static List<ParseTree> findAllTokenNodes(DocumentContext documentContext, int ttype) {
+    return documentContext.getNodeIndex().getTokenNodes(ttype);
+  }
+
+  /**
+   * Поиск всех узлов правила внутри узла по индексу узлов документа, без обхода поддерева.
+   *
+   * @param documentContext документ, которому принадлежит узел
+   * @param t               узел, в поддереве которого (включая сам узел) выполняется поиск
+   * @param ruleIndex       BSLParser.RULE_*
+   * @return список узлов в порядке следования в документе
+   */
+  public static Collection<ParseTree> findAllRuleNodes(DocumentContext documentContext, ParseTree t, int ruleIndex) {
+    NodeIndex nodeIndex = documentContext.getNodeIndex();
+    if (nodeIndex.getNumber(t) < 0) {
+      return findAllRuleNodes(t, ruleIndex);
+    }
+    return nodeIndex.getRuleNodes(ruleIndex, t);
+  }
+
+  /**
+   * Проверяет, находится ли узел внутри другого узла (или совпадает с ним)
+   *
+   * @param documentContext документ, которому принадлежат узлы
+   * @param node            проверяемый узел
+   * @param ancestor        предполагаемый предок
+   * @return true - если узел находится в поддереве предка
+   */
+  public static boolean isInside(DocumentContext documentContext, ParseTree node, ParseTree ancestor) {
+    NodeIndex nodeIndex = documentContext.getNodeIndex();
+    if (nodeIndex.getNumber(node) < 0 || nodeIndex.getNumber(ancestor) < 0) {
+      return isInside(node, ancestor);
+    }
+    return nodeIndex.isInside(node, ancestor);
+  }
+
   private static int getRuleIndex(ParseTree node) {
     if (node instanceof TerminalNode) {
       return ((TerminalNode) node).getSymbol().getType();
@@ -94,13 +149,18 @@ public final class Trees {
   @CheckForNull
   public static ParserRuleContext getAncestorByRuleIndex(ParserRuleContext element, int type) {
     ParserRuleContext parent = element.getParent();
-    if (parent == null) {
-      return null;
+    while (parent != null && parent.getRuleIndex() != type) {
+      parent = parent.getParent();
     }
-    if (parent.getRuleIndex() == type) {
-      return parent;
+    return parent;
+  }
+
+  private static boolean isInside(ParseTree node, ParseTree ancestor) {
+    ParseTree current = node;
+    while (current != null && current != ancestor) {
+      current = current.getParent();
     }
-    return getAncestorByRuleIndex(parent, type);
+    return current != null;
   }
 
   /**
@@ -144,6 +204,29 @@ public final class Trees {
     return tnc;
   }
 
+  /**
+   * Выполняет поиск предыдущей ноды нужного типа по индексу узлов документа.
+   * Результат совпадает с {@link #getPreviousNode(ParseTree, ParseTree, int)}, но без обхода дерева.
+   *
+   * @param documentContext - документ, которому принадлежат ноды
+   * @param parent          - родительская нода, среди дочерних которой производится поиск
+   * @param tnc             - нода, для которой ищем предыдущую
+   * @param ruleindex       - BSLParser.RULE_*
+   * @return tnc - если предыдущая нода не найдена, вернет текущую
+   */
+  public static ParseTree getPreviousNode(DocumentContext documentContext, ParseTree parent, ParseTree tnc, int ruleindex) {
+    NodeIndex nodeIndex = documentContext.getNodeIndex();
+    if (nodeIndex.getNumber(parent) < 0 || nodeIndex.getNumber(tnc) < 0) {
+      return getPreviousNode(parent, tnc, ruleindex);
+    }
+    if (!(tnc instanceof BSLParserRuleContext) || !nodeIndex.isInside(tnc, parent)) {
+      return tnc;
+    }
+
+    ParseTree previousNode = nodeIndex.getPreviousRuleNode(tnc, ruleindex, parent);
+    return previousNode == null ? tnc : previousNode;
+  }
+
   /**
    * Выполняет поиск следующей ноды нужного типа
    *
@@ -164,6 +247,33 @@ public final class Trees {
     return tnc;
   }
 
+  /**
+   * Выполняет поиск следующей ноды нужного типа по индексу узлов документа.
+   * Результат совпадает с {@link #getNextNode(ParseTree, ParseTree, int)}, но без обхода дерева.
+   *
+   * @param documentContext - документ, которому принадлежат ноды
+   * @param parent          - родительская нода, среди дочерних которой производится поиск
+   * @param tnc             - нода, для которой ищем следующую
+   * @param ruleindex       - BSLParser.RULE_*
+   * @return tnc - если следующая нода не найдена, вернет текущую
+   */
+  public static ParseTree getNextNode(DocumentContext documentContext, ParseTree parent, ParseTree tnc, int ruleindex) {
+    NodeIndex nodeIndex = documentContext.getNodeIndex();
+    if (nodeIndex.getNumber(parent) < 0 || nodeIndex.getNumber(tnc) < 0) {
+      return getNextNode(parent, tnc, ruleindex);
+    }
+
+    ParseTree nextNode;
+    if (!(tnc instanceof BSLParserRuleContext) || !nodeIndex.isInside(tnc, parent)) {
+      // нода не входит в список кандидатов: как и при обходе, следующей считается первая нода родителя
+      List<ParseTree> ruleNodes = nodeIndex.getRuleNodes(ruleindex, parent);
+      nextNode = ruleNodes.isEmpty() ? null : ruleNodes.get(0);
+    } else {
+      nextNode = nodeIndex.getNextRuleNode(tnc, ruleindex, parent);
+    }
+    return nextNode == null ? tnc : nextNode;
+  }
+
   /**
    * Рекурсивно находит самого верхнего родителя текущей ноды
    */
@@ -0,0 +1,132 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.cli;
+
+import com.github._1c_syntax.bsl.languageserver.configuration.LanguageServerConfiguration;
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.FileInfo;
+import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticSeverity;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnalysisCacheTest {
+
+  private final Path cacheDir = Paths.get("./build/analysis-cache-test").toAbsolutePath();
+  private final Path sourceDir = Paths.get("./src/test/resources/cli");
+  private final File file = new File("./src/test/resources/cli/test.bsl");
+
+  @AfterEach
+  void tearDown() {
+    FileUtils.deleteQuietly(cacheDir.toFile());
+  }
+
+  @Test
+  void testGetAfterPut() {
+    // given
+    AnalysisCache analysisCache = new AnalysisCache(cacheDir, sourceDir, "fingerprint");
+    FileInfo fileInfo = createFileInfo("А = 1;");
+
+    // when
+    analysisCache.put(file, "А = 1;", fileInfo);
+
+    // then
+    Optional<FileInfo> cachedFileInfo = analysisCache.get(file, "А = 1;");
+    assertThat(cachedFileInfo).isPresent();
+    assertThat(cachedFileInfo.get().getDiagnostics()).isEqualTo(fileInfo.getDiagnostics());
+    assertThat(cachedFileInfo.get().getPath()).isEqualTo(fileInfo.getPath());
+
+    assertThat(analysisCache.get(file, "А = 2;")).isEmpty();
+    assertThat(new AnalysisCache(cacheDir, sourceDir, "other fingerprint").get(file, "А = 1;")).isEmpty();
+  }
+
+  @Test
+  void testRemoveUnusedEntries() {
+    // given
+    new AnalysisCache(cacheDir, sourceDir, "fingerprint").put(file, "А = 1;", createFileInfo("А = 1;"));
+
+    AnalysisCache analysisCache = new AnalysisCache(cacheDir, sourceDir, "fingerprint");
+    analysisCache.put(file, "А = 2;", createFileInfo("А = 2;"));
+
+    // when
+    analysisCache.removeUnusedEntries();
+
+    // then
+    assertThat(FileUtils.listFiles(cacheDir.toFile(), new String[]{"json"}, true)).hasSize(1);
+    assertThat(analysisCache.get(file, "А = 2;")).isPresent();
+  }
+
+  @Test
+  void testRemoveUnusedEntriesKeepsOtherSourceDirs() {
+    // given
+    Path otherSourceDir = Paths.get("./src/test/resources");
+    AnalysisCache otherCache = new AnalysisCache(cacheDir, otherSourceDir, "fingerprint");
+    otherCache.put(file, "А = 1;", createFileInfo("А = 1;"));
+
+    AnalysisCache analysisCache = new AnalysisCache(cacheDir, sourceDir, "fingerprint");
+    analysisCache.put(file, "А = 2;", createFileInfo("А = 2;"));
+
+    // when
+    analysisCache.removeUnusedEntries();
+
+    // then
+    assertThat(new AnalysisCache(cacheDir, otherSourceDir, "fingerprint").get(file, "А = 1;")).isPresent();
+    assertThat(analysisCache.get(file, "А = 2;")).isPresent();
+  }
+
+  @Test
+  void testFingerprint() {
+    // given
+    LanguageServerConfiguration configuration = LanguageServerConfiguration.create();
+    String fingerprint = AnalysisCache.computeFingerprint(configuration, null);
+
+    // when
+    configuration.getDiagnostics().put("LineLength", Either.forLeft(false));
+
+    // then
+    assertThat(AnalysisCache.computeFingerprint(configuration, null)).isNotEqualTo(fingerprint);
+  }
+
+  private FileInfo createFileInfo(String content) {
+    Diagnostic diagnostic = new Diagnostic(
+      Ranges.create(0, 1, 2, 3),
+      "message",
+      DiagnosticSeverity.Error,
+      "test-source",
+      "test"
+    );
+    DocumentContext documentContext = new DocumentContext(file.toURI().toString(), content, new ServerContext());
+    return new FileInfo(documentContext, Collections.singletonList(diagnostic));
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.cli;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.FileInfo;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class AnalysisPipelineTest {
+
+  private static final Path TEST_DIR = new File("./build/analysis-pipeline-test").toPath().toAbsolutePath();
+
+  @Test
+  void testFindFilesOrdersBySizeDescending() throws IOException {
+
+    // given
+    FileUtils.deleteDirectory(TEST_DIR.toFile());
+    writeFile("small.bsl", "А = 1;");
+    writeFile("nested/large.os", "А = 1;\nБ = 2;\nВ = 3;\n");
+    writeFile("medium.bsl", "А = 1;\nБ = 2;\n");
+    writeFile("other.txt", "А = 1;\nБ = 2;\nВ = 3;\nГ = 4;\n");
+
+    // when
+    List<File> files = AnalysisPipeline.findFiles(TEST_DIR, "bsl", "os");
+
+    // then
+    assertThat(files)
+      .extracting(File::getName)
+      .containsExactly("large.os", "medium.bsl", "small.bsl");
+  }
+
+  @Test
+  void testProcess() throws IOException {
+
+    // given
+    FileUtils.deleteDirectory(TEST_DIR.toFile());
+    for (int i = 0; i < 20; i++) {
+      writeFile("module" + i + ".bsl", "Процедура Тест" + i + "()\nКонецПроцедуры");
+    }
+    List<File> files = AnalysisPipeline.findFiles(TEST_DIR, "bsl");
+    List<FileInfo> fileInfos = Collections.synchronizedList(new ArrayList<>());
+
+    AnalysisPipeline pipeline = new AnalysisPipeline(
+      2,
+      (File file, String content) -> new FileInfo(
+        new DocumentContext(file.toURI().toString(), content),
+        Collections.emptyList()
+      ),
+      fileInfos::add
+    );
+
+    // when
+    pipeline.process(files);
+
+    // then
+    assertThat(fileInfos).hasSize(20);
+  }
+
+  @Test
+  void testProcessRethrowsFailure() throws IOException {
+
+    // given
+    FileUtils.deleteDirectory(TEST_DIR.toFile());
+    writeFile("module.bsl", "А = 1;");
+    List<File> files = AnalysisPipeline.findFiles(TEST_DIR, "bsl");
+
+    AnalysisPipeline pipeline = new AnalysisPipeline(
+      2,
+      (File file, String content) -> {
+        throw new IllegalStateException("analysis failed");
+      },
+      fileInfo -> {
+      }
+    );
+
+    // when
+    Throwable thrown = catchThrowable(() -> pipeline.process(files));
+
+    // then
+    assertThat(thrown)
+      .isInstanceOf(IllegalStateException.class)
+      .hasMessage("analysis failed");
+  }
+
+  @Test
+  void testProcessRethrowsError() throws IOException {
+
+    // given
+    FileUtils.deleteDirectory(TEST_DIR.toFile());
+    for (int i = 0; i < 10; i++) {
+      writeFile("module" + i + ".bsl", "А = " + i + ";");
+    }
+    List<File> files = AnalysisPipeline.findFiles(TEST_DIR, "bsl");
+
+    AnalysisPipeline pipeline = new AnalysisPipeline(
+      2,
+      (File file, String content) -> {
+        throw new StackOverflowError("too deep");
+      },
+      fileInfo -> {
+      }
+    );
+
+    // when
+    Throwable thrown = catchThrowable(() -> pipeline.process(files));
+
+    // then
+    assertThat(thrown)
+      .isInstanceOf(StackOverflowError.class)
+      .hasMessage("too deep");
+  }
+
+  private static void writeFile(String name, String content) throws IOException {
+    FileUtils.writeStringToFile(TEST_DIR.resolve(name).toFile(), content, StandardCharsets.UTF_8);
+  }
+
+}
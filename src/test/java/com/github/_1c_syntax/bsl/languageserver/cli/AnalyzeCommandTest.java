@@ -21,12 +21,25 @@
  */
 package com.github._1c_syntax.bsl.languageserver.cli;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.FileInfo;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.reporter.AnalysisInfo;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.eclipse.lsp4j.Diagnostic;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 import static com.github._1c_syntax.bsl.languageserver.BSLLSPLauncher.createOptions;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -63,4 +76,97 @@ class AnalyzeCommandTest {
 
   }
 
+  @Test
+  void testExecuteWithCache() throws ParseException {
+
+    Options options = createOptions();
+
+    DefaultParser parser = new DefaultParser();
+    CommandLine commandLine = parser.parse(
+      options, new String[]{"-s", "./src/test/resources/cli", "-d", "./build/analyze-command-cache"});
+
+    // when
+    int firstResult = new AnalyzeCommand(commandLine).execute();
+    int secondResult = new AnalyzeCommand(commandLine).execute();
+
+    // then
+    assertThat(firstResult).isEqualTo(0);
+    assertThat(secondResult).isEqualTo(0);
+    assertThat(new File("./build/analyze-command-cache").listFiles()).isNotEmpty();
+
+  }
+
+  @Test
+  void testExecuteWithProfile() throws ParseException {
+
+    Options options = createOptions();
+
+    DefaultParser parser = new DefaultParser();
+    CommandLine commandLine = parser.parse(
+      options, new String[]{"-s", "./src/test/resources/cli", "--profile", "5"});
+
+    // when
+    int result = new AnalyzeCommand(commandLine).execute();
+
+    // then
+    assertThat(result).isEqualTo(0);
+
+  }
+
+  @Test
+  void testExecuteWithDuplicateModules() throws ParseException, IOException, IllegalAccessException {
+
+    Options options = createOptions();
+
+    DefaultParser parser = new DefaultParser();
+    CommandLine commandLine = parser.parse(
+      options,
+      new String[]{"-s", "./src/test/resources/cli-duplicates", "-r", "json", "-o", "./build/analyze-duplicates"}
+    );
+
+    AnalyzeCommand command = new AnalyzeCommand(commandLine);
+
+    // when
+    int result = command.execute();
+
+    // then
+    assertThat(result).isEqualTo(0);
+    // результаты анализа одинаковых модулей освобождаются после анализа последнего из них
+    assertThat((Map<?, ?>) FieldUtils.readField(command, "analyzedContentsBySize", true)).isEmpty();
+
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.findAndRegisterModules();
+    AnalysisInfo report = mapper.readValue(new File("./build/analyze-duplicates/bsl-json.json"), AnalysisInfo.class);
+
+    assertThat(report.getFileinfos()).hasSize(2);
+    for (FileInfo fileInfo : report.getFileinfos()) {
+      List<Diagnostic> diagnostics = fileInfo.getDiagnostics().stream()
+        .filter(diagnostic -> diagnostic.getRelatedInformation() != null)
+        .collect(Collectors.toList());
+
+      assertThat(diagnostics).isNotEmpty();
+      diagnostics.forEach(diagnostic -> assertThat(diagnostic.getRelatedInformation())
+        .allSatisfy(information -> assertThat(Paths.get(URI.create(information.getLocation().getUri())))
+          .isEqualTo(fileInfo.getPath())));
+    }
+
+  }
+
+  @Test
+  void testExecuteWithThreads() throws ParseException {
+
+    Options options = createOptions();
+
+    DefaultParser parser = new DefaultParser();
+    CommandLine commandLine = parser.parse(
+      options, new String[]{"-s", "./src/test/resources/metadata", "--threads", "2"});
+
+    // when
+    int result = new AnalyzeCommand(commandLine).execute();
+
+    // then
+    assertThat(result).isEqualTo(0);
+
+  }
+
 }
@@ -73,6 +73,7 @@ class LanguageServerConfigurationTest {
     Map<String, Either<Boolean, Map<String, Object>>> diagnostics = configuration.getDiagnostics();
 
     assertThat(diagnosticLanguage).isEqualTo(DiagnosticLanguage.EN);
+    assertThat(configuration.getComputeDiagnosticsDelay()).isEqualTo(100);
     assertThat(diagnostics).hasSize(2);
 
     Either<Boolean, Map<String, Object>> lineLength = diagnostics.get("LineLength");
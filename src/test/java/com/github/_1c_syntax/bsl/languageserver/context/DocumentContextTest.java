@@ -21,13 +21,28 @@
  */
 package com.github._1c_syntax.bsl.languageserver.context;
 
+import com.github._1c_syntax.bsl.languageserver.util.TestUtils;
+import com.github._1c_syntax.bsl.languageserver.utils.DiagnosticHelper;
+import com.github._1c_syntax.bsl.languageserver.utils.NodeIndex;
+import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
+import com.github._1c_syntax.bsl.languageserver.utils.Trees;
+import com.github._1c_syntax.bsl.parser.BSLLexer;
+import com.github._1c_syntax.bsl.parser.BSLParser;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.reflect.FieldUtils;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -45,6 +60,61 @@ class DocumentContextTest {
     assertThat(documentContext.getTokens()).hasSize(19);
   }
 
+  @Test
+  void testRebuildWithContentChanges() {
+    // given
+    DocumentContext documentContext = new DocumentContext("fake-uri.bsl", "А = 1;\r\nБ = 2;\n", new ServerContext());
+
+    List<TextDocumentContentChangeEvent> changes = new ArrayList<>();
+    changes.add(new TextDocumentContentChangeEvent(Ranges.create(1, 4, 1, 5), 1, "3"));
+    changes.add(new TextDocumentContentChangeEvent(Ranges.create(2, 0, 2, 0), 0, "В = 4;"));
+
+    // when
+    documentContext.rebuild(changes);
+
+    // then
+    assertThat(documentContext.getText(Ranges.create(1, 0, 1, 6))).isEqualTo("Б = 3;");
+    assertThat(documentContext.getText(Ranges.create(2, 0, 2, 6))).isEqualTo("В = 4;");
+    DocumentContext expectedContext = new DocumentContext(
+      "fake-uri.bsl",
+      "А = 1;\r\nБ = 3;\nВ = 4;",
+      new ServerContext()
+    );
+    assertThat(documentContext.getTokens()).hasSameSizeAs(expectedContext.getTokens());
+
+    // when
+    documentContext.rebuild(Collections.singletonList(new TextDocumentContentChangeEvent("А = 1;")));
+
+    // then
+    assertThat(documentContext.getText(Ranges.create(0, 0, 0, 6))).isEqualTo("А = 1;");
+    assertThat(documentContext.getMethods()).isEmpty();
+  }
+
+  @Test
+  void testApplyChangesWithCharacterBeyondLineEnd() {
+    // given
+    String content = "А = 1;\r\nБ = 2;\r\n";
+
+    // when
+    String insertedAtLineEnd = DocumentContext.applyChanges(
+      content,
+      Collections.singletonList(new TextDocumentContentChangeEvent(Ranges.create(0, 100, 0, 100), 0, " // 1"))
+    );
+    String replacedToLineEnd = DocumentContext.applyChanges(
+      content,
+      Collections.singletonList(new TextDocumentContentChangeEvent(Ranges.create(1, 4, 1, 50), 46, "3;"))
+    );
+    String insertedAfterLastLine = DocumentContext.applyChanges(
+      content,
+      Collections.singletonList(new TextDocumentContentChangeEvent(Ranges.create(5, 10, 5, 10), 0, "В = 4;"))
+    );
+
+    // then
+    assertThat(insertedAtLineEnd).isEqualTo("А = 1; // 1\r\nБ = 2;\r\n");
+    assertThat(replacedToLineEnd).isEqualTo("А = 1;\r\nБ = 3;\r\n");
+    assertThat(insertedAfterLastLine).isEqualTo("А = 1;\r\nБ = 2;\r\nВ = 4;");
+  }
+
   @Test
   void testClearASTData() throws IOException, IllegalAccessException {
     // given
@@ -54,8 +124,53 @@ class DocumentContextTest {
     documentContext.clearASTData();
 
     // then
-    final Object tokenizer = FieldUtils.readField(documentContext, "tokenizer", true);
-    assertThat(tokenizer).isNull();
+    final Object parseData = FieldUtils.readField(documentContext, "parseData", true);
+    assertThat(parseData).isNull();
+    assertThat(documentContext.isASTDataPresent()).isFalse();
+  }
+
+  @Test
+  void testTokenViewsAreCachedUntilRebuild() {
+    // given
+    DocumentContext documentContext = new DocumentContext("fake-uri.bsl", "// Комментарий\nА = 1;", new ServerContext());
+
+    // when
+    List<Token> comments = documentContext.getComments();
+    List<Token> codeTokens = documentContext.getTokensFromDefaultChannel();
+
+    // then
+    assertThat(comments).hasSize(1);
+    assertThat(documentContext.getComments()).isSameAs(comments);
+    assertThat(documentContext.getTokensFromDefaultChannel()).isSameAs(codeTokens);
+
+    // when
+    documentContext.rebuild("А = 1;");
+
+    // then
+    assertThat(documentContext.getComments()).isEmpty();
+    assertThat(documentContext.getTokensFromDefaultChannel()).isNotSameAs(codeTokens);
+  }
+
+  @Test
+  void testGetTokensOnLines() {
+    // given
+    DocumentContext documentContext = new DocumentContext(
+      "fake-uri.bsl",
+      "А = 1;\n\nБ = 2;\nВ = 3;",
+      new ServerContext()
+    );
+
+    // when
+    List<Token> secondAndThirdLines = documentContext.getTokensOnLines(2, 3);
+    List<Token> outOfRange = documentContext.getTokensOnLines(10, 20);
+
+    // then
+    assertThat(secondAndThirdLines)
+      .isNotEmpty()
+      .allMatch(token -> token.getLine() == 2 || token.getLine() == 3)
+      .anyMatch(token -> "Б".equals(token.getText()));
+    assertThat(secondAndThirdLines).noneMatch(token -> "В".equals(token.getText()));
+    assertThat(outOfRange).isEmpty();
   }
 
   @Test
@@ -67,6 +182,29 @@ class DocumentContextTest {
 
   }
 
+  @Test
+  void testRegionMethodsAreFilledOnceInParallel() {
+    // given
+    DocumentContext documentContext = new DocumentContext(
+      "file:///regions.bsl",
+      "#Область Основная\nПроцедура Первая()\nКонецПроцедуры\nПроцедура Вторая()\nКонецПроцедуры\n#КонецОбласти"
+    );
+
+    // when
+    IntStream.range(0, 16).parallel().forEach((int i) -> {
+      if (i % 2 == 0) {
+        documentContext.getMethods();
+      } else {
+        documentContext.getRegions();
+      }
+    });
+
+    // then
+    assertThat(documentContext.getRegions())
+      .hasSize(1)
+      .allMatch(regionSymbol -> regionSymbol.getMethods().size() == 2);
+  }
+
   @Test
   void testMethodComputeParseError() throws IOException {
 
@@ -94,6 +232,92 @@ class DocumentContextTest {
     return new DocumentContext("fake-uri.bsl", fileContent, new ServerContext());
   }
 
+  @Test
+  void testNodeIndex() throws IOException {
+    // given
+    DocumentContext documentContext = getDocumentContext();
+    BSLParser.FileContext ast = documentContext.getAst();
+
+    // when
+    List<ParseTree> statements = Trees.findAllRuleNodes(documentContext, BSLParser.RULE_statement);
+    List<ParseTree> subNames = Trees.findAllRuleNodes(documentContext, BSLParser.RULE_subName);
+    List<ParseTree> identifiers = Trees.findAllTokenNodes(documentContext, BSLLexer.IDENTIFIER);
+    int[] semicolons = documentContext.getNodeIndex().getTokenIndexes(BSLLexer.SEMICOLON);
+
+    // then
+    assertThat(statements).containsExactlyElementsOf(Trees.findAllRuleNodes(ast, BSLParser.RULE_statement));
+    assertThat(subNames).containsExactlyElementsOf(Trees.findAllRuleNodes(ast, BSLParser.RULE_subName));
+    assertThat(identifiers).containsExactlyElementsOf(Trees.findAllTokenNodes(ast, BSLLexer.IDENTIFIER));
+    assertThat(Trees.findAllRuleNodes(documentContext, -1)).isEmpty();
+    assertThat(semicolons).isNotEmpty();
+    IntStream.of(semicolons)
+      .forEach(index -> assertThat(documentContext.getTokens().get(index).getType()).isEqualTo(BSLLexer.SEMICOLON));
+    assertThat(semicolons).isSorted();
+  }
+
+  @Test
+  void testNodeIndexNavigation() throws IOException {
+    // given
+    DocumentContext documentContext = getDocumentContext();
+    BSLParser.FileContext ast = documentContext.getAst();
+    List<ParseTree> statements = Trees.findAllRuleNodes(documentContext, BSLParser.RULE_statement);
+    List<ParseTree> subs = Trees.findAllRuleNodes(documentContext, BSLParser.RULE_sub);
+
+    // when
+    List<ParseTree> previousNodes = statements.stream()
+      .map(statement -> Trees.getPreviousNode(documentContext, ast, statement, BSLParser.RULE_statement))
+      .collect(Collectors.toList());
+    List<ParseTree> nextNodes = statements.stream()
+      .map(statement -> Trees.getNextNode(documentContext, ast, statement, BSLParser.RULE_statement))
+      .collect(Collectors.toList());
+
+    // then
+    assertThat(statements).isNotEmpty();
+    assertThat(subs).isNotEmpty();
+    assertThat(previousNodes).containsExactlyElementsOf(statements.stream()
+      .map(statement -> Trees.getPreviousNode(ast, statement, BSLParser.RULE_statement))
+      .collect(Collectors.toList()));
+    assertThat(nextNodes).containsExactlyElementsOf(statements.stream()
+      .map(statement -> Trees.getNextNode(ast, statement, BSLParser.RULE_statement))
+      .collect(Collectors.toList()));
+
+    subs.forEach((ParseTree sub) -> {
+      assertThat(Trees.findAllRuleNodes(documentContext, sub, BSLParser.RULE_statement))
+        .containsExactlyElementsOf(Trees.findAllRuleNodes(sub, BSLParser.RULE_statement));
+      assertThat(Trees.isInside(documentContext, sub, ast)).isTrue();
+      assertThat(Trees.isInside(documentContext, ast, sub)).isFalse();
+    });
+  }
+
+  @Test
+  void testNodeIndexHashes() {
+    // given
+    DocumentContext documentContext = TestUtils.getDocumentContext(
+      "А = Б + 1;\n" +
+        "а = б + 1;\n" +
+        "А = \"Строка\";\n" +
+        "А = \"строка\";\n"
+    );
+    NodeIndex nodeIndex = documentContext.getNodeIndex();
+
+    // when
+    List<ParseTree> statements = Trees.findAllRuleNodes(documentContext, BSLParser.RULE_statement);
+    List<Integer> hashes = statements.stream()
+      .map(nodeIndex::getHash)
+      .collect(Collectors.toList());
+
+    // then
+    assertThat(statements).hasSize(4);
+    assertThat(hashes).containsExactlyElementsOf(statements.stream()
+      .map(DiagnosticHelper::hashNode)
+      .collect(Collectors.toList()));
+    assertThat(DiagnosticHelper.equalNodes(statements.get(0), statements.get(1))).isTrue();
+    assertThat(hashes.get(0)).isEqualTo(hashes.get(1));
+    assertThat(DiagnosticHelper.equalNodes(statements.get(2), statements.get(3))).isFalse();
+    assertThat(hashes.get(2)).isNotEqualTo(hashes.get(3));
+    assertThat(nodeIndex.getHash(documentContext.getAst())).isEqualTo(DiagnosticHelper.hashNode(documentContext.getAst()));
+  }
+
   @Test
   void testComputeMetricsLocForCover() throws IOException {
 
@@ -0,0 +1,161 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context;
+
+import com.github._1c_syntax.bsl.parser.Tokenizer;
+import org.antlr.v4.runtime.Token;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IncrementalLexerTest {
+
+  private static final String PATH_TO_FILE = "./src/test/resources/context/IncrementalLexerTest.bsl";
+
+  @Test
+  void testRelexMatchesFullTokenization() throws IOException {
+    // given
+    String text = FileUtils.readFileToString(new File(PATH_TO_FILE), StandardCharsets.UTF_8);
+    List<Token> tokens = new Tokenizer(text).getTokens();
+
+    String[][] edits = {
+      // изменение имени переменной
+      {"Сумма = Сумма", "Итог = Сумма"},
+      // слияние с соседним токеном
+      {"Элемент.Значение", "ЭлементЗначение"},
+      // вставка строки
+      {"КонецЦикла;\n", "КонецЦикла;\n\tСумма = 0;\n"},
+      // комментирование строки
+      {"\tТекст = ", "\t//Текст = "},
+      // незакрытая многострочная строка
+      {"третья строка\";", "третья строка"},
+      // изменение инструкции препроцессора
+      {"#Если Сервер Тогда", "#Если Клиент Тогда"},
+      // удаление нескольких строк
+      {"\n#КонецОбласти\n", "\n"},
+      // изменение строки многострочного литерала, начинающейся с первой колонки
+      {"|\tСсылка\n", "|\tСсылка,\n|\tКод\n"},
+      // удаление символа продолжения строки
+      {"|ИЗ\n", "ИЗ\n"},
+      // закрытие многострочного литерала на строке продолжения
+      {"|ИЗ\n", "|ИЗ\";\n"},
+      // открытие многострочного литерала перед строками продолжения
+      {"\tЗапрос = \"ВЫБРАТЬ\n", "\tЗапрос = ВЫБРАТЬ\n"},
+      // изменение в начале и в конце текста
+      {"#Область ПрограммныйИнтерфейс", "Перем А;\n#Область ПрограммныйИнтерфейс"},
+      {"КонецФункции\n", "КонецФункции\n\nПерем Б;"},
+    };
+
+    for (String[] edit : edits) {
+      assertThat(text).contains(edit[0]);
+      String newText = text.replace(edit[0], edit[1]);
+
+      // when
+      List<Token> relexedTokens = IncrementalLexer.relex(text, tokens, newText);
+
+      // then
+      Tokenizer tokenizer = new Tokenizer(newText);
+      assertThat(relexedTokens).isNotNull();
+      assertSameTokens(relexedTokens, tokenizer.getTokens());
+      assertThat(IncrementalLexer.parse(relexedTokens).toStringTree())
+        .isEqualTo(tokenizer.getAst().toStringTree());
+    }
+  }
+
+  @Test
+  void testRelexSharesUnchangedTokens() throws IOException {
+    // given
+    String text = FileUtils.readFileToString(new File(PATH_TO_FILE), StandardCharsets.UTF_8);
+    List<Token> tokens = new Tokenizer(text).getTokens();
+    String newText = text.replace("Возврат '20190101';", "Возврат '20200101';");
+
+    // when
+    List<Token> relexedTokens = IncrementalLexer.relex(text, tokens, newText);
+
+    // then
+    assertThat(relexedTokens).isNotNull().hasSameSizeAs(tokens);
+    assertThat(relexedTokens.get(0)).isSameAs(tokens.get(0));
+    assertThat(relexedTokens.get(tokens.size() - 1)).isSameAs(tokens.get(tokens.size() - 1));
+  }
+
+  @Test
+  void testRelexFallsBackForSurrogatePairs() {
+    // given
+    String text = "А = 1;\nБ = 2;\n";
+    List<Token> tokens = new Tokenizer(text).getTokens();
+
+    // when
+    List<Token> relexedTokens = IncrementalLexer.relex(text, tokens, "А = 1;\nБ = \"😀\";\n");
+
+    // then
+    assertThat(relexedTokens).isNull();
+  }
+
+  @Test
+  void testChangedDocumentReusesPreviousTokens() throws IOException {
+    // given
+    String text = FileUtils.readFileToString(new File(PATH_TO_FILE), StandardCharsets.UTF_8);
+    ServerContext serverContext = new ServerContext();
+    DocumentContext documentContext = serverContext.addDocument("file:///fake-uri.bsl", text);
+    documentContext.getTokens();
+
+    String newText = text.replace("Сумма = Сумма", "Итог = Сумма");
+    DocumentContext expectedContext = new DocumentContext("file:///expected-uri.bsl", newText, new ServerContext());
+
+    // when
+    DocumentContext changedContext = serverContext.changeDocument(
+      "file:///fake-uri.bsl",
+      Collections.singletonList(new TextDocumentContentChangeEvent(newText))
+    );
+
+    // then
+    assertThat(changedContext).isNotNull();
+    assertSameTokens(changedContext.getTokens(), expectedContext.getTokens());
+    assertThat(changedContext.getAst().toStringTree()).isEqualTo(expectedContext.getAst().toStringTree());
+    assertThat(changedContext.getMethods()).hasSize(2);
+  }
+
+  private static void assertSameTokens(List<Token> actual, List<Token> expected) {
+    assertThat(actual).hasSameSizeAs(expected);
+    for (int index = 0; index < expected.size(); index++) {
+      Token actualToken = actual.get(index);
+      Token expectedToken = expected.get(index);
+      assertThat(actualToken.getType()).isEqualTo(expectedToken.getType());
+      assertThat(actualToken.getChannel()).isEqualTo(expectedToken.getChannel());
+      assertThat(actualToken.getStartIndex()).isEqualTo(expectedToken.getStartIndex());
+      assertThat(actualToken.getStopIndex()).isEqualTo(expectedToken.getStopIndex());
+      assertThat(actualToken.getLine()).isEqualTo(expectedToken.getLine());
+      assertThat(actualToken.getCharPositionInLine()).isEqualTo(expectedToken.getCharPositionInLine());
+      assertThat(actualToken.getTokenIndex()).isEqualTo(expectedToken.getTokenIndex());
+      assertThat(actualToken.getText()).isEqualTo(expectedToken.getText());
+    }
+  }
+
+}
@@ -21,15 +21,28 @@
  */
 package com.github._1c_syntax.bsl.languageserver.context;
 
+import com.github._1c_syntax.bsl.languageserver.context.symbol.MethodSymbol;
+import com.github._1c_syntax.bsl.languageserver.context.symbol.SymbolTable;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.BSLDiagnostic;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.CognitiveComplexityDiagnostic;
+import com.github._1c_syntax.bsl.parser.BSLParser;
 import com.github._1c_syntax.mdclasses.metadata.additional.ConfigurationSource;
 import com.github._1c_syntax.mdclasses.metadata.additional.ModuleType;
 import com.github._1c_syntax.mdclasses.metadata.additional.ScriptVariant;
 import com.github._1c_syntax.mdclasses.metadata.configurations.AbstractConfiguration;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -73,4 +86,217 @@ public class ServerContextTest {
     assertThat(configurationMetadata.getModulesByType()).hasSize(0);
   }
 
+  @Test
+  void testParsedDocumentsLimit() {
+    // given
+    ServerContext serverContext = new ServerContext();
+    serverContext.setParsedDocumentsLimit(2);
+    DocumentContext first = serverContext.addDocument("file:///first.bsl", "Процедура Первая()\nКонецПроцедуры");
+    DocumentContext second = serverContext.addDocument("file:///second.bsl", "А = 1;");
+    DocumentContext third = serverContext.addDocument("file:///third.bsl", "Б = 2;");
+
+    // when
+    first.getAst();
+    second.getAst();
+    first.computeWithPinnedAST(first::getAst);
+    third.getAst();
+
+    // then
+    assertThat(first.isASTDataPresent()).isTrue();
+    assertThat(second.isASTDataPresent()).isFalse();
+    assertThat(third.isASTDataPresent()).isTrue();
+  }
+
+  @Test
+  void testEvictedDocumentIsParsedAgain() {
+    // given
+    ServerContext serverContext = new ServerContext();
+    serverContext.setParsedDocumentsLimit(1);
+    DocumentContext first = serverContext.addDocument("file:///first.bsl", "Процедура Первая()\nКонецПроцедуры");
+    DocumentContext second = serverContext.addDocument("file:///second.bsl", "А = 1;");
+    first.getAst();
+    int ncloc = first.getMetrics().getNcloc();
+
+    // when
+    second.getAst();
+
+    // then
+    assertThat(first.isASTDataPresent()).isFalse();
+    assertThat(first.getMetrics().getNcloc()).isEqualTo(ncloc);
+    assertThat(first.isASTDataPresent()).isFalse();
+
+    // when
+    List<MethodSymbol> methods = first.getMethods();
+
+    // then
+    assertThat(first.isASTDataPresent()).isTrue();
+    assertThat(second.isASTDataPresent()).isFalse();
+    assertThat(methods)
+      .hasSize(1)
+      .allMatch(methodSymbol -> methodSymbol.getNode() != null);
+  }
+
+  @Test
+  void testDocumentIsNotEvictedDuringDiagnosticsRun() {
+    // given
+    ServerContext serverContext = new ServerContext();
+    serverContext.setParsedDocumentsLimit(1);
+    DocumentContext first = serverContext.addDocument(
+      "file:///first.bsl",
+      "Процедура Первая()\n  Если Истина Тогда\n  КонецЕсли;\nКонецПроцедуры"
+    );
+    DocumentContext second = serverContext.addDocument("file:///second.bsl", "А = 1;");
+
+    // диагностика обращается к другому документу посреди обхода дерева
+    BSLDiagnostic diagnostic = new CognitiveComplexityDiagnostic() {
+      @Override
+      public ParseTree visitSub(BSLParser.SubContext ctx) {
+        second.getAst();
+        return super.visitSub(ctx);
+      }
+    };
+    diagnostic.configure(Collections.<String, Object>singletonMap("complexityThreshold", 0));
+
+    // when
+    List<Diagnostic> diagnostics = first.computeWithPinnedAST(() -> diagnostic.getDiagnostics(first));
+    boolean presentAfterRun = first.isASTDataPresent();
+    second.computeWithPinnedAST(second::getAst);
+
+    // then
+    assertThat(diagnostics).hasSize(1);
+    assertThat(presentAfterRun).isTrue();
+    assertThat(first.isASTDataPresent()).isFalse();
+    assertThat(second.isASTDataPresent()).isTrue();
+  }
+
+  @Test
+  void testRepeatedReadsDoNotChangeEvictionOrder() throws IllegalAccessException {
+    // given
+    ServerContext serverContext = new ServerContext();
+    serverContext.setParsedDocumentsLimit(2);
+    DocumentContext first = serverContext.addDocument("file:///first.bsl", "Процедура Первая()\nКонецПроцедуры");
+    DocumentContext second = serverContext.addDocument("file:///second.bsl", "А = 1;");
+    first.getAst();
+    second.getAst();
+    Map<?, ?> parsedDocuments = (Map<?, ?>) FieldUtils.readField(serverContext, "parsedDocuments", true);
+
+    // when
+    first.getTokens();
+    first.getNodeIndex();
+
+    // then
+    assertThat(parsedDocuments.keySet()).containsExactly("file:///first.bsl", "file:///second.bsl");
+  }
+
+  @Test
+  void testCloseDocumentKeepsCurrentVersion() {
+    // given
+    ServerContext serverContext = new ServerContext();
+    String content = "Процедура Первая()\nКонецПроцедуры";
+    DocumentContext documentContext = serverContext.addDocument("file:///first.bsl", content);
+    documentContext.getAst();
+
+    // when
+    serverContext.closeDocument(documentContext);
+
+    // then
+    assertThat(serverContext.getDocument("file:///first.bsl")).isSameAs(documentContext);
+    assertThat(documentContext.isASTDataPresent()).isFalse();
+    assertThat(documentContext.getContent()).isEqualTo(content);
+    assertThat(documentContext.getMethods()).hasSize(1);
+  }
+
+  @Test
+  void testSymbolTableSurvivesEviction() {
+    // given
+    ServerContext serverContext = new ServerContext();
+    serverContext.setParsedDocumentsLimit(1);
+    DocumentContext first = serverContext.addDocument(
+      "file:///first.bsl",
+      "#Область Основная\nПроцедура Первая()\n  Если Истина Тогда\n  КонецЕсли;\nКонецПроцедуры\n#КонецОбласти"
+    );
+    DocumentContext second = serverContext.addDocument("file:///second.bsl", "А = 1;");
+    first.getMethods();
+    first.getRegions();
+
+    // when
+    second.getAst();
+    SymbolTable symbolTable = first.getSymbolTable();
+
+    // then
+    assertThat(first.isASTDataPresent()).isFalse();
+    assertThat(second.isASTDataPresent()).isTrue();
+    assertThat(symbolTable.size()).isEqualTo(2);
+    assertThat(symbolTable.getName(0)).isEqualTo("Основная");
+    assertThat(symbolTable.getName(1)).isEqualTo("Первая");
+    assertThat(symbolTable.getParent(1)).isEqualTo(0);
+    assertThat(symbolTable.getCognitiveComplexity(1)).isEqualTo(1);
+  }
+
+  @Test
+  void testDocumentsWithSameContentShareParseResults() {
+    // given
+    ServerContext serverContext = new ServerContext();
+    String content = "#Область Основная\nПроцедура Первая()\nКонецПроцедуры\n#КонецОбласти";
+    DocumentContext first = serverContext.addDocument("file:///first/Module.bsl", content);
+    DocumentContext copy = serverContext.addDocument("file:///copy/Module.bsl", new StringBuilder(content).toString());
+    DocumentContext other = serverContext.addDocument("file:///other/Module.bsl", "А = 1;");
+
+    // when
+    SymbolTable symbolTable = first.getSymbolTable();
+
+    // then
+    assertThat(copy.getAst()).isSameAs(first.getAst());
+    assertThat(copy.getSymbolTable()).isSameAs(symbolTable);
+    assertThat(copy.getMethods()).hasSize(1);
+    assertThat(copy.getMethods().get(0).getName()).isEqualTo("Первая");
+    assertThat(other.getAst()).isNotSameAs(first.getAst());
+  }
+
+  @Test
+  void testChangeDocumentCreatesNewVersion() {
+    // given
+    ServerContext serverContext = new ServerContext();
+    DocumentContext first = serverContext.addDocument("file:///first.bsl", "Процедура Первая()\nКонецПроцедуры");
+    List<MethodSymbol> firstMethods = first.getMethods();
+
+    // when
+    DocumentContext changed = serverContext.changeDocument(
+      "file:///first.bsl",
+      Collections.singletonList(new TextDocumentContentChangeEvent("Процедура Вторая()\nКонецПроцедуры"))
+    );
+    DocumentContext unchanged = serverContext.changeDocument(
+      "file:///first.bsl",
+      Collections.singletonList(new TextDocumentContentChangeEvent("Процедура Вторая()\nКонецПроцедуры"))
+    );
+    DocumentContext missing = serverContext.changeDocument(
+      "file:///missing.bsl",
+      Collections.singletonList(new TextDocumentContentChangeEvent("А = 1;"))
+    );
+
+    // then
+    assertThat(changed).isNotNull().isNotSameAs(first);
+    assertThat(unchanged).isSameAs(changed);
+    assertThat(missing).isNull();
+    assertThat(serverContext.getDocument("file:///first.bsl")).isSameAs(changed);
+    assertThat(changed.getMethods()).extracting(MethodSymbol::getName).containsExactly("Вторая");
+    assertThat(first.getMethods()).extracting(MethodSymbol::getName).containsExactly("Первая");
+    assertThat(first.getMethods()).isEqualTo(firstMethods);
+  }
+
+  @Test
+  void testAddDocumentsInParallel() {
+    // given
+    ServerContext serverContext = new ServerContext();
+
+    // when
+    IntStream.range(0, 100).parallel()
+      .forEach(i -> serverContext.addDocument("file:///module" + i + ".bsl", "А = " + i + ";").getAst());
+
+    // then
+    assertThat(serverContext.getDocuments()).hasSize(100);
+    assertThat(serverContext.getDocument("file:///module42.bsl").getTokens())
+      .anyMatch(token -> token.getText().equals("42"));
+  }
+
 }
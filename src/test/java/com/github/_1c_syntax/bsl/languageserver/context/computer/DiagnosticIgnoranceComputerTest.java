@@ -30,6 +30,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
+import static com.github._1c_syntax.bsl.languageserver.util.TestUtils.getDocumentContext;
 import static com.github._1c_syntax.bsl.languageserver.util.TestUtils.getDocumentContextFromFile;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -67,6 +68,31 @@ class DiagnosticIgnoranceComputerTest {
     assertThat(notIgnoredDiagnostics).noneMatch(data::diagnosticShouldBeIgnored);
   }
 
+  @Test
+  void testDiagnosticIgnoranceWithEnglishMarkers() {
+
+    // given
+    String module = "// BSLLS:SemicolonPresence-off\n"
+      + "А = 0\n"
+      + "// BSLLS:SemicolonPresence-off\n"
+      + "Б = 0\n"
+      + "// BSLLS:SemicolonPresence-on\n"
+      + "В = 0\n"
+      + "// BSLLS:SemicolonPresence-on\n"
+      + "Г = 0\n"
+      + "Д = 0\n";
+    final DocumentContext documentContext = getDocumentContext(module);
+
+    // when
+    DiagnosticIgnoranceComputer.Data data = new DiagnosticIgnoranceComputer(documentContext).compute();
+
+    // then
+    assertThat(data.diagnosticShouldBeIgnored(createDiagnostic("SemicolonPresence", 2))).isTrue();
+    assertThat(data.diagnosticShouldBeIgnored(createDiagnostic("SemicolonPresence", 5))).isTrue();
+    assertThat(data.diagnosticShouldBeIgnored(createDiagnostic("SemicolonPresence", 8))).isFalse();
+    assertThat(data.diagnosticShouldBeIgnored(createDiagnostic("SpaceAtStartComment", 2))).isFalse();
+  }
+
   private static Diagnostic createDiagnostic(String code, int line) {
     Diagnostic diagnostic = new Diagnostic();
     diagnostic.setCode(code);
@@ -0,0 +1,69 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.computer;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.context.index.MethodReference;
+import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.github._1c_syntax.bsl.languageserver.util.TestUtils.getDocumentContext;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MethodReferenceComputerTest {
+
+  @Test
+  void testCompute() {
+
+    // given
+    DocumentContext documentContext = getDocumentContext(
+      "Процедура Тест()\n" +
+        "\tЛокальный();\n" +
+        "\tОбщийМодуль.Метод(1);\n" +
+        "\tА = ОбщийМодуль.Функция();\n" +
+        "\tОбъект.Свойство.Метод();\n" +
+        "КонецПроцедуры\n"
+    );
+
+    // when
+    List<MethodReference> references = new MethodReferenceComputer(documentContext).compute();
+
+    // then
+    assertThat(references).hasSize(3);
+
+    MethodReference localReference = references.get(0);
+    assertThat(localReference.isQualified()).isFalse();
+    assertThat(localReference.getMethodName()).isEqualTo("Локальный");
+    assertThat(localReference.getUri()).isEqualTo(documentContext.getUri());
+    assertThat(localReference.getRange()).isEqualTo(Ranges.create(1, 1, 1, 10));
+
+    MethodReference qualifiedReference = references.get(1);
+    assertThat(qualifiedReference.getQualifier()).isEqualTo("ОбщийМодуль");
+    assertThat(qualifiedReference.getMethodName()).isEqualTo("Метод");
+    assertThat(qualifiedReference.getRange()).isEqualTo(Ranges.create(2, 13, 2, 18));
+
+    assertThat(references.get(2).getQualifier()).isEqualTo("ОбщийМодуль");
+    assertThat(references.get(2).getMethodName()).isEqualTo("Функция");
+  }
+}
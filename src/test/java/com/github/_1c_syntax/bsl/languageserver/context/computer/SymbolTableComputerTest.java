@@ -0,0 +1,82 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.computer;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.context.symbol.SymbolTable;
+import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
+import org.eclipse.lsp4j.SymbolKind;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.stream.IntStream;
+
+import static com.github._1c_syntax.bsl.languageserver.util.TestUtils.getDocumentContextFromFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SymbolTableComputerTest {
+
+  @Test
+  void testSymbolTable() throws IOException {
+
+    // given
+    String filePath = "./src/test/resources/providers/documentSymbol.bsl";
+    final DocumentContext documentContext = getDocumentContextFromFile(filePath);
+
+    // when
+    Computer<SymbolTable> symbolTableComputer = new SymbolTableComputer(documentContext);
+    SymbolTable symbolTable = symbolTableComputer.compute();
+
+    // then
+    assertThat(symbolTable.getDocumentSymbols()).hasSize(8);
+
+    int methodIndex = IntStream.range(0, symbolTable.size())
+      .filter(index -> symbolTable.getName(index).equals("СПерем"))
+      .findFirst()
+      .orElseThrow(IllegalStateException::new);
+
+    assertThat(symbolTable.getKind(methodIndex)).isEqualTo(SymbolKind.Method);
+    assertThat(symbolTable.getParent(methodIndex)).isEqualTo(SymbolTable.NO_PARENT);
+    assertThat(symbolTable.getRange(methodIndex)).isEqualTo(Ranges.create(10, 0, 13, 14));
+    assertThat(symbolTable.getCognitiveComplexity(methodIndex)).isZero();
+
+    assertThat(IntStream.range(0, symbolTable.size()).filter(index -> symbolTable.getParent(index) == methodIndex))
+      .hasSize(3)
+      .allMatch(index -> symbolTable.getKind(index) == SymbolKind.Variable)
+      .allMatch(index -> symbolTable.getCognitiveComplexity(index) == SymbolTable.NO_COMPLEXITY);
+  }
+
+  @Test
+  void testNamesAreInterned() throws IOException {
+
+    // given
+    String filePath = "./src/test/resources/providers/documentSymbol.bsl";
+    final DocumentContext documentContext = getDocumentContextFromFile(filePath);
+
+    // when
+    SymbolTable symbolTable = new SymbolTableComputer(documentContext).compute();
+
+    // then
+    assertThat(symbolTable.getName(0)).isSameAs("А");
+  }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.index;
+
+import com.github._1c_syntax.bsl.languageserver.context.computer.CloneFingerprintComputer;
+import com.github._1c_syntax.bsl.languageserver.util.TestUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WorkspaceCloneIndexTest {
+
+  private static final int MIN_LENGTH = 60;
+  private static final String BLOCK = "Для Каждого Строка Из Таблица Цикл\n" +
+    "  Итог.Сумма = Итог.Сумма + Строка.Сумма * Строка.Количество;\n" +
+    "  Итог.Количество = Итог.Количество + Строка.Количество;\n" +
+    "  Если Строка.Вес > 0 Тогда\n" +
+    "    Итог.Вес = Итог.Вес + Строка.Вес * Строка.Количество;\n" +
+    "  КонецЕсли;\n" +
+    "  Итог.Объем = Итог.Объем + Строка.Объем * Строка.Количество;\n" +
+    "  Итог.Скидка = Итог.Скидка + Строка.Скидка;\n" +
+    "  Итог.Строки.Добавить(Строка.НомерСтроки);\n" +
+    "  Сообщить(\"Обработана строка \" + Строка.НомерСтроки);\n" +
+    "  Итог.КоличествоСтрок = Итог.КоличествоСтрок + 1;\n" +
+    "КонецЦикла;\n" +
+    "Возврат Итог;\n";
+
+  @Test
+  void testFindClonesWithRenamedIdentifiers() {
+    // given
+    WorkspaceCloneIndex index = new WorkspaceCloneIndex();
+    index.update(fingerprints("file:///first.bsl", "А = 1;\n" + BLOCK));
+    index.update(fingerprints("file:///empty.bsl", "А = 1;"));
+    index.update(fingerprints("file:///second.bsl", BLOCK.replace("Строка", "Элемент").replace("Итог", "Результат")));
+
+    // when
+    List<CodeClone> clones = index.findClones(fingerprints("file:///first.bsl", "Б = 2;\n" + BLOCK), MIN_LENGTH);
+
+    // then
+    assertThat(clones).hasSize(1);
+    assertThat(clones.get(0).getLength()).isGreaterThanOrEqualTo(MIN_LENGTH);
+    assertThat(clones.get(0).getCopy().getUri()).isEqualTo("file:///second.bsl");
+    assertThat(clones.get(0).getRange().getStart().getLine()).isPositive();
+  }
+
+  @Test
+  void testUpdateAndRemove() {
+    // given
+    WorkspaceCloneIndex index = new WorkspaceCloneIndex();
+    index.update(fingerprints("file:///first.bsl", BLOCK));
+    index.update(fingerprints("file:///second.bsl", BLOCK));
+
+    // when
+    index.update(fingerprints("file:///first.bsl", "А = 1;"));
+    List<CodeClone> clonesAfterUpdate = index.findClones(fingerprints("file:///third.bsl", BLOCK), MIN_LENGTH);
+    index.remove("file:///second.bsl");
+    List<CodeClone> clonesAfterRemove = index.findClones(fingerprints("file:///third.bsl", BLOCK), MIN_LENGTH);
+
+    // then
+    assertThat(index.size()).isEqualTo(1);
+    assertThat(clonesAfterUpdate)
+      .extracting(clone -> clone.getCopy().getUri())
+      .containsOnly("file:///second.bsl");
+    assertThat(clonesAfterRemove).isEmpty();
+  }
+
+  @Test
+  void testUpdateDoesNotRebuildTable() throws IllegalAccessException {
+    // given
+    WorkspaceCloneIndex index = new WorkspaceCloneIndex();
+    WorkspaceCloneIndex expectedIndex = new WorkspaceCloneIndex();
+    for (int i = 0; i < 20; i++) {
+      index.update(fingerprints("file:///module" + i + ".bsl", "А = " + i + ";\n" + BLOCK));
+    }
+    ModuleFingerprints query = fingerprints("file:///query.bsl", BLOCK);
+    index.findClones(query, MIN_LENGTH);
+    Object table = FieldUtils.readField(index, "baseTable", true);
+
+    // when
+    index.update(fingerprints("file:///module3.bsl", "А = 3;"));
+    index.update(fingerprints("file:///new.bsl", BLOCK.replace("Строка", "Элемент")));
+    index.remove("file:///module5.bsl");
+    List<CodeClone> clones = index.findClones(query, MIN_LENGTH);
+
+    // then
+    for (int i = 0; i < 20; i++) {
+      if (i != 3 && i != 5) {
+        expectedIndex.update(fingerprints("file:///module" + i + ".bsl", "А = " + i + ";\n" + BLOCK));
+      }
+    }
+    expectedIndex.update(fingerprints("file:///module3.bsl", "А = 3;"));
+    expectedIndex.update(fingerprints("file:///new.bsl", BLOCK.replace("Строка", "Элемент")));
+
+    assertThat(FieldUtils.readField(index, "baseTable", true)).isSameAs(table);
+    assertThat(index.size()).isEqualTo(expectedIndex.size());
+    assertThat(describe(clones))
+      .hasSize(19)
+      .containsExactlyInAnyOrderElementsOf(describe(expectedIndex.findClones(query, MIN_LENGTH)));
+  }
+
+  @Test
+  void testShortFragmentsAreIgnored() {
+    // given
+    WorkspaceCloneIndex index = new WorkspaceCloneIndex();
+    index.update(fingerprints("file:///first.bsl", BLOCK));
+
+    // when
+    List<CodeClone> clones = index.findClones(fingerprints("file:///second.bsl", BLOCK), 1000);
+
+    // then
+    assertThat(clones).isEmpty();
+  }
+
+  private static List<String> describe(List<CodeClone> clones) {
+    return clones.stream()
+      .map(clone -> clone.getRange() + " " + clone.getCopy())
+      .collect(Collectors.toList());
+  }
+
+  private static ModuleFingerprints fingerprints(String uri, String content) {
+    return new CloneFingerprintComputer(TestUtils.getDocumentContext(content), uri).compute();
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.index;
+
+import com.github._1c_syntax.bsl.languageserver.configuration.LanguageServerConfiguration;
+import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WorkspaceIndexerTest {
+
+  private static final String WORKSPACE_PATH = "./src/test/resources/context/index/workspace";
+
+  private final File tempDir = new File("./build/workspace-indexer-test");
+
+  @AfterEach
+  void tearDown() {
+    FileUtils.deleteQuietly(tempDir);
+  }
+
+  @Test
+  void testIndexWorkspace() {
+    // given
+    ServerContext context = new ServerContext();
+    WorkspaceIndexer indexer = new WorkspaceIndexer(context);
+
+    // when
+    indexer.indexWorkspace(Paths.get(WORKSPACE_PATH)).join();
+
+    // then
+    WorkspaceSymbolIndex index = context.getWorkspaceSymbolIndex();
+    assertThat(index.size()).isEqualTo(3);
+    assertThat(index.find("ПолучитьДанные"))
+      .hasSize(1)
+      .allMatch(IndexedMethod::isExport);
+    assertThat(index.find("ЗаписатьДанные"))
+      .hasSize(1)
+      .allMatch(indexedMethod -> indexedMethod.getUri().endsWith("Module2.os"));
+    assertThat(context.getDocuments()).isEmpty();
+
+    indexer.shutdown();
+  }
+
+  @Test
+  void testIndexChangedAndDeletedFile() throws IOException {
+    // given
+    ServerContext context = new ServerContext();
+    WorkspaceIndexer indexer = new WorkspaceIndexer(context);
+    File file = new File(tempDir, "Module.bsl");
+    FileUtils.writeStringToFile(file, "Процедура Первая()\nКонецПроцедуры\n", StandardCharsets.UTF_8);
+    String uri = file.getAbsoluteFile().toURI().toString();
+    indexer.indexWorkspace(tempDir.toPath()).join();
+
+    // when
+    FileUtils.writeStringToFile(file, "Процедура Вторая()\nКонецПроцедуры\n", StandardCharsets.UTF_8);
+    indexer.indexFile(uri).join();
+
+    // then
+    WorkspaceSymbolIndex index = context.getWorkspaceSymbolIndex();
+    assertThat(index.find("Первая")).isEmpty();
+    assertThat(index.find("Вторая")).hasSize(1);
+
+    // when
+    indexer.removeFile(uri).join();
+
+    // then
+    assertThat(index.size()).isZero();
+
+    indexer.shutdown();
+  }
+
+  @Test
+  void testCloneIndexFollowsConfiguration() {
+    // given
+    ServerContext context = new ServerContext();
+    LanguageServerConfiguration configuration = LanguageServerConfiguration.create();
+    WorkspaceIndexer indexer = new WorkspaceIndexer(context, configuration);
+    indexer.indexWorkspace(Paths.get(WORKSPACE_PATH)).join();
+
+    // then
+    assertThat(context.getWorkspaceSymbolIndex().size()).isEqualTo(3);
+    assertThat(context.getWorkspaceCloneIndex().size()).isZero();
+
+    // when
+    Map<String, Either<Boolean, Map<String, Object>>> diagnostics = new HashMap<>();
+    diagnostics.put("DuplicatedCode", Either.forLeft(true));
+    configuration.setDiagnostics(diagnostics);
+    indexer.updateConfiguration().join();
+
+    // then
+    assertThat(context.getWorkspaceCloneIndex().size()).isEqualTo(2);
+
+    // when
+    configuration.setDiagnostics(new HashMap<>());
+    indexer.updateConfiguration().join();
+
+    // then
+    assertThat(context.getWorkspaceCloneIndex().size()).isZero();
+
+    indexer.shutdown();
+  }
+
+  @Test
+  void testIsIndexedFile() {
+    assertThat(WorkspaceIndexer.isIndexedFile("file:///module.bsl")).isTrue();
+    assertThat(WorkspaceIndexer.isIndexedFile("file:///script.OS")).isTrue();
+    assertThat(WorkspaceIndexer.isIndexedFile("file:///Configuration.xml")).isFalse();
+  }
+}
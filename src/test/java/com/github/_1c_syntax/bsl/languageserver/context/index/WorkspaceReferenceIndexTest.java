@@ -0,0 +1,101 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.index;
+
+import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WorkspaceReferenceIndexTest {
+
+  @Test
+  void testQualifiedReferences() {
+    // given
+    WorkspaceReferenceIndex index = new WorkspaceReferenceIndex();
+    MethodReference qualified = new MethodReference("ОбщийМодуль", "Метод", "file:///a.bsl", Ranges.create(1, 13, 1, 18));
+    MethodReference local = new MethodReference(null, "Метод", "file:///a.bsl", Ranges.create(2, 1, 2, 6));
+
+    // when
+    index.update("file:///a.bsl", null, Arrays.asList(qualified, local));
+    index.update("file:///module.bsl", "ОбщийМодуль", Collections.emptyList());
+
+    // then
+    assertThat(index.getReferences("file:///a.bsl")).containsExactly(qualified, local);
+    assertThat(index.getQualifiedReferences("общиймодуль", "МЕТОД")).containsExactly(qualified);
+    assertThat(index.getCommonModuleUri("общиймодуль")).hasValue("file:///module.bsl");
+    assertThat(index.getCommonModuleName("file:///module.bsl")).hasValue("ОбщийМодуль");
+    assertThat(index.getCommonModuleName("file:///a.bsl")).isEmpty();
+  }
+
+  @Test
+  void testRemove() {
+    // given
+    WorkspaceReferenceIndex index = new WorkspaceReferenceIndex();
+    MethodReference first = new MethodReference("ОбщийМодуль", "Метод", "file:///a.bsl", Ranges.create(1, 13, 1, 18));
+    MethodReference second = new MethodReference("ОбщийМодуль", "Метод", "file:///b.bsl", Ranges.create(1, 13, 1, 18));
+    index.update("file:///a.bsl", null, Collections.singletonList(first));
+    index.update("file:///b.bsl", null, Collections.singletonList(second));
+    index.update("file:///module.bsl", "ОбщийМодуль", Collections.emptyList());
+
+    // when
+    index.remove("file:///a.bsl");
+    index.remove("file:///module.bsl");
+
+    // then
+    assertThat(index.getReferences("file:///a.bsl")).isEmpty();
+    assertThat(index.getQualifiedReferences("ОбщийМодуль", "Метод")).containsExactly(second);
+    assertThat(index.getCommonModuleUri("ОбщийМодуль")).isEmpty();
+  }
+
+  @Test
+  void testManyCallsOfOneMethod() {
+    // given
+    WorkspaceReferenceIndex index = new WorkspaceReferenceIndex();
+    List<MethodReference> firstReferences = new ArrayList<>();
+    List<MethodReference> secondReferences = new ArrayList<>();
+    for (int line = 0; line < 1000; line++) {
+      firstReferences.add(new MethodReference("ОбщийМодуль", "Метод", "file:///a.bsl", Ranges.create(line, 13, line, 18)));
+      secondReferences.add(new MethodReference("ОбщийМодуль", "Метод", "file:///b.bsl", Ranges.create(line, 13, line, 18)));
+    }
+    index.update("file:///a.bsl", null, firstReferences);
+    index.update("file:///b.bsl", null, secondReferences);
+
+    // when
+    index.update("file:///a.bsl", null, firstReferences.subList(0, 10));
+
+    // then
+    assertThat(index.getQualifiedReferences("ОбщийМодуль", "Метод")).hasSize(1010);
+
+    // when
+    index.remove("file:///a.bsl");
+    index.remove("file:///b.bsl");
+
+    // then
+    assertThat(index.getQualifiedReferences("ОбщийМодуль", "Метод")).isEmpty();
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.context.index;
+
+import com.github._1c_syntax.bsl.languageserver.context.symbol.MethodSymbol;
+import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WorkspaceSymbolIndexTest {
+
+  @Test
+  void testFindByPrefixIgnoringCase() {
+    // given
+    WorkspaceSymbolIndex index = new WorkspaceSymbolIndex();
+    index.update("file:///first.bsl", Arrays.asList(method("ПолучитьДанные"), method("ЗаписатьДанные")));
+    index.update("file:///second.bsl", Collections.singletonList(method("получитьданные")));
+
+    // when
+    List<IndexedMethod> methods = index.find("ПОЛУЧИТЬ");
+
+    // then
+    assertThat(methods)
+      .hasSize(2)
+      .extracting(IndexedMethod::getUri)
+      .containsExactlyInAnyOrder("file:///first.bsl", "file:///second.bsl");
+  }
+
+  @Test
+  void testFuzzyFindAfterPrefixMatches() {
+    // given
+    WorkspaceSymbolIndex index = new WorkspaceSymbolIndex();
+    index.update("file:///first.bsl", Arrays.asList(
+      method("ПолучитьДанные"),
+      method("ПолДанных"),
+      method("ЗаписатьДанные")
+    ));
+
+    // when
+    List<IndexedMethod> methods = index.find("полдан");
+
+    // then
+    assertThat(methods)
+      .extracting(IndexedMethod::getName)
+      .containsExactly("ПолДанных", "ПолучитьДанные");
+  }
+
+  @Test
+  void testUpdateAndRemove() {
+    // given
+    WorkspaceSymbolIndex index = new WorkspaceSymbolIndex();
+    index.update("file:///first.bsl", Arrays.asList(method("Первый"), method("Второй")));
+
+    // when
+    index.update("file:///first.bsl", Collections.singletonList(method("Третий")));
+
+    // then
+    assertThat(index.find("Первый")).isEmpty();
+    assertThat(index.find("Третий")).hasSize(1);
+    assertThat(index.getMethods("file:///first.bsl")).hasSize(1);
+
+    // when
+    index.remove("file:///first.bsl");
+
+    // then
+    assertThat(index.find("")).isEmpty();
+    assertThat(index.size()).isZero();
+  }
+
+  @Test
+  void testMethodNameSharedByManyModules() {
+    // given
+    WorkspaceSymbolIndex index = new WorkspaceSymbolIndex();
+    int modulesCount = WorkspaceSymbolIndex.MAX_RESULTS + 500;
+    for (int i = 0; i < modulesCount; i++) {
+      index.update("file:///form" + i + ".bsl", Collections.singletonList(method("ПриСозданииНаСервере")));
+    }
+
+    // when
+    List<IndexedMethod> prefixMatches = index.find("присоздании");
+    List<IndexedMethod> fuzzyMatches = index.find("прсзднасрв");
+
+    // then
+    assertThat(prefixMatches).hasSize(WorkspaceSymbolIndex.MAX_RESULTS);
+    assertThat(fuzzyMatches).hasSize(WorkspaceSymbolIndex.MAX_RESULTS);
+
+    // when
+    for (int i = 1; i < modulesCount; i++) {
+      index.remove("file:///form" + i + ".bsl");
+    }
+
+    // then
+    assertThat(index.find("ПриСозданииНаСервере"))
+      .extracting(IndexedMethod::getUri)
+      .containsExactly("file:///form0.bsl");
+  }
+
+  private static MethodSymbol method(String name) {
+    return MethodSymbol.builder()
+      .name(name)
+      .range(Ranges.create(0, 0, 1, 0))
+      .subNameRange(Ranges.create(0, 10, 0, 20))
+      .build();
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.diagnostics;
+
+import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
+import org.eclipse.lsp4j.Diagnostic;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ComputedDiagnosticsTest {
+
+  private final Diagnostic first = createDiagnostic("First", 0, 0, 0, 5);
+  private final Diagnostic wide = createDiagnostic("Wide", 1, 0, 10, 0);
+  private final Diagnostic second = createDiagnostic("First", 3, 2, 3, 8);
+  private final Diagnostic last = createDiagnostic("Last", 20, 0, 20, 1);
+
+  @Test
+  void testGetDiagnosticsByRange() {
+    // given
+    ComputedDiagnostics computedDiagnostics = new ComputedDiagnostics(1, Arrays.asList(last, second, wide, first));
+
+    // when
+    List<Diagnostic> onLineFive = computedDiagnostics.getDiagnostics(Ranges.create(5, 0, 5, 0));
+    List<Diagnostic> onLineThree = computedDiagnostics.getDiagnostics(Ranges.create(3, 4, 3, 4));
+    List<Diagnostic> touching = computedDiagnostics.getDiagnostics(Ranges.create(0, 5, 0, 5));
+    List<Diagnostic> outside = computedDiagnostics.getDiagnostics(Ranges.create(15, 0, 16, 0));
+
+    // then
+    assertThat(onLineFive).containsExactly(wide);
+    assertThat(onLineThree).containsExactly(wide, second);
+    assertThat(touching).containsExactly(first);
+    assertThat(outside).isEmpty();
+    assertThat(computedDiagnostics.getDiagnostics()).containsExactly(first, wide, second, last);
+  }
+
+  @Test
+  void testGetDiagnosticsByCode() {
+    // given
+    ComputedDiagnostics computedDiagnostics = new ComputedDiagnostics(1, Arrays.asList(last, second, wide, first));
+
+    // then
+    assertThat(computedDiagnostics.getDiagnostics("First")).containsExactly(first, second);
+    assertThat(computedDiagnostics.getDiagnostics("Missing")).isEmpty();
+  }
+
+  @Test
+  void testContains() {
+    // given
+    ComputedDiagnostics computedDiagnostics = new ComputedDiagnostics(1, Arrays.asList(first, wide));
+
+    // then
+    assertThat(computedDiagnostics.contains(createDiagnostic("Wide", 1, 0, 10, 0))).isTrue();
+    assertThat(computedDiagnostics.contains(createDiagnostic("Other", 1, 0, 10, 0))).isFalse();
+    assertThat(computedDiagnostics.contains(second)).isFalse();
+    assertThat(ComputedDiagnostics.empty().contains(first)).isFalse();
+  }
+
+  private static Diagnostic createDiagnostic(String code, int startLine, int startChar, int endLine, int endChar) {
+    Diagnostic diagnostic = new Diagnostic(Ranges.create(startLine, startChar, endLine, endChar), code);
+    diagnostic.setCode(code);
+    return diagnostic;
+  }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.diagnostics;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.providers.DiagnosticProvider;
+import com.github._1c_syntax.bsl.languageserver.util.TestUtils;
+import org.eclipse.lsp4j.Diagnostic;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DiagnosticDispatcherTest {
+
+  @Test
+  void testDispatchedDiagnostics() {
+    assertThat(DiagnosticDispatcher.isDispatched(NestedStatementsDiagnostic.class)).isTrue();
+    assertThat(DiagnosticDispatcher.isDispatched(ParseErrorDiagnostic.class)).isTrue();
+    assertThat(DiagnosticDispatcher.isDispatched(UnreachableCodeDiagnostic.class)).isTrue();
+
+    // собственный getDiagnostics - расчет без общего обхода
+    assertThat(DiagnosticDispatcher.isDispatched(MissingSpaceDiagnostic.class)).isFalse();
+    assertThat(DiagnosticDispatcher.isDispatched(LineLengthDiagnostic.class)).isFalse();
+  }
+
+  @Test
+  void testSameResultAsSeparateWalks() {
+
+    DiagnosticProvider diagnosticProvider = new DiagnosticProvider();
+    File[] files = new File("./src/test/resources/diagnostics").listFiles((dir, name) -> name.endsWith(".bsl"));
+    assertThat(files).isNotEmpty();
+
+    for (File file : files) {
+      DocumentContext documentContext = TestUtils.getDocumentContextFromFile(file.getPath());
+
+      List<Diagnostic> expected = diagnosticProvider.getDiagnosticInstances().stream()
+        .flatMap(diagnostic -> diagnostic.getDiagnostics(documentContext).stream())
+        .collect(Collectors.toList());
+
+      DiagnosticDispatcher dispatcher = new DiagnosticDispatcher(diagnosticProvider.getDiagnosticInstances());
+      List<Diagnostic> actual = dispatcher.getDiagnostics(documentContext);
+
+      assertThat(actual)
+        .as(file.getName())
+        .containsExactlyElementsOf(expected);
+    }
+  }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.diagnostics;
+
+import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticMetadata;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.reflections.Reflections;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DiagnosticIndexTest {
+
+  @Test
+  void testReadIndex() throws IOException {
+    // given
+    InputStream index = toStream(
+      "# comment\n"
+        + "com.github._1c_syntax.bsl.languageserver.diagnostics.EmptyStatementDiagnostic\n"
+        + "\n"
+        + "com.github._1c_syntax.bsl.languageserver.diagnostics.LineLengthDiagnostic\n"
+    );
+
+    // when
+    Optional<List<Class<? extends BSLDiagnostic>>> diagnosticClasses
+      = DiagnosticIndex.read(index, getClass().getClassLoader());
+
+    // then
+    assertThat(diagnosticClasses).isPresent();
+    assertThat(diagnosticClasses.get())
+      .containsExactly(EmptyStatementDiagnostic.class, LineLengthDiagnostic.class);
+  }
+
+  @Test
+  void testOutdatedIndexIsIgnored() throws IOException {
+    // given
+    InputStream unknownClass = toStream("com.github._1c_syntax.bsl.languageserver.diagnostics.RemovedDiagnostic\n");
+    InputStream notDiagnostic = toStream("com.github._1c_syntax.bsl.languageserver.diagnostics.FileInfo\n");
+    InputStream emptyIndex = toStream("\n");
+
+    // when
+    ClassLoader classLoader = getClass().getClassLoader();
+
+    // then
+    assertThat(DiagnosticIndex.read(unknownClass, classLoader)).isEmpty();
+    assertThat(DiagnosticIndex.read(notDiagnostic, classLoader)).isEmpty();
+    assertThat(DiagnosticIndex.read(emptyIndex, classLoader)).isEmpty();
+  }
+
+  @Test
+  void testIndexWithoutNewDiagnosticIsIgnored() throws IOException {
+    // given
+    Path packageDir = Files.createTempDirectory("diagnostics");
+    try {
+      Files.createFile(packageDir.resolve("EmptyStatementDiagnostic_ru.properties"));
+      Files.createFile(packageDir.resolve("EmptyStatementDiagnostic_en.properties"));
+      Files.createFile(packageDir.resolve("LineLengthDiagnostic_ru.properties"));
+      List<URL> packageUrls = Collections.singletonList(packageDir.toUri().toURL());
+      List<URL> jarUrls = Collections.singletonList(
+        new URL("jar:file:/bsl-language-server.jar!/com/github/_1c_syntax/bsl/languageserver/diagnostics/")
+      );
+
+      List<Class<? extends BSLDiagnostic>> staleIndex = new ArrayList<>();
+      staleIndex.add(EmptyStatementDiagnostic.class);
+      List<Class<? extends BSLDiagnostic>> actualIndex = new ArrayList<>(staleIndex);
+      actualIndex.add(LineLengthDiagnostic.class);
+
+      // when
+      boolean staleMatches = DiagnosticIndex.matchesResources(staleIndex, packageUrls);
+      boolean actualMatches = DiagnosticIndex.matchesResources(actualIndex, packageUrls);
+      boolean staleMatchesJar = DiagnosticIndex.matchesResources(staleIndex, jarUrls);
+
+      // then
+      assertThat(staleMatches).isFalse();
+      assertThat(actualMatches).isTrue();
+      assertThat(staleMatchesJar).isTrue();
+    } finally {
+      FileUtils.deleteDirectory(packageDir.toFile());
+    }
+  }
+
+  @Test
+  void testIndexMatchesClasspath() {
+    // given
+    Set<Class<?>> scannedClasses = new Reflections(BSLDiagnostic.class.getPackage().getName())
+      .getTypesAnnotatedWith(DiagnosticMetadata.class);
+
+    // when
+    Optional<List<Class<? extends BSLDiagnostic>>> diagnosticClasses = DiagnosticIndex.read();
+
+    // then
+    assertThat(diagnosticClasses).isPresent();
+    assertThat(new HashSet<Class<?>>(diagnosticClasses.get())).isEqualTo(scannedClasses);
+  }
+
+  private static InputStream toStream(String content) {
+    return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+  }
+
+}
@@ -0,0 +1,84 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.diagnostics;
+
+import com.github._1c_syntax.bsl.languageserver.configuration.DiagnosticLanguage;
+import com.github._1c_syntax.bsl.languageserver.utils.MessageTemplate;
+import org.junit.jupiter.api.Test;
+
+import java.util.IllegalFormatConversionException;
+import java.util.MissingResourceException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class DiagnosticResourcesTest {
+
+  @Test
+  void testGetMessage() {
+    // given
+    DiagnosticResources resources = DiagnosticResources.get(CognitiveComplexityDiagnostic.class);
+
+    // when
+    String englishMessage = resources.getMessage(DiagnosticLanguage.EN, "Метод", 20, 15);
+    String russianMessage = resources.getMessage(DiagnosticLanguage.RU, "Метод", 20, 15);
+
+    // then
+    assertThat(englishMessage).isEqualTo("Reduce cognitive complexity of \"Метод\" from 20 to 15");
+    assertThat(russianMessage).isEqualTo("Уменьшите когнитивную сложность \"Метод\" с 20 до 15");
+    assertThat(englishMessage).isEqualTo(String.format(resources.getMessage(DiagnosticLanguage.EN), "Метод", 20, 15));
+  }
+
+  @Test
+  void testGetNameAndDescription() {
+    // given
+    DiagnosticResources resources = DiagnosticResources.get(MissingSpaceDiagnostic.class);
+
+    // then
+    assertThat(resources.getName(DiagnosticLanguage.EN)).startsWith("Missing spaces");
+    assertThat(resources.getDescription(DiagnosticLanguage.RU)).isNotEmpty();
+    assertThat(DiagnosticResources.get(MissingSpaceDiagnostic.class)).isSameAs(resources);
+  }
+
+  @Test
+  void testMissingKey() {
+    // given
+    DiagnosticResources resources = DiagnosticResources.get(MissingSpaceDiagnostic.class);
+
+    // when
+    Throwable thrown = catchThrowable(() -> resources.getString(DiagnosticLanguage.EN, "missingKey"));
+
+    // then
+    assertThat(thrown).isInstanceOf(MissingResourceException.class);
+  }
+
+  @Test
+  void testMessageTemplate() {
+    assertThat(MessageTemplate.compile("%s: %d%%").format("a", 5)).isEqualTo("a: 5%");
+    assertThat(MessageTemplate.compile("%s и %s").format(null, 1.5)).isEqualTo("null и 1.5");
+    assertThat(MessageTemplate.compile("%d из %d").format(1L, (short) 2)).isEqualTo("1 из 2");
+    assertThat(catchThrowable(() -> MessageTemplate.compile("%d").format("text")))
+      .isInstanceOf(IllegalFormatConversionException.class);
+    assertThat(MessageTemplate.compile("%5.2f").format(1.5)).isEqualTo(String.format("%5.2f", 1.5));
+  }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.diagnostics;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
+import com.github._1c_syntax.bsl.languageserver.context.computer.CloneFingerprintComputer;
+import com.github._1c_syntax.bsl.languageserver.providers.DiagnosticProvider;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.DiagnosticRelatedInformation;
+import org.eclipse.lsp4j.Range;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DuplicatedCodeDiagnosticTest extends AbstractDiagnosticTest<DuplicatedCodeDiagnostic> {
+
+  DuplicatedCodeDiagnosticTest() {
+    super(DuplicatedCodeDiagnostic.class);
+  }
+
+  @Test
+  void test() {
+    // when
+    List<Diagnostic> diagnostics = getDiagnostics();
+
+    // then
+    assertThat(diagnostics).hasSize(2);
+
+    Diagnostic first = diagnostics.get(0);
+    assertThat(first.getRange()).satisfies(range -> assertInside(range, 0, 23));
+    assertThat(first.getRelatedInformation()).hasSize(2);
+    assertThat(first.getRelatedInformation().get(0).getLocation().getRange()).isEqualTo(first.getRange());
+    assertThat(first.getRelatedInformation().get(1).getLocation().getRange())
+      .satisfies(range -> assertInside(range, 25, 48));
+
+    Diagnostic second = diagnostics.get(1);
+    assertThat(second.getRange()).satisfies(range -> assertInside(range, 25, 48));
+    assertThat(second.getRelatedInformation().get(1).getLocation().getRange())
+      .satisfies(range -> assertInside(range, 0, 23));
+  }
+
+  @Test
+  void testCopiesInOtherModules() throws IOException {
+    // given
+    String content = IOUtils.resourceToString(
+      "diagnostics/DuplicatedCodeDiagnostic.bsl",
+      StandardCharsets.UTF_8,
+      getClass().getClassLoader()
+    );
+    String otherContent = content.substring(0, content.indexOf("Процедура ЗаполнитьПоЗаказу"));
+    ServerContext context = new ServerContext();
+    DocumentContext otherDocumentContext = new DocumentContext("file:///other.bsl", otherContent, context);
+    context.getWorkspaceCloneIndex().update(new CloneFingerprintComputer(otherDocumentContext).compute());
+
+    DocumentContext documentContext = new DocumentContext("file:///module.bsl", content, context);
+    context.getWorkspaceCloneIndex().update(new CloneFingerprintComputer(documentContext).compute());
+
+    // when
+    List<Diagnostic> diagnostics = getDiagnosticInstance().getDiagnostics(documentContext);
+
+    // then
+    assertThat(diagnostics).hasSize(2);
+    assertThat(diagnostics).allSatisfy(diagnostic -> assertThat(diagnostic.getRelatedInformation())
+      .extracting((DiagnosticRelatedInformation information) -> information.getLocation().getUri())
+      .containsExactly("file:///module.bsl", "file:///module.bsl", "file:///other.bsl"));
+  }
+
+  @Test
+  void testConfigure() {
+    // given
+    Map<String, Object> configuration = DiagnosticProvider.getDefaultDiagnosticConfiguration(getDiagnosticInstance());
+    configuration.put("minTokens", 200);
+    getDiagnosticInstance().configure(configuration);
+
+    // when
+    List<Diagnostic> diagnostics = getDiagnostics();
+
+    // then
+    assertThat(diagnostics).isEmpty();
+  }
+
+  @Test
+  void testConfigureBelowGuaranteedLength() throws IllegalAccessException {
+    // given
+    Map<String, Object> configuration = DiagnosticProvider.getDefaultDiagnosticConfiguration(getDiagnosticInstance());
+    configuration.put("minTokens", 10);
+
+    // when
+    getDiagnosticInstance().configure(configuration);
+
+    // then
+    assertThat(FieldUtils.readField(getDiagnosticInstance(), "minTokens", true))
+      .isEqualTo(CloneFingerprintComputer.GUARANTEED_CLONE_LENGTH);
+  }
+
+  private static void assertInside(Range range, int startLine, int endLine) {
+    assertThat(range.getStart().getLine()).isBetween(startLine, endLine);
+    assertThat(range.getEnd().getLine()).isBetween(startLine, endLine);
+  }
+}
@@ -81,4 +81,45 @@ class JsonReporterTest {
     Assertions.assertThat(report.getFileinfos()).hasSize(1);
 
   }
+
+  @Test
+  void reportStreaming() throws IOException {
+
+    // given
+    Diagnostic diagnostic = new Diagnostic(
+      Ranges.create(0, 1, 2, 3),
+      "message",
+      DiagnosticSeverity.Error,
+      "test-source",
+      "test"
+    );
+
+    FileInfo firstFileInfo = new FileInfo(
+      new DocumentContext("file:///fake-uri.bsl", ""),
+      Collections.singletonList(diagnostic)
+    );
+    FileInfo secondFileInfo = new FileInfo(
+      new DocumentContext("file:///fake-uri2.bsl", ""),
+      Collections.emptyList()
+    );
+
+    JsonReporter reporter = new JsonReporter();
+
+    // when
+    reporter.beginReport(LocalDateTime.now(), ".");
+    reporter.report(firstFileInfo);
+    reporter.report(secondFileInfo);
+    reporter.endReport();
+
+    // then
+    ObjectMapper mapper = new ObjectMapper();
+    mapper.findAndRegisterModules();
+    AnalysisInfo report = mapper.readValue(file, AnalysisInfo.class);
+
+    Assertions.assertThat(report.getSourceDir()).isEqualTo(".");
+    Assertions.assertThat(report.getFileinfos()).hasSize(2);
+    Assertions.assertThat(report.getFileinfos().get(0).getDiagnostics()).hasSize(1);
+    Assertions.assertThat(report.getFileinfos().get(1).getDiagnostics()).isEmpty();
+
+  }
 }
\ No newline at end of file
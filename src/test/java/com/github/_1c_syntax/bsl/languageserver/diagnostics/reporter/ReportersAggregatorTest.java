@@ -37,6 +37,9 @@ import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.Collections;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
 class ReportersAggregatorTest {
 
   private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
@@ -75,4 +78,17 @@ class ReportersAggregatorTest {
     // FIXME How test logger?
     // assertThat(outContent.toString()).containsIgnoringCase("Analysis date: ");
   }
+
+  @Test
+  void testEndReportEndsEveryReporter() {
+    // given
+    ReportersAggregator aggregator = new ReportersAggregator(Paths.get("."), new String[]{ "json", "junit" });
+
+    // when
+    Throwable thrown = catchThrowable(aggregator::endReport);
+
+    // then
+    assertThat(thrown).isInstanceOf(IllegalStateException.class);
+    assertThat(thrown.getSuppressed()).hasSize(1);
+  }
 }
\ No newline at end of file
@@ -0,0 +1,105 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.profiling;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.providers.DiagnosticProvider;
+import org.eclipse.lsp4j.Diagnostic;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.github._1c_syntax.bsl.languageserver.util.TestUtils.getDocumentContextFromFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProfilerTest {
+
+  @Test
+  void testDisabledProfilerDoesNotMeasure() {
+    // given
+    Profiler profiler = new Profiler();
+
+    // when
+    String result = profiler.measureDiagnostic("LineLength", () -> "result");
+
+    // then
+    assertThat(result).isEqualTo("result");
+    assertThat(profiler.getReport(Profiler.DEFAULT_REPORT_LIMIT).getDiagnostics()).isEmpty();
+  }
+
+  @Test
+  void testReportIsSortedAndLimited() {
+    // given
+    Profiler profiler = new Profiler();
+    profiler.setEnabled(true);
+
+    // when
+    profiler.measureDiagnostic("Fast", () -> null);
+    profiler.measureDiagnostic("Slow", () -> sleep(20));
+    profiler.measureDiagnostic("Slow", () -> sleep(20));
+    ProfileReport report = profiler.getReport(1);
+
+    // then
+    assertThat(report.getDiagnostics()).hasSize(1);
+    ProfileEntry entry = report.getDiagnostics().get(0);
+    assertThat(entry.getName()).isEqualTo("Slow");
+    assertThat(entry.getCount()).isEqualTo(2);
+    assertThat(entry.getWallTime()).isGreaterThanOrEqualTo(40_000_000L);
+    assertThat(report.format()).contains("Diagnostics:", "Slow");
+
+    // when
+    profiler.clear();
+
+    // then
+    assertThat(profiler.getReport(1).getDiagnostics()).isEmpty();
+  }
+
+  @Test
+  void testProfiledDiagnostics() {
+    // given
+    DocumentContext documentContext = getDocumentContextFromFile("./src/test/resources/diagnostics/MagicNumberDiagnostic.bsl");
+    DiagnosticProvider diagnosticProvider = new DiagnosticProvider();
+    List<Diagnostic> expectedDiagnostics = diagnosticProvider.computeDiagnostics(documentContext);
+    Profiler profiler = documentContext.getServerContext().getProfiler();
+    profiler.setEnabled(true);
+
+    // when
+    List<Diagnostic> diagnostics = diagnosticProvider.computeDiagnostics(documentContext);
+    ProfileReport report = profiler.getReport(Integer.MAX_VALUE);
+
+    // then
+    assertThat(diagnostics).containsExactlyInAnyOrderElementsOf(expectedDiagnostics);
+    assertThat(report.getDiagnostics()).isNotEmpty();
+    assertThat(report.getFiles())
+      .hasSize(1)
+      .allMatch(entry -> entry.getName().equals(documentContext.getUri()));
+  }
+
+  private static Object sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return null;
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.providers;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
+import com.github._1c_syntax.bsl.languageserver.context.index.WorkspaceIndexer;
+import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.lsp4j.Location;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.TextDocumentIdentifier;
+import org.eclipse.lsp4j.TextDocumentPositionParams;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DefinitionProviderTest {
+
+  private static final String CALLER_CONTENT = "Процедура Вызов()\n" +
+    "\tПервыйОбщийМодуль.ПолучитьДанные();\n" +
+    "\tЛокальный();\n" +
+    "КонецПроцедуры\n" +
+    "\n" +
+    "Процедура Локальный()\n" +
+    "КонецПроцедуры\n";
+
+  private final File tempDir = new File("./build/definition-provider-test");
+
+  private ServerContext context;
+  private WorkspaceIndexer indexer;
+  private File commonModule;
+  private File caller;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    FileUtils.copyDirectory(new File("./src/test/resources/metadata"), tempDir);
+    commonModule = new File(tempDir, "CommonModules/ПервыйОбщийМодуль/Ext/Module.bsl");
+    FileUtils.writeStringToFile(
+      commonModule,
+      "Функция ПолучитьДанные() Экспорт\n\tВозврат Неопределено;\nКонецФункции\n",
+      StandardCharsets.UTF_8
+    );
+    caller = new File(tempDir, "Caller.bsl");
+    FileUtils.writeStringToFile(caller, CALLER_CONTENT, StandardCharsets.UTF_8);
+
+    context = new ServerContext(tempDir.toPath());
+    indexer = new WorkspaceIndexer(context);
+    indexer.indexWorkspace(tempDir.toPath()).join();
+  }
+
+  @AfterEach
+  void tearDown() {
+    indexer.shutdown();
+    FileUtils.deleteQuietly(tempDir);
+  }
+
+  @Test
+  void testDefinitionInCommonModule() {
+    // given
+    DocumentContext documentContext = context.addDocument(getUri(caller), CALLER_CONTENT);
+    TextDocumentPositionParams params = new TextDocumentPositionParams(
+      new TextDocumentIdentifier(documentContext.getUri()),
+      new Position(1, 22)
+    );
+
+    // when
+    List<Location> definition = DefinitionProvider.getDefinition(params, documentContext, context);
+
+    // then
+    assertThat(definition).hasSize(1);
+    assertThat(definition.get(0).getUri()).isEqualTo(getUri(commonModule));
+    assertThat(definition.get(0).getRange()).isEqualTo(Ranges.create(0, 8, 0, 22));
+  }
+
+  @Test
+  void testDefinitionInSameModule() {
+    // given
+    DocumentContext documentContext = context.addDocument(getUri(caller), CALLER_CONTENT);
+    TextDocumentPositionParams params = new TextDocumentPositionParams(
+      new TextDocumentIdentifier(documentContext.getUri()),
+      new Position(2, 3)
+    );
+
+    // when
+    List<Location> definition = DefinitionProvider.getDefinition(params, documentContext, context);
+
+    // then
+    assertThat(definition).hasSize(1);
+    assertThat(definition.get(0).getUri()).isEqualTo(documentContext.getUri());
+    assertThat(definition.get(0).getRange()).isEqualTo(Ranges.create(5, 10, 5, 19));
+  }
+
+  @Test
+  void testNoDefinitionOutsideOfCall() {
+    // given
+    DocumentContext documentContext = context.addDocument(getUri(caller), CALLER_CONTENT);
+    TextDocumentPositionParams params = new TextDocumentPositionParams(
+      new TextDocumentIdentifier(documentContext.getUri()),
+      new Position(3, 2)
+    );
+
+    // when
+    List<Location> definition = DefinitionProvider.getDefinition(params, documentContext, context);
+
+    // then
+    assertThat(definition).isEmpty();
+  }
+
+  private static String getUri(File file) {
+    return file.toPath().toAbsolutePath().normalize().toUri().toString();
+  }
+}
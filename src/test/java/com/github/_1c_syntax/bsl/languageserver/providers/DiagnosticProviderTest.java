@@ -21,16 +21,27 @@
  */
 package com.github._1c_syntax.bsl.languageserver.providers;
 
+import com.github._1c_syntax.bsl.languageserver.configuration.LanguageServerConfiguration;
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.AbstractListenerDiagnostic;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.AbstractVisitorDiagnostic;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.BSLDiagnostic;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.LineLengthDiagnostic;
+import com.github._1c_syntax.bsl.languageserver.diagnostics.NestedStatementsDiagnostic;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.NumberOfOptionalParamsDiagnostic;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticMetadata;
 import com.github._1c_syntax.bsl.languageserver.diagnostics.metadata.DiagnosticParameter;
+import com.github._1c_syntax.bsl.languageserver.util.TestUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
 import org.junit.jupiter.api.Test;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.MissingResourceException;
+import java.util.Queue;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
@@ -132,4 +143,76 @@ class DiagnosticProviderTest {
         DiagnosticProvider.getDiagnosticTags(diagnosticClass).size() > 0
           && DiagnosticProvider.getDiagnosticTags(diagnosticClass).size() <= 3);
   }
+
+  @Test
+  void testDiagnosticInstancesAreReusedUntilConfigurationChange() {
+    // given
+    LanguageServerConfiguration configuration = LanguageServerConfiguration.create();
+    DiagnosticProvider diagnosticProvider = new DiagnosticProvider(configuration);
+
+    // when
+    BSLDiagnostic diagnostic = diagnosticProvider.getDiagnosticInstance(LineLengthDiagnostic.class);
+
+    // then
+    assertThat(diagnosticProvider.getDiagnosticInstance(LineLengthDiagnostic.class)).isSameAs(diagnostic);
+
+    // when
+    Map<String, Object> lineLengthConfiguration = new HashMap<>();
+    lineLengthConfiguration.put("maxLineLength", 140);
+    Map<String, Either<Boolean, Map<String, Object>>> diagnostics = new HashMap<>();
+    diagnostics.put("LineLength", Either.forRight(lineLengthConfiguration));
+    configuration.setDiagnostics(diagnostics);
+
+    // then
+    assertThat(diagnosticProvider.getDiagnosticInstance(LineLengthDiagnostic.class)).isNotSameAs(diagnostic);
+  }
+  @Test
+  void testPooledDiagnosticInstancesDoNotKeepDocument() throws IllegalAccessException {
+    // given
+    DiagnosticProvider diagnosticProvider = new DiagnosticProvider();
+    DocumentContext documentContext =
+      TestUtils.getDocumentContextFromFile("./src/test/resources/diagnostics/NestedStatementsDiagnostic.bsl");
+
+    // when
+    diagnosticProvider.computeDiagnostics(documentContext);
+
+    // then
+    Queue<?> pool = (Queue<?>) FieldUtils.readField(diagnosticProvider, "diagnosticInstancesPool", true);
+    assertThat(pool).hasSize(1);
+    List<?> instances = (List<?>) FieldUtils.readField(pool.peek(), "instances", true);
+    assertThat(instances).hasAtLeastOneElementOfType(NestedStatementsDiagnostic.class);
+    for (Object instance : instances) {
+      if (instance instanceof AbstractVisitorDiagnostic || instance instanceof AbstractListenerDiagnostic) {
+        assertThat(FieldUtils.readField(instance, "documentContext", true)).isNull();
+      }
+      if (instance instanceof NestedStatementsDiagnostic) {
+        assertThat(FieldUtils.readField(instance, "lastCtx", true)).isNull();
+      }
+    }
+  }
+
+  @Test
+  void testComputedDiagnosticsAreBoundToDocumentVersion() {
+    // given
+    ServerContext serverContext = new ServerContext();
+    DiagnosticProvider diagnosticProvider = new DiagnosticProvider();
+    DocumentContext oldVersion = serverContext.addDocument("file:///fake-uri.bsl", "А = 1");
+    DocumentContext newVersion = serverContext.addDocument("file:///fake-uri.bsl", "А = 2");
+
+    // when
+    diagnosticProvider.computeDiagnostics(newVersion);
+    diagnosticProvider.computeDiagnostics(oldVersion);
+
+    // then
+    assertThat(diagnosticProvider.getComputedDiagnostics(newVersion).isEmpty()).isFalse();
+    assertThat(diagnosticProvider.getComputedDiagnostics(newVersion).getVersion()).isEqualTo(newVersion.getVersion());
+    assertThat(diagnosticProvider.getComputedDiagnostics(oldVersion).isEmpty()).isTrue();
+
+    // when
+    diagnosticProvider.clearComputedDiagnostics(newVersion);
+
+    // then
+    assertThat(diagnosticProvider.getComputedDiagnostics(newVersion).isEmpty()).isTrue();
+  }
+
 }
@@ -0,0 +1,186 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.providers;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.util.TestUtils;
+import org.apache.commons.lang3.reflect.FieldUtils;
+import org.eclipse.lsp4j.MessageActionItem;
+import org.eclipse.lsp4j.MessageParams;
+import org.eclipse.lsp4j.PublishDiagnosticsParams;
+import org.eclipse.lsp4j.ShowMessageRequestParams;
+import org.eclipse.lsp4j.services.LanguageClient;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DiagnosticSchedulerTest {
+
+  @Test
+  void testRapidChangesAreCoalesced() throws InterruptedException {
+    // given
+    DiagnosticScheduler diagnosticScheduler = new DiagnosticScheduler(new DiagnosticProvider(), 1);
+    DocumentContext documentContext = TestUtils.getDocumentContext("А = 1;;");
+    PublishedDiagnosticsCollector client = new PublishedDiagnosticsCollector(1);
+
+    // when
+    diagnosticScheduler.schedule(client, documentContext, 200);
+    diagnosticScheduler.schedule(client, documentContext, 200);
+    diagnosticScheduler.schedule(client, documentContext, 200);
+
+    // then
+    assertThat(client.await()).isTrue();
+    TimeUnit.MILLISECONDS.sleep(300);
+    assertThat(client.getPublished()).hasSize(1);
+    assertThat(client.getPublished().get(0).getUri()).isEqualTo(documentContext.getUri());
+  }
+
+  @Test
+  void testCancel() throws InterruptedException {
+    // given
+    DiagnosticScheduler diagnosticScheduler = new DiagnosticScheduler(new DiagnosticProvider(), 1);
+    DocumentContext documentContext = TestUtils.getDocumentContext("А = 1;;");
+    PublishedDiagnosticsCollector client = new PublishedDiagnosticsCollector(1);
+
+    // when
+    diagnosticScheduler.schedule(client, documentContext, 100);
+    diagnosticScheduler.cancel(documentContext.getUri());
+
+    // then
+    assertThat(client.await()).isFalse();
+    assertThat(client.getPublished()).isEmpty();
+  }
+
+  @Test
+  void testDocumentStateIsReleased() throws InterruptedException, IllegalAccessException {
+    // given
+    DiagnosticScheduler diagnosticScheduler = new DiagnosticScheduler(new DiagnosticProvider(), 1);
+    DocumentContext documentContext = TestUtils.getDocumentContext("А = 1;;");
+    PublishedDiagnosticsCollector client = new PublishedDiagnosticsCollector(1);
+    Map<?, ?> tasks = (Map<?, ?>) FieldUtils.readField(diagnosticScheduler, "tasks", true);
+    Map<?, ?> versions = (Map<?, ?>) FieldUtils.readField(diagnosticScheduler, "versions", true);
+
+    // when
+    diagnosticScheduler.schedule(client, documentContext, 0);
+
+    // then
+    assertThat(client.await()).isTrue();
+    for (int attempt = 0; attempt < 10 && !tasks.isEmpty(); attempt++) {
+      TimeUnit.MILLISECONDS.sleep(50);
+    }
+    assertThat(tasks).isEmpty();
+    assertThat(versions).containsKey(documentContext.getUri());
+
+    // when
+    diagnosticScheduler.cancel(documentContext.getUri());
+
+    // then
+    assertThat(versions).isEmpty();
+  }
+
+  @Test
+  void testCancelWaitsForPublishInProgress() throws Exception {
+    // given
+    DiagnosticScheduler diagnosticScheduler = new DiagnosticScheduler(new DiagnosticProvider(), 1);
+    DocumentContext documentContext = TestUtils.getDocumentContext("А = 1;;");
+    CountDownLatch publishStarted = new CountDownLatch(1);
+    CountDownLatch publishAllowed = new CountDownLatch(1);
+    PublishedDiagnosticsCollector client = new PublishedDiagnosticsCollector(1) {
+      @Override
+      public void publishDiagnostics(PublishDiagnosticsParams diagnostics) {
+        publishStarted.countDown();
+        try {
+          publishAllowed.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        super.publishDiagnostics(diagnostics);
+      }
+    };
+    diagnosticScheduler.schedule(client, documentContext, 0);
+    assertThat(publishStarted.await(1, TimeUnit.SECONDS)).isTrue();
+
+    // when
+    CompletableFuture<Void> cancel = CompletableFuture.runAsync(
+      () -> diagnosticScheduler.cancel(documentContext.getUri())
+    );
+
+    // then
+    TimeUnit.MILLISECONDS.sleep(100);
+    assertThat(cancel).isNotDone();
+
+    publishAllowed.countDown();
+    cancel.get(1, TimeUnit.SECONDS);
+    assertThat(client.getPublished()).hasSize(1);
+  }
+
+  private static class PublishedDiagnosticsCollector implements LanguageClient {
+
+    private final List<PublishDiagnosticsParams> published = new CopyOnWriteArrayList<>();
+    private final CountDownLatch latch;
+
+    PublishedDiagnosticsCollector(int expectedCount) {
+      latch = new CountDownLatch(expectedCount);
+    }
+
+    List<PublishDiagnosticsParams> getPublished() {
+      return published;
+    }
+
+    boolean await() throws InterruptedException {
+      return latch.await(1, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void publishDiagnostics(PublishDiagnosticsParams diagnostics) {
+      published.add(diagnostics);
+      latch.countDown();
+    }
+
+    @Override
+    public void telemetryEvent(Object object) {
+      // no-op
+    }
+
+    @Override
+    public void showMessage(MessageParams messageParams) {
+      // no-op
+    }
+
+    @Override
+    public CompletableFuture<MessageActionItem> showMessageRequest(ShowMessageRequestParams requestParams) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void logMessage(MessageParams message) {
+      // no-op
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.providers;
+
+import com.github._1c_syntax.bsl.languageserver.context.DocumentContext;
+import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
+import com.github._1c_syntax.bsl.languageserver.context.index.WorkspaceIndexer;
+import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
+import org.apache.commons.io.FileUtils;
+import org.eclipse.lsp4j.Location;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.ReferenceContext;
+import org.eclipse.lsp4j.ReferenceParams;
+import org.eclipse.lsp4j.TextDocumentIdentifier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReferenceProviderTest {
+
+  private static final String COMMON_MODULE_CONTENT = "Функция ПолучитьДанные() Экспорт\n" +
+    "\tВозврат Неопределено;\n" +
+    "КонецФункции\n";
+
+  private static final String CALLER_CONTENT = "Процедура Вызов()\n" +
+    "\tПервыйОбщийМодуль.ПолучитьДанные();\n" +
+    "\tЛокальный();\n" +
+    "\tЛокальный();\n" +
+    "КонецПроцедуры\n" +
+    "\n" +
+    "Процедура Локальный()\n" +
+    "КонецПроцедуры\n";
+
+  private final File tempDir = new File("./build/reference-provider-test");
+
+  private ServerContext context;
+  private WorkspaceIndexer indexer;
+  private File commonModule;
+  private File caller;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    FileUtils.copyDirectory(new File("./src/test/resources/metadata"), tempDir);
+    commonModule = new File(tempDir, "CommonModules/ПервыйОбщийМодуль/Ext/Module.bsl");
+    FileUtils.writeStringToFile(commonModule, COMMON_MODULE_CONTENT, StandardCharsets.UTF_8);
+    caller = new File(tempDir, "Caller.bsl");
+    FileUtils.writeStringToFile(caller, CALLER_CONTENT, StandardCharsets.UTF_8);
+
+    context = new ServerContext(tempDir.toPath());
+    indexer = new WorkspaceIndexer(context);
+    indexer.indexWorkspace(tempDir.toPath()).join();
+  }
+
+  @AfterEach
+  void tearDown() {
+    indexer.shutdown();
+    FileUtils.deleteQuietly(tempDir);
+  }
+
+  @Test
+  void testReferencesToCommonModuleMethod() {
+    // given
+    DocumentContext documentContext = context.addDocument(getUri(commonModule), COMMON_MODULE_CONTENT);
+    ReferenceParams params = createParams(documentContext, new Position(0, 10), false);
+
+    // when
+    List<Location> references = ReferenceProvider.getReferences(params, documentContext, context);
+
+    // then
+    assertThat(references).hasSize(1);
+    assertThat(references.get(0).getUri()).isEqualTo(getUri(caller));
+    assertThat(references.get(0).getRange()).isEqualTo(Ranges.create(1, 19, 1, 33));
+  }
+
+  @Test
+  void testReferencesToLocalMethod() {
+    // given
+    DocumentContext documentContext = context.addDocument(getUri(caller), CALLER_CONTENT);
+    ReferenceParams params = createParams(documentContext, new Position(2, 3), true);
+
+    // when
+    List<Location> references = ReferenceProvider.getReferences(params, documentContext, context);
+
+    // then
+    assertThat(references)
+      .hasSize(3)
+      .allMatch(location -> location.getUri().equals(documentContext.getUri()));
+    assertThat(references.get(0).getRange()).isEqualTo(Ranges.create(6, 10, 6, 19));
+  }
+
+  private static ReferenceParams createParams(
+    DocumentContext documentContext,
+    Position position,
+    boolean includeDeclaration
+  ) {
+    ReferenceParams params = new ReferenceParams(new ReferenceContext(includeDeclaration));
+    params.setTextDocument(new TextDocumentIdentifier(documentContext.getUri()));
+    params.setPosition(position);
+    return params;
+  }
+
+  private static String getUri(File file) {
+    return file.toPath().toAbsolutePath().normalize().toUri().toString();
+  }
+}
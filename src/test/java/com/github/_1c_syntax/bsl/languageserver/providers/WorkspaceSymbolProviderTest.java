@@ -0,0 +1,61 @@
+/*
+ * This file is a part of BSL Language Server.
+ *
+ * Copyright © 2018-2019
+ * Alexey Sosnoviy <labotamy@gmail.com>, Nikita Gryzlov <nixel2007@gmail.com> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * BSL Language Server is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * BSL Language Server is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with BSL Language Server.
+ */
+package com.github._1c_syntax.bsl.languageserver.providers;
+
+import com.github._1c_syntax.bsl.languageserver.context.ServerContext;
+import com.github._1c_syntax.bsl.languageserver.context.symbol.MethodSymbol;
+import com.github._1c_syntax.bsl.languageserver.utils.Ranges;
+import org.eclipse.lsp4j.SymbolInformation;
+import org.eclipse.lsp4j.SymbolKind;
+import org.eclipse.lsp4j.WorkspaceSymbolParams;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WorkspaceSymbolProviderTest {
+
+  @Test
+  void testGetSymbols() {
+    // given
+    ServerContext context = new ServerContext();
+    MethodSymbol methodSymbol = MethodSymbol.builder()
+      .name("ПолучитьДанные")
+      .range(Ranges.create(1, 0, 3, 14))
+      .subNameRange(Ranges.create(1, 10, 1, 24))
+      .build();
+    context.getWorkspaceSymbolIndex().update("file:///module.bsl", Collections.singletonList(methodSymbol));
+
+    // when
+    List<SymbolInformation> symbols = WorkspaceSymbolProvider.getSymbols(new WorkspaceSymbolParams("получ"), context);
+
+    // then
+    assertThat(symbols).hasSize(1);
+    SymbolInformation symbol = symbols.get(0);
+    assertThat(symbol.getName()).isEqualTo("ПолучитьДанные");
+    assertThat(symbol.getKind()).isEqualTo(SymbolKind.Method);
+    assertThat(symbol.getLocation().getUri()).isEqualTo("file:///module.bsl");
+    assertThat(symbol.getLocation().getRange()).isEqualTo(Ranges.create(1, 0, 3, 14));
+  }
+}